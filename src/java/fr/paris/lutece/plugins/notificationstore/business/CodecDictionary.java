@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * Preset compression dictionary of a demand type. A dictionary is never modified : a new one is trained instead, and the content rows record the id of
+ * the dictionary they were encoded with.
+ */
+public class CodecDictionary
+{
+    private int _nId;
+    private String _strDemandTypeId;
+    private long _lCreationDate;
+    private byte [ ] _content;
+
+    /**
+     * @return the id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * @param nId
+     *            the id to set
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * @return the demand type id
+     */
+    public String getDemandTypeId( )
+    {
+        return _strDemandTypeId;
+    }
+
+    /**
+     * @param strDemandTypeId
+     *            the demand type id to set
+     */
+    public void setDemandTypeId( String strDemandTypeId )
+    {
+        _strDemandTypeId = strDemandTypeId;
+    }
+
+    /**
+     * @return the creation date
+     */
+    public long getCreationDate( )
+    {
+        return _lCreationDate;
+    }
+
+    /**
+     * @param lCreationDate
+     *            the creation date to set
+     */
+    public void setCreationDate( long lCreationDate )
+    {
+        _lCreationDate = lCreationDate;
+    }
+
+    /**
+     * @return the dictionary content
+     */
+    public byte [ ] getContent( )
+    {
+        return _content;
+    }
+
+    /**
+     * @param content
+     *            the dictionary content to set
+     */
+    public void setContent( byte [ ] content )
+    {
+        _content = content;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the compression dictionaries
+ */
+public final class CodecDictionaryDAO
+{
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_codec_dictionary ( demand_type_id, creation_date, content ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT id_dictionary, demand_type_id, creation_date, content FROM notificationstore_codec_dictionary WHERE id_dictionary = ? ";
+    private static final String SQL_QUERY_SELECT_LAST_BY_DEMAND_TYPE = "SELECT id_dictionary, demand_type_id, creation_date, content FROM notificationstore_codec_dictionary "
+            + " WHERE demand_type_id = ? ORDER BY id_dictionary DESC LIMIT 1 ";
+    private static final String SQL_QUERY_SELECT_SAMPLES = "SELECT gc.id_notification_content, gc.notification_id, gc.notification_type, gc.codec, gc.dictionary_id, gc.content "
+            + " FROM notificationstore_notification_content gc JOIN notificationstore_notification gn ON gn.id = gc.notification_id "
+            + " WHERE gn.demand_type_id = ? AND gc.content IS NOT NULL ORDER BY gc.id_notification_content DESC LIMIT ? ";
+
+    /**
+     * Insert a dictionary
+     * 
+     * @param dictionary
+     *            the dictionary
+     */
+    public void insert( CodecDictionary dictionary )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, dictionary.getDemandTypeId( ) );
+            daoUtil.setTimestamp( 2, new Timestamp( dictionary.getCreationDate( ) ) );
+            daoUtil.setBytes( 3, dictionary.getContent( ) );
+
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                dictionary.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * Load a dictionary
+     * 
+     * @param nId
+     *            the dictionary id
+     * @return the dictionary, or null
+     */
+    public CodecDictionary load( int nId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setInt( 1, nId );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? getDictionary( daoUtil ) : null;
+        }
+    }
+
+    /**
+     * Load the last dictionary trained for a demand type
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @return the dictionary, or null
+     */
+    public CodecDictionary loadLastByDemandTypeId( String strDemandTypeId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_LAST_BY_DEMAND_TYPE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strDemandTypeId );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? getDictionary( daoUtil ) : null;
+        }
+    }
+
+    /**
+     * Load the most recent contents stored inline for a demand type, used to train its dictionary
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param nLimit
+     *            the maximum number of contents
+     * @return the contents, most recent first
+     */
+    public List<NotificationContent> selectSamples( String strDemandTypeId, int nLimit )
+    {
+        List<NotificationContent> listSamples = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_SAMPLES, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strDemandTypeId );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                NotificationContent content = new NotificationContent( );
+                content.setId( daoUtil.getInt( "id_notification_content" ) );
+                content.setIdNotification( daoUtil.getInt( "notification_id" ) );
+                content.setNotificationType( daoUtil.getString( "notification_type" ) );
+                content.setCodec( daoUtil.getString( "codec" ) );
+                int nDictionaryId = daoUtil.getInt( "dictionary_id" );
+                content.setDictionaryId( nDictionaryId > 0 ? nDictionaryId : null );
+                content.setContent( daoUtil.getBytes( "content" ) );
+                listSamples.add( content );
+            }
+        }
+
+        return listSamples;
+    }
+
+    /**
+     * Read a dictionary
+     * 
+     * @param daoUtil
+     * @return the dictionary
+     */
+    private static CodecDictionary getDictionary( DAOUtil daoUtil )
+    {
+        CodecDictionary dictionary = new CodecDictionary( );
+        dictionary.setId( daoUtil.getInt( "id_dictionary" ) );
+        dictionary.setDemandTypeId( daoUtil.getString( "demand_type_id" ) );
+        dictionary.setCreationDate( daoUtil.getTimestamp( "creation_date" ).getTime( ) );
+        dictionary.setContent( daoUtil.getBytes( "content" ) );
+
+        return dictionary;
+    }
+}
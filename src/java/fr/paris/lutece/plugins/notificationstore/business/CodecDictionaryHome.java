@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.List;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the compression dictionaries
+ */
+public final class CodecDictionaryHome
+{
+    // Static variable pointed at the DAO instance
+    private static CodecDictionaryDAO _dao = SpringContextService.getBean( "notificationstore.codecDictionaryDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private CodecDictionaryHome( )
+    {
+    }
+
+    /**
+     * Create a dictionary
+     * 
+     * @param dictionary
+     *            the dictionary
+     * @return the dictionary, with its id
+     */
+    public static CodecDictionary create( CodecDictionary dictionary )
+    {
+        _dao.insert( dictionary );
+
+        return dictionary;
+    }
+
+    /**
+     * Find a dictionary
+     * 
+     * @param nId
+     *            the dictionary id
+     * @return the dictionary, or null
+     */
+    public static CodecDictionary findByPrimaryKey( int nId )
+    {
+        return _dao.load( nId );
+    }
+
+    /**
+     * Find the last dictionary trained for a demand type
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @return the dictionary, or null
+     */
+    public static CodecDictionary findLastByDemandTypeId( String strDemandTypeId )
+    {
+        return _dao.loadLastByDemandTypeId( strDemandTypeId );
+    }
+
+    /**
+     * Get the most recent contents stored inline for a demand type
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param nLimit
+     *            the maximum number of contents
+     * @return the contents, most recent first
+     */
+    public static List<NotificationContent> getSamples( String strDemandTypeId, int nLimit )
+    {
+        return _dao.selectSamples( strDemandTypeId, nLimit );
+    }
+}
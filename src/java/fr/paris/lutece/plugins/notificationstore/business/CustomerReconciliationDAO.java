@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the demands whose customer could not be resolved at ingestion time
+ */
+public final class CustomerReconciliationDAO
+{
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_customer_unresolved ( connection_id, demand_id, demand_type_id, creation_date ) VALUES ( ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT_EXISTS = "SELECT id FROM notificationstore_customer_unresolved WHERE connection_id = ? AND demand_id = ? AND demand_type_id = ? ";
+    private static final String SQL_QUERY_SELECT_PENDING = "SELECT id, connection_id, demand_id, demand_type_id FROM notificationstore_customer_unresolved ORDER BY id ASC LIMIT ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_customer_unresolved WHERE id = ? ";
+
+    // re-key of the demand : the notifications reference ( demand_type_id, customer_id, id ) with ON UPDATE RESTRICT
+    private static final String SQL_QUERY_SELECT_DEMAND_UID = "SELECT uid FROM notificationstore_demand WHERE id = ? AND demand_type_id = ? AND customer_id = ? FOR UPDATE ";
+    private static final String SQL_QUERY_COPY_DEMAND = "INSERT INTO notificationstore_demand ( id, demand_type_id, subtype_id, reference, status_id, customer_id, creation_date, closure_date, max_steps, current_step, modify_date, version, last_notification_date ) "
+            + " SELECT id, demand_type_id, subtype_id, reference, status_id, ?, creation_date, closure_date, max_steps, current_step, modify_date, version, last_notification_date "
+            + " FROM notificationstore_demand WHERE uid = ? ";
+    // merge into an existing demand : the assignments of a multiple-table update have no defined order, each one only reads its own column
+    private static final String SQL_QUERY_MERGE_DEMAND_DATES = "UPDATE notificationstore_demand t JOIN notificationstore_demand s ON s.uid = ? "
+            + " SET t.creation_date = LEAST( t.creation_date, s.creation_date ), "
+            + " t.modify_date = GREATEST( COALESCE( t.modify_date, s.modify_date ), COALESCE( s.modify_date, t.modify_date ) ), t.version = t.version + 1 "
+            + " WHERE t.uid = ? ";
+    private static final String SQL_QUERY_MERGE_DEMAND_STATE = "UPDATE notificationstore_demand t JOIN notificationstore_demand s ON s.uid = ? "
+            + " SET t.status_id = s.status_id, t.closure_date = s.closure_date, t.current_step = s.current_step, t.last_notification_date = s.last_notification_date "
+            + " WHERE t.uid = ? AND s.last_notification_date IS NOT NULL AND ( t.last_notification_date IS NULL OR t.last_notification_date < s.last_notification_date ) ";
+    private static final String SQL_QUERY_UPDATE_NOTIFICATIONS = "UPDATE notificationstore_notification SET customer_id = ? WHERE demand_id = ? AND demand_type_id = ? AND customer_id = ? ";
+    private static final String SQL_QUERY_UPDATE_EVENTS = "UPDATE notificationstore_notification_event SET customer_id = ? WHERE demand_id = ? AND demand_type_id = ? AND ( customer_id = ? OR customer_id IS NULL ) ";
+    private static final String SQL_QUERY_DELETE_DEMAND = "DELETE FROM notificationstore_demand WHERE id = ? AND demand_type_id = ? AND customer_id = ? ";
+
+    /**
+     * Record a demand to reconcile, once per connection id and demand
+     * 
+     * @param strConnectionId
+     *            the connection id
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     */
+    public void insert( String strConnectionId, String strDemandId, String strDemandTypeId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_EXISTS, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strConnectionId );
+            daoUtil.setString( 2, strDemandId );
+            daoUtil.setString( 3, strDemandTypeId );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                return;
+            }
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strConnectionId );
+            daoUtil.setString( 2, strDemandId );
+            daoUtil.setString( 3, strDemandTypeId );
+            daoUtil.setTimestamp( 4, new Timestamp( System.currentTimeMillis( ) ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Load the oldest demands to reconcile
+     * 
+     * @param nLimit
+     *            the maximum number of results
+     * @return the list of demands to reconcile
+     */
+    public List<UnresolvedCustomer> selectPending( int nLimit )
+    {
+        List<UnresolvedCustomer> listPending = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_PENDING, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setInt( 1, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                UnresolvedCustomer unresolved = new UnresolvedCustomer( );
+                unresolved.setId( daoUtil.getInt( 1 ) );
+                unresolved.setConnectionId( daoUtil.getString( 2 ) );
+                unresolved.setDemandId( daoUtil.getString( 3 ) );
+                unresolved.setDemandTypeId( daoUtil.getString( 4 ) );
+                listPending.add( unresolved );
+            }
+        }
+
+        return listPending;
+    }
+
+    /**
+     * Remove a demand to reconcile
+     * 
+     * @param nId
+     *            the id
+     */
+    public void delete( int nId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setInt( 1, nId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Set the customer id of a demand stored without it, and of its notifications and events. Must be called in a transaction.
+     * <p>
+     * The demand is copied with the customer id, or merged into the demand of the customer if it exists : the state (status, current step, closure
+     * date, demand state) of the most recent notification is kept.
+     * </p>
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param strOldCustomerId
+     *            the customer id stored at ingestion time (empty)
+     * @param strCustomerId
+     *            the resolved customer id
+     */
+    public void reconcile( String strDemandId, String strDemandTypeId, String strOldCustomerId, String strCustomerId )
+    {
+        int nSourceUid = selectDemandUid( strDemandId, strDemandTypeId, strOldCustomerId );
+        if ( nSourceUid > 0 )
+        {
+            int nTargetUid = selectDemandUid( strDemandId, strDemandTypeId, strCustomerId );
+            if ( nTargetUid > 0 )
+            {
+                executeUpdate( SQL_QUERY_MERGE_DEMAND_DATES, nSourceUid, nTargetUid );
+                executeUpdate( SQL_QUERY_MERGE_DEMAND_STATE, nSourceUid, nTargetUid );
+            }
+            else
+            {
+                try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COPY_DEMAND, NotificationStorePlugin.getPlugin( ) ) )
+                {
+                    daoUtil.setString( 1, strCustomerId );
+                    daoUtil.setInt( 2, nSourceUid );
+                    daoUtil.executeUpdate( );
+                }
+                nTargetUid = selectDemandUid( strDemandId, strDemandTypeId, strCustomerId );
+            }
+
+            // the state of the source is written unless the target has a more recent one
+            DemandState state = DemandStateHome.findByDemandUids( Collections.singletonList( nSourceUid ) ).get( nSourceUid );
+            if ( state != null )
+            {
+                state.setDemandUid( nTargetUid );
+                DemandStateHome.store( state );
+            }
+        }
+
+        executeUpdate( SQL_QUERY_UPDATE_NOTIFICATIONS, strCustomerId, strDemandId, strDemandTypeId, strOldCustomerId );
+        executeUpdate( SQL_QUERY_UPDATE_EVENTS, strCustomerId, strDemandId, strDemandTypeId, strOldCustomerId );
+        executeUpdate( SQL_QUERY_DELETE_DEMAND, strDemandId, strDemandTypeId, strOldCustomerId );
+    }
+
+    private int selectDemandUid( String strDemandId, String strDemandTypeId, String strCustomerId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_DEMAND_UID, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strDemandId );
+            daoUtil.setString( 2, strDemandTypeId );
+            daoUtil.setString( 3, strCustomerId );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    private static void executeUpdate( String strSql, int nSourceUid, int nTargetUid )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setInt( 1, nSourceUid );
+            daoUtil.setInt( 2, nTargetUid );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    private static void executeUpdate( String strSql, String... strParameters )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            for ( int i = 0; i < strParameters.length; i++ )
+            {
+                daoUtil.setString( i + 1, strParameters [i] );
+            }
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.List;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the demands whose customer could not be resolved at ingestion time
+ */
+public final class CustomerReconciliationHome
+{
+    // Static variable pointed at the DAO instance
+    private static CustomerReconciliationDAO _dao = SpringContextService.getBean( "notificationstore.customerReconciliationDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private CustomerReconciliationHome( )
+    {
+    }
+
+    /**
+     * Record a demand stored without customer id
+     * 
+     * @param strConnectionId
+     *            the connection id of the customer
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     */
+    public static void create( String strConnectionId, String strDemandId, String strDemandTypeId )
+    {
+        _dao.insert( strConnectionId, strDemandId, strDemandTypeId );
+    }
+
+    /**
+     * Get the oldest demands to reconcile
+     * 
+     * @param nLimit
+     *            the maximum number of results
+     * @return the list of demands to reconcile
+     */
+    public static List<UnresolvedCustomer> findPending( int nLimit )
+    {
+        return _dao.selectPending( nLimit );
+    }
+
+    /**
+     * Remove a demand to reconcile
+     * 
+     * @param nId
+     *            the id
+     */
+    public static void remove( int nId )
+    {
+        _dao.delete( nId );
+    }
+
+    /**
+     * Set the customer id of a demand stored without it, and of its notifications and events
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param strOldCustomerId
+     *            the customer id stored at ingestion time
+     * @param strCustomerId
+     *            the resolved customer id
+     */
+    public static void reconcile( String strDemandId, String strDemandTypeId, String strOldCustomerId, String strCustomerId )
+    {
+        _dao.reconcile( strDemandId, strDemandTypeId, strOldCustomerId, strCustomerId );
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a demand in the lists ordered by modification date and uid (most recent first), used for the keyset pagination.
+ * <p>
+ * The cursor is exchanged with the clients as an opaque token.
+ * </p>
+ */
+public final class DemandCursor
+{
+    private static final String SEPARATOR = "|";
+    private static final String NULL_DATE = "-";
+
+    private final int _nUid;
+    private final Long _lModifyDate;
+
+    /**
+     * Constructor
+     * 
+     * @param nUid
+     *            the demand uid
+     * @param lModifyDate
+     *            the demand modification date, null if the demand has none
+     */
+    public DemandCursor( int nUid, Long lModifyDate )
+    {
+        _nUid = nUid;
+        _lModifyDate = lModifyDate;
+    }
+
+    /**
+     * @return the demand uid
+     */
+    public int getUid( )
+    {
+        return _nUid;
+    }
+
+    /**
+     * @return the demand modification date, null if the demand has none
+     */
+    public Long getModifyDate( )
+    {
+        return _lModifyDate;
+    }
+
+    /**
+     * Encode the cursor as an opaque token
+     * 
+     * @return the token
+     */
+    public String toToken( )
+    {
+        String strValue = ( _lModifyDate != null ? String.valueOf( _lModifyDate ) : NULL_DATE ) + SEPARATOR + _nUid;
+
+        return Base64.getUrlEncoder( ).withoutPadding( ).encodeToString( strValue.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Decode a token
+     * 
+     * @param strToken
+     *            the token
+     * @return the cursor
+     * @throws IllegalArgumentException
+     *             if the token is not valid
+     */
+    public static DemandCursor fromToken( String strToken )
+    {
+        String strValue = new String( Base64.getUrlDecoder( ).decode( strToken ), StandardCharsets.UTF_8 );
+        int nSeparator = strValue.indexOf( SEPARATOR );
+        if ( nSeparator < 0 )
+        {
+            throw new IllegalArgumentException( "Invalid cursor : " + strToken );
+        }
+
+        String strDate = strValue.substring( 0, nSeparator );
+        Long lModifyDate = NULL_DATE.equals( strDate ) ? null : Long.valueOf( strDate );
+
+        return new DemandCursor( Integer.parseInt( strValue.substring( nSeparator + 1 ) ), lModifyDate );
+    }
+}
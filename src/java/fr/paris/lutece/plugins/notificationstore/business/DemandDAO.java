@@ -46,6 +46,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -68,6 +69,8 @@ public final class DemandDAO implements IDemandDAO
     private static final String COLUMN_MAX_STEPS = "max_steps";
     private static final String COLUMN_CURRENT_STEP = "current_step";
     private static final String COLUMN_MODIFY_DATE = "modify_date";
+    private static final String COLUMN_VERSION = "version";
+    private static final String COLUMN_LAST_NOTIFICATION_DATE = "last_notification_date";
     // SQL queries
     private static final String SQL_QUERY_DEMAND_ALL_FIELDS = " uid, id, demand_type_id, subtype_id, reference, status_id, customer_id, creation_date, closure_date, max_steps, current_step, modify_date";
     private static final String SQL_QUERY_DEMAND_ALL_FIELDS_WITH_NO_DEMAND_ID = " id, demand_type_id, subtype_id, reference, status_id, customer_id, creation_date, closure_date, max_steps, current_step, modify_date";
@@ -80,9 +83,25 @@ public final class DemandDAO implements IDemandDAO
     private static final String SQL_QUERY_DEMAND_SELECT_ALL = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS + " FROM notificationstore_demand";
     private static final String SQL_QUERY_DEMAND_SELECT_DEMAND_IDS = "SELECT uid FROM notificationstore_demand ";
     private static final String SQL_QUERY_DEMAND_SELECT_BY_IDS = SQL_QUERY_DEMAND_SELECT_ALL + " where uid in ( %s )";
-    private static final String SQL_QUERY_DEMAND_INSERT = "INSERT INTO notificationstore_demand ( " + SQL_QUERY_DEMAND_ALL_FIELDS_WITH_NO_DEMAND_ID
-            + " ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
-    private static final String SQL_QUERY_DEMAND_UPDATE = "UPDATE notificationstore_demand SET status_id = ?, customer_id = ?, closure_date = ?, current_step = ?, subtype_id = ?, modify_date = ? WHERE uid = ? AND demand_type_id = ?";
+    private static final String SQL_QUERY_DEMAND_SELECT_BY_DEMAND_IDS_AND_TYPE_IDS = SQL_QUERY_DEMAND_SELECT_ALL
+            + " WHERE id IN ( %s ) AND demand_type_id IN ( %s ) ";
+    private static final String SQL_QUERY_DEMAND_INSERT_INTO = " INTO notificationstore_demand ( " + SQL_QUERY_DEMAND_ALL_FIELDS_WITH_NO_DEMAND_ID
+            + ", last_notification_date ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_DEMAND_INSERT = "INSERT" + SQL_QUERY_DEMAND_INSERT_INTO;
+    private static final String SQL_QUERY_DEMAND_UPDATE = "UPDATE notificationstore_demand SET status_id = ?, customer_id = ?, closure_date = ?, current_step = ?, subtype_id = ?, modify_date = ?, version = version + 1 WHERE uid = ? AND demand_type_id = ?";
+    // the state columns are only set by a notification at least as recent as the last one applied. The columns are assigned from left to right,
+    // last_notification_date must stay the last one
+    private static final String SQL_NOT_LATE = " WHEN last_notification_date IS NULL OR last_notification_date <= ? THEN ? ";
+    private static final String SQL_QUERY_DEMAND_UPDATE_FROM_NOTIFICATION = "UPDATE notificationstore_demand SET status_id = CASE" + SQL_NOT_LATE
+            + "ELSE status_id END, closure_date = CASE" + SQL_NOT_LATE + "ELSE closure_date END, current_step = CASE" + SQL_NOT_LATE
+            + "ELSE current_step END, customer_id = ?, subtype_id = ?, modify_date = ?, version = version + 1, "
+            + "last_notification_date = GREATEST( COALESCE( last_notification_date, ? ), ? ) WHERE uid = ? AND demand_type_id = ?";
+    private static final String SQL_QUERY_DEMAND_UPDATE_IF_VERSION = SQL_QUERY_DEMAND_UPDATE_FROM_NOTIFICATION + " AND version = ? ";
+    // INSERT IGNORE : 0 row affected on a duplicate key, whatever the found rows / affected rows mode of the driver
+    private static final String SQL_QUERY_DEMAND_INSERT_IF_ABSENT = "INSERT IGNORE" + SQL_QUERY_DEMAND_INSERT_INTO;
+    private static final String SQL_QUERY_DEMAND_SELECT_VERSIONED = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS + ", version, last_notification_date "
+            + " FROM notificationstore_demand WHERE id = ? AND demand_type_id = ? ";
+    private static final String SQL_QUERY_FOR_UPDATE = " FOR UPDATE ";
     private static final String SQL_QUERY_DEMAND_DELETE = "DELETE FROM notificationstore_demand WHERE id = ? AND demand_type_id = ? ";
     private static final String SQL_QUERY_DEMAND_DELETE_BY_UID = "DELETE FROM notificationstore_demand WHERE uid = ? ";
     private static final String SQL_QUERY_DEMAND_SELECT_BY_CUSTOMER_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
@@ -94,17 +113,22 @@ public final class DemandDAO implements IDemandDAO
             + " FROM notificationstore_demand gd, notificationstore_notification gn, notificationstore_notification_content gc "
             + " WHERE gd.id = gn.demand_id and gn.id = gc.notification_id " + " AND gd.customer_id = ? ";
 
-    private static final String SQL_QUERY_IDS_BY_STATUS = "SELECT distinct gd.uid "
+    // the status of a demand is the one of its last notification, projected in notificationstore_demand_state
+    private static final String SQL_QUERY_IDS_BY_STATUS = "SELECT gd.uid "
             + " FROM notificationstore_demand gd "
-            + " JOIN notificationstore_notification gn ON gd.id = gn.demand_id "
-            + " JOIN notificationstore_notification_content gc ON gn.id = gc.notification_id "
-            + " JOIN ( "
-            + "        SELECT demand_id, MAX(date) AS max_date "
-            + "        FROM notificationstore_notification "
-            + "        GROUP BY demand_id "
-            + "      ) AS latest_notifications ON gn.demand_id = latest_notifications.demand_id "
-            + " AND gn.date = latest_notifications.max_date "
-            + " WHERE gd.customer_id = ? " + " AND gc.status_id IN ( ";
+            + " JOIN notificationstore_demand_state ds ON ds.demand_uid = gd.uid "
+            + " WHERE gd.customer_id = ? " + " AND ds.status_id IN ( ";
+
+    private static final String SQL_QUERY_PAGE_SELECT = "SELECT gd.uid, gd.modify_date ";
+    private static final String SQL_QUERY_COUNT_SELECT = "SELECT count(*) ";
+    private static final String SQL_QUERY_PAGE_FROM = " FROM notificationstore_demand gd WHERE gd.customer_id = ? ";
+    private static final String SQL_QUERY_PAGE_EXISTS_CONTENT = " AND EXISTS ( SELECT 1 FROM notificationstore_notification gn "
+            + " JOIN notificationstore_notification_content gc ON gn.id = gc.notification_id WHERE gn.demand_id = gd.id AND gn.demand_type_id = gd.demand_type_id ";
+    private static final String SQL_QUERY_PAGE_EXISTS_STATUS = " AND EXISTS ( SELECT 1 FROM notificationstore_demand_state ds WHERE ds.demand_uid = gd.uid AND ds.status_id IN ( ";
+    private static final String SQL_QUERY_PAGE_EXISTS_END = " ) ";
+    private static final String SQL_QUERY_PAGE_AFTER = " AND ( gd.modify_date < ? OR ( gd.modify_date = ? AND gd.uid < ? ) OR gd.modify_date IS NULL ) ";
+    private static final String SQL_QUERY_PAGE_AFTER_NULL_DATE = " AND gd.modify_date IS NULL AND gd.uid < ? ";
+    private static final String SQL_QUERY_PAGE_ORDER = " ORDER BY gd.modify_date DESC, gd.uid DESC LIMIT ? ";
 
     private static final String SQL_QUERY_FILTER_WHERE_BASE = " WHERE 1 ";
     private static final String SQL_FILTER_BY_DEMAND_ID = " AND id = ? ";
@@ -114,9 +138,13 @@ public final class DemandDAO implements IDemandDAO
     private static final String SQL_FILTER_BY_START_DATE = " AND creation_date >= ? ";
     private static final String SQL_FILTER_BY_END_DATE = " AND creation_date <= ? ";
     private static final String SQL_FILTER_NOTIFICATION_TYPE = " AND gc.notification_type = ? ";
+    private static final String SQL_FILTER_STATE_NOTIFICATION_TYPE = " AND FIND_IN_SET( ?, ds.notification_types ) > 0 ";
     private static final String SQL_QUERY_FILTER_ORDER = " ORDER BY uid ASC";
     private static final String SQL_QUERY_DATE_ORDER = " ORDER BY modify_date DESC";
 
+    // false once the driver has run a batch without reporting its update counts : the conditional updates are then run row by row
+    private volatile boolean _bBatchCountsReported = true;
+
     /**
      * {@inheritDoc}
      */
@@ -282,20 +310,7 @@ public final class DemandDAO implements IDemandDAO
     {
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_INSERT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
         {
-
-            int nIndex = 1;
-
-            daoUtil.setString( nIndex++, demand.getId( ) );
-            daoUtil.setString( nIndex++, demand.getTypeId( ) );
-            daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
-            daoUtil.setString( nIndex++, demand.getReference( ) );
-            daoUtil.setInt( nIndex++, demand.getStatusId( ) );
-            daoUtil.setString( nIndex++, demand.getCustomer( ).getId( ) );
-            daoUtil.setTimestamp( nIndex++, demand.getCreationDate( ) > 0 ? new Timestamp( demand.getCreationDate( ) )  : null );
-            daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp(demand.getClosureDate( ) ) : null );
-            daoUtil.setInt( nIndex++, demand.getMaxSteps( ) );
-            daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );           
-            daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
+            setInsertParameters( daoUtil, demand, 0 );
 
             daoUtil.executeUpdate( );
             if ( daoUtil.nextGeneratedKey( ) )
@@ -307,6 +322,91 @@ public final class DemandDAO implements IDemandDAO
         return demand;
     }
 
+    /**
+     * Insert a demand, unless a row with the same ( demand_type_id, customer_id, id ) exists, in a single atomic statement : concurrent creations of
+     * the same demand (by other threads or nodes) do not fail on the unique key
+     * 
+     * @param demand
+     *            the demand to create
+     * @param lNotificationDate
+     *            the date of the notification which creates the demand
+     * @return true if the demand has been inserted (its uid is set), false if it already exists
+     */
+    public boolean insertIfAbsent( Demand demand, long lNotificationDate )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_INSERT_IF_ABSENT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            setInsertParameters( daoUtil, demand, lNotificationDate );
+
+            // 1 row affected if inserted, 0 if the row exists
+            if ( daoUtil.executeUpdate( ) != 1 || !daoUtil.nextGeneratedKey( ) )
+            {
+                return false;
+            }
+            demand.setUID( daoUtil.getGeneratedKeyInt( 1 ) );
+
+            return true;
+        }
+    }
+
+    /**
+     * Load a demand with the version of its row
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param bLocking
+     *            true for a locking read (the last committed row, even in a transaction that has already read it)
+     * @return the demand with its version and the date of its last notification, or null if not found
+     */
+    public VersionedDemand loadVersioned( String strDemandId, String strDemandTypeId, boolean bLocking )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( bLocking ? SQL_QUERY_DEMAND_SELECT_VERSIONED + SQL_QUERY_FOR_UPDATE : SQL_QUERY_DEMAND_SELECT_VERSIONED,
+                NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strDemandId );
+            daoUtil.setString( 2, strDemandTypeId );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                Timestamp lastNotificationDate = daoUtil.getTimestamp( COLUMN_LAST_NOTIFICATION_DATE );
+
+                return new VersionedDemand( dao2Demand( daoUtil ), daoUtil.getInt( COLUMN_VERSION ),
+                        lastNotificationDate != null ? lastNotificationDate.getTime( ) : 0 );
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Set the parameters of the insert query
+     * 
+     * @param daoUtil
+     * @param demand
+     * @param lNotificationDate
+     *            the date of the notification which creates the demand, 0 if none
+     */
+    private static void setInsertParameters( DAOUtil daoUtil, Demand demand, long lNotificationDate )
+    {
+        int nIndex = 1;
+
+        daoUtil.setString( nIndex++, demand.getId( ) );
+        daoUtil.setString( nIndex++, demand.getTypeId( ) );
+        daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
+        daoUtil.setString( nIndex++, demand.getReference( ) );
+        daoUtil.setInt( nIndex++, demand.getStatusId( ) );
+        daoUtil.setString( nIndex++, demand.getCustomer( ).getId( ) );
+        daoUtil.setTimestamp( nIndex++, demand.getCreationDate( ) > 0 ? new Timestamp( demand.getCreationDate( ) )  : null );
+        daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp(demand.getClosureDate( ) ) : null );
+        daoUtil.setInt( nIndex++, demand.getMaxSteps( ) );
+        daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );
+        daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
+        daoUtil.setTimestamp( nIndex, lNotificationDate > 0 ? toNotificationTimestamp( lNotificationDate ) : null );
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -315,19 +415,7 @@ public final class DemandDAO implements IDemandDAO
     {
         try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE, NotificationStorePlugin.getPlugin( ) ) )
         {
-            int nIndex = 1;
-    
-            // update
-            daoUtil.setInt( nIndex++, demand.getStatusId( ) );
-            daoUtil.setString( nIndex++, demand.getCustomer( ).getId( ) );
-            daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp(demand.getClosureDate( ) ) : null );
-            daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );
-            daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
-            daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
-    
-            // where primary_key
-            daoUtil.setInt( nIndex++, demand.getUID( ) );
-            daoUtil.setString( nIndex++, demand.getTypeId( ) );
+            setUpdateParameters( daoUtil, demand );
     
             daoUtil.executeUpdate( );
     
@@ -335,6 +423,212 @@ public final class DemandDAO implements IDemandDAO
         }
     }
 
+    /**
+     * Update a demand from a notification. The status, the current step and the closure date are left unchanged if a more recent notification has
+     * already been applied to the demand
+     * 
+     * @param demand
+     *            the demand to update
+     * @param lNotificationDate
+     *            the date of the notification
+     */
+    public void storeFromNotification( Demand demand, long lNotificationDate )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_FROM_NOTIFICATION, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            setNotificationUpdateParameters( daoUtil, demand, lNotificationDate );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Update a demand from a notification, if its row has not been updated since it was read. The status, the current step and the closure date
+     * are left unchanged if a more recent notification has already been applied to the demand
+     * 
+     * @param demand
+     *            the demand to update
+     * @param lNotificationDate
+     *            the date of the notification
+     * @param nVersion
+     *            the version of the row when it was read
+     * @return true if updated, false if the row has been updated meanwhile
+     */
+    public boolean storeIfVersion( Demand demand, long lNotificationDate, int nVersion )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_IF_VERSION, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            int nIndex = setNotificationUpdateParameters( daoUtil, demand, lNotificationDate );
+            daoUtil.setInt( nIndex, nVersion );
+
+            return daoUtil.executeUpdate( ) == 1;
+        }
+    }
+
+    /**
+     * Update several demands from their notifications with one JDBC batch, if their rows have not been updated since they were read
+     * 
+     * @param mapVersions
+     *            the demands to update, with the version of their row when they were read
+     * @param mapNotificationDates
+     *            the demands to update, with the date of their most recent notification
+     * @return false if at least one row has been updated meanwhile (the others are updated), or if the driver did not report the update counts
+     */
+    public boolean storeBatchIfVersion( Map<Demand, Integer> mapVersions, Map<Demand, Long> mapNotificationDates )
+    {
+        if ( mapVersions.isEmpty( ) )
+        {
+            return true;
+        }
+
+        if ( !_bBatchCountsReported )
+        {
+            return storeEachIfVersion( mapVersions, mapNotificationDates );
+        }
+
+        int [ ] nUpdated;
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_IF_VERSION, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            for ( Map.Entry<Demand, Integer> entry : mapVersions.entrySet( ) )
+            {
+                int nIndex = setNotificationUpdateParameters( daoUtil, entry.getKey( ), mapNotificationDates.get( entry.getKey( ) ) );
+                daoUtil.setInt( nIndex, entry.getValue( ) );
+                daoUtil.addBatch( );
+            }
+
+            nUpdated = daoUtil.executeBatch( );
+        }
+
+        if ( nUpdated == null || nUpdated.length != mapVersions.size( ) || Arrays.stream( nUpdated ).anyMatch( n -> n == Statement.SUCCESS_NO_INFO ) )
+        {
+            // the drivers rewriting the batch may not report the counts : the outcome of each row is unknown, the caller rolls back and the next
+            // batches are run row by row
+            _bBatchCountsReported = false;
+            return false;
+        }
+
+        return Arrays.stream( nUpdated ).noneMatch( n -> n == 0 );
+    }
+
+    /**
+     * Update several demands from their notifications one by one, if their rows have not been updated since they were read
+     * 
+     * @param mapVersions
+     *            the demands to update, with the version of their row when they were read
+     * @param mapNotificationDates
+     *            the demands to update, with the date of their most recent notification
+     * @return false if at least one row has been updated meanwhile (the others are updated)
+     */
+    private boolean storeEachIfVersion( Map<Demand, Integer> mapVersions, Map<Demand, Long> mapNotificationDates )
+    {
+        boolean bUpdated = true;
+        for ( Map.Entry<Demand, Integer> entry : mapVersions.entrySet( ) )
+        {
+            bUpdated &= storeIfVersion( entry.getKey( ), mapNotificationDates.get( entry.getKey( ) ), entry.getValue( ) );
+        }
+
+        return bUpdated;
+    }
+
+    /**
+     * Update several demands with one JDBC batch
+     * 
+     * @param listDemands
+     *            the demands to update
+     */
+    public void storeBatch( Collection<Demand> listDemands )
+    {
+        if ( listDemands.isEmpty( ) )
+        {
+            return;
+        }
+
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            for ( Demand demand : listDemands )
+            {
+                setUpdateParameters( daoUtil, demand );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * Set the parameters of the update query
+     * 
+     * @param daoUtil
+     * @param demand
+     * @return the index of the next parameter
+     */
+    private static int setUpdateParameters( DAOUtil daoUtil, Demand demand )
+    {
+        int nIndex = 1;
+
+        // update
+        daoUtil.setInt( nIndex++, demand.getStatusId( ) );
+        daoUtil.setString( nIndex++, demand.getCustomer( ).getId( ) );
+        daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp(demand.getClosureDate( ) ) : null );
+        daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );
+        daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
+        daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
+
+        // where primary_key
+        daoUtil.setInt( nIndex++, demand.getUID( ) );
+        daoUtil.setString( nIndex++, demand.getTypeId( ) );
+
+        return nIndex;
+    }
+
+    /**
+     * Converts the date of a notification, truncated to the second like the column : the notifications of the same second are not considered late
+     * 
+     * @param lNotificationDate
+     *            the date of the notification
+     * @return the timestamp
+     */
+    private static Timestamp toNotificationTimestamp( long lNotificationDate )
+    {
+        return new Timestamp( lNotificationDate - Math.floorMod( lNotificationDate, 1000L ) );
+    }
+
+    /**
+     * Set the parameters of the update query from a notification
+     * 
+     * @param daoUtil
+     * @param demand
+     * @param lNotificationDate
+     *            the date of the notification
+     * @return the index of the next parameter
+     */
+    private static int setNotificationUpdateParameters( DAOUtil daoUtil, Demand demand, long lNotificationDate )
+    {
+        int nIndex = 1;
+        Timestamp notificationDate = toNotificationTimestamp( lNotificationDate );
+
+        // state, unless the notification is late
+        daoUtil.setTimestamp( nIndex++, notificationDate );
+        daoUtil.setInt( nIndex++, demand.getStatusId( ) );
+        daoUtil.setTimestamp( nIndex++, notificationDate );
+        daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp( demand.getClosureDate( ) ) : null );
+        daoUtil.setTimestamp( nIndex++, notificationDate );
+        daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );
+
+        // update
+        daoUtil.setString( nIndex++, demand.getCustomer( ).getId( ) );
+        daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
+        daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
+        daoUtil.setTimestamp( nIndex++, notificationDate );
+        daoUtil.setTimestamp( nIndex++, notificationDate );
+
+        // where primary_key
+        daoUtil.setInt( nIndex++, demand.getUID( ) );
+        daoUtil.setString( nIndex++, demand.getTypeId( ) );
+
+        return nIndex;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -427,6 +721,54 @@ public final class DemandDAO implements IDemandDAO
         }
     }
 
+    /**
+     * Load the demands matching the specified demand ids and demand type ids, in a single query.
+     * <p>
+     * The result may contain demands of other (id, type) combinations of the two lists : the caller is expected to match the pairs it needs.
+     * </p>
+     * 
+     * @param listDemandIds
+     *            the demand ids
+     * @param listDemandTypeIds
+     *            the demand type ids
+     * @return the list of demands
+     */
+    public List<Demand> loadByDemandIdsAndTypeIds( Collection<String> listDemandIds, Collection<String> listDemandTypeIds )
+    {
+        List<Demand> listDemands = new ArrayList<>( );
+
+        if ( listDemandIds == null || listDemandIds.isEmpty( ) || listDemandTypeIds == null || listDemandTypeIds.isEmpty( ) )
+        {
+            return listDemands;
+        }
+
+        String sql = String.format( SQL_QUERY_DEMAND_SELECT_BY_DEMAND_IDS_AND_TYPE_IDS,
+                listDemandIds.stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ),
+                listDemandTypeIds.stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ) );
+
+        try ( DAOUtil daoUtil = new DAOUtil( sql, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            int nIndex = 1;
+            for ( String strDemandId : listDemandIds )
+            {
+                daoUtil.setString( nIndex++, strDemandId );
+            }
+            for ( String strDemandTypeId : listDemandTypeIds )
+            {
+                daoUtil.setString( nIndex++, strDemandTypeId );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listDemands.add( dao2Demand( daoUtil ) );
+            }
+        }
+
+        return listDemands;
+    }
+
     /**
      * Converts data from DAO to a Demand object
      * 
@@ -577,7 +919,7 @@ public final class DemandDAO implements IDemandDAO
 
         if ( StringUtils.isNotEmpty( strNotificationType ) )
         {
-            strQuery += SQL_FILTER_NOTIFICATION_TYPE;
+            strQuery += SQL_FILTER_STATE_NOTIFICATION_TYPE;
         }
         List<Integer> listIdsDemandType = new ArrayList<>();
         if ( StringUtils.isNotEmpty( strIdDemandType ) )
@@ -622,4 +964,262 @@ public final class DemandDAO implements IDemandDAO
         }
     }
 
+
+    /**
+     * Load a page of the demand positions of a customer, most recent first
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param strNotificationType
+     *            the notification type (optional)
+     * @param strIdDemandType
+     *            the demand type id (optional)
+     * @param after
+     *            the position of the last demand of the previous page, null for the first page
+     * @param nLimit
+     *            the maximum number of demands
+     * @return the demand positions
+     */
+    public List<DemandCursor> loadPageByCustomerIdAndIdDemandType( String strCustomerId, String strNotificationType, String strIdDemandType,
+            DemandCursor after, int nLimit )
+    {
+        PageQuery query = new PageQuery( strCustomerId, strNotificationType );
+        query.existsContent( null );
+        query.demandTypes( StringUtils.isNotEmpty( strIdDemandType ) ? Arrays.asList( strIdDemandType ) : null );
+
+        return loadPage( query, after, nLimit );
+    }
+
+    /**
+     * Count the demands of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param strNotificationType
+     *            the notification type (optional)
+     * @param strIdDemandType
+     *            the demand type id (optional)
+     * @return the number of demands
+     */
+    public int countByCustomerIdAndIdDemandType( String strCustomerId, String strNotificationType, String strIdDemandType )
+    {
+        PageQuery query = new PageQuery( strCustomerId, strNotificationType );
+        query.existsContent( null );
+        query.demandTypes( StringUtils.isNotEmpty( strIdDemandType ) ? Arrays.asList( strIdDemandType ) : null );
+
+        return count( query );
+    }
+
+    /**
+     * Load a page of the demand positions of a customer whose last notification has one of the given status, most recent first
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param listStatus
+     *            the status
+     * @param strNotificationType
+     *            the notification type (optional)
+     * @param strIdDemandType
+     *            the comma separated demand type ids (optional)
+     * @param after
+     *            the position of the last demand of the previous page, null for the first page
+     * @param nLimit
+     *            the maximum number of demands
+     * @return the demand positions
+     */
+    public List<DemandCursor> loadPageByStatus( String strCustomerId, List<String> listStatus, String strNotificationType, String strIdDemandType,
+            DemandCursor after, int nLimit )
+    {
+        PageQuery query = new PageQuery( strCustomerId, strNotificationType );
+        query.existsContent( listStatus );
+        query.demandTypes( splitDemandTypes( strIdDemandType ) );
+
+        return loadPage( query, after, nLimit );
+    }
+
+    /**
+     * Count the demands of a customer whose last notification has one of the given status
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param listStatus
+     *            the status
+     * @param strNotificationType
+     *            the notification type (optional)
+     * @param strIdDemandType
+     *            the comma separated demand type ids (optional)
+     * @return the number of demands
+     */
+    public int countByStatus( String strCustomerId, List<String> listStatus, String strNotificationType, String strIdDemandType )
+    {
+        PageQuery query = new PageQuery( strCustomerId, strNotificationType );
+        query.existsContent( listStatus );
+        query.demandTypes( splitDemandTypes( strIdDemandType ) );
+
+        return count( query );
+    }
+
+    /**
+     * Load a page of demand positions
+     * 
+     * @param query
+     *            the query
+     * @param after
+     *            the position of the last demand of the previous page, null for the first page
+     * @param nLimit
+     *            the maximum number of demands
+     * @return the demand positions
+     */
+    private List<DemandCursor> loadPage( PageQuery query, DemandCursor after, int nLimit )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_PAGE_SELECT ).append( query._sbWhere );
+        if ( after != null )
+        {
+            sbSql.append( after.getModifyDate( ) != null ? SQL_QUERY_PAGE_AFTER : SQL_QUERY_PAGE_AFTER_NULL_DATE );
+        }
+        sbSql.append( SQL_QUERY_PAGE_ORDER );
+
+        List<DemandCursor> listPositions = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( sbSql.toString( ), NotificationStorePlugin.getPlugin( ) ) )
+        {
+            int nIndex = query.setParameters( daoUtil );
+            if ( after != null )
+            {
+                if ( after.getModifyDate( ) != null )
+                {
+                    Timestamp modifyDate = new Timestamp( after.getModifyDate( ) );
+                    daoUtil.setTimestamp( nIndex++, modifyDate );
+                    daoUtil.setTimestamp( nIndex++, modifyDate );
+                }
+                daoUtil.setInt( nIndex++, after.getUid( ) );
+            }
+            daoUtil.setInt( nIndex, nLimit );
+
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                Timestamp modifyDate = daoUtil.getTimestamp( 2 );
+                listPositions.add( new DemandCursor( daoUtil.getInt( 1 ), modifyDate != null ? modifyDate.getTime( ) : null ) );
+            }
+        }
+
+        return listPositions;
+    }
+
+    /**
+     * Count the demands of a query
+     * 
+     * @param query
+     *            the query
+     * @return the number of demands
+     */
+    private int count( PageQuery query )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT_SELECT + query._sbWhere, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            query.setParameters( daoUtil );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * Split a comma separated list of demand type ids
+     * 
+     * @param strIdDemandType
+     * @return the demand type ids, or null
+     */
+    private static List<String> splitDemandTypes( String strIdDemandType )
+    {
+        if ( StringUtils.isEmpty( strIdDemandType ) )
+        {
+            return null;
+        }
+
+        return Arrays.stream( strIdDemandType.split( "," ) ).map( String::trim ).filter( StringUtils::isNotEmpty ).collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Where clause of the customer demand pages, with its parameters
+     */
+    private static final class PageQuery
+    {
+        private final StringBuilder _sbWhere = new StringBuilder( SQL_QUERY_PAGE_FROM );
+        private final List<String> _listParameters = new ArrayList<>( );
+        private final String _strNotificationType;
+
+        /**
+         * Constructor
+         * 
+         * @param strCustomerId
+         * @param strNotificationType
+         */
+        PageQuery( String strCustomerId, String strNotificationType )
+        {
+            _listParameters.add( strCustomerId );
+            _strNotificationType = strNotificationType;
+        }
+
+        /**
+         * Keep the demands having a notification content (of the notification type, if any), or whose current state has one of the given status
+         * 
+         * @param listStatus
+         *            the status, or null
+         */
+        void existsContent( List<String> listStatus )
+        {
+            boolean bByStatus = listStatus != null && !listStatus.isEmpty( );
+            if ( bByStatus )
+            {
+                _sbWhere.append( SQL_QUERY_PAGE_EXISTS_STATUS ).append( listStatus.stream( ).map( s -> "?" ).collect( Collectors.joining( "," ) ) ).append( " ) " );
+                _listParameters.addAll( listStatus );
+            }
+            else
+            {
+                _sbWhere.append( SQL_QUERY_PAGE_EXISTS_CONTENT );
+            }
+
+            if ( StringUtils.isNotEmpty( _strNotificationType ) )
+            {
+                _sbWhere.append( bByStatus ? SQL_FILTER_STATE_NOTIFICATION_TYPE : SQL_FILTER_NOTIFICATION_TYPE );
+                _listParameters.add( _strNotificationType );
+            }
+            _sbWhere.append( SQL_QUERY_PAGE_EXISTS_END );
+        }
+
+        /**
+         * Keep the demands of the given types
+         * 
+         * @param listDemandTypes
+         *            the demand type ids, or null
+         */
+        void demandTypes( List<String> listDemandTypes )
+        {
+            if ( listDemandTypes != null && !listDemandTypes.isEmpty( ) )
+            {
+                _sbWhere.append( SQL_FILTER_BY_DEMAND_TYPE_GD_ID_IN ).append( listDemandTypes.stream( ).map( s -> "?" ).collect( Collectors.joining( "," ) ) )
+                        .append( " ) " );
+                _listParameters.addAll( listDemandTypes );
+            }
+        }
+
+        /**
+         * Set the parameters of the where clause
+         * 
+         * @param daoUtil
+         * @return the index of the next parameter
+         */
+        int setParameters( DAOUtil daoUtil )
+        {
+            int nIndex = 1;
+            for ( String strParameter : _listParameters )
+            {
+                daoUtil.setString( nIndex++, strParameter );
+            }
+
+            return nIndex;
+        }
+    }
+
 }
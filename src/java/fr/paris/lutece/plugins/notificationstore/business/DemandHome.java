@@ -34,7 +34,6 @@
 package fr.paris.lutece.plugins.notificationstore.business;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
-import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandDAO;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -43,6 +42,7 @@ import fr.paris.lutece.portal.service.spring.SpringContextService;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class provides instances management methods (create, find, ...) for Project objects
@@ -50,7 +50,7 @@ import java.util.List;
 public final class DemandHome
 {
     // Static variable pointed at the DAO instance
-    private static IDemandDAO _dao = SpringContextService.getBean( "notificationstore.demandDao" );
+    private static DemandDAO _dao = SpringContextService.getBean( "notificationstore.demandDao" );
     private static Plugin _plugin = NotificationStorePlugin.getPlugin( );
 
     /**
@@ -126,6 +126,20 @@ public final class DemandHome
         return _dao.loadByDemandIdAndTypeId( strDemandId, strDemandTypeId );
     }
 
+
+    /**
+     * Finds the demands matching the specified demand ids and demand type ids, in a single query
+     * 
+     * @param listDemandIds
+     *            the demand ids
+     * @param listDemandTypeIds
+     *            the demand type ids
+     * @return the list of demands
+     */
+    public static List<Demand> getDemandsByDemandIdsAndTypeIds( Collection<String> listDemandIds, Collection<String> listDemandTypeIds )
+    {
+        return _dao.loadByDemandIdsAndTypeIds( listDemandIds, listDemandTypeIds );
+    }
     
     /**
      * Load demand ids ordered by date notification
@@ -155,6 +169,72 @@ public final class DemandHome
         return _dao.loadIdsByStatus( strCustomerId, listStatus, strNotificationType, strIdDemandType );
     }
 
+    /**
+     * Load a page of the demand positions of a customer, most recent first
+     * 
+     * @param strCustomerId
+     * @param strNotificationType
+     * @param strIdDemandType
+     *            (Optional can be null)
+     * @param after
+     *            the position of the last demand of the previous page, null for the first page
+     * @param nLimit
+     *            the maximum number of demands
+     * @return The demand positions
+     */
+    public static List<DemandCursor> getPageByCustomerIdAndDemandTypeId( String strCustomerId, String strNotificationType, String strIdDemandType,
+            DemandCursor after, int nLimit )
+    {
+        return _dao.loadPageByCustomerIdAndIdDemandType( strCustomerId, strNotificationType, strIdDemandType, after, nLimit );
+    }
+
+    /**
+     * Count the demands of a customer
+     * 
+     * @param strCustomerId
+     * @param strNotificationType
+     * @param strIdDemandType
+     *            (Optional can be null)
+     * @return The number of demands
+     */
+    public static int countByCustomerIdAndDemandTypeId( String strCustomerId, String strNotificationType, String strIdDemandType )
+    {
+        return _dao.countByCustomerIdAndIdDemandType( strCustomerId, strNotificationType, strIdDemandType );
+    }
+
+    /**
+     * Load a page of the demand positions by status, most recent first
+     * 
+     * @param strCustomerId
+     * @param listStatus
+     * @param strNotificationType
+     * @param strIdDemandType
+     * @param after
+     *            the position of the last demand of the previous page, null for the first page
+     * @param nLimit
+     *            the maximum number of demands
+     * @return The demand positions
+     */
+    public static List<DemandCursor> getPageByStatus( String strCustomerId, List<String> listStatus, String strNotificationType, String strIdDemandType,
+            DemandCursor after, int nLimit )
+    {
+        return _dao.loadPageByStatus( strCustomerId, listStatus, strNotificationType, strIdDemandType, after, nLimit );
+    }
+
+    /**
+     * Count the demands by status
+     * 
+     * @param strCustomerId
+     * @param listStatus
+     * @param strNotificationType
+     * @param strIdDemandType
+     * @return The number of demands
+     */
+    public static int countByStatus( String strCustomerId, List<String> listStatus, String strNotificationType, String strIdDemandType )
+    {
+        return _dao.countByStatus( strCustomerId, listStatus, strNotificationType, strIdDemandType );
+    }
+
     /**
      * Updates a demand
      * 
@@ -166,6 +246,103 @@ public final class DemandHome
     {
         return _dao.store( demand );
     }
+
+    /**
+     * Creates a demand
+     * 
+     * @param demand
+     *            the demand to create
+     * @return the created demand, with its uid
+     */
+    public static Demand create( Demand demand )
+    {
+        return _dao.insert( demand );
+    }
+
+    /**
+     * Creates a demand, unless it already exists (created concurrently)
+     * 
+     * @param demand
+     *            the demand to create
+     * @param lNotificationDate
+     *            the date of the notification which creates the demand
+     * @return true if created (the uid is set), false if it already exists
+     */
+    public static boolean createIfAbsent( Demand demand, long lNotificationDate )
+    {
+        return _dao.insertIfAbsent( demand, lNotificationDate );
+    }
+
+    /**
+     * Finds a demand with the version of its row
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param bLocking
+     *            true for a locking read (the last committed row)
+     * @return the demand with its version and the date of its last notification, or null if not found
+     */
+    public static VersionedDemand getVersionedDemand( String strDemandId, String strDemandTypeId, boolean bLocking )
+    {
+        return _dao.loadVersioned( strDemandId, strDemandTypeId, bLocking );
+    }
+
+    /**
+     * Updates a demand from a notification. A late notification does not change the status, the current step and the closure date
+     * 
+     * @param demand
+     *            the demand
+     * @param lNotificationDate
+     *            the date of the notification
+     */
+    public static void updateFromNotification( Demand demand, long lNotificationDate )
+    {
+        _dao.storeFromNotification( demand, lNotificationDate );
+    }
+
+    /**
+     * Updates a demand from a notification, if its row has not been updated since it was read. A late notification does not change the status, the
+     * current step and the closure date
+     * 
+     * @param demand
+     *            the demand
+     * @param lNotificationDate
+     *            the date of the notification
+     * @param nVersion
+     *            the version of the row when it was read
+     * @return false if the row has been updated meanwhile
+     */
+    public static boolean updateIfVersion( Demand demand, long lNotificationDate, int nVersion )
+    {
+        return _dao.storeIfVersion( demand, lNotificationDate, nVersion );
+    }
+
+    /**
+     * Updates several demands from their notifications with one JDBC batch, if their rows have not been updated since they were read
+     * 
+     * @param mapVersions
+     *            the demands, with the version of their row when they were read
+     * @param mapNotificationDates
+     *            the demands, with the date of their most recent notification
+     * @return false if at least one row has been updated meanwhile, or if the outcome of the rows is unknown
+     */
+    public static boolean updateBatchIfVersion( Map<Demand, Integer> mapVersions, Map<Demand, Long> mapNotificationDates )
+    {
+        return _dao.storeBatchIfVersion( mapVersions, mapNotificationDates );
+    }
+
+    /**
+     * Updates several demands with one JDBC batch
+     * 
+     * @param listDemands
+     *            the demands to update
+     */
+    public static void updateBatch( Collection<Demand> listDemands )
+    {
+        _dao.storeBatch( listDemands );
+    }
     
     /**
      * Delete a demand by uid
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * Current state of a demand : projection of its last notification, maintained at ingestion time
+ */
+public class DemandState
+{
+    private int _nDemandUid;
+    private long _lLastNotificationId;
+    private long _lLastNotificationDate;
+    private int _nStatusId = -1;
+    private int _nStatusGenericId = -1;
+    private String _strNotificationTypes;
+
+    /**
+     * @return the demand uid
+     */
+    public int getDemandUid( )
+    {
+        return _nDemandUid;
+    }
+
+    /**
+     * @param nDemandUid
+     *            the demand uid to set
+     */
+    public void setDemandUid( int nDemandUid )
+    {
+        _nDemandUid = nDemandUid;
+    }
+
+    /**
+     * @return the id of the last notification
+     */
+    public long getLastNotificationId( )
+    {
+        return _lLastNotificationId;
+    }
+
+    /**
+     * @param lLastNotificationId
+     *            the id of the last notification to set
+     */
+    public void setLastNotificationId( long lLastNotificationId )
+    {
+        _lLastNotificationId = lLastNotificationId;
+    }
+
+    /**
+     * @return the date of the last notification
+     */
+    public long getLastNotificationDate( )
+    {
+        return _lLastNotificationDate;
+    }
+
+    /**
+     * @param lLastNotificationDate
+     *            the date of the last notification to set
+     */
+    public void setLastNotificationDate( long lLastNotificationDate )
+    {
+        _lLastNotificationDate = lLastNotificationDate;
+    }
+
+    /**
+     * @return the status id (notificationstore_status) of the last notification, -1 if none
+     */
+    public int getStatusId( )
+    {
+        return _nStatusId;
+    }
+
+    /**
+     * @param nStatusId
+     *            the status id to set
+     */
+    public void setStatusId( int nStatusId )
+    {
+        _nStatusId = nStatusId;
+    }
+
+    /**
+     * @return the generic status id of the last notification, -1 if none
+     */
+    public int getStatusGenericId( )
+    {
+        return _nStatusGenericId;
+    }
+
+    /**
+     * @param nStatusGenericId
+     *            the generic status id to set
+     */
+    public void setStatusGenericId( int nStatusGenericId )
+    {
+        _nStatusGenericId = nStatusGenericId;
+    }
+
+    /**
+     * @return the notification types (channels) of the last notification, comma separated
+     */
+    public String getNotificationTypes( )
+    {
+        return _strNotificationTypes;
+    }
+
+    /**
+     * @param strNotificationTypes
+     *            the notification types to set, comma separated
+     */
+    public void setNotificationTypes( String strNotificationTypes )
+    {
+        _strNotificationTypes = strNotificationTypes;
+    }
+
+    /**
+     * Check if this state comes from a more recent notification than another one
+     * 
+     * @param other
+     *            the other state
+     * @return true if this state is more recent
+     */
+    public boolean isAfter( DemandState other )
+    {
+        return _lLastNotificationDate > other._lLastNotificationDate
+                || ( _lLastNotificationDate == other._lLastNotificationDate && _lLastNotificationId >= other._lLastNotificationId );
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the demand states
+ */
+public final class DemandStateDAO
+{
+    private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_demand_state SET last_notification_id = ?, last_notification_date = ?, status_id = ?, status_generic_id = ?, notification_types = ? "
+            + " WHERE demand_uid = ? AND ( last_notification_date < ? OR ( last_notification_date = ? AND last_notification_id <= ? ) ) ";
+    private static final String SQL_QUERY_INSERT_IF_ABSENT = "INSERT INTO notificationstore_demand_state ( demand_uid, last_notification_id, last_notification_date, status_id, status_generic_id, notification_types ) "
+            + " SELECT ?, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS ( SELECT 1 FROM notificationstore_demand_state WHERE demand_uid = ? ) ";
+    private static final String SQL_QUERY_SELECT_BY_DEMAND_UIDS = "SELECT demand_uid, last_notification_id, last_notification_date, status_id, status_generic_id, notification_types "
+            + " FROM notificationstore_demand_state WHERE demand_uid IN ( %s ) ";
+    private static final String SQL_QUERY_SELECT_MAX_DEMAND_UID = "SELECT MAX( uid ) FROM notificationstore_demand ";
+    private static final String SQL_QUERY_DELETE_RANGE = "DELETE FROM notificationstore_demand_state WHERE demand_uid > ? AND demand_uid <= ? ";
+    private static final String SQL_QUERY_REBUILD_RANGE = "INSERT INTO notificationstore_demand_state ( demand_uid, last_notification_id, last_notification_date, status_id, status_generic_id, notification_types ) "
+            + " SELECT gd.uid, gn.id, gn.date, "
+            + " COALESCE( ( SELECT MAX( gc.status_id ) FROM notificationstore_notification_content gc WHERE gc.notification_id = gn.id ), -1 ), "
+            + " COALESCE( ( SELECT MAX( gc.status_generic_id ) FROM notificationstore_notification_content gc WHERE gc.notification_id = gn.id ), -1 ), "
+            + " ( SELECT GROUP_CONCAT( gc.notification_type ORDER BY gc.notification_type SEPARATOR ',' ) FROM notificationstore_notification_content gc WHERE gc.notification_id = gn.id ) "
+            + " FROM notificationstore_demand gd "
+            + " JOIN notificationstore_notification gn ON gn.id = ( SELECT n.id FROM notificationstore_notification n WHERE n.demand_id = gd.id AND n.demand_type_id = gd.demand_type_id ORDER BY n.date DESC, n.id DESC LIMIT 1 ) "
+            + " WHERE gd.uid > ? AND gd.uid <= ? ";
+
+    /**
+     * Store the state of a demand, unless a more recent notification has already been projected
+     * 
+     * @param state
+     *            the state
+     */
+    public void store( DemandState state )
+    {
+        int nUpdated;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            int nIndex = setValues( daoUtil, state, 1 );
+            daoUtil.setInt( nIndex++, state.getDemandUid( ) );
+            daoUtil.setTimestamp( nIndex++, new Timestamp( state.getLastNotificationDate( ) ) );
+            daoUtil.setTimestamp( nIndex++, new Timestamp( state.getLastNotificationDate( ) ) );
+            daoUtil.setLong( nIndex, state.getLastNotificationId( ) );
+
+            nUpdated = daoUtil.executeUpdate( );
+        }
+
+        if ( nUpdated == 0 )
+        {
+            // no state yet, or a more recent one (then nothing is inserted)
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_IF_ABSENT, NotificationStorePlugin.getPlugin( ) ) )
+            {
+                daoUtil.setInt( 1, state.getDemandUid( ) );
+                int nIndex = setValues( daoUtil, state, 2 );
+                daoUtil.setInt( nIndex, state.getDemandUid( ) );
+
+                daoUtil.executeUpdate( );
+            }
+        }
+    }
+
+    /**
+     * Load the states of demands
+     * 
+     * @param listDemandUids
+     *            the demand uids
+     * @return the states, by demand uid
+     */
+    public Map<Integer, DemandState> selectByDemandUids( List<Integer> listDemandUids )
+    {
+        Map<Integer, DemandState> mapStates = new HashMap<>( );
+        if ( listDemandUids.isEmpty( ) )
+        {
+            return mapStates;
+        }
+
+        String strSql = String.format( SQL_QUERY_SELECT_BY_DEMAND_UIDS, listDemandUids.stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ) );
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            int nIndex = 1;
+            for ( Integer nUid : listDemandUids )
+            {
+                daoUtil.setInt( nIndex++, nUid );
+            }
+
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                DemandState state = new DemandState( );
+                state.setDemandUid( daoUtil.getInt( 1 ) );
+                state.setLastNotificationId( daoUtil.getLong( 2 ) );
+                Timestamp date = daoUtil.getTimestamp( 3 );
+                state.setLastNotificationDate( date != null ? date.getTime( ) : 0 );
+                state.setStatusId( daoUtil.getInt( 4 ) );
+                state.setStatusGenericId( daoUtil.getInt( 5 ) );
+                state.setNotificationTypes( daoUtil.getString( 6 ) );
+
+                mapStates.put( state.getDemandUid( ), state );
+            }
+        }
+
+        return mapStates;
+    }
+
+    /**
+     * Get the greatest demand uid
+     * 
+     * @return the greatest demand uid, 0 if there is no demand
+     */
+    public int selectMaxDemandUid( )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_MAX_DEMAND_UID, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * Rebuild the states of a range of demands from their notifications
+     * 
+     * @param nFromUid
+     *            the lower bound of the demand uids (excluded)
+     * @param nToUid
+     *            the upper bound of the demand uids (included)
+     * @return the number of states built
+     */
+    public int rebuild( int nFromUid, int nToUid )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_RANGE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setInt( 1, nFromUid );
+            daoUtil.setInt( 2, nToUid );
+            daoUtil.executeUpdate( );
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_REBUILD_RANGE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setInt( 1, nFromUid );
+            daoUtil.setInt( 2, nToUid );
+
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Set the projected values of a state
+     * 
+     * @param daoUtil
+     * @param state
+     * @param nIndex
+     *            the index of the first value
+     * @return the index of the next parameter
+     */
+    private static int setValues( DAOUtil daoUtil, DemandState state, int nIndex )
+    {
+        daoUtil.setLong( nIndex++, state.getLastNotificationId( ) );
+        daoUtil.setTimestamp( nIndex++, new Timestamp( state.getLastNotificationDate( ) ) );
+        daoUtil.setInt( nIndex++, state.getStatusId( ) );
+        daoUtil.setInt( nIndex++, state.getStatusGenericId( ) );
+        daoUtil.setString( nIndex++, state.getNotificationTypes( ) );
+
+        return nIndex;
+    }
+}
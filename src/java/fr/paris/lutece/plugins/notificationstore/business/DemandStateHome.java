@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the demand states
+ */
+public final class DemandStateHome
+{
+    // Static variable pointed at the DAO instance
+    private static DemandStateDAO _dao = SpringContextService.getBean( "notificationstore.demandStateDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private DemandStateHome( )
+    {
+    }
+
+    /**
+     * Build the state of the demand of a notification
+     * 
+     * @param notification
+     *            the notification, with its id and its demand uid
+     * @param listNotificationContent
+     *            the contents of the notification
+     * @return the state
+     */
+    public static DemandState build( Notification notification, Collection<NotificationContent> listNotificationContent )
+    {
+        DemandState state = new DemandState( );
+        state.setDemandUid( notification.getDemand( ).getUID( ) );
+        state.setLastNotificationId( notification.getId( ) );
+        state.setLastNotificationDate( notification.getDate( ) );
+
+        for ( NotificationContent content : listNotificationContent )
+        {
+            // the status is the one of the MyDashboard part, for all the contents
+            if ( content.getStatusId( ) != null )
+            {
+                state.setStatusId( content.getStatusId( ) );
+            }
+            if ( content.getGenericStatusId( ) != null )
+            {
+                state.setStatusGenericId( content.getGenericStatusId( ) );
+            }
+        }
+        state.setNotificationTypes(
+                listNotificationContent.stream( ).map( NotificationContent::getNotificationType ).sorted( ).distinct( ).collect( Collectors.joining( "," ) ) );
+
+        return state;
+    }
+
+    /**
+     * Update the state of the demand of a notification, if the notification is the most recent of the demand
+     * 
+     * @param notification
+     *            the notification, with its id and its demand uid
+     * @param listNotificationContent
+     *            the contents of the notification
+     */
+    public static void update( Notification notification, Collection<NotificationContent> listNotificationContent )
+    {
+        store( build( notification, listNotificationContent ) );
+    }
+
+    /**
+     * Store a demand state, if it is the most recent of the demand
+     * 
+     * @param state
+     *            the state
+     */
+    public static void store( DemandState state )
+    {
+        _dao.store( state );
+    }
+
+    /**
+     * Get the states of demands
+     * 
+     * @param listDemandUids
+     *            the demand uids
+     * @return the states, by demand uid (the demands without notification have no state)
+     */
+    public static Map<Integer, DemandState> findByDemandUids( List<Integer> listDemandUids )
+    {
+        return _dao.selectByDemandUids( listDemandUids );
+    }
+
+    /**
+     * Get the greatest demand uid
+     * 
+     * @return the greatest demand uid
+     */
+    public static int getMaxDemandUid( )
+    {
+        return _dao.selectMaxDemandUid( );
+    }
+
+    /**
+     * Rebuild the states of a range of demands from their notifications
+     * 
+     * @param nFromUid
+     *            the lower bound of the demand uids (excluded)
+     * @param nToUid
+     *            the upper bound of the demand uids (included)
+     * @return the number of states built
+     */
+    public static int rebuild( int nFromUid, int nToUid )
+    {
+        return _dao.rebuild( nFromUid, nToUid );
+    }
+}
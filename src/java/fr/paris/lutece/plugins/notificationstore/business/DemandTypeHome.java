@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.notificationstore.business;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandTypeDAO;
+import fr.paris.lutece.plugins.notificationstore.service.DemandTypeRegistry;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
@@ -42,7 +43,6 @@ import fr.paris.lutece.util.ReferenceList;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * This class provides instances management methods (create, find, ...) for DemandType objects
@@ -70,6 +70,7 @@ public final class DemandTypeHome
     public static DemandType create( DemandType demandType )
     {
         _dao.insert( demandType );
+        DemandTypeRegistry.instance( ).refresh( );
 
         return demandType;
     }
@@ -84,6 +85,7 @@ public final class DemandTypeHome
     public static DemandType update( DemandType demandType )
     {
         _dao.store( demandType );
+        DemandTypeRegistry.instance( ).refresh( );
 
         return demandType;
     }
@@ -97,6 +99,7 @@ public final class DemandTypeHome
     public static void remove( int nKey )
     {
         _dao.delete( nKey );
+        DemandTypeRegistry.instance( ).refresh( );
     }
 
     /**
@@ -153,7 +156,7 @@ public final class DemandTypeHome
         ReferenceList listDemandType = new ReferenceList( );
         listDemandType.addItem( "" , " ");
         
-        getDemandTypesList( ).stream( ).forEach( dt -> listDemandType.addItem( String.valueOf( dt.getIdDemandType( ) ), dt.getIdDemandType( ) + ": " + dt.getLabel( ) ) );
+        DemandTypeRegistry.instance( ).getAll( ).stream( ).forEach( dt -> listDemandType.addItem( String.valueOf( dt.getIdDemandType( ) ), dt.getIdDemandType( ) + ": " + dt.getLabel( ) ) );
 
         return listDemandType;
     }
@@ -167,8 +170,7 @@ public final class DemandTypeHome
      */
     public static List<DemandType> getDemandTypesListByCategoryCode( String strCategoryCode )
     {
-        return getDemandTypesList( ).stream( ).filter( dt -> strCategoryCode.equals( dt.getCategory( ) ) ).collect( Collectors.toList( ) );
-
+        return DemandTypeRegistry.instance( ).getByCategoryCode( strCategoryCode );
     }
 
 }
@@ -55,6 +55,16 @@ public interface INotificationContentDAO
 
     void insert( NotificationContent notificationContent, Plugin plugin );
 
+    /**
+     * Insert several notification contents with one JDBC batch (the generated ids are not retrieved)
+     * 
+     * @param listNotificationContent
+     *            the notification contents
+     * @param plugin
+     *            the Plugin
+     */
+    void insertBatch( List<NotificationContent> listNotificationContent, Plugin plugin );
+
     /**
      * Update the record in the table
      * 
@@ -125,4 +135,17 @@ public interface INotificationContentDAO
     List<NotificationContent> selectNotificationContentsByIdAndTypeNotification( int nIdNotification, List<EnumNotificationType> listNotificationType,
             Plugin plugin );
 
+    /**
+     * Load the data of several notifications in a single query, optionally restricted to some notification types
+     * 
+     * @param listIdNotification
+     *            the list of notification ids
+     * @param listNotificationType
+     *            the list of notification types
+     * @return The List which contains the data of the notificationContent objects
+     */
+
+    List<NotificationContent> selectNotificationContentsByIdsAndTypeNotification( List<Integer> listIdNotification,
+            List<EnumNotificationType> listNotificationType, Plugin plugin );
+
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Hi/lo id allocator : each instance reserves blocks of ids in the notificationstore_id_block table and hands them out from memory. The table row is
+ * only updated once per block, with a compare-and-set, so several threads and several webapp nodes can allocate ids without a global lock and without
+ * duplicates.
+ */
+public final class IdBlockAllocator
+{
+    private static final int MAX_RESERVE_ATTEMPTS = 50;
+
+    private final String _strName;
+    private final int _nBlockSize;
+    private final LongSupplier _initialValueSupplier;
+    private final IdBlockDAO _dao = new IdBlockDAO( );
+    private volatile Block _block = new Block( 0, 0 );
+
+    /**
+     * Constructor
+     * 
+     * @param strName
+     *            the sequence name
+     * @param nBlockSize
+     *            the number of ids reserved at once
+     * @param initialValueSupplier
+     *            provides the first value when the sequence does not exist yet
+     */
+    public IdBlockAllocator( String strName, int nBlockSize, LongSupplier initialValueSupplier )
+    {
+        _strName = strName;
+        _nBlockSize = Math.max( 1, nBlockSize );
+        _initialValueSupplier = initialValueSupplier;
+    }
+
+    /**
+     * Get the next id
+     * 
+     * @return the id
+     */
+    public long nextId( )
+    {
+        while ( true )
+        {
+            Block block = _block;
+            long lId = block._next.getAndIncrement( );
+
+            if ( lId < block._lEnd )
+            {
+                return lId;
+            }
+
+            synchronized( this )
+            {
+                // another thread may have refilled meanwhile
+                if ( _block == block )
+                {
+                    _block = reserveBlock( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserve a new block in database
+     * 
+     * @return the block
+     */
+    private Block reserveBlock( )
+    {
+        for ( int nAttempt = 0; nAttempt < MAX_RESERVE_ATTEMPTS; nAttempt++ )
+        {
+            long lStart = _dao.selectNextValue( _strName );
+
+            if ( lStart < 0 )
+            {
+                createSequence( );
+                continue;
+            }
+
+            if ( _dao.reserve( _strName, lStart, lStart + _nBlockSize ) )
+            {
+                return new Block( lStart, lStart + _nBlockSize );
+            }
+        }
+
+        throw new AppException( "Unable to reserve a block of ids for sequence " + _strName );
+    }
+
+    /**
+     * Create the sequence, starting after the existing ids
+     */
+    private void createSequence( )
+    {
+        try
+        {
+            _dao.insert( _strName, Math.max( 1, _initialValueSupplier.getAsLong( ) ) );
+        }
+        catch( AppException e )
+        {
+            // created by another node meanwhile
+            AppLogService.debug( "Sequence " + _strName + " already created", e );
+        }
+    }
+
+    /**
+     * A reserved range of ids [ start, end [
+     */
+    private static final class Block
+    {
+        private final AtomicLong _next;
+        private final long _lEnd;
+
+        private Block( long lStart, long lEnd )
+        {
+            _next = new AtomicLong( lStart );
+            _lEnd = lEnd;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the id blocks reserved in the notificationstore_id_block table
+ */
+final class IdBlockDAO
+{
+    private static final String SQL_QUERY_SELECT = "SELECT next_value FROM notificationstore_id_block WHERE name = ? ";
+    private static final String SQL_QUERY_RESERVE = "UPDATE notificationstore_id_block SET next_value = ? WHERE name = ? AND next_value = ? ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_id_block ( name, next_value ) VALUES ( ?, ? ) ";
+
+    /**
+     * Load the next free value of a sequence
+     * 
+     * @param strName
+     *            the sequence name
+     * @return the next free value, or -1 if the sequence does not exist
+     */
+    long selectNextValue( String strName )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strName );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                return daoUtil.getLong( 1 );
+            }
+
+            return -1;
+        }
+    }
+
+    /**
+     * Reserve the values [ lExpected, lNewValue [ of a sequence, if no other node has moved it meanwhile
+     * 
+     * @param strName
+     *            the sequence name
+     * @param lExpected
+     *            the next free value read before
+     * @param lNewValue
+     *            the new next free value
+     * @return true if the block has been reserved
+     */
+    boolean reserve( String strName, long lExpected, long lNewValue )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RESERVE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setLong( 1, lNewValue );
+            daoUtil.setString( 2, strName );
+            daoUtil.setLong( 3, lExpected );
+
+            return daoUtil.executeUpdate( ) == 1;
+        }
+    }
+
+    /**
+     * Create a sequence
+     * 
+     * @param strName
+     *            the sequence name
+     * @param lNextValue
+     *            the first free value
+     */
+    void insert( String strName, long lNextValue )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strName );
+            daoUtil.setLong( 2, lNextValue );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the checkpoints of the local notification journals : the sequence of the last entry of a journal
+ * applied to the database.
+ */
+public final class JournalCheckpointDAO
+{
+    private static final String SQL_QUERY_SELECT = "SELECT sequence FROM notificationstore_journal_checkpoint WHERE journal_id = ? ";
+    private static final String SQL_QUERY_INSERT_IF_ABSENT = "INSERT INTO notificationstore_journal_checkpoint ( journal_id, sequence ) VALUES ( ?, 0 ) "
+            + " ON DUPLICATE KEY UPDATE journal_id = journal_id ";
+    private static final String SQL_QUERY_ADVANCE = "UPDATE notificationstore_journal_checkpoint SET sequence = ? WHERE journal_id = ? AND sequence < ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_journal_checkpoint WHERE journal_id = ? ";
+
+    /**
+     * Load the checkpoint of a journal
+     * 
+     * @param strJournalId
+     *            the journal id
+     * @return the sequence of the last applied entry, -1 if the journal has no checkpoint
+     */
+    public long load( String strJournalId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strJournalId );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                return daoUtil.getLong( 1 );
+            }
+
+            return -1;
+        }
+    }
+
+    /**
+     * Create the checkpoint of a journal, unless it exists
+     * 
+     * @param strJournalId
+     *            the journal id
+     */
+    public void insertIfAbsent( String strJournalId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_IF_ABSENT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strJournalId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Move the checkpoint of a journal forward
+     * 
+     * @param strJournalId
+     *            the journal id
+     * @param lSequence
+     *            the sequence of the applied entry
+     * @return false if the checkpoint is already at or beyond this sequence
+     */
+    public boolean advance( String strJournalId, long lSequence )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_ADVANCE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setLong( 1, lSequence );
+            daoUtil.setString( 2, strJournalId );
+            daoUtil.setLong( 3, lSequence );
+
+            return daoUtil.executeUpdate( ) == 1;
+        }
+    }
+
+    /**
+     * Delete the checkpoint of a journal
+     * 
+     * @param strJournalId
+     *            the journal id
+     */
+    public void delete( String strJournalId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strJournalId );
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the checkpoints of the local notification journals
+ */
+public final class JournalCheckpointHome
+{
+    // Static variable pointed at the DAO instance
+    private static JournalCheckpointDAO _dao = SpringContextService.getBean( "notificationstore.journalCheckpointDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private JournalCheckpointHome( )
+    {
+    }
+
+    /**
+     * Get the checkpoint of a journal, created if it does not exist yet
+     * 
+     * @param strJournalId
+     *            the journal id
+     * @return the sequence of the last applied entry (0 if none)
+     */
+    public static long getOrCreate( String strJournalId )
+    {
+        long lSequence = _dao.load( strJournalId );
+        if ( lSequence < 0 )
+        {
+            _dao.insertIfAbsent( strJournalId );
+            lSequence = Math.max( 0, _dao.load( strJournalId ) );
+        }
+
+        return lSequence;
+    }
+
+    /**
+     * Get the checkpoint of a journal
+     * 
+     * @param strJournalId
+     *            the journal id
+     * @return the sequence of the last applied entry, -1 if the journal has no checkpoint
+     */
+    public static long getSequence( String strJournalId )
+    {
+        return _dao.load( strJournalId );
+    }
+
+    /**
+     * Move the checkpoint of a journal forward, in the current transaction
+     * 
+     * @param strJournalId
+     *            the journal id
+     * @param lSequence
+     *            the sequence of the applied entry
+     * @return false if the entry has already been applied
+     */
+    public static boolean advance( String strJournalId, long lSequence )
+    {
+        return _dao.advance( strJournalId, lSequence );
+    }
+}
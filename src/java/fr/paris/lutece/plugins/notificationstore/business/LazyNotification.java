@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.BackofficeNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.BroadcastNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.EmailNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
+import fr.paris.lutece.plugins.grubusiness.business.notification.MyDashboardNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.SMSNotification;
+
+/**
+ * Notification whose channel payloads are read from the file store on first access only. The content rows (file store and file key of each channel) are
+ * attached when the notification is loaded, so listing notifications costs no file store read.
+ */
+public class LazyNotification extends Notification
+{
+    private final transient NotificationDAO _dao;
+    private final Map<EnumNotificationType, NotificationContent> _mapPendingContents = new EnumMap<>( EnumNotificationType.class );
+
+    /**
+     * Constructor
+     * 
+     * @param dao
+     *            the DAO used to read the payloads
+     */
+    LazyNotification( NotificationDAO dao )
+    {
+        _dao = dao;
+    }
+
+    /**
+     * Attach a content row, read when the payload of its channel is accessed
+     * 
+     * @param notificationContent
+     *            the content row
+     */
+    synchronized void addContent( NotificationContent notificationContent )
+    {
+        for ( EnumNotificationType type : EnumNotificationType.values( ) )
+        {
+            if ( type.name( ).equals( notificationContent.getNotificationType( ) ) )
+            {
+                _mapPendingContents.put( type, notificationContent );
+            }
+        }
+    }
+
+    /**
+     * Read the payload of a channel if it has not been read yet
+     * 
+     * @param type
+     *            the channel
+     */
+    private synchronized void resolve( EnumNotificationType type )
+    {
+        NotificationContent notificationContent = _mapPendingContents.remove( type );
+        if ( notificationContent != null )
+        {
+            _dao.setNotificationContent( this, notificationContent );
+        }
+    }
+
+    /**
+     * Discard the pending content of a channel, when its payload is set explicitly
+     * 
+     * @param type
+     *            the channel
+     */
+    private synchronized void discard( EnumNotificationType type )
+    {
+        _mapPendingContents.remove( type );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BackofficeNotification getBackofficeNotification( )
+    {
+        resolve( EnumNotificationType.BACKOFFICE );
+        return super.getBackofficeNotification( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBackofficeNotification( BackofficeNotification backofficeNotification )
+    {
+        discard( EnumNotificationType.BACKOFFICE );
+        super.setBackofficeNotification( backofficeNotification );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BroadcastNotification> getBroadcastEmail( )
+    {
+        resolve( EnumNotificationType.BROADCAST_EMAIL );
+        return super.getBroadcastEmail( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBroadcastEmail( List<BroadcastNotification> broadcastEmail )
+    {
+        discard( EnumNotificationType.BROADCAST_EMAIL );
+        super.setBroadcastEmail( broadcastEmail );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EmailNotification getEmailNotification( )
+    {
+        resolve( EnumNotificationType.CUSTOMER_EMAIL );
+        return super.getEmailNotification( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setEmailNotification( EmailNotification emailNotification )
+    {
+        discard( EnumNotificationType.CUSTOMER_EMAIL );
+        super.setEmailNotification( emailNotification );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MyDashboardNotification getMyDashboardNotification( )
+    {
+        resolve( EnumNotificationType.MYDASHBOARD );
+        return super.getMyDashboardNotification( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMyDashboardNotification( MyDashboardNotification myDashboardNotification )
+    {
+        discard( EnumNotificationType.MYDASHBOARD );
+        super.setMyDashboardNotification( myDashboardNotification );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SMSNotification getSmsNotification( )
+    {
+        resolve( EnumNotificationType.SMS );
+        return super.getSmsNotification( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSmsNotification( SMSNotification smsNotification )
+    {
+        discard( EnumNotificationType.SMS );
+        super.setSmsNotification( smsNotification );
+    }
+}
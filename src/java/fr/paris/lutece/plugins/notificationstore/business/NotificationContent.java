@@ -46,6 +46,9 @@ public class NotificationContent
     private Integer _strGenericStatusId;
     private String _strFileKey;
     private String _strFileStore;
+    private byte [ ] _content;
+    private String _strCodec;
+    private Integer _nDictionaryId;
 
     /**
      * Returns the Id
@@ -170,5 +173,64 @@ public class NotificationContent
     {
         this._strFileStore = strFileStore;
     }
+
+    /**
+     * @return the content stored inline in the content row, null if the content is in the file store
+     */
+    public byte [ ] getContent( )
+    {
+        return _content;
+    }
+
+    /**
+     * @param content
+     *            the content stored inline in the content row
+     */
+    public void setContent( byte [ ] content )
+    {
+        this._content = content;
+    }
+
+    /**
+     * @return the id of the codec of the stored bytes, null for the contents stored before the codecs (then the global compression property applies)
+     */
+    public String getCodec( )
+    {
+        return _strCodec;
+    }
+
+    /**
+     * @param strCodec
+     *            the id of the codec of the stored bytes
+     */
+    public void setCodec( String strCodec )
+    {
+        this._strCodec = strCodec;
+    }
+
+    /**
+     * @return the id of the compression dictionary used by the codec, null if none
+     */
+    public Integer getDictionaryId( )
+    {
+        return _nDictionaryId;
+    }
+
+    /**
+     * @param nDictionaryId
+     *            the id of the compression dictionary used by the codec
+     */
+    public void setDictionaryId( Integer nDictionaryId )
+    {
+        this._nDictionaryId = nDictionaryId;
+    }
+
+    /**
+     * @return true if the content is stored inline in the content row rather than in the file store
+     */
+    public boolean isInline( )
+    {
+        return _content != null;
+    }
     
 }
@@ -51,12 +51,13 @@ import java.sql.Statement;
 public final class NotificationContentDAO implements INotificationContentDAO
 {
     // Constants
-    private static final String SQL_QUERY_SELECT = "SELECT id_notification_content, notification_id, notification_type, status_id, status_generic_id, file_key, file_store FROM notificationstore_notification_content WHERE id_notification_content = ?";
-    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification_content ( notification_id, notification_type, status_id, status_generic_id, file_key, file_store ) VALUES ( ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT id_notification_content, notification_id, notification_type, status_id, status_generic_id, file_key, file_store, content, codec, dictionary_id FROM notificationstore_notification_content WHERE id_notification_content = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification_content ( notification_id, notification_type, status_id, status_generic_id, file_key, file_store, content, codec, dictionary_id ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_notification_content WHERE id_notification_content = ? ";
-    private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_notification_content SET notification_type = ?, status_id = ?, status_generic_id = ?, file_key = ?, file_store = ? WHERE id_notification_content = ?";
-    private static final String SQL_QUERY_SELECTALL = "SELECT id_notification_content, notification_id, notification_type, status_id, status_generic_id, file_key, file_store FROM notificationstore_notification_content";
-    private static final String SQL_QUERY_SELECT_BY_ID_NOTIF = "SELECT id_notification_content, notification_id, notification_type, status_id, status_generic_id, file_key, file_store FROM notificationstore_notification_content WHERE notification_id = ?";
+    private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_notification_content SET notification_type = ?, status_id = ?, status_generic_id = ?, file_key = ?, file_store = ?, content = ?, codec = ?, dictionary_id = ? WHERE id_notification_content = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT id_notification_content, notification_id, notification_type, status_id, status_generic_id, file_key, file_store, content, codec, dictionary_id FROM notificationstore_notification_content";
+    private static final String SQL_QUERY_SELECT_BY_ID_NOTIF = "SELECT id_notification_content, notification_id, notification_type, status_id, status_generic_id, file_key, file_store, content, codec, dictionary_id FROM notificationstore_notification_content WHERE notification_id = ?";
+    private static final String SQL_QUERY_SELECT_BY_IDS_NOTIF = "SELECT id_notification_content, notification_id, notification_type, status_id, status_generic_id, file_key, file_store, content, codec, dictionary_id FROM notificationstore_notification_content WHERE notification_id IN ( ";
     private static final String SQL_PARAM_QUERY_TYPE_NOTIF = " AND notification_type IN (";
 
     /**
@@ -67,13 +68,7 @@ public final class NotificationContentDAO implements INotificationContentDAO
     {
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
         {
-            int nIndex = 0;
-            daoUtil.setInt( ++nIndex, notificationContent.getIdNotification( ) );
-            daoUtil.setString( ++nIndex, notificationContent.getNotificationType( ) );
-            daoUtil.setInt( ++nIndex, notificationContent.getStatusId( ) != null ? notificationContent.getStatusId( ) : -1 );
-            daoUtil.setInt( ++nIndex, notificationContent.getGenericStatusId( ) != null ? notificationContent.getGenericStatusId( ) : -1 );
-            daoUtil.setString( ++nIndex, notificationContent.getFileKey( ) );
-            daoUtil.setString( ++nIndex, notificationContent.getFileStore( ) );
+            setInsertParameters( daoUtil, notificationContent );
 
             daoUtil.executeUpdate( );
             if ( daoUtil.nextGeneratedKey( ) )
@@ -83,6 +78,72 @@ public final class NotificationContentDAO implements INotificationContentDAO
         }
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertBatch( List<NotificationContent> listNotificationContent, Plugin plugin )
+    {
+        if ( listNotificationContent.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            for ( NotificationContent notificationContent : listNotificationContent )
+            {
+                setInsertParameters( daoUtil, notificationContent );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * Set the parameters of the insert query
+     * 
+     * @param daoUtil
+     * @param notificationContent
+     */
+    private static void setInsertParameters( DAOUtil daoUtil, NotificationContent notificationContent )
+    {
+        int nIndex = 0;
+        daoUtil.setInt( ++nIndex, notificationContent.getIdNotification( ) );
+        daoUtil.setString( ++nIndex, notificationContent.getNotificationType( ) );
+        daoUtil.setInt( ++nIndex, notificationContent.getStatusId( ) != null ? notificationContent.getStatusId( ) : -1 );
+        daoUtil.setInt( ++nIndex, notificationContent.getGenericStatusId( ) != null ? notificationContent.getGenericStatusId( ) : -1 );
+        daoUtil.setString( ++nIndex, notificationContent.getFileKey( ) );
+        daoUtil.setString( ++nIndex, notificationContent.getFileStore( ) );
+        daoUtil.setBytes( ++nIndex, notificationContent.getContent( ) );
+        setCodecParameters( daoUtil, nIndex, notificationContent );
+    }
+
+    /**
+     * Set the codec parameters of the insert and update queries
+     * 
+     * @param daoUtil
+     * @param nIndex
+     *            the index of the last parameter set
+     * @param notificationContent
+     * @return the index of the last parameter set
+     */
+    private static int setCodecParameters( DAOUtil daoUtil, int nIndex, NotificationContent notificationContent )
+    {
+        daoUtil.setString( ++nIndex, notificationContent.getCodec( ) );
+        if ( notificationContent.getDictionaryId( ) != null )
+        {
+            daoUtil.setInt( ++nIndex, notificationContent.getDictionaryId( ) );
+        }
+        else
+        {
+            daoUtil.setIntNull( ++nIndex );
+        }
+
+        return nIndex;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -132,6 +193,8 @@ public final class NotificationContentDAO implements INotificationContentDAO
             daoUtil.setInt( ++nIndex, notificationContent.getGenericStatusId( ) );
             daoUtil.setString( ++nIndex, notificationContent.getFileKey( ) );
             daoUtil.setString( ++nIndex, notificationContent.getFileStore( ) );
+            daoUtil.setBytes( ++nIndex, notificationContent.getContent( ) );
+            nIndex = setCodecParameters( daoUtil, nIndex, notificationContent );
             daoUtil.setInt( ++nIndex, notificationContent.getId( ) );
 
             daoUtil.executeUpdate( );
@@ -215,6 +278,50 @@ public final class NotificationContentDAO implements INotificationContentDAO
         return listNotificationContents;
     }
 
+    @Override
+    public List<NotificationContent> selectNotificationContentsByIdsAndTypeNotification( List<Integer> listIdNotification,
+            List<EnumNotificationType> listNotificationType, Plugin plugin )
+    {
+        List<NotificationContent> listNotificationContents = new ArrayList<>( );
+
+        if ( CollectionUtils.isEmpty( listIdNotification ) )
+        {
+            return listNotificationContents;
+        }
+
+        String strQuery = SQL_QUERY_SELECT_BY_IDS_NOTIF + listIdNotification.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " ) ";
+        if ( CollectionUtils.isNotEmpty( listNotificationType ) )
+        {
+            strQuery += SQL_PARAM_QUERY_TYPE_NOTIF + listNotificationType.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " ) ";
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndexIn = 1;
+
+            for ( Integer nIdNotification : listIdNotification )
+            {
+                daoUtil.setInt( nIndexIn++, nIdNotification );
+            }
+            if ( CollectionUtils.isNotEmpty( listNotificationType ) )
+            {
+                for ( EnumNotificationType notificationType : listNotificationType )
+                {
+                    daoUtil.setString( nIndexIn++, notificationType.name( ) );
+                }
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listNotificationContents.add( loadNotificationContent( daoUtil ) );
+            }
+        }
+
+        return listNotificationContents;
+    }
+
     /**
      * Load notification
      * 
@@ -231,6 +338,10 @@ public final class NotificationContentDAO implements INotificationContentDAO
         notificationContent.setGenericStatusId( daoUtil.getInt( "status_generic_id" ) );
         notificationContent.setFileKey( daoUtil.getString( "file_key" ) );
         notificationContent.setFileStore( daoUtil.getString( "file_store" ) );
+        notificationContent.setContent( daoUtil.getBytes( "content" ) );
+        notificationContent.setCodec( daoUtil.getString( "codec" ) );
+        int nDictionaryId = daoUtil.getInt( "dictionary_id" );
+        notificationContent.setDictionaryId( nDictionaryId > 0 ? nDictionaryId : null );
 
         return notificationContent;
     }
@@ -33,14 +33,15 @@
  */
 package fr.paris.lutece.plugins.notificationstore.business;
 
-import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandStatus;
 import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.plugins.notificationstore.service.StatusDictionary;
+import fr.paris.lutece.plugins.notificationstore.service.cache.NotificationContentCache;
+import fr.paris.lutece.plugins.notificationstore.service.codec.ContentCodecService;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
-import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
 import fr.paris.lutece.portal.business.file.File;
 import fr.paris.lutece.portal.business.physicalfile.PhysicalFile;
 import fr.paris.lutece.portal.service.file.FileService;
@@ -48,12 +49,9 @@ import fr.paris.lutece.portal.service.file.FileServiceException;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
-import fr.paris.lutece.util.string.StringUtil;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -63,7 +61,6 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * This class provides instances management methods (create, find, ...) for NotificationContent objects
@@ -102,24 +99,82 @@ public final class NotificationContentHome
     }
 
     /**
-     * Create an instance of the notificationContent class
+     * Create the contents of a notification, and update the state of the demand. The demand row is not written : it is saved with the notification
+     * (see {@link #create(Notification, List)}).
      * 
-     * @param notificationContent
-     *            The instance of the NotificationContent which contains the informations to store
-     * @param plugin
-     *            the Plugin
-     * @return The instance of notificationContent which has been created with its primary key.
+     * @param notification
+     *            the notification, with its id
+     * @return the created contents
      */
-
     public static List<NotificationContent> create( Notification notification )
     {
-        List<NotificationContent> listNotificationContent = getListNotificationContent( notification );
-        for ( NotificationContent content : listNotificationContent )
+        List<NotificationContent> listNotificationContent = buildNotificationContents( notification );
+        create( notification, listNotificationContent );
+
+        return listNotificationContent;
+    }
+
+    /**
+     * Insert the contents of a notification built by {@link #buildNotificationContents(Notification)} with one JDBC batch, and update the state of
+     * the demand. The demand row is not written : its status and modification date are set when it is saved with the notification.
+     * 
+     * @param notification
+     *            the notification
+     * @param listNotificationContent
+     *            the contents of the notification
+     */
+    public static void create( Notification notification, List<NotificationContent> listNotificationContent )
+    {
+        _dao.insertBatch( listNotificationContent, NotificationStorePlugin.getPlugin( ) );
+        DemandStateHome.update( notification, listNotificationContent );
+    }
+
+    /**
+     * Build the contents of a notification, and store them in the file store. The rows are not inserted.
+     * 
+     * @param notification
+     *            the notification, with its id
+     * @return the contents to insert
+     */
+    public static List<NotificationContent> buildNotificationContents( Notification notification )
+    {
+        return getListNotificationContent( notification );
+    }
+
+    /**
+     * Remove the files stored for contents whose rows have not been inserted (rolled back)
+     * 
+     * @param listContents
+     *            the contents
+     */
+    public static void deleteContentFiles( List<NotificationContent> listContents )
+    {
+        for ( NotificationContent content : listContents )
         {
-            _dao.insert( content, NotificationStorePlugin.getPlugin( ) );
+            if ( StringUtils.isNotEmpty( content.getFileKey( ) ) )
+            {
+                try
+                {
+                    FileService.getInstance( ).getFileStoreServiceProvider( content.getFileStore( ) ).delete( content.getFileKey( ) );
+                    NotificationContentCache.instance( ).invalidate( content.getFileStore( ), content.getFileKey( ) );
+                }
+                catch( FileServiceException e )
+                {
+                    AppLogService.error( "Unable to delete the content file " + content.getFileKey( ), e );
+                }
+            }
         }
+    }
 
-        return listNotificationContent;
+    /**
+     * Create several notificationContents with one JDBC batch
+     * 
+     * @param listNotificationContent
+     *            the notification contents
+     */
+    public static void createBatch( List<NotificationContent> listNotificationContent )
+    {
+        _dao.insertBatch( listNotificationContent, NotificationStorePlugin.getPlugin( ) );
     }
 
     /**
@@ -209,48 +264,54 @@ public final class NotificationContentHome
         return _dao.selectNotificationContentsByIdAndTypeNotification( nIdNotification, listNotificationType, NotificationStorePlugin.getPlugin( ) );
     }
 
+    /**
+     * Load the contents of several notifications in a single query, optionally restricted to some notification types
+     * 
+     * @param listIdNotification
+     *            the list of notification ids
+     * @param listNotificationType
+     *            the notification types (all types if empty)
+     * @return the list of contents
+     */
+
+    public static List<NotificationContent> getNotificationContentsByIdsAndTypeNotification( List<Integer> listIdNotification,
+            List<EnumNotificationType> listNotificationType )
+    {
+        return _dao.selectNotificationContentsByIdsAndTypeNotification( listIdNotification, listNotificationType, NotificationStorePlugin.getPlugin( ) );
+    }
+
     private static List<NotificationContent> getListNotificationContent( Notification notification )
     {
         List<NotificationContent> listNotificationContent = new ArrayList<>( );
 
         try
         {
-            ObjectMapper mapperr = NotificationStoreUtils.getMapper( );
-            Demand demand = notification.getDemand( );
-
             if ( notification.getSmsNotification( ) != null )
             {
-                listNotificationContent.add(
-                        initNotificationContent( notification, EnumNotificationType.SMS, mapperr.writeValueAsString( notification.getSmsNotification( ) ) ) );
+                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.SMS, notification.getSmsNotification( ) ) );
             }
 
             if ( notification.getBackofficeNotification( ) != null )
             {
-                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.BACKOFFICE,
-                        mapperr.writeValueAsString( notification.getBackofficeNotification( ) ) ) );
+                listNotificationContent
+                        .add( initNotificationContent( notification, EnumNotificationType.BACKOFFICE, notification.getBackofficeNotification( ) ) );
             }
 
             if ( CollectionUtils.isNotEmpty( notification.getBroadcastEmail( ) ) )
             {
-                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.BROADCAST_EMAIL,
-                        mapperr.writeValueAsString( notification.getBroadcastEmail( ) ) ) );
+                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.BROADCAST_EMAIL, notification.getBroadcastEmail( ) ) );
             }
 
             if ( notification.getMyDashboardNotification( ) != null )
             {
-                demand.setStatusId( getStatusGenericId( notification, EnumNotificationType.MYDASHBOARD ) );
-                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.MYDASHBOARD,
-                        mapperr.writeValueAsString( notification.getMyDashboardNotification( ) ) ) );
+                listNotificationContent
+                        .add( initNotificationContent( notification, EnumNotificationType.MYDASHBOARD, notification.getMyDashboardNotification( ) ) );
             }
 
             if ( notification.getEmailNotification( ) != null )
             {
-                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.CUSTOMER_EMAIL,
-                        mapperr.writeValueAsString( notification.getEmailNotification( ) ) ) );
+                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.CUSTOMER_EMAIL, notification.getEmailNotification( ) ) );
             }
-            demand.setModifyDate( new Date( ).getTime( ) );
-            DemandHome.update( demand );
-
         }
         catch( JsonProcessingException e )
         {
@@ -267,50 +328,47 @@ public final class NotificationContentHome
     /**
      * Init Notification content
      * 
-     * @param nNotificationId
+     * @param notification
      * @param notificationType
-     * @param strNotificationContent
+     * @param payload
+     *            the payload of the channel
      * @throws IOException
      */
-    private static NotificationContent initNotificationContent( Notification notification, EnumNotificationType notificationType,
-            String strNotificationContent ) throws IOException
+    private static NotificationContent initNotificationContent( Notification notification, EnumNotificationType notificationType, Object payload )
+            throws IOException
     {
         NotificationContent notificationContent = new NotificationContent( );
         notificationContent.setIdNotification( notification.getId( ) );
         notificationContent.setNotificationType( notificationType.name( ) );
         notificationContent.setStatusId( getStatusId( notification, EnumNotificationType.MYDASHBOARD ) );
         notificationContent.setGenericStatusId( getStatusGenericId( notification, EnumNotificationType.MYDASHBOARD ) );
-        notificationContent.setFileKey( saveContentInFileStore(notification, notificationType, strNotificationContent ) );
-        notificationContent.setFileStore( NotificationStoreConstants.FILE_STORE_PROVIDER );
+
+        byte [ ] bytes = ContentCodecService.instance( ).encode( notificationContent, notification.getDemand( ).getTypeId( ), payload );
+
+        if ( bytes.length <= AppPropertiesService.getPropertyInt( NotificationStoreConstants.PROPERTY_CONTENT_INLINE_MAX_BYTES, 0 ) )
+        {
+            // small payloads are kept in the content row : no file store insert, no file store read
+            notificationContent.setContent( bytes );
+        }
+        else
+        {
+            notificationContent.setFileKey( saveContentInFileStore( notification, notificationType, bytes ) );
+            notificationContent.setFileStore( NotificationStoreConstants.FILE_STORE_PROVIDER );
+        }
 
         return notificationContent;
     }
-    
+
     /**
      * Save notification content in file store
      * @param notification
      * @param notificationType
-     * @param strNotificationContent
+     * @param bytes
+     *            the content bytes
      * @return file id
-     * @throws IOException
      */
-    private static String saveContentInFileStore( Notification notification, EnumNotificationType notificationType,
-            String strNotificationContent) throws IOException
+    private static String saveContentInFileStore( Notification notification, EnumNotificationType notificationType, byte [ ] bytes )
     {
-        strNotificationContent = strNotificationContent.replaceAll( NotificationStoreConstants.CHARECTER_REGEXP_FILTER, "" );
-        
-        //Convert notification content to bytes
-        byte [ ] bytes;
-
-        if ( AppPropertiesService.getPropertyBoolean( NotificationStoreConstants.PROPERTY_COMPRESS_NOTIFICATION, false ) )
-        {
-            bytes = StringUtil.compress( strNotificationContent );
-        }
-        else
-        {
-            bytes = strNotificationContent.getBytes( StandardCharsets.UTF_8 );
-        }
-        
         //Create file
         File file = new File( );
         file.setTitle( notification.getDemand( ).getId( ) + "_" + notificationType.name( ) + "_" + notification.getDemand( ).getCustomer( ).getConnectionId( ) );
@@ -334,6 +392,18 @@ public final class NotificationContentHome
         return StringUtils.EMPTY;
     }
 
+    /**
+     * Get the generic status of the demand from the mydashboard notification
+     * 
+     * @param notification
+     *            the notification
+     * @return the generic status id (-1 if unknown), or null if the notification has no mydashboard notification
+     */
+    public static Integer getGenericStatusId( Notification notification )
+    {
+        return getStatusGenericId( notification, EnumNotificationType.MYDASHBOARD );
+    }
+
     /**
      * Get status for mydashboard notification
      * 
@@ -349,7 +419,7 @@ public final class NotificationContentHome
             }
             else
             {
-                Optional<DemandStatus> status = StatusHome.findByStatus( notification.getMyDashboardNotification( ).getStatusText( ) );
+                Optional<DemandStatus> status = StatusDictionary.instance( ).get( notification.getMyDashboardNotification( ).getStatusText( ) );
                 if ( status.isPresent( ) && status.get( ).getGenericStatus( ) != null )
                 {
                     return status.get( ).getGenericStatus( ).getStatusId( );
@@ -365,20 +435,11 @@ public final class NotificationContentHome
     {
         if ( EnumNotificationType.MYDASHBOARD.equals( statusType ) && notification.getMyDashboardNotification( ) != null )
         {
-            Optional<DemandStatus> status = StatusHome.findByStatus( notification.getMyDashboardNotification( ).getStatusText( ) );
-            
+            Optional<DemandStatus> status = StatusHome.findOrCreateByStatus( notification.getMyDashboardNotification( ).getStatusText( ) );
+
             if ( status.isPresent( ) )
             {
                 return status.get( ).getId( );
-            } 
-            else
-            {
-                DemandStatus newStatus = new DemandStatus( );
-                newStatus.setStatus( notification.getMyDashboardNotification( ).getStatusText( ) );
-                
-                newStatus = StatusHome.create( newStatus );
-                
-                return newStatus.getId( );
             }
         }
         return -1;
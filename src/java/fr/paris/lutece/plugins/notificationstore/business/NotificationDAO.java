@@ -34,43 +34,43 @@
 package fr.paris.lutece.plugins.notificationstore.business;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import com.fasterxml.jackson.core.JsonParser.Feature;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import fr.paris.lutece.plugins.grubusiness.business.customer.Customer;
-import fr.paris.lutece.plugins.grubusiness.business.notification.BackofficeNotification;
-import fr.paris.lutece.plugins.grubusiness.business.notification.BroadcastNotification;
-import fr.paris.lutece.plugins.grubusiness.business.notification.EmailNotification;
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
 import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationDAO;
-import fr.paris.lutece.plugins.grubusiness.business.notification.MyDashboardNotification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
-import fr.paris.lutece.plugins.grubusiness.business.notification.SMSNotification;
+import fr.paris.lutece.plugins.notificationstore.service.NotificationJsonCodec;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.plugins.notificationstore.service.cache.NotificationContentCache;
+import fr.paris.lutece.plugins.notificationstore.service.codec.ContentCodecService;
 import fr.paris.lutece.portal.business.file.File;
 import fr.paris.lutece.portal.service.file.FileService;
 import fr.paris.lutece.portal.service.file.FileServiceException;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.sql.DAOUtil;
-import fr.paris.lutece.util.string.StringUtil;
 
 /**
- * This class provides Data Access methods for Notification objects stored in SQL database
+ * This class provides Data Access methods for Notification objects stored in SQL database. The contents of the loaded notifications may be shared
+ * with other readers (NotificationContentCache) and must not be modified.
  */
 public final class NotificationDAO implements INotificationDAO
 {
@@ -103,9 +103,15 @@ public final class NotificationDAO implements INotificationDAO
     private static final String SQL_QUERY_SELECT_LAST_NOTIFICATION = "SELECT * FROM notificationstore_notification " + " WHERE demand_id = ?"
             + " AND demand_type_id = ?" + " ORDER BY date desc, id desc " + " LIMIT 1";
 
-    private static final String PROPERTY_DECOMPRESS_NOTIFICATION = "grustoragedb.notification.decompress";
 
-    ObjectMapper _mapper;
+    private static final String PROPERTY_ID_BLOCK_SIZE = "notificationstore.notification.id.blockSize";
+    private static final String ID_SEQUENCE_NAME = "notification";
+
+    // maximum number of notifications hydrated with one IN-list query
+    private static final int HYDRATION_CHUNK_SIZE = 500;
+
+    private final IdBlockAllocator _idAllocator = new IdBlockAllocator( ID_SEQUENCE_NAME,
+            AppPropertiesService.getPropertyInt( PROPERTY_ID_BLOCK_SIZE, 100 ), this::selectFirstFreeId );
 
     /**
      * Constructor
@@ -113,12 +119,6 @@ public final class NotificationDAO implements INotificationDAO
     public NotificationDAO( )
     {
         super( );
-        _mapper = new ObjectMapper( );
-        _mapper.configure( DeserializationFeature.UNWRAP_ROOT_VALUE, false );
-        _mapper.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
-        _mapper.configure( SerializationFeature.WRAP_ROOT_VALUE, false );
-        _mapper.configure( Feature.ALLOW_UNQUOTED_CONTROL_CHARS, true );
-        // => _mapper.configure( JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS.mappedFeature( ) , true ); ??
     }
 
     /**
@@ -139,17 +139,37 @@ public final class NotificationDAO implements INotificationDAO
      */
     @Override
     public List<Notification> loadByFilter( NotificationFilter notificationFilter )
+    {
+        return loadByFilter( notificationFilter, false );
+    }
+
+    /**
+     * Load the notifications according to the filter
+     * 
+     * @param notificationFilter
+     *            the filter
+     * @param bLazy
+     *            true to return {@link LazyNotification} instances, whose payloads are read on first access
+     * @return the notification list
+     */
+    private List<Notification> loadByFilter( NotificationFilter notificationFilter, boolean bLazy )
     {
         String strSQL = getFilterCriteriaClauses( SQL_QUERY_FILTER_SELECT_BASE, notificationFilter );
 
+        List<Notification> listNotifications;
+
         try ( DAOUtil daoUtil = new DAOUtil( strSQL, NotificationStorePlugin.getPlugin( ) ) )
         {
             addFilterCriteriaValues( daoUtil, notificationFilter );
 
             daoUtil.executeQuery( );
 
-            return getNotificationsFromDao( daoUtil, notificationFilter );
+            listNotifications = getNotificationsFromDao( daoUtil, bLazy );
         }
+
+        hydrate( listNotifications, notificationFilter.getListNotificationType( ), true, true );
+
+        return listNotifications;
     }
 
     /**
@@ -308,34 +328,99 @@ public final class NotificationDAO implements INotificationDAO
      * {@inheritDoc}
      */
     @Override
-    public synchronized Notification insert( Notification notification )
+    public Notification insert( Notification notification )
     {
-        int nNotificationId = newPrimaryKey( );
-        notification.setId( nNotificationId );
+        notification.setId( newPrimaryKey( ) );
 
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, NotificationStorePlugin.getPlugin( ) ) )
         {
+            setInsertParameters( daoUtil, notification );
 
-            int nIndex = 1;
+            daoUtil.executeUpdate( );
+        }
 
-            daoUtil.setInt( nIndex++, notification.getId( ) );
-            daoUtil.setString( nIndex++, notification.getDemand( ).getId( ) );
-            daoUtil.setString( nIndex++, notification.getDemand( ).getTypeId( ) );
-            
-            String strCustomerId = StringUtils.EMPTY;           
-            if( notification.getDemand( ).getCustomer( ) != null 
-                    && StringUtils.isNotEmpty( notification.getDemand( ).getCustomer( ).getId( ) ) )
-            {
-                strCustomerId = notification.getDemand( ).getCustomer( ).getId( );
-            }           
-            daoUtil.setString( nIndex++, strCustomerId );
-            
-            daoUtil.setTimestamp( nIndex++, notification.getDate( ) > 0 ? new Timestamp( notification.getDate( ) ) : null );
+        return notification;
+    }
+
+    /**
+     * Insert a notification whose id has been allocated by {@link #allocateId(Notification)}
+     * 
+     * @param notification
+     *            the notification to insert
+     */
+    public void insertAllocated( Notification notification )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            setInsertParameters( daoUtil, notification );
 
             daoUtil.executeUpdate( );
         }
+    }
 
-        return notification;
+    /**
+     * Insert several notifications with one JDBC batch. The ids are allocated before the insert.
+     * 
+     * @param listNotifications
+     *            the notifications to insert
+     */
+    public void insertBatch( List<Notification> listNotifications )
+    {
+        if ( listNotifications.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            for ( Notification notification : listNotifications )
+            {
+                if ( notification.getId( ) <= 0 )
+                {
+                    notification.setId( newPrimaryKey( ) );
+                }
+                setInsertParameters( daoUtil, notification );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * Allocate the id of a notification, before its insert
+     * 
+     * @param notification
+     *            the notification
+     */
+    public void allocateId( Notification notification )
+    {
+        notification.setId( newPrimaryKey( ) );
+    }
+
+    /**
+     * Set the parameters of the insert query
+     * 
+     * @param daoUtil
+     * @param notification
+     */
+    private static void setInsertParameters( DAOUtil daoUtil, Notification notification )
+    {
+        int nIndex = 1;
+
+        daoUtil.setInt( nIndex++, notification.getId( ) );
+        daoUtil.setString( nIndex++, notification.getDemand( ).getId( ) );
+        daoUtil.setString( nIndex++, notification.getDemand( ).getTypeId( ) );
+        
+        String strCustomerId = StringUtils.EMPTY;           
+        if( notification.getDemand( ).getCustomer( ) != null 
+                && StringUtils.isNotEmpty( notification.getDemand( ).getCustomer( ).getId( ) ) )
+        {
+            strCustomerId = notification.getDemand( ).getCustomer( ).getId( );
+        }           
+        daoUtil.setString( nIndex++, strCustomerId );
+        
+        daoUtil.setTimestamp( nIndex++, notification.getDate( ) > 0 ? new Timestamp( notification.getDate( ) ) : null );
     }
 
     /**
@@ -368,26 +453,42 @@ public final class NotificationDAO implements INotificationDAO
     }
 
     /**
-     * Generates a new primary key
+     * Generates a new primary key from the reserved block of ids
      *
      * @return the primary key
      */
     private int newPrimaryKey( )
+    {
+        long lKey = _idAllocator.nextId( );
+
+        if ( lKey > Integer.MAX_VALUE )
+        {
+            throw new AppException( "Notification id " + lKey + " exceeds the range of the notification model" );
+        }
+
+        return (int) lKey;
+    }
+
+    /**
+     * Get the first free id, used to initialize the id sequence
+     *
+     * @return the first free id
+     */
+    private long selectFirstFreeId( )
     {
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, NotificationStorePlugin.getPlugin( ) ) )
         {
             daoUtil.executeQuery( );
 
-            int nKey = 1;
+            long lKey = 1;
 
             if ( daoUtil.next( ) )
             {
-                nKey = daoUtil.getInt( 1 ) + 1;
+                lKey = daoUtil.getLong( 1 ) + 1;
             }
 
-            return nKey;
+            return lKey;
         }
-
     }
 
     /**
@@ -430,6 +531,26 @@ public final class NotificationDAO implements INotificationDAO
         }
     }
 
+    /**
+     * Load the notifications by ids, their payloads being read from the file store on first access only
+     * 
+     * @param listIds
+     *            the notification ids
+     * @return the list of {@link LazyNotification}
+     */
+    public List<Notification> loadLazyByIds( List<Integer> listIds )
+    {
+        if ( listIds == null || listIds.isEmpty( ) )
+        {
+            return new ArrayList<>( );
+        }
+
+        NotificationFilter filter = new NotificationFilter( );
+        filter.setIds( listIds );
+
+        return loadByFilter( filter, true );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -469,28 +590,32 @@ public final class NotificationDAO implements INotificationDAO
     }
 
     /**
-     * get notification list from dao
+     * get notification list from dao (header rows only, see {@link #hydrate(List, List, boolean, boolean)})
      * 
      * @param daoUtil
+     * @param bLazy
+     *            true to build {@link LazyNotification} instances
      * @return the list
      */
-    private List<Notification> getNotificationsFromDao( DAOUtil daoUtil, NotificationFilter notificationFilter )
+    private List<Notification> getNotificationsFromDao( DAOUtil daoUtil, boolean bLazy )
     {
         List<Notification> listNotifications = new ArrayList<>( );
         while ( daoUtil.next( ) )
         {
-            Notification notification = new Notification( );
+            Notification notification = bLazy ? new LazyNotification( this ) : new Notification( );
             notification.setId( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
             notification.setDate( daoUtil.getTimestamp( COLUMN_DATE ) != null ? daoUtil.getTimestamp( COLUMN_DATE ).getTime ( ) : 0 );
 
-            String strIdDemand = daoUtil.getString( COLUMN_DEMAND_ID );
-            String strDemandTypeId = daoUtil.getString( COLUMN_DEMAND_TYPE_ID );
-            notification.setDemand( DemandHome.getDemandByDemandIdAndTypeId( strIdDemand, strDemandTypeId ) );
-            setNotificationContent( notification, notificationFilter );
-            
+            // demand key only, the demand is loaded by the hydration stage
+            Demand demand = new Demand( );
+            demand.setId( daoUtil.getString( COLUMN_DEMAND_ID ) );
+            demand.setTypeId( daoUtil.getString( COLUMN_DEMAND_TYPE_ID ) );
+
             Customer customer = new Customer ();
             customer.setId( daoUtil.getString( COLUMN_CUSTOMER ) );
-            notification.getDemand( ).setCustomer( customer );
+            demand.setCustomer( customer );
+
+            notification.setDemand( demand );
 
             listNotifications.add( notification );
         }
@@ -499,74 +624,217 @@ public final class NotificationDAO implements INotificationDAO
     }
 
     /**
-     * Retrieval of notification content
+     * Hydrates a list of notifications read by {@link #getNotificationsFromDao(DAOUtil, boolean)} : the demands and the contents of the whole list are loaded with a
+     * constant number of queries (per chunk of {@link #HYDRATION_CHUNK_SIZE} notifications), instead of two queries per notification.
      * 
-     * @param notif
+     * @param listNotifications
+     *            the notifications
+     * @param listNotificationType
+     *            the notification types to load (all types if empty)
+     * @param bWithDemand
+     *            true if the demands must be loaded
+     * @param bWithContents
+     *            true if the contents must be loaded
      */
-    private void setNotificationContent( Notification notif, NotificationFilter notificationFilter )
+    private void hydrate( List<Notification> listNotifications, List<EnumNotificationType> listNotificationType, boolean bWithDemand, boolean bWithContents )
     {
-        List<NotificationContent> listNotificiationContent = NotificationContentHome.getNotificationContentsByIdAndTypeNotification( notif.getId( ),
-                notificationFilter.getListNotificationType( ) );
-
-        for ( NotificationContent notifContent : listNotificiationContent )
+        for ( int nFrom = 0; nFrom < listNotifications.size( ); nFrom += HYDRATION_CHUNK_SIZE )
         {
-            if ( EnumNotificationType.BACKOFFICE.name( ).equals( notifContent.getNotificationType( ) ) )
+            List<Notification> listChunk = listNotifications.subList( nFrom, Math.min( nFrom + HYDRATION_CHUNK_SIZE, listNotifications.size( ) ) );
+
+            if ( bWithDemand )
             {
-                notif.setBackofficeNotification( convertToObject( notifContent, new TypeReference<BackofficeNotification>( )
-                {
-                } ) );
+                setDemands( listChunk );
             }
-            if ( EnumNotificationType.BROADCAST_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+            if ( bWithContents )
             {
-                notif.setBroadcastEmail( convertToObject( notifContent, new TypeReference<List<BroadcastNotification>>( )
-                {
-                } ) );
+                setNotificationContents( listChunk, listNotificationType );
             }
-            if ( EnumNotificationType.CUSTOMER_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+        }
+    }
+
+    /**
+     * Retrieval of the demands of a list of notifications
+     * 
+     * @param listNotifications
+     *            the notifications, with the demand key set
+     */
+    private void setDemands( List<Notification> listNotifications )
+    {
+        Set<String> setDemandIds = new HashSet<>( );
+        Set<String> setDemandTypeIds = new HashSet<>( );
+        for ( Notification notification : listNotifications )
+        {
+            setDemandIds.add( notification.getDemand( ).getId( ) );
+            setDemandTypeIds.add( notification.getDemand( ).getTypeId( ) );
+        }
+
+        Map<String, List<Demand>> mapDemands = new HashMap<>( );
+        for ( Demand demand : DemandHome.getDemandsByDemandIdsAndTypeIds( setDemandIds, setDemandTypeIds ) )
+        {
+            mapDemands.computeIfAbsent( getDemandKey( demand.getId( ), demand.getTypeId( ) ), k -> new ArrayList<>( ) ).add( demand );
+        }
+
+        for ( Notification notification : listNotifications )
+        {
+            Demand demandKey = notification.getDemand( );
+            List<Demand> listDemands = mapDemands.get( getDemandKey( demandKey.getId( ), demandKey.getTypeId( ) ) );
+
+            if ( listDemands != null )
             {
-                notif.setEmailNotification( convertToObject( notifContent, new TypeReference<EmailNotification>( )
+                String strCustomerId = demandKey.getCustomer( ).getId( );
+                Demand demand = listDemands.stream( ).filter( d -> d.getCustomer( ) != null && StringUtils.equals( d.getCustomer( ).getId( ), strCustomerId ) )
+                        .findFirst( ).orElse( null );
+
+                if ( demand == null )
                 {
-                } ) );
+                    // the demand is shared by the notifications of the page : do not alter it
+                    demand = copyDemand( listDemands.get( 0 ) );
+                    demand.setCustomer( demandKey.getCustomer( ) );
+                }
+
+                notification.setDemand( demand );
             }
-            if ( EnumNotificationType.MYDASHBOARD.name( ).equals( notifContent.getNotificationType( ) ) )
+        }
+    }
+
+    /**
+     * Retrieval of the contents of a list of notifications
+     * 
+     * @param listNotifications
+     *            the notifications
+     * @param listNotificationType
+     *            the notification types to load (all types if empty)
+     */
+    private void setNotificationContents( List<Notification> listNotifications, List<EnumNotificationType> listNotificationType )
+    {
+        Map<Integer, Notification> mapNotifications = new HashMap<>( );
+        for ( Notification notification : listNotifications )
+        {
+            mapNotifications.put( notification.getId( ), notification );
+        }
+
+        List<NotificationContent> listNotificationContent = NotificationContentHome
+                .getNotificationContentsByIdsAndTypeNotification( new ArrayList<>( mapNotifications.keySet( ) ), listNotificationType );
+
+        for ( NotificationContent notifContent : listNotificationContent )
+        {
+            Notification notif = mapNotifications.get( notifContent.getIdNotification( ) );
+            if ( notif instanceof LazyNotification )
             {
-                notif.setMyDashboardNotification( convertToObject( notifContent, new TypeReference<MyDashboardNotification>( )
-                {
-                } ) );
+                ( (LazyNotification) notif ).addContent( notifContent );
             }
-            if ( EnumNotificationType.SMS.name( ).equals( notifContent.getNotificationType( ) ) )
-            {
-                notif.setSmsNotification( convertToObject( notifContent, new TypeReference<SMSNotification>( )
+            else
+                if ( notif != null )
                 {
-                } ) );
-            }
+                    setNotificationContent( notif, notifContent );
+                }
+        }
+    }
+
+    /**
+     * Sets a content on its notification
+     * 
+     * @param notif
+     *            the notification
+     * @param notifContent
+     *            the content
+     */
+    void setNotificationContent( Notification notif, NotificationContent notifContent )
+    {
+        if ( EnumNotificationType.BACKOFFICE.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setBackofficeNotification( convertToObject( notifContent, EnumNotificationType.BACKOFFICE ) );
+        }
+        if ( EnumNotificationType.BROADCAST_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setBroadcastEmail( convertToObject( notifContent, EnumNotificationType.BROADCAST_EMAIL ) );
+        }
+        if ( EnumNotificationType.CUSTOMER_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setEmailNotification( convertToObject( notifContent, EnumNotificationType.CUSTOMER_EMAIL ) );
+        }
+        if ( EnumNotificationType.MYDASHBOARD.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setMyDashboardNotification( convertToObject( notifContent, EnumNotificationType.MYDASHBOARD ) );
         }
+        if ( EnumNotificationType.SMS.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setSmsNotification( convertToObject( notifContent, EnumNotificationType.SMS ) );
+        }
+    }
+
+    /**
+     * Get the key of a demand
+     * 
+     * @param strDemandId
+     * @param strDemandTypeId
+     * @return the key
+     */
+    private static String getDemandKey( String strDemandId, String strDemandTypeId )
+    {
+        return strDemandTypeId + "/" + strDemandId;
     }
 
     /**
+     * Copy the persisted fields of a demand
+     * 
+     * @param demand
+     * @return the copy
+     */
+    private static Demand copyDemand( Demand demand )
+    {
+        Demand copy = new Demand( );
+        copy.setUID( demand.getUID( ) );
+        copy.setId( demand.getId( ) );
+        copy.setTypeId( demand.getTypeId( ) );
+        copy.setSubtypeId( demand.getSubtypeId( ) );
+        copy.setStatusId( demand.getStatusId( ) );
+        copy.setReference( demand.getReference( ) );
+        copy.setCreationDate( demand.getCreationDate( ) );
+        copy.setClosureDate( demand.getClosureDate( ) );
+        copy.setMaxSteps( demand.getMaxSteps( ) );
+        copy.setCurrentStep( demand.getCurrentStep( ) );
+        copy.setModifyDate( demand.getModifyDate( ) );
+
+        return copy;
+    }
+
+    /**
+     * Deserialize a notification content. The contents read from the file store are cached and shared between the readers : the returned object
+     * must not be modified.
      * 
      * @param <T>
      * @param notifContent
-     * @param typeReference
-     * @return
+     * @param notificationType
+     * @return the content
      */
-    private <T> T convertToObject( NotificationContent notifContent, TypeReference<T> typeReference )
+    @SuppressWarnings( "unchecked" )
+    private <T> T convertToObject( NotificationContent notifContent, EnumNotificationType notificationType )
     {
+        ObjectReader reader = NotificationJsonCodec.instance( ).getChannelReader( notificationType );
+
         try
         {
-            File file = FileService.getInstance( ).getFileStoreServiceProvider( notifContent.getFileStore( ) ).getFile( notifContent.getFileKey( ) );            
-            
-            String strNotification;
-            
-            if ( AppPropertiesService.getPropertyBoolean( PROPERTY_DECOMPRESS_NOTIFICATION, false ) )
+            if ( notifContent.isInline( ) )
             {
-                strNotification = StringUtil.decompress( file.getPhysicalFile( ).getValue( ) );
+                return reader.readValue( ContentCodecService.instance( ).decode( notifContent, notifContent.getContent( ) ) );
             }
-            else
+
+            NotificationContentCache cache = NotificationContentCache.instance( );
+            Object cachedContent = cache.get( notifContent.getFileStore( ), notifContent.getFileKey( ) );
+            if ( cachedContent != null )
             {
-                strNotification = new String( file.getPhysicalFile( ).getValue( ), StandardCharsets.UTF_8 );
+                return (T) cachedContent;
             }
-            return _mapper.readValue( strNotification, typeReference );
+
+            File file = FileService.getInstance( ).getFileStoreServiceProvider( notifContent.getFileStore( ) ).getFile( notifContent.getFileKey( ) );            
+            
+            String strNotification = ContentCodecService.instance( ).decode( notifContent, file.getPhysicalFile( ).getValue( ) );
+            T content = reader.readValue( strNotification );
+            cache.put( notifContent.getFileStore( ), notifContent.getFileKey( ), content, strNotification );
+
+            return content;
 
         }
         catch( FileServiceException | IOException e )
@@ -580,6 +848,26 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public List<Notification> loadByDemandIdTypeIdCustomerId( String strDemandId, String strDemandTypeId, String strCustomerId )
     {
+        return loadByDemandIdTypeIdCustomerId( strDemandId, strDemandTypeId, strCustomerId, true, null );
+    }
+
+    /**
+     * Load the notifications by demand id, type id, customer id, with a projection of the hydrated parts
+     * 
+     * @param strDemandId
+     * @param strDemandTypeId
+     * @param strCustomerId
+     * @param bWithDemand
+     *            true if the demands must be loaded
+     * @param listChannels
+     *            the channels whose payloads are loaded : all channels if null, none (no file store read) if empty
+     * @return the notification list
+     */
+    public List<Notification> loadByDemandIdTypeIdCustomerId( String strDemandId, String strDemandTypeId, String strCustomerId, boolean bWithDemand,
+            List<EnumNotificationType> listChannels )
+    {
+        List<Notification> listNotifications;
+
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER_TYPE, NotificationStorePlugin.getPlugin( ) ) )
         {
             daoUtil.setString( 1, strDemandId );
@@ -588,26 +876,12 @@ public final class NotificationDAO implements INotificationDAO
 
             daoUtil.executeQuery( );
 
-            List<Notification> listNotifications = new ArrayList<>( );
+            listNotifications = getNotificationsFromDao( daoUtil, false );
+        }
 
-            while ( daoUtil.next( ) )
-            {
-                Notification notification = new Notification( );
-                notification.setId( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
-                notification.setDate( daoUtil.getTimestamp( COLUMN_DATE ) != null ? daoUtil.getTimestamp( COLUMN_DATE ).getTime ( ) : 0 );
+        hydrate( listNotifications, listChannels, bWithDemand, listChannels == null || !listChannels.isEmpty( ) );
 
-                notification.setDemand( DemandHome.getDemandByDemandIdAndTypeId( strDemandId, strDemandTypeId ) );
-                setNotificationContent( notification, new NotificationFilter( ) );
-                
-                Customer customer = new Customer ();
-                customer.setId( daoUtil.getString( COLUMN_CUSTOMER ) );
-                notification.getDemand( ).setCustomer( customer );
-                
-                listNotifications.add( notification );
-            }
-
-            return listNotifications;
-        }
+        return listNotifications;
     }
 
     @Override
@@ -627,8 +901,11 @@ public final class NotificationDAO implements INotificationDAO
                 notification = new Notification( );
                 notification.setId( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
                 notification.setDate( daoUtil.getTimestamp( COLUMN_DATE ) != null ? daoUtil.getTimestamp( COLUMN_DATE ).getTime ( ) : 0 );
-                setNotificationContent( notification, new NotificationFilter( ) );
+            }
 
+            if ( notification != null )
+            {
+                setNotificationContents( Collections.singletonList( notification ), null );
             }
 
             return notification;
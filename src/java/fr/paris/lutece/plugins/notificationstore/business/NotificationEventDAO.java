@@ -82,24 +82,7 @@ public final class NotificationEventDAO implements INotificationEventDAO
     {
         try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
         {
-            int nIndex = 1;
-            daoUtil.setTimestamp( nIndex++, notificationEvent.getEvent( ).getEventDate( ) > 0 ? new Timestamp ( notificationEvent.getEvent( ).getEventDate( ) ) : null );
-            daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getType( ) );
-            daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getStatus( ) );
-            daoUtil.setInt( nIndex++, notificationEvent.getEvent( ).getRedelivry( ) );
-            daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getMessage( ) );
-            daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getId( ) ) );
-            daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getTypeId( ) ) );
-            String strCustomerId = StringUtils.EMPTY;
-            
-            if( notificationEvent.getDemand( ).getCustomer( ) != null 
-                    && StringUtils.isNotEmpty( notificationEvent.getDemand( ).getCustomer( ).getId( ) ) )
-            {
-                strCustomerId = notificationEvent.getDemand( ).getCustomer( ).getId( );
-            }
-            daoUtil.setString( nIndex++, strCustomerId );
-            daoUtil.setTimestamp( nIndex++, notificationEvent.getNotificationDate( ) > 0 ? new Timestamp ( notificationEvent.getNotificationDate( ) ) : null );
-            daoUtil.setString( nIndex++, notificationEvent.getMsgId( ) );
+            setInsertParameters( daoUtil, notificationEvent );
 
             daoUtil.executeUpdate( );
             if ( daoUtil.nextGeneratedKey( ) )
@@ -112,6 +95,59 @@ public final class NotificationEventDAO implements INotificationEventDAO
 
     }
 
+    /**
+     * Insert several notification events with one JDBC batch (the generated ids are not retrieved)
+     * 
+     * @param listNotificationEvents
+     *            the notification events
+     */
+    public void insertBatch( List<NotificationEvent> listNotificationEvents )
+    {
+        if ( listNotificationEvents.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            for ( NotificationEvent notificationEvent : listNotificationEvents )
+            {
+                setInsertParameters( daoUtil, notificationEvent );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * Set the parameters of the insert query
+     * 
+     * @param daoUtil
+     * @param notificationEvent
+     */
+    private static void setInsertParameters( DAOUtil daoUtil, NotificationEvent notificationEvent )
+    {
+        int nIndex = 1;
+        daoUtil.setTimestamp( nIndex++, notificationEvent.getEvent( ).getEventDate( ) > 0 ? new Timestamp ( notificationEvent.getEvent( ).getEventDate( ) ) : null );
+        daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getType( ) );
+        daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getStatus( ) );
+        daoUtil.setInt( nIndex++, notificationEvent.getEvent( ).getRedelivry( ) );
+        daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getMessage( ) );
+        daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getId( ) ) );
+        daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getTypeId( ) ) );
+        String strCustomerId = StringUtils.EMPTY;
+        
+        if( notificationEvent.getDemand( ).getCustomer( ) != null 
+                && StringUtils.isNotEmpty( notificationEvent.getDemand( ).getCustomer( ).getId( ) ) )
+        {
+            strCustomerId = notificationEvent.getDemand( ).getCustomer( ).getId( );
+        }
+        daoUtil.setString( nIndex++, strCustomerId );
+        daoUtil.setTimestamp( nIndex++, notificationEvent.getNotificationDate( ) > 0 ? new Timestamp ( notificationEvent.getNotificationDate( ) ) : null );
+        daoUtil.setString( nIndex++, notificationEvent.getMsgId( ) );
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -33,7 +33,6 @@
  */
 package fr.paris.lutece.plugins.notificationstore.business;
 
-import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationEventDAO;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
@@ -46,7 +45,7 @@ import java.util.Optional;
 public final class NotificationEventHome
 {
 
-    private static INotificationEventDAO _dao = SpringContextService.getBean( "notificationstore.notificationEventDao" );
+    private static NotificationEventDAO _dao = SpringContextService.getBean( "notificationstore.notificationEventDao" );
 
     /**
      * Private constructor
@@ -55,6 +54,29 @@ public final class NotificationEventHome
     {
     }
 
+    /**
+     * Create a NotificationEvent
+     * 
+     * @param notificationEvent
+     *            the NotificationEvent
+     * @return the created NotificationEvent
+     */
+    public static NotificationEvent create( NotificationEvent notificationEvent )
+    {
+        return _dao.insert( notificationEvent );
+    }
+
+    /**
+     * Create several NotificationEvents with one JDBC batch
+     * 
+     * @param listNotificationEvents
+     *            the NotificationEvent list
+     */
+    public static void createBatch( List<NotificationEvent> listNotificationEvents )
+    {
+        _dao.insertBatch( listNotificationEvents );
+    }
+
     /**
      * Find the demand's NotificationEvents
      * 
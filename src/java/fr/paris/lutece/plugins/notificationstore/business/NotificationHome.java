@@ -33,7 +33,7 @@
  */
 package fr.paris.lutece.plugins.notificationstore.business;
 
-import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationDAO;
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
@@ -47,12 +47,13 @@ import java.util.List;
 import java.util.Optional;
 
 /**
- * This class provides instances management methods (create, find, ...) for Notification objects
+ * This class provides instances management methods (create, find, ...) for Notification objects. The contents of the found notifications may be
+ * shared with other readers and must not be modified.
  */
 public final class NotificationHome
 {
     // Static variable pointed at the DAO instance
-    private static INotificationDAO _dao = SpringContextService.getBean( "notificationstore.notificationDao" );
+    private static NotificationDAO _dao = SpringContextService.getBean( "notificationstore.notificationDao" );
     private static Plugin _plugin = NotificationStorePlugin.getPlugin( );
 
     /**
@@ -62,6 +63,39 @@ public final class NotificationHome
     {
     }
 
+    /**
+     * Allocate the id of a notification, before its insert
+     * 
+     * @param notification
+     *            the notification
+     */
+    public static void allocateId( Notification notification )
+    {
+        _dao.allocateId( notification );
+    }
+
+    /**
+     * Create a notification whose id has been allocated by {@link #allocateId(Notification)}
+     * 
+     * @param notification
+     *            the notification
+     */
+    public static void createAllocated( Notification notification )
+    {
+        _dao.insertAllocated( notification );
+    }
+
+    /**
+     * Create several notifications with one JDBC batch
+     * 
+     * @param listNotifications
+     *            the notifications
+     */
+    public static void createBatch( List<Notification> listNotifications )
+    {
+        _dao.insertBatch( listNotifications );
+    }
+
     /**
      * Find the demand's notifications
      * 
@@ -144,6 +178,24 @@ public final class NotificationHome
         return _dao.loadByDemandIdTypeIdCustomerId( strDemandId, strDemandTypeId, strCustomerId );
     }
 
+    /**
+     * Find the notifications by demand id, type id, customer id, with a projection of the hydrated parts
+     * 
+     * @param strDemandId
+     * @param strDemandTypeId
+     * @param strCustomerId
+     * @param bWithDemand
+     *            true if the demands must be loaded
+     * @param listChannels
+     *            the channels whose payloads are loaded : all channels if null, none if empty
+     * @return the notification list
+     */
+    public static List<Notification> getByDemandIdTypeIdCustomerId( String strDemandId, String strDemandTypeId, String strCustomerId, boolean bWithDemand,
+            List<EnumNotificationType> listChannels )
+    {
+        return _dao.loadByDemandIdTypeIdCustomerId( strDemandId, strDemandTypeId, strCustomerId, bWithDemand, listChannels );
+    }
+
     /**
      * Find the notifications according to the filter
      * 
@@ -155,6 +207,17 @@ public final class NotificationHome
         return _dao.loadByIds( listIds );
     }
 
+    /**
+     * Find the notifications by ids, their payloads being read from the file store on first access only
+     * 
+     * @param listIds
+     * @return the notification list
+     */
+    public static List<Notification> getLazyByIds( List<Integer> listIds )
+    {
+        return _dao.loadLazyByIds( listIds );
+    }
+
     /**
      * Get distinct demand type ids list
      * 
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the outbox of the notifications to forward to the notifyers.
+ * 
+ * The entries are claimed with a lease : a relay sets its owner id and a lease expiry on a batch of due entries, then reads the entries it owns. The
+ * entries of a relay that died are claimed again by another one once the lease has expired.
+ */
+public final class NotificationOutboxDAO
+{
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification_outbox ( notification_id, notifyer, payload, attempts, creation_date, next_attempt_date ) VALUES ( ?, ?, ?, 0, ?, ? ) ";
+    private static final String SQL_QUERY_CLAIM = "UPDATE notificationstore_notification_outbox SET lease_owner = ?, lease_expiry = ? "
+            + " WHERE next_attempt_date <= ? AND ( lease_expiry IS NULL OR lease_expiry < ? ) ORDER BY id ASC LIMIT ? ";
+    private static final String SQL_QUERY_SELECT_CLAIMED = "SELECT id, notification_id, notifyer, payload, attempts FROM notificationstore_notification_outbox WHERE lease_owner = ? ORDER BY id ASC ";
+    private static final String SQL_QUERY_RESCHEDULE = "UPDATE notificationstore_notification_outbox SET attempts = ?, next_attempt_date = ?, last_error = ?, lease_owner = NULL, lease_expiry = NULL WHERE id = ? AND lease_owner = ? ";
+    private static final String SQL_QUERY_RELEASE = "UPDATE notificationstore_notification_outbox SET lease_owner = NULL, lease_expiry = NULL WHERE lease_owner = ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_notification_outbox WHERE id = ? AND lease_owner = ? ";
+    private static final String SQL_QUERY_COUNT = "SELECT count(*) FROM notificationstore_notification_outbox ";
+
+    private static final int LAST_ERROR_MAX_LENGTH = 255;
+
+    /**
+     * Insert outbox entries with one JDBC batch (the generated ids are not retrieved)
+     * 
+     * @param listEntries
+     *            the entries
+     */
+    public void insertBatch( List<NotificationOutboxEntry> listEntries )
+    {
+        if ( listEntries.isEmpty( ) )
+        {
+            return;
+        }
+
+        Timestamp now = new Timestamp( System.currentTimeMillis( ) );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            for ( NotificationOutboxEntry entry : listEntries )
+            {
+                int nIndex = 1;
+                daoUtil.setInt( nIndex++, entry.getNotificationId( ) );
+                daoUtil.setString( nIndex++, entry.getNotifyerName( ) );
+                daoUtil.setString( nIndex++, entry.getPayload( ) );
+                daoUtil.setTimestamp( nIndex++, now );
+                daoUtil.setTimestamp( nIndex, now );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * Claim the oldest due entries that are not leased by another relay
+     * 
+     * @param strOwner
+     *            the id of the relay (unique per claim)
+     * @param lLeaseMs
+     *            the lease duration, in milliseconds
+     * @param nLimit
+     *            the maximum number of entries
+     * @return the claimed entries
+     */
+    public List<NotificationOutboxEntry> claim( String strOwner, long lLeaseMs, int nLimit )
+    {
+        long lNow = System.currentTimeMillis( );
+        Timestamp now = new Timestamp( lNow );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strOwner );
+            daoUtil.setTimestamp( 2, new Timestamp( lNow + lLeaseMs ) );
+            daoUtil.setTimestamp( 3, now );
+            daoUtil.setTimestamp( 4, now );
+            daoUtil.setInt( 5, nLimit );
+            daoUtil.executeUpdate( );
+        }
+
+        List<NotificationOutboxEntry> listEntries = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_CLAIMED, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strOwner );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                NotificationOutboxEntry entry = new NotificationOutboxEntry( );
+                entry.setId( daoUtil.getInt( nIndex++ ) );
+                entry.setNotificationId( daoUtil.getInt( nIndex++ ) );
+                entry.setNotifyerName( daoUtil.getString( nIndex++ ) );
+                entry.setPayload( daoUtil.getString( nIndex++ ) );
+                entry.setAttempts( daoUtil.getInt( nIndex ) );
+                listEntries.add( entry );
+            }
+        }
+
+        return listEntries;
+    }
+
+    /**
+     * Release a claimed entry after a failed delivery, to retry it later
+     * 
+     * @param entry
+     *            the entry, with its updated number of attempts
+     * @param strOwner
+     *            the id of the relay
+     * @param lNextAttempt
+     *            the date of the next attempt
+     * @param strError
+     *            the error of the failed delivery
+     */
+    public void reschedule( NotificationOutboxEntry entry, String strOwner, long lNextAttempt, String strError )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RESCHEDULE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, entry.getAttempts( ) );
+            daoUtil.setTimestamp( nIndex++, new Timestamp( lNextAttempt ) );
+            daoUtil.setString( nIndex++, ( strError != null && strError.length( ) > LAST_ERROR_MAX_LENGTH ) ? strError.substring( 0, LAST_ERROR_MAX_LENGTH ) : strError );
+            daoUtil.setInt( nIndex++, entry.getId( ) );
+            daoUtil.setString( nIndex, strOwner );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Release the entries still claimed by a relay, without counting an attempt, so that they can be claimed again at once
+     * 
+     * @param strOwner
+     *            the id of the relay
+     */
+    public void release( String strOwner )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strOwner );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Remove a claimed entry (delivered, or abandoned)
+     * 
+     * @param nId
+     *            the id
+     * @param strOwner
+     *            the id of the relay
+     */
+    public void delete( int nId, String strOwner )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setInt( 1, nId );
+            daoUtil.setString( 2, strOwner );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Count the entries not delivered yet
+     * 
+     * @return the number of entries
+     */
+    public int count( )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+}
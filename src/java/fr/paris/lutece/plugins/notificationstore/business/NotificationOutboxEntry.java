@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * A notification to forward to a notifyer, recorded in the outbox in the transaction of the notification
+ */
+public class NotificationOutboxEntry
+{
+    private int _nId;
+    private int _nNotificationId;
+    private String _strNotifyerName;
+    private String _strPayload;
+    private int _nAttempts;
+
+    /**
+     * @return the id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * @param nId
+     *            the id to set
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * @return the notification id
+     */
+    public int getNotificationId( )
+    {
+        return _nNotificationId;
+    }
+
+    /**
+     * @param nNotificationId
+     *            the notification id to set
+     */
+    public void setNotificationId( int nNotificationId )
+    {
+        _nNotificationId = nNotificationId;
+    }
+
+    /**
+     * @return the name of the notifyer
+     */
+    public String getNotifyerName( )
+    {
+        return _strNotifyerName;
+    }
+
+    /**
+     * @param strNotifyerName
+     *            the name of the notifyer to set
+     */
+    public void setNotifyerName( String strNotifyerName )
+    {
+        _strNotifyerName = strNotifyerName;
+    }
+
+    /**
+     * @return the notification, in JSON
+     */
+    public String getPayload( )
+    {
+        return _strPayload;
+    }
+
+    /**
+     * @param strPayload
+     *            the notification, in JSON, to set
+     */
+    public void setPayload( String strPayload )
+    {
+        _strPayload = strPayload;
+    }
+
+    /**
+     * @return the number of failed deliveries
+     */
+    public int getAttempts( )
+    {
+        return _nAttempts;
+    }
+
+    /**
+     * @param nAttempts
+     *            the number of failed deliveries to set
+     */
+    public void setAttempts( int nAttempts )
+    {
+        _nAttempts = nAttempts;
+    }
+}
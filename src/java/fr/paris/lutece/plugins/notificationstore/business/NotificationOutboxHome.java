@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.List;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the outbox of the notifications to forward to the notifyers
+ */
+public final class NotificationOutboxHome
+{
+    // Static variable pointed at the DAO instance
+    private static NotificationOutboxDAO _dao = SpringContextService.getBean( "notificationstore.notificationOutboxDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private NotificationOutboxHome( )
+    {
+    }
+
+    /**
+     * Record entries in the outbox, in the current transaction
+     * 
+     * @param listEntries
+     *            the entries
+     */
+    public static void createBatch( List<NotificationOutboxEntry> listEntries )
+    {
+        _dao.insertBatch( listEntries );
+    }
+
+    /**
+     * Claim the oldest due entries
+     * 
+     * @param strOwner
+     *            the id of the relay (unique per claim)
+     * @param lLeaseMs
+     *            the lease duration, in milliseconds
+     * @param nLimit
+     *            the maximum number of entries
+     * @return the claimed entries
+     */
+    public static List<NotificationOutboxEntry> claim( String strOwner, long lLeaseMs, int nLimit )
+    {
+        return _dao.claim( strOwner, lLeaseMs, nLimit );
+    }
+
+    /**
+     * Release a claimed entry, to retry it later
+     * 
+     * @param entry
+     *            the entry
+     * @param strOwner
+     *            the id of the relay
+     * @param lNextAttempt
+     *            the date of the next attempt
+     * @param strError
+     *            the error
+     */
+    public static void reschedule( NotificationOutboxEntry entry, String strOwner, long lNextAttempt, String strError )
+    {
+        _dao.reschedule( entry, strOwner, lNextAttempt, strError );
+    }
+
+    /**
+     * Release the entries still claimed by a relay
+     * 
+     * @param strOwner
+     *            the id of the relay
+     */
+    public static void release( String strOwner )
+    {
+        _dao.release( strOwner );
+    }
+
+    /**
+     * Remove a claimed entry
+     * 
+     * @param nId
+     *            the id
+     * @param strOwner
+     *            the id of the relay
+     */
+    public static void remove( int nId, String strOwner )
+    {
+        _dao.delete( nId, strOwner );
+    }
+
+    /**
+     * Count the entries not delivered yet
+     * 
+     * @return the number of entries
+     */
+    public static int count( )
+    {
+        return _dao.count( );
+    }
+}
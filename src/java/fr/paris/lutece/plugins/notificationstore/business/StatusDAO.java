@@ -59,6 +59,9 @@ public final class StatusDAO implements IDemandStatusDAO
     private static final String SQL_QUERY_SELECTALL_BY_IDS = "SELECT id, status, status_id FROM notificationstore_status WHERE id IN (  ";
     private static final String SQL_QUERY_SELECT_BY_STATUS_ID = "SELECT id, status, status_id FROM notificationstore_status WHERE status_id = ?";
     private static final String SQL_QUERY_SELECT_BY_STATUS = "SELECT id, status, status_id FROM notificationstore_status WHERE status = ?";
+    // INSERT IGNORE : 0 row affected on a duplicate label (unique index), whatever the found rows / affected rows mode of the driver
+    private static final String SQL_QUERY_INSERT_IF_ABSENT = "INSERT IGNORE INTO notificationstore_status ( status, status_id ) VALUES ( ?, ? ) ";
+    private static final String SQL_QUERY_FOR_UPDATE = " FOR UPDATE ";
 
     /**
      * {@inheritDoc }
@@ -81,6 +84,33 @@ public final class StatusDAO implements IDemandStatusDAO
 
     }
 
+    /**
+     * Insert a status, unless a status with the same label exists, in a single atomic statement : concurrent creations of the same label (by other
+     * threads or nodes) do not fail on the unique index
+     * 
+     * @param status
+     *            the status to create
+     * @return true if the status has been inserted (its id is set), false if the label already exists
+     */
+    public boolean insertIfAbsent( DemandStatus status )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_IF_ABSENT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, status.getStatus( ) );
+            daoUtil.setInt( nIndex, status.getGenericStatus( ) != null ? status.getGenericStatus( ).getStatusId( ) : -1 );
+
+            // 1 row affected if inserted, 0 if the label exists
+            if ( daoUtil.executeUpdate( ) != 1 || !daoUtil.nextGeneratedKey( ) )
+            {
+                return false;
+            }
+            status.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+
+            return true;
+        }
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -233,7 +263,22 @@ public final class StatusDAO implements IDemandStatusDAO
     @Override
     public Optional<DemandStatus> loadByStatus( String strStatus )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_STATUS, NotificationStorePlugin.getPlugin( ) ) )
+        return loadByStatus( strStatus, false );
+    }
+
+    /**
+     * Load a status by label
+     * 
+     * @param strStatus
+     *            the status label
+     * @param bLocking
+     *            true for a locking read (the last committed row, even in a transaction that has already read the table)
+     * @return the status if it exists
+     */
+    public Optional<DemandStatus> loadByStatus( String strStatus, boolean bLocking )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( bLocking ? SQL_QUERY_SELECT_BY_STATUS + SQL_QUERY_FOR_UPDATE : SQL_QUERY_SELECT_BY_STATUS,
+                NotificationStorePlugin.getPlugin( ) ) )
         {
             daoUtil.setString( 1, strStatus );
             daoUtil.executeQuery( );
@@ -37,8 +37,9 @@ import java.util.List;
 import java.util.Optional;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandStatus;
-import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandStatusDAO;
+import fr.paris.lutece.plugins.notificationstore.service.StatusDictionary;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
 
 /**
  * This class provides instances management methods (create, find, ...) for Status objects
@@ -46,7 +47,7 @@ import fr.paris.lutece.portal.service.spring.SpringContextService;
 public final class StatusHome
 {
     // Static variable pointed at the DAO instance
-    private static IDemandStatusDAO _dao = SpringContextService.getBean( "notificationstore.statusDao" );
+    private static StatusDAO _dao = SpringContextService.getBean( "notificationstore.statusDao" );
 
     /**
      * Private constructor - this class need not be instantiated
@@ -65,10 +66,34 @@ public final class StatusHome
     public static DemandStatus create( DemandStatus status )
     {
         _dao.insert( status );
+        StatusDictionary.instance( ).put( status );
 
         return status;
     }
 
+    /**
+     * Create a status, unless its label exists (created concurrently by another thread or node) : the existing status is then returned
+     * 
+     * @param status
+     *            The instance of the Status which contains the informations to store
+     * @return The status created with its primary key, or the existing status with the same label
+     */
+    public static DemandStatus createIfAbsent( DemandStatus status )
+    {
+        if ( _dao.insertIfAbsent( status ) )
+        {
+            StatusDictionary.instance( ).put( status );
+
+            return status;
+        }
+
+        DemandStatus storedStatus = _dao.loadByStatus( status.getStatus( ), true )
+                .orElseThrow( ( ) -> new AppException( "Status " + status.getStatus( ) + " not created and not found" ) );
+        StatusDictionary.instance( ).put( storedStatus );
+
+        return storedStatus;
+    }
+
     /**
      * Update of the status which is specified in parameter
      * 
@@ -79,6 +104,7 @@ public final class StatusHome
     public static DemandStatus update( DemandStatus status )
     {
         _dao.store( status );
+        StatusDictionary.instance( ).put( status );
 
         return status;
     }
@@ -92,6 +118,7 @@ public final class StatusHome
     public static void remove( int nKey )
     {
         _dao.delete( nKey );
+        StatusDictionary.instance( ).remove( nKey );
     }
 
     /**
@@ -130,6 +157,18 @@ public final class StatusHome
         return _dao.loadByStatus( strStatus );
     }
 
+    /**
+     * Returns a status from the in-memory dictionary, creating it if the label is unknown
+     * 
+     * @param strStatus
+     *            The status name
+     * @return an instance of Status, or an empty optional if the status name is blank
+     */
+    public static Optional<DemandStatus> findOrCreateByStatus( String strStatus )
+    {
+        return StatusDictionary.instance( ).getOrCreate( strStatus );
+    }
+
     /**
      * Load the data of all the status objects and returns them as a list
      * 
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * A demand stored while the customer of its connection id could not be resolved
+ */
+public class UnresolvedCustomer
+{
+    private int _nId;
+    private String _strConnectionId;
+    private String _strDemandId;
+    private String _strDemandTypeId;
+
+    /**
+     * @return the id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * @param nId
+     *            the id to set
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * @return the connection id
+     */
+    public String getConnectionId( )
+    {
+        return _strConnectionId;
+    }
+
+    /**
+     * @param strConnectionId
+     *            the connection id to set
+     */
+    public void setConnectionId( String strConnectionId )
+    {
+        _strConnectionId = strConnectionId;
+    }
+
+    /**
+     * @return the demand id
+     */
+    public String getDemandId( )
+    {
+        return _strDemandId;
+    }
+
+    /**
+     * @param strDemandId
+     *            the demand id to set
+     */
+    public void setDemandId( String strDemandId )
+    {
+        _strDemandId = strDemandId;
+    }
+
+    /**
+     * @return the demand type id
+     */
+    public String getDemandTypeId( )
+    {
+        return _strDemandTypeId;
+    }
+
+    /**
+     * @param strDemandTypeId
+     *            the demand type id to set
+     */
+    public void setDemandTypeId( String strDemandTypeId )
+    {
+        _strDemandTypeId = strDemandTypeId;
+    }
+}
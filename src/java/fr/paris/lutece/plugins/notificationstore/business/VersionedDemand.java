@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+
+/**
+ * A demand row with its version, for the optimistic updates, and the date of the last notification applied to its state
+ */
+public class VersionedDemand
+{
+    private final Demand _demand;
+    private final int _nVersion;
+    private final long _lLastNotificationDate;
+
+    /**
+     * Constructor
+     * 
+     * @param demand
+     *            the demand
+     * @param nVersion
+     *            the version of the row
+     * @param lLastNotificationDate
+     *            the date of the last notification applied to the state of the demand, 0 if none
+     */
+    public VersionedDemand( Demand demand, int nVersion, long lLastNotificationDate )
+    {
+        _demand = demand;
+        _nVersion = nVersion;
+        _lLastNotificationDate = lLastNotificationDate;
+    }
+
+    /**
+     * @return the demand
+     */
+    public Demand getDemand( )
+    {
+        return _demand;
+    }
+
+    /**
+     * @return the version of the row
+     */
+    public int getVersion( )
+    {
+        return _nVersion;
+    }
+
+    /**
+     * @return the date of the last notification applied to the state of the demand, 0 if none
+     */
+    public long getLastNotificationDate( )
+    {
+        return _lLastNotificationDate;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+/**
+ * Circuit breaker for a remote dependency.
+ * <ul>
+ * <li>closed : the calls are allowed, the consecutive failures are counted</li>
+ * <li>open : after N consecutive failures, the calls are refused during a delay</li>
+ * <li>half open : after the delay, a single trial call is allowed; its success closes the circuit, its failure opens it again</li>
+ * </ul>
+ */
+public final class CircuitBreaker
+{
+    /**
+     * Circuit states
+     */
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String _strName;
+    private final int _nFailureThreshold;
+    private final long _lOpenDurationMs;
+
+    private State _state = State.CLOSED;
+    private int _nConsecutiveFailures;
+    private long _lOpenedAt;
+    private boolean _bTrialInProgress;
+
+    /**
+     * Constructor
+     * 
+     * @param strName
+     *            the name of the protected dependency (for the logs)
+     * @param nFailureThreshold
+     *            the number of consecutive failures that opens the circuit
+     * @param lOpenDurationMs
+     *            the delay before a trial call, in milliseconds
+     */
+    public CircuitBreaker( String strName, int nFailureThreshold, long lOpenDurationMs )
+    {
+        _strName = strName;
+        _nFailureThreshold = Math.max( 1, nFailureThreshold );
+        _lOpenDurationMs = lOpenDurationMs;
+    }
+
+    /**
+     * Check if a call is allowed. In half open state, only one caller gets the trial call.
+     * 
+     * @return true if the call can be made
+     */
+    public synchronized boolean allowRequest( )
+    {
+        if ( _state == State.OPEN && System.currentTimeMillis( ) - _lOpenedAt >= _lOpenDurationMs )
+        {
+            _state = State.HALF_OPEN;
+            _bTrialInProgress = false;
+        }
+
+        switch( _state )
+        {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if ( !_bTrialInProgress )
+                {
+                    _bTrialInProgress = true;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check if a call would be allowed, without taking the trial call of the half open state
+     * 
+     * @return true if a call can be made now
+     */
+    public synchronized boolean isCallPermitted( )
+    {
+        switch( _state )
+        {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return !_bTrialInProgress;
+            default:
+                return System.currentTimeMillis( ) - _lOpenedAt >= _lOpenDurationMs;
+        }
+    }
+
+    /**
+     * Release the trial call of the half open state when the call ended without an outcome (interrupted caller) : another caller gets the trial
+     */
+    public synchronized void releaseTrial( )
+    {
+        _bTrialInProgress = false;
+    }
+
+    /**
+     * Record a successful call
+     */
+    public synchronized void recordSuccess( )
+    {
+        _nConsecutiveFailures = 0;
+        _bTrialInProgress = false;
+        _state = State.CLOSED;
+    }
+
+    /**
+     * Record a failed call
+     */
+    public synchronized void recordFailure( )
+    {
+        _nConsecutiveFailures++;
+        _bTrialInProgress = false;
+
+        if ( _state == State.HALF_OPEN || _nConsecutiveFailures >= _nFailureThreshold )
+        {
+            _state = State.OPEN;
+            _lOpenedAt = System.currentTimeMillis( );
+        }
+    }
+
+    /**
+     * @return the current state
+     */
+    public synchronized State getState( )
+    {
+        return _state;
+    }
+
+    /**
+     * @return the name of the protected dependency
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import fr.paris.lutece.plugins.notificationstore.business.CodecDictionary;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.service.codec.CodecDictionaryService;
+import fr.paris.lutece.plugins.notificationstore.service.codec.ContentCodecService;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.util.ReferenceItem;
+
+/**
+ * Training of the compression dictionaries of the demand types, used by the codecs supporting a preset dictionary when the dictionaries are enabled. The
+ * contents already stored keep the dictionary they were encoded with.
+ */
+public class CodecDictionaryDaemon extends Daemon
+{
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        int nTrained = 0;
+        int nSkipped = 0;
+        int nErrors = 0;
+
+        for ( ReferenceItem demandType : NotificationHome.getDemandTypeIds( ) )
+        {
+            try
+            {
+                CodecDictionary dictionary = CodecDictionaryService.instance( ).train( demandType.getCode( ) );
+                if ( dictionary != null )
+                {
+                    nTrained++;
+                }
+                else
+                {
+                    nSkipped++;
+                }
+            }
+            catch( Exception e )
+            {
+                AppLogService.error( "Unable to train the compression dictionary of the demand type " + demandType.getCode( ), e );
+                nErrors++;
+            }
+        }
+
+        setLastRunLogs( "Dictionaries trained : " + nTrained + ", demand types without enough samples : " + nSkipped + ", errors : " + nErrors + "\n"
+                + ContentCodecService.instance( ).getStatistics( ) );
+    }
+}
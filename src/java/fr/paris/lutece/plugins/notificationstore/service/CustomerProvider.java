@@ -42,7 +42,9 @@ import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.RequestAuthor;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.IdentitySearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.service.IdentityService;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityNotFoundException;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.notificationstore.service.cache.TtlCache;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
@@ -50,6 +52,15 @@ import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -72,6 +83,14 @@ public class CustomerProvider
     private static final String PROPERTIES_ATTRIBUTE_USER_HOMEINFO_TELECOM_MOBILE_NUMBER = "notificationstore.identity.attribute.user.home-info.telecom.mobile.number";
     private static final String PROPERTIES_ATTRIBUTE_USER_GENDER = "notificationstore.identity.attribute.user.gender";
     private static final String PROPERTIES_ATTRIBUTE_USER_BIRTHDATE = "notificationstore.identity.attribute.user.bdate";
+    private static final String PROPERTY_CACHE_MAX_SIZE = "notificationstore.customer.cache.maxSize";
+    private static final String PROPERTY_CACHE_TTL = "notificationstore.customer.cache.ttl";
+    private static final String PROPERTY_CACHE_NEGATIVE_TTL = "notificationstore.customer.cache.negativeTtl";
+    private static final String PROPERTY_CACHE_STATS_LOG_INTERVAL = "notificationstore.customer.cache.statsLogInterval";
+    private static final String PROPERTY_IDENTITY_TIMEOUT = "notificationstore.identity.call.timeoutMs";
+    private static final String PROPERTY_IDENTITY_MAX_CONCURRENT_CALLS = "notificationstore.identity.call.maxConcurrent";
+    private static final String PROPERTY_CIRCUIT_FAILURE_THRESHOLD = "notificationstore.identity.circuit.failureThreshold";
+    private static final String PROPERTY_CIRCUIT_OPEN_DURATION = "notificationstore.identity.circuit.openDurationMs";
     private static final String APPLICATION_CODE = AppPropertiesService.getProperty( PROPERTIES_APPLICATION_CODE );
     private static final String ATTRIBUTE_IDENTITY_NAME_GIVEN = AppPropertiesService.getProperty( PROPERTIES_ATTRIBUTE_USER_NAME_GIVEN );
     private static final String ATTRIBUTE_IDENTITY_NAME_FAMILLY = AppPropertiesService.getProperty( PROPERTIES_ATTRIBUTE_USER_NAME_FAMILLY );
@@ -92,6 +111,26 @@ public class CustomerProvider
     private IdentityService _identityService;
     private RequestAuthor _requestAuthor = new RequestAuthor(APPLICATION_CODE, AuthorType.application.name( ));
 
+    // connection id => customer id (null if the identity is not found)
+    private final TtlCache<String, String> _customerIdCache = new TtlCache<>( AppPropertiesService.getPropertyInt( PROPERTY_CACHE_MAX_SIZE, 10000 ),
+            AppPropertiesService.getPropertyInt( PROPERTY_CACHE_TTL, 300 ) * 1000L,
+            AppPropertiesService.getPropertyInt( PROPERTY_CACHE_NEGATIVE_TTL, 60 ) * 1000L );
+    private final long _lStatsLogInterval = AppPropertiesService.getPropertyLong( PROPERTY_CACHE_STATS_LOG_INTERVAL, 10000 );
+    private final AtomicLong _lLookups = new AtomicLong( );
+
+    // identity store calls : timeout, bulkhead and circuit breaker
+    private final long _lIdentityTimeoutMs = AppPropertiesService.getPropertyInt( PROPERTY_IDENTITY_TIMEOUT, 2000 );
+    private final CircuitBreaker _circuitBreaker = new CircuitBreaker( BEAN_IDENTITYSTORE_SERVICE,
+            AppPropertiesService.getPropertyInt( PROPERTY_CIRCUIT_FAILURE_THRESHOLD, 5 ),
+            AppPropertiesService.getPropertyInt( PROPERTY_CIRCUIT_OPEN_DURATION, 30000 ) );
+    private final ExecutorService _identityExecutor = new ThreadPoolExecutor( 0,
+            Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_IDENTITY_MAX_CONCURRENT_CALLS, 20 ) ), 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>( ), runnable -> {
+                Thread thread = new Thread( runnable, "notificationstore-identity-call" );
+                thread.setDaemon( true );
+                return thread;
+            } );
+
     /**
      * retrieve singleton
      */
@@ -181,6 +220,144 @@ public class CustomerProvider
         return null;        
     }
 
+    /**
+     * Provides the customer id of a connection id. The results (including the identities not found) are cached, and the concurrent lookups of the
+     * same connection id share a single call to the identity store.
+     * 
+     * @param strConnectionId
+     *            the connection id
+     * @return the customer id, or null if the identity is not found
+     * @throws IdentityStoreException
+     * @throws IdentityUnavailableException
+     *             if the identity store does not answer in time, or if its circuit is open
+     */
+    public String getCustomerIdByConnectionId( String strConnectionId ) throws IdentityStoreException, IdentityUnavailableException
+    {
+        try
+        {
+            return _customerIdCache.get( strConnectionId, this::loadCustomerId );
+        }
+        catch( IdentityStoreException | IdentityUnavailableException | RuntimeException e )
+        {
+            throw e;
+        }
+        catch( Exception e )
+        {
+            throw new IdentityUnavailableException( e.getMessage( ), e );
+        }
+        finally
+        {
+            logStatistics( );
+        }
+    }
+
+    /**
+     * Get the statistics of the cache of the customer ids
+     * 
+     * @return the statistics, as a log line
+     */
+    public String getCustomerIdCacheStatistics( )
+    {
+        long lHits = _customerIdCache.getHitCount( );
+        long lMisses = _customerIdCache.getMissCount( );
+
+        return String.format( "Customer id cache : %d entries, hit ratio %.3f (%d hits, %d misses, %d coalesced), %d evictions, identity store circuit %s",
+                _customerIdCache.size( ), ( lHits + lMisses ) > 0 ? (double) lHits / ( lHits + lMisses ) : 0d, lHits, lMisses,
+                _customerIdCache.getCoalescedCount( ), _customerIdCache.getEvictionCount( ), _circuitBreaker.getState( ) );
+    }
+
+    /**
+     * Log the statistics every N lookups
+     */
+    private void logStatistics( )
+    {
+        if ( _lStatsLogInterval > 0 && _lLookups.incrementAndGet( ) % _lStatsLogInterval == 0 )
+        {
+            AppLogService.info( getCustomerIdCacheStatistics( ) );
+        }
+    }
+
+    /**
+     * Check if the identity store can be called (its circuit is closed, or its open delay is elapsed)
+     * 
+     * @return true if available
+     */
+    public boolean isIdentityStoreAvailable( )
+    {
+        return hasIdentityService( ) && _circuitBreaker.isCallPermitted( );
+    }
+
+    /**
+     * Load the customer id of a connection id from the identity store, with a timeout, through the circuit breaker
+     * 
+     * @param strConnectionId
+     *            the connection id
+     * @return the customer id, or null if the identity is not found
+     * @throws IdentityStoreException
+     * @throws IdentityUnavailableException
+     */
+    private String loadCustomerId( String strConnectionId ) throws IdentityStoreException, IdentityUnavailableException
+    {
+        if ( !_circuitBreaker.allowRequest( ) )
+        {
+            throw new IdentityUnavailableException( "Identity store circuit is open" );
+        }
+
+        Future<String> future;
+        try
+        {
+            future = _identityExecutor.submit( ( ) -> {
+                try
+                {
+                    Customer customer = get( strConnectionId, StringUtils.EMPTY );
+
+                    return ( customer != null ) ? customer.getId( ) : null;
+                }
+                catch( IdentityNotFoundException e )
+                {
+                    return null;
+                }
+            } );
+        }
+        catch( RejectedExecutionException e )
+        {
+            // all the call slots are busy : the identity store is too slow
+            _circuitBreaker.recordFailure( );
+            throw new IdentityUnavailableException( "Too many pending identity store calls", e );
+        }
+
+        try
+        {
+            String strCustomerId = future.get( _lIdentityTimeoutMs, TimeUnit.MILLISECONDS );
+            _circuitBreaker.recordSuccess( );
+
+            return strCustomerId;
+        }
+        catch( TimeoutException e )
+        {
+            future.cancel( true );
+            _circuitBreaker.recordFailure( );
+            throw new IdentityUnavailableException( "Identity store call timed out", e );
+        }
+        catch( InterruptedException e )
+        {
+            // the call outcome is unknown : release the half open trial for another caller
+            future.cancel( true );
+            _circuitBreaker.releaseTrial( );
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityUnavailableException( "Interrupted identity store call", e );
+        }
+        catch( ExecutionException e )
+        {
+            _circuitBreaker.recordFailure( );
+            if ( e.getCause( ) instanceof IdentityStoreException )
+            {
+                throw (IdentityStoreException) e.getCause( );
+            }
+            throw new IdentityUnavailableException( "Identity store call failed", e.getCause( ) );
+        }
+    }
+
     /**
      * <p>
      * Decrypts a {@link Customer} from the specified {@code Customer}.
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.notificationstore.business.CustomerReconciliationHome;
+import fr.paris.lutece.plugins.notificationstore.business.UnresolvedCustomer;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Backfill of the customer id of the demands, notifications and events stored while the identity store was unavailable
+ */
+public class CustomerReconciliationDaemon extends Daemon
+{
+    private static final String PROPERTY_BATCH_SIZE = "notificationstore.daemon.CustomerReconciliationDaemon.batchSize";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        setLastRunLogs( reconcile( ) );
+    }
+
+    /**
+     * reconcile a batch of demands
+     * 
+     * @return the logs
+     */
+    private String reconcile( )
+    {
+        CustomerProvider customerProvider = CustomerProvider.instance( );
+        if ( customerProvider == null || !customerProvider.isIdentityStoreAvailable( ) )
+        {
+            return "Identity store unavailable, nothing done";
+        }
+
+        int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, 100 );
+        List<UnresolvedCustomer> listPending = CustomerReconciliationHome.findPending( nBatchSize );
+
+        Map<String, String> mapCustomerIds = new HashMap<>( );
+        int nReconciled = 0;
+        int nNotFound = 0;
+
+        for ( UnresolvedCustomer unresolved : listPending )
+        {
+            String strCustomerId;
+            try
+            {
+                strCustomerId = mapCustomerIds.containsKey( unresolved.getConnectionId( ) ) ? mapCustomerIds.get( unresolved.getConnectionId( ) )
+                        : customerProvider.getCustomerIdByConnectionId( unresolved.getConnectionId( ) );
+                mapCustomerIds.put( unresolved.getConnectionId( ), strCustomerId );
+            }
+            catch( IdentityUnavailableException | IdentityStoreException e )
+            {
+                // retried at next run
+                AppLogService.info( "Customer reconciliation interrupted : " + e.getMessage( ) );
+                break;
+            }
+
+            if ( StringUtils.isEmpty( strCustomerId ) )
+            {
+                // the identity does not exist : the demand keeps its empty customer id
+                CustomerReconciliationHome.remove( unresolved.getId( ) );
+                nNotFound++;
+                continue;
+            }
+
+            try
+            {
+                TransactionManager.beginTransaction( NotificationStorePlugin.getPlugin( ) );
+
+                CustomerReconciliationHome.reconcile( unresolved.getDemandId( ), unresolved.getDemandTypeId( ), StringUtils.EMPTY, strCustomerId );
+                CustomerReconciliationHome.remove( unresolved.getId( ) );
+
+                TransactionManager.commitTransaction( NotificationStorePlugin.getPlugin( ) );
+                nReconciled++;
+            }
+            catch( Exception e )
+            {
+                TransactionManager.rollBack( NotificationStorePlugin.getPlugin( ) );
+                AppLogService.error( "Unable to reconcile the customer of demand " + unresolved.getDemandId( ), e );
+            }
+        }
+
+        return "Pending : " + listPending.size( ) + ", reconciled : " + nReconciled + ", identities not found : " + nNotFound;
+    }
+}
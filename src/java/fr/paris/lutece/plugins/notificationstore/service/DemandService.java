@@ -36,14 +36,12 @@ package fr.paris.lutece.plugins.notificationstore.service;
 import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandDAO;
-import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandListener;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandServiceProvider;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandTypeDAO;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandStatusDAO;
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandStatus;
 import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationDAO;
 import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationEventDAO;
-import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationListener;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
@@ -52,14 +50,19 @@ import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.business.VersionedDemand;
+import fr.paris.lutece.plugins.notificationstore.service.cache.NotificationContentCache;
+import fr.paris.lutece.plugins.notificationstore.service.listener.ListenerEventBus;
 import fr.paris.lutece.portal.service.file.FileService;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.sql.TransactionManager;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * This class manages demands
@@ -67,6 +70,7 @@ import java.util.Optional;
  */
 public class DemandService implements IDemandServiceProvider
 {
+    private static final String PROPERTY_UPSERT_MAX_ATTEMPTS = "notificationstore.demand.upsert.maxAttempts";
 
     private IDemandDAO _demandDao;
     private INotificationDAO _notificationDao;
@@ -137,6 +141,83 @@ public class DemandService implements IDemandServiceProvider
         return demand;
     }
 
+    /**
+     * Creates or updates the demand row atomically, safe with concurrent writers of the same demand (threads or nodes).
+     * <p>
+     * The new state is computed from the current row, then written with an insert if absent or an update conditioned by the version of the row read.
+     * If another writer has created or updated the row meanwhile, the state is computed again from the new row, read with a locking read, up to a
+     * number of attempts. In a transaction, the insert or update of a writer waits for the commit of the concurrent one, which holds the row.
+     * </p>
+     * <p>
+     * The date of the notification is the logical version of the state of the demand : the status, the current step and the closure date written
+     * by a notification older than the last one applied are ignored by the database.
+     * </p>
+     * <p>
+     * The demand listeners are not called : the caller fires them once the write is committed (see {@link #fireStoreNotification}).
+     * </p>
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param lNotificationDate
+     *            the date of the notification
+     * @param builder
+     *            computes the demand to save from the current row (null if the demand does not exist yet)
+     * @return the saved demand, with the version written : 0 if it has been created
+     */
+    public VersionedDemand upsertDemandHeader( String strDemandId, String strDemandTypeId, long lNotificationDate,
+            Function<VersionedDemand, Demand> builder )
+    {
+        int nMaxAttempts = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_UPSERT_MAX_ATTEMPTS, 5 ) );
+
+        for ( int nAttempt = 0; nAttempt < nMaxAttempts; nAttempt++ )
+        {
+            // the retries read the last committed row, even in a transaction
+            VersionedDemand current = DemandHome.getVersionedDemand( strDemandId, strDemandTypeId, nAttempt > 0 );
+            Demand demand = builder.apply( current );
+
+            if ( demand.getUID( ) <= 0 )
+            {
+                if ( DemandHome.createIfAbsent( demand, lNotificationDate ) )
+                {
+                    return new VersionedDemand( demand, 0, lNotificationDate );
+                }
+            }
+            else
+                if ( DemandHome.updateIfVersion( demand, lNotificationDate, current.getVersion( ) ) )
+                {
+                    return new VersionedDemand( demand, current.getVersion( ) + 1, Math.max( lNotificationDate, current.getLastNotificationDate( ) ) );
+                }
+
+            AppLogService.debug( "Concurrent write of demand " + strDemandId + " (" + strDemandTypeId + "), attempt " + ( nAttempt + 1 ) );
+        }
+
+        throw new AppException( "Concurrent writes of demand " + strDemandId + " (" + strDemandTypeId + ") not resolved after " + nMaxAttempts + " attempts" );
+    }
+
+    /**
+     * Calls the demand and notification listeners for a stored notification, once its transaction is committed
+     * 
+     * @param notification
+     *            the stored notification, with its saved demand
+     * @param bDemandCreated
+     *            true if the demand has been created by the notification
+     */
+    public void fireStoreNotification( Notification notification, boolean bDemandCreated )
+    {
+        ListenerEventBus bus = ListenerEventBus.instance( );
+        if ( bDemandCreated )
+        {
+            bus.fireCreateDemand( notification.getDemand( ) );
+        }
+        else
+        {
+            bus.fireUpdateDemand( notification.getDemand( ) );
+        }
+        bus.fireCreateNotification( notification );
+    }
+
     /**
      * Creates a demand
      * 
@@ -147,10 +228,8 @@ public class DemandService implements IDemandServiceProvider
     public Demand create( Demand demand )
     {
         Demand demandDao = _demandDao.insert( demand );
-        for ( IDemandListener demandListener : SpringContextService.getBeansOfType( IDemandListener.class ) )
-        {
-            demandListener.onCreateDemand( demandDao );
-        }
+        ListenerEventBus.instance( ).fireCreateDemand( demandDao );
+
         return demandDao;
     }
 
@@ -167,13 +246,29 @@ public class DemandService implements IDemandServiceProvider
 
         NotificationContentHome.create( notification );
 
-        for ( INotificationListener iNotificationListener : SpringContextService.getBeansOfType( INotificationListener.class ) )
-        {
-            iNotificationListener.onCreateNotification( notificationDao );
-        }
+        ListenerEventBus.instance( ).fireCreateNotification( notificationDao );
+
         return notificationDao;
     }
 
+    /**
+     * Creates a notification with its contents, built beforehand. The demand row is not written : it is saved once with the state of the
+     * notification. The listeners are not called (see {@link #fireStoreNotification}).
+     * 
+     * @param notification
+     *            the notification to create, with its allocated id
+     * @param listNotificationContent
+     *            the contents of the notification
+     * @return the created notification
+     */
+    public Notification create( Notification notification, List<NotificationContent> listNotificationContent )
+    {
+        NotificationHome.createAllocated( notification );
+        NotificationContentHome.create( notification, listNotificationContent );
+
+        return notification;
+    }
+
     /**
      * Creates a notification event
      * 
@@ -197,10 +292,8 @@ public class DemandService implements IDemandServiceProvider
     public Demand update( Demand demand )
     {
         Demand demandDao = _demandDao.store( demand );
-        for ( IDemandListener iDemandListener : SpringContextService.getBeansOfType( IDemandListener.class ) )
-        {
-            iDemandListener.onUpdateDemand( demandDao );
-        }
+        ListenerEventBus.instance( ).fireUpdateDemand( demandDao );
+
         return demandDao;
     }
 
@@ -215,15 +308,9 @@ public class DemandService implements IDemandServiceProvider
     public void remove( String strDemandId, String strDemandTypeId )
     {
         _notificationDao.deleteByDemand( strDemandId, strDemandTypeId );
-        for ( INotificationListener iNotificationListener : SpringContextService.getBeansOfType( INotificationListener.class ) )
-        {
-            iNotificationListener.onDeleteDemand( strDemandId, strDemandTypeId );
-        }
+        ListenerEventBus.instance( ).fireDeleteNotifications( strDemandId, strDemandTypeId );
         _demandDao.delete( strDemandId, strDemandTypeId );
-        for ( IDemandListener iDemandListener : SpringContextService.getBeansOfType( IDemandListener.class ) )
-        {
-            iDemandListener.onDeleteDemand( strDemandId, strDemandTypeId );
-        }
+        ListenerEventBus.instance( ).fireDeleteDemand( strDemandId, strDemandTypeId );
     }
 
     /**
@@ -266,8 +353,7 @@ public class DemandService implements IDemandServiceProvider
      */
     public Optional<DemandType> getDemandType( int id )
     {
-
-        return _demandTypeDao.load( id );
+        return DemandTypeRegistry.instance( ).findById( id );
     }
 
     /**
@@ -314,7 +400,7 @@ public class DemandService implements IDemandServiceProvider
     @Override
     public Optional<DemandStatus> getStatusByLabel( String strStatusLabel )
     {
-        return _statusDao.loadByStatus( strStatusLabel );
+        return StatusDictionary.instance( ).get( strStatusLabel );
     }
 
     @Override
@@ -336,8 +422,12 @@ public class DemandService implements IDemandServiceProvider
                     
                     for( NotificationContent notifContent : listNotificationContent )
                     {
-                        //Remove File
-                        FileService.getInstance( ).getFileStoreServiceProvider( notifContent.getFileStore( ) ).delete( notifContent.getFileKey( ) );
+                        //Remove File (none for the contents stored inline)
+                        if ( !notifContent.isInline( ) )
+                        {
+                            FileService.getInstance( ).getFileStoreServiceProvider( notifContent.getFileStore( ) ).delete( notifContent.getFileKey( ) );
+                            NotificationContentCache.instance( ).invalidate( notifContent.getFileStore( ), notifContent.getFileKey( ) );
+                        }
 
                         //Remove notification content
                         NotificationContentHome.remove( notifContent.getId( ) );
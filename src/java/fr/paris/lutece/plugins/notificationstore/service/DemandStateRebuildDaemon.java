@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import fr.paris.lutece.plugins.notificationstore.business.DemandStateHome;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Rebuild of the demand states from the stored notifications (for the data stored before the projection, or to repair it). Not started by default : it is
+ * meant to be run from the daemon management page.
+ */
+public class DemandStateRebuildDaemon extends Daemon
+{
+    private static final String PROPERTY_BATCH_SIZE = "notificationstore.daemon.DemandStateRebuildDaemon.batchSize";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run( )
+    {
+        setLastRunLogs( rebuild( ) );
+    }
+
+    /**
+     * Rebuild the states of all the demands, by ranges of uids
+     * 
+     * @return the logs
+     */
+    private String rebuild( )
+    {
+        int nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, 1000 ) );
+        int nMaxUid = DemandStateHome.getMaxDemandUid( );
+        int nStates = 0;
+        int nErrors = 0;
+
+        for ( int nFromUid = 0; nFromUid < nMaxUid; nFromUid += nBatchSize )
+        {
+            int nToUid = Math.min( nFromUid + nBatchSize, nMaxUid );
+            try
+            {
+                TransactionManager.beginTransaction( NotificationStorePlugin.getPlugin( ) );
+                nStates += DemandStateHome.rebuild( nFromUid, nToUid );
+                TransactionManager.commitTransaction( NotificationStorePlugin.getPlugin( ) );
+            }
+            catch( Exception e )
+            {
+                TransactionManager.rollBack( NotificationStorePlugin.getPlugin( ) );
+                AppLogService.error( "Unable to rebuild the states of the demands " + nFromUid + " to " + nToUid, e );
+                nErrors++;
+            }
+        }
+
+        return "Demand states rebuilt : " + nStates + ", ranges in error : " + nErrors;
+    }
+}
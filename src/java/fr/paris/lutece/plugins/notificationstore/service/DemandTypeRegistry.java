@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
+import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * In-memory registry of the demand types, indexed by id and by category code.
+ * <p>
+ * The registry is an immutable snapshot of the demand type table, rebuilt by DemandTypeHome on each local change, reloaded once its ttl has elapsed
+ * (changes made by other nodes) and on the lookup of an unknown id. The demand types it returns are shared and must not be modified.
+ * </p>
+ */
+public final class DemandTypeRegistry
+{
+    // Properties
+    private static final String PROPERTY_TTL = "notificationstore.demandType.registry.ttl";
+    private static final String PROPERTY_MISS_RELOAD = "notificationstore.demandType.registry.missReloadMs";
+
+    private static DemandTypeRegistry _instance;
+
+    private final long _lTtlMs;
+    private final long _lMissReloadMs;
+    private volatile Snapshot _snapshot;
+
+    /**
+     * private constructor
+     */
+    private DemandTypeRegistry( )
+    {
+        _lTtlMs = AppPropertiesService.getPropertyLong( PROPERTY_TTL, 60 ) * 1000;
+        _lMissReloadMs = AppPropertiesService.getPropertyLong( PROPERTY_MISS_RELOAD, 1000 );
+    }
+
+    /**
+     * get unique instance of the registry
+     * 
+     * @return the registry
+     */
+    public static synchronized DemandTypeRegistry instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new DemandTypeRegistry( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * (Re)load the registry from the database
+     */
+    public synchronized void refresh( )
+    {
+        _snapshot = new Snapshot( DemandTypeHome.getDemandTypesList( ) );
+    }
+
+    /**
+     * Get a demand type by id
+     * 
+     * @param nId
+     *            the demand type id
+     * @return the demand type if it exists
+     */
+    public Optional<DemandType> findById( int nId )
+    {
+        Snapshot snapshot = getSnapshot( );
+        DemandType demandType = snapshot._mapById.get( nId );
+
+        if ( demandType == null && System.currentTimeMillis( ) - snapshot._lLoadedAt >= _lMissReloadMs )
+        {
+            // the demand type may have been created by another node : reload, at most once per interval
+            synchronized( this )
+            {
+                if ( _snapshot == snapshot )
+                {
+                    refresh( );
+                }
+                demandType = _snapshot._mapById.get( nId );
+            }
+        }
+
+        return Optional.ofNullable( demandType );
+    }
+
+    /**
+     * Get the demand types of a category
+     * 
+     * @param strCategoryCode
+     *            the category code
+     * @return the demand types of the category (unmodifiable)
+     */
+    public List<DemandType> getByCategoryCode( String strCategoryCode )
+    {
+        return getSnapshot( )._mapByCategoryCode.getOrDefault( strCategoryCode, Collections.emptyList( ) );
+    }
+
+    /**
+     * Get all the demand types
+     * 
+     * @return the demand types (unmodifiable)
+     */
+    public List<DemandType> getAll( )
+    {
+        return getSnapshot( )._listAll;
+    }
+
+    /**
+     * Get the current snapshot, loading it if needed or if its ttl has elapsed
+     * 
+     * @return the snapshot
+     */
+    private Snapshot getSnapshot( )
+    {
+        Snapshot snapshot = _snapshot;
+        if ( snapshot == null || isExpired( snapshot ) )
+        {
+            synchronized( this )
+            {
+                if ( _snapshot == null || isExpired( _snapshot ) )
+                {
+                    refresh( );
+                }
+                snapshot = _snapshot;
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Check if the ttl of a snapshot has elapsed
+     * 
+     * @param snapshot
+     *            the snapshot
+     * @return true if the snapshot must be reloaded
+     */
+    private boolean isExpired( Snapshot snapshot )
+    {
+        return _lTtlMs > 0 && System.currentTimeMillis( ) - snapshot._lLoadedAt >= _lTtlMs;
+    }
+
+    /**
+     * Immutable indexes of the demand types
+     */
+    private static final class Snapshot
+    {
+        private final long _lLoadedAt = System.currentTimeMillis( );
+        private final List<DemandType> _listAll;
+        private final Map<Integer, DemandType> _mapById = new HashMap<>( );
+        private final Map<String, List<DemandType>> _mapByCategoryCode = new HashMap<>( );
+
+        /**
+         * Constructor
+         * 
+         * @param listDemandTypes
+         *            the demand types
+         */
+        Snapshot( List<DemandType> listDemandTypes )
+        {
+            _listAll = Collections.unmodifiableList( new ArrayList<>( listDemandTypes ) );
+
+            for ( DemandType demandType : listDemandTypes )
+            {
+                _mapById.put( demandType.getId( ), demandType );
+
+                if ( demandType.getCategory( ) != null )
+                {
+                    _mapByCategoryCode.computeIfAbsent( demandType.getCategory( ), k -> new ArrayList<>( ) ).add( demandType );
+                }
+            }
+
+            _mapByCategoryCode.replaceAll( ( strCode, list ) -> Collections.unmodifiableList( list ) );
+        }
+    }
+}
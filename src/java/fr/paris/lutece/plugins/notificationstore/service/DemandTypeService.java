@@ -1,9 +1,9 @@
 package fr.paris.lutece.plugins.notificationstore.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
-import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
 
 public class DemandTypeService 
 {
@@ -15,7 +15,7 @@ public class DemandTypeService
 	 */
 	public List<DemandType> getDemandTypes( )
     {
-        return DemandTypeHome.getDemandTypesList( );
+        return new ArrayList<>( DemandTypeRegistry.instance( ).getAll( ) );
     }
 
 }
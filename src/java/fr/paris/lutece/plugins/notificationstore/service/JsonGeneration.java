@@ -38,7 +38,6 @@
  */
 package fr.paris.lutece.plugins.notificationstore.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.paris.lutece.plugins.grubusiness.business.notification.BroadcastNotification;
@@ -87,15 +86,18 @@ public class JsonGeneration
 
         for ( Notification notif : list )
         {
-            anonymize( notif );
             try
             {
-                String strJSON = mapper.writeValueAsString( notif );
+                // the loaded contents are shared with the content cache : a copy is anonymized
+                Notification copy = mapper.readValue( "{ \"notification\" : " + mapper.writeValueAsString( notif ) + " }", Notification.class );
+                anonymize( copy );
+
+                String strJSON = mapper.writeValueAsString( copy );
                 strJSON = "{ \"notification\" : " + strJSON + " }";
                 writeFile( dir + i + ".json", strJSON );
                 i++;
             }
-            catch( JsonProcessingException ex )
+            catch( IOException ex )
             {
                 System.out.println( ex.getLocalizedMessage( ) );
             }
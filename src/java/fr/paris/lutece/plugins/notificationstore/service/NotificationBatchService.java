@@ -0,0 +1,707 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.grubusiness.business.notification.StatusMessage;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.plugins.notificationstore.business.DemandState;
+import fr.paris.lutece.plugins.notificationstore.business.DemandStateHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.business.VersionedDemand;
+import fr.paris.lutece.plugins.notificationstore.service.listener.ListenerEventBus;
+import fr.paris.lutece.plugins.notificationstore.service.notifyer.NotificationOutboxService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Bulk ingestion of notifications.
+ * 
+ * The body is a JSON array or a NDJSON stream (one notification per line), read from its stream, up to a maximum number of notifications (413
+ * beyond). The notifications are processed by chunks : each chunk is persisted in one
+ * transaction, with JDBC batch statements for the demands, notifications, contents and events. An item that can not be parsed or prepared fails alone;
+ * if the transaction of a chunk fails, the chunk is replayed item by item so that one bad record does not fail the others.
+ */
+public final class NotificationBatchService
+{
+    // Properties
+    private static final String PROPERTY_CHUNK_SIZE = "notificationstore.ingestion.batch.chunkSize";
+    private static final String PROPERTY_MAX_ITEMS = "notificationstore.ingestion.batch.maxItems";
+
+    // Constants
+    private static final String TYPE_NOTIFICATION = "NOTIFICATION";
+    private static final String STATUS_ERROR = "ERROR";
+    private static final String ACK_STATUS_RECEIVED = "received";
+    private static final String ACK_STATUS_WARNING = "warning";
+    private static final String ACK_STATUS_ERROR = "error";
+
+    private static NotificationBatchService _instance;
+
+    private final ObjectReader _reader;
+    private final int _nChunkSize;
+    private final int _nMaxItems;
+
+    /**
+     * Exception thrown when a batch has more notifications than the maximum
+     */
+    private static class BatchTooLargeException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         * 
+         * @param nMaxItems
+         *            the maximum number of notifications
+         */
+        BatchTooLargeException( int nMaxItems )
+        {
+            super( "Batch of more than " + nMaxItems + " notifications" );
+        }
+    }
+
+    /**
+     * private constructor
+     */
+    private NotificationBatchService( )
+    {
+        _reader = NotificationJsonCodec.instance( ).getNotificationReader( );
+        _nChunkSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_CHUNK_SIZE, 100 ) );
+        _nMaxItems = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_ITEMS, 1000 ) );
+    }
+
+    /**
+     * get unique instance of the service
+     * 
+     * @return the batch service
+     */
+    public static synchronized NotificationBatchService instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationBatchService( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * process a batch of notifications
+     * 
+     * @param inputStream
+     *            the body : a JSON array or a NDJSON stream
+     * @return the response, with one acknowledge per item (in the order of the body)
+     */
+    public Response newNotifications( InputStream inputStream )
+    {
+        List<BatchItem> listItems = new ArrayList<>( );
+
+        try
+        {
+            parse( inputStream, listItems );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+            listItems.clear( );
+            BatchItem item = new BatchItem( 0 );
+            item.fail( e );
+            listItems.add( item );
+
+            return Response.status( e instanceof BatchTooLargeException ? Response.Status.REQUEST_ENTITY_TOO_LARGE : Response.Status.BAD_REQUEST )
+                    .entity( toJson( listItems ) ).build( );
+        }
+
+        for ( int nFrom = 0; nFrom < listItems.size( ); nFrom += _nChunkSize )
+        {
+            processChunk( listItems.subList( nFrom, Math.min( nFrom + _nChunkSize, listItems.size( ) ) ) );
+        }
+
+        return Response.status( Response.Status.OK ).entity( toJson( listItems ) ).build( );
+    }
+
+    /**
+     * Store notifications submitted concurrently by several callers, as one chunk (group commit). The notifications are prepared by their callers,
+     * and forwarded by them once the chunk is committed.
+     * 
+     * @param listJson
+     *            the notifications as received, to replay them one by one if the transaction fails
+     * @param listNotifications
+     *            the prepared notifications
+     * @param listContents
+     *            the contents of the notifications, built by {@link #prepare(Notification)}
+     * @param listForwards
+     *            filled with the stored notification to forward, for each notification (null if it is not stored)
+     * @return the responses of the single endpoint, in the order of the notifications
+     */
+    List<Response> processGroup( List<String> listJson, List<Notification> listNotifications, List<List<NotificationContent>> listContents,
+            List<Notification> listForwards )
+    {
+        List<BatchItem> listItems = new ArrayList<>( listNotifications.size( ) );
+        for ( int i = 0; i < listNotifications.size( ); i++ )
+        {
+            BatchItem item = new BatchItem( i );
+            item._strJson = listJson.get( i );
+            item._notification = listNotifications.get( i );
+            item._listContents = listContents.get( i );
+            listItems.add( item );
+        }
+
+        List<BatchItem> listStored = storeChunk( listItems );
+
+        List<Response> listResponses = new ArrayList<>( listItems.size( ) );
+        for ( BatchItem item : listItems )
+        {
+            listResponses.add( NotificationService.instance( ).buildResponse( item._exception, item._listWarnings ) );
+            listForwards.add( listStored.contains( item ) ? item._notification : null );
+        }
+
+        return listResponses;
+    }
+
+    /**
+     * Prepare a notification outside of the chunk transaction : resolve its customer, allocate its id and store its contents in the file store
+     * 
+     * @param notification
+     *            the notification
+     * @return the contents to insert
+     * @throws IdentityStoreException
+     *             if the customer can not be resolved
+     */
+    List<NotificationContent> prepare( Notification notification ) throws IdentityStoreException
+    {
+        NotificationService.instance( ).processCustomer( notification );
+
+        // outside of the transaction : a reserved block of ids and the file store are not rolled back
+        NotificationHome.allocateId( notification );
+
+        return NotificationContentHome.buildNotificationContents( notification );
+    }
+
+    /**
+     * Parse the body, item by item, from its stream : the array is read element by element, the NDJSON stream line by line
+     * 
+     * @param inputStream
+     *            the body
+     * @param listItems
+     *            the items
+     * @throws IOException
+     *             if the body is not a JSON array nor a NDJSON stream, or if it has more items than the maximum
+     */
+    private void parse( InputStream inputStream, List<BatchItem> listItems ) throws IOException
+    {
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader( inputStream, StandardCharsets.UTF_8 ) ) )
+        {
+            if ( isArray( reader ) )
+            {
+                try ( JsonParser parser = _reader.getFactory( ).createParser( reader ) )
+                {
+                    if ( parser.nextToken( ) != JsonToken.START_ARRAY )
+                    {
+                        throw new JsonParseException( parser, "JSON array expected" );
+                    }
+                    JsonToken token;
+                    while ( ( token = parser.nextToken( ) ) != JsonToken.END_ARRAY )
+                    {
+                        if ( token == null )
+                        {
+                            throw new JsonParseException( parser, "Unexpected end of the JSON array" );
+                        }
+                        JsonNode node = _reader.readTree( parser );
+                        addItem( listItems, node.toString( ), node );
+                    }
+                }
+            }
+            else
+            {
+                String strLine;
+                while ( ( strLine = reader.readLine( ) ) != null )
+                {
+                    if ( StringUtils.isNotBlank( strLine ) )
+                    {
+                        addItem( listItems, strLine, null );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if the body is a JSON array, from its first significant character
+     * 
+     * @param reader
+     *            the body, left at its start
+     * @return true if the body is a JSON array
+     * @throws IOException
+     *             if the body can not be read
+     */
+    private static boolean isArray( BufferedReader reader ) throws IOException
+    {
+        int nChar;
+        do
+        {
+            reader.mark( 1 );
+            nChar = reader.read( );
+        }
+        while ( nChar != -1 && Character.isWhitespace( nChar ) );
+        reader.reset( );
+
+        return nChar == '[';
+    }
+
+    /**
+     * Add an item of the body
+     * 
+     * @param listItems
+     *            the items
+     * @param strJson
+     *            the notification as received
+     * @param node
+     *            the notification already read as a tree, or null
+     * @throws BatchTooLargeException
+     *             if the body has more items than the maximum
+     */
+    private void addItem( List<BatchItem> listItems, String strJson, JsonNode node ) throws BatchTooLargeException
+    {
+        if ( listItems.size( ) >= _nMaxItems )
+        {
+            throw new BatchTooLargeException( _nMaxItems );
+        }
+
+        BatchItem item = new BatchItem( listItems.size( ) );
+        item._strJson = strJson;
+        try
+        {
+            item._notification = node != null ? _reader.readValue( node ) : _reader.readValue( strJson );
+        }
+        catch( IOException e )
+        {
+            item.fail( e );
+        }
+        listItems.add( item );
+    }
+
+    /**
+     * Process a chunk of items
+     * 
+     * @param listChunk
+     *            the items
+     */
+    private void processChunk( List<BatchItem> listChunk )
+    {
+        forward( storeChunk( listChunk ) );
+    }
+
+    /**
+     * Store a chunk of items, in one transaction (or item by item if it fails)
+     * 
+     * @param listChunk
+     *            the items
+     * @return the items stored, by the chunk transaction or replayed alone, to forward
+     */
+    private List<BatchItem> storeChunk( List<BatchItem> listChunk )
+    {
+        NotificationService notificationService = NotificationService.instance( );
+        List<BatchItem> listPrepared = new ArrayList<>( );
+
+        // customer resolution and demand state, item by item
+        Map<String, Demand> mapDemands = new HashMap<>( );
+        Map<Demand, Integer> mapVersions = new IdentityHashMap<>( );
+        Map<Demand, Long> mapNotificationDates = new IdentityHashMap<>( );
+        for ( BatchItem item : listChunk )
+        {
+            if ( item._bFailed )
+            {
+                continue;
+            }
+
+            try
+            {
+                Notification notification = item._notification;
+                if ( item._listContents == null )
+                {
+                    item._listContents = prepare( notification );
+                }
+
+                String strKey = notification.getDemand( ).getTypeId( ) + "/" + notification.getDemand( ).getId( );
+                Demand demand = mapDemands.get( strKey );
+                if ( demand == null )
+                {
+                    VersionedDemand current = DemandHome.getVersionedDemand( notification.getDemand( ).getId( ), notification.getDemand( ).getTypeId( ), false );
+                    if ( current != null )
+                    {
+                        demand = current.getDemand( );
+                        mapVersions.put( demand, current.getVersion( ) );
+                        mapNotificationDates.put( demand, current.getLastNotificationDate( ) );
+                    }
+                }
+
+                // the notifications of a chunk may be out of order too
+                long lLastNotificationDate = demand != null ? mapNotificationDates.getOrDefault( demand, 0L ) : 0;
+                demand = notificationService.buildDemand( notification, demand, lLastNotificationDate );
+                mapNotificationDates.merge( demand, notification.getDate( ), Math::max );
+                mapDemands.put( strKey, demand );
+                notification.setDemand( demand );
+
+                listPrepared.add( item );
+            }
+            catch( Exception e )
+            {
+                if ( item._listContents != null )
+                {
+                    NotificationContentHome.deleteContentFiles( item._listContents );
+                }
+                item.fail( e );
+            }
+        }
+
+        if ( listPrepared.isEmpty( ) )
+        {
+            return listPrepared;
+        }
+
+        List<NotificationContent> listContents = new ArrayList<>( );
+        listPrepared.forEach( item -> listContents.addAll( item._listContents ) );
+        Map<Demand, Boolean> mapNewDemands = new IdentityHashMap<>( );
+        try
+        {
+            TransactionManager.beginTransaction( NotificationStorePlugin.getPlugin( ) );
+
+            persist( listPrepared, listContents, mapNewDemands, mapVersions, mapNotificationDates );
+
+            TransactionManager.commitTransaction( NotificationStorePlugin.getPlugin( ) );
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( NotificationStorePlugin.getPlugin( ) );
+            AppLogService.error( "Batch of notifications rolled back, replaying it item by item", e );
+            NotificationContentHome.deleteContentFiles( listContents );
+
+            // error isolation : the items are replayed one by one
+            List<BatchItem> listStored = new ArrayList<>( );
+            for ( BatchItem item : listPrepared )
+            {
+                if ( replay( item ) )
+                {
+                    listStored.add( item );
+                }
+            }
+            return listStored;
+        }
+
+        fireListeners( listPrepared, mapNewDemands );
+
+        for ( BatchItem item : listPrepared )
+        {
+            notificationService.checkNotification( item._notification, item._listWarnings );
+        }
+
+        return listPrepared;
+    }
+
+    /**
+     * Forward the committed notifications to the notifyers
+     * 
+     * @param listCommitted
+     *            the committed items
+     */
+    private void forward( List<BatchItem> listCommitted )
+    {
+        for ( BatchItem item : listCommitted )
+        {
+            // a failure is reported as a warning : the item is committed
+            NotificationService.instance( ).forward( item._notification, item._listWarnings );
+        }
+    }
+
+    /**
+     * Persist the prepared items of a chunk, in the current transaction
+     * 
+     * @param listPrepared
+     *            the items
+     * @param listContents
+     *            the contents of the items, built beforehand
+     * @param mapNewDemands
+     *            the persisted demands (filled, true if created)
+     * @param mapVersions
+     *            the versions of the demand rows read
+     * @param mapNotificationDates
+     *            the dates of the most recent notifications of the demands
+     * @throws IOException
+     *             if a notification cannot be recorded in the outbox
+     */
+    private void persist( List<BatchItem> listPrepared, List<NotificationContent> listContents, Map<Demand, Boolean> mapNewDemands,
+            Map<Demand, Integer> mapVersions, Map<Demand, Long> mapNotificationDates ) throws IOException
+    {
+        NotificationService notificationService = NotificationService.instance( );
+        List<Notification> listNotifications = new ArrayList<>( );
+        List<NotificationEvent> listEvents = new ArrayList<>( );
+        Map<Notification, List<NotificationContent>> mapNotificationContents = new IdentityHashMap<>( );
+
+        for ( BatchItem item : listPrepared )
+        {
+            Notification notification = item._notification;
+            listNotifications.add( notification );
+
+            mapNotificationContents.put( notification, item._listContents );
+
+            if ( notification.getMyDashboardNotification( ) != null )
+            {
+                listEvents.add( notificationService.buildMydashboardNotificationEvent( notification ) );
+            }
+
+            mapNewDemands.putIfAbsent( notification.getDemand( ), notification.getDemand( ).getUID( ) <= 0 );
+        }
+
+        // one write per demand, with its final state. A demand written concurrently by another writer fails the chunk, which is then replayed item
+        // by item through the concurrency-safe path
+        Map<Demand, Integer> mapUpdatedDemands = new IdentityHashMap<>( );
+        for ( Map.Entry<Demand, Boolean> entry : mapNewDemands.entrySet( ) )
+        {
+            if ( Boolean.TRUE.equals( entry.getValue( ) ) )
+            {
+                // the uid is needed, the inserts are not batched
+                if ( !DemandHome.createIfAbsent( entry.getKey( ), mapNotificationDates.get( entry.getKey( ) ) ) )
+                {
+                    throw new AppException( "Demand " + entry.getKey( ).getId( ) + " created concurrently" );
+                }
+            }
+            else
+            {
+                mapUpdatedDemands.put( entry.getKey( ), mapVersions.get( entry.getKey( ) ) );
+            }
+        }
+        if ( !DemandHome.updateBatchIfVersion( mapUpdatedDemands, mapNotificationDates ) )
+        {
+            throw new AppException( "Demands of the chunk updated concurrently" );
+        }
+
+        NotificationHome.createBatch( listNotifications );
+        NotificationContentHome.createBatch( listContents );
+        NotificationEventHome.createBatch( listEvents );
+
+        if ( NotificationOutboxService.instance( ).isEnabled( ) )
+        {
+            NotificationOutboxService.instance( ).enqueue( listNotifications );
+        }
+
+        // one state per demand, from its most recent notification
+        Map<Integer, DemandState> mapStates = new HashMap<>( );
+        for ( Map.Entry<Notification, List<NotificationContent>> entry : mapNotificationContents.entrySet( ) )
+        {
+            DemandState state = DemandStateHome.build( entry.getKey( ), entry.getValue( ) );
+            mapStates.merge( state.getDemandUid( ), state, ( s1, s2 ) -> s2.isAfter( s1 ) ? s2 : s1 );
+        }
+        mapStates.values( ).forEach( DemandStateHome::store );
+    }
+
+    /**
+     * Replay an item alone, after the failure of its chunk. It is forwarded with the committed items.
+     * 
+     * @param item
+     *            the item
+     * @return true if the item is stored
+     */
+    private boolean replay( BatchItem item )
+    {
+        Exception exception;
+        try
+        {
+            // parsed again : the notification of the chunk has been altered (customer decrypted, demand state, ids)
+            Notification notification = _reader.readValue( item._strJson );
+            exception = NotificationService.instance( ).storeNotification( notification, null, item._listWarnings );
+            item._notification = notification;
+        }
+        catch( IOException e )
+        {
+            exception = e;
+        }
+
+        if ( exception != null )
+        {
+            item.fail( exception );
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Call the demand and notification listeners, after the commit
+     * 
+     * @param listPrepared
+     *            the items
+     * @param mapNewDemands
+     *            the persisted demands
+     */
+    private void fireListeners( List<BatchItem> listPrepared, Map<Demand, Boolean> mapNewDemands )
+    {
+        ListenerEventBus bus = ListenerEventBus.instance( );
+        for ( Map.Entry<Demand, Boolean> entry : mapNewDemands.entrySet( ) )
+        {
+            if ( Boolean.TRUE.equals( entry.getValue( ) ) )
+            {
+                bus.fireCreateDemand( entry.getKey( ) );
+            }
+            else
+            {
+                bus.fireUpdateDemand( entry.getKey( ) );
+            }
+        }
+
+        for ( BatchItem item : listPrepared )
+        {
+            bus.fireCreateNotification( item._notification );
+        }
+    }
+
+    /**
+     * Build the acknowledge array
+     * 
+     * @param listItems
+     *            the items
+     * @return the JSON
+     */
+    private String toJson( List<BatchItem> listItems )
+    {
+        StringBuilder sbJson = new StringBuilder( "{ \"acknowledge\" : [" );
+
+        for ( int i = 0; i < listItems.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbJson.append( "," );
+            }
+            listItems.get( i ).appendJson( sbJson );
+        }
+
+        return sbJson.append( "] }" ).toString( );
+    }
+
+    /**
+     * An item of the batch, with its acknowledge
+     */
+    private static final class BatchItem
+    {
+        private final int _nIndex;
+        private String _strJson;
+        private Notification _notification;
+        private boolean _bFailed;
+        private final List<StatusMessage> _listWarnings = new ArrayList<>( );
+        private final List<StatusMessage> _listErrors = new ArrayList<>( );
+        private List<NotificationContent> _listContents;
+        private Exception _exception;
+
+        private BatchItem( int nIndex )
+        {
+            _nIndex = nIndex;
+        }
+
+        private void fail( Exception e )
+        {
+            _bFailed = true;
+            if ( _exception == null )
+            {
+                _exception = e;
+            }
+            _listErrors.add( new StatusMessage( TYPE_NOTIFICATION, STATUS_ERROR, e.toString( ), e.getMessage( ) ) );
+        }
+
+        private void appendJson( StringBuilder sbJson )
+        {
+            sbJson.append( "{ \"index\" : " ).append( _nIndex ).append( ", " );
+
+            if ( _bFailed )
+            {
+                sbJson.append( "\"status\" : \"" ).append( ACK_STATUS_ERROR ).append( "\", \"errors\" : " );
+                appendMessages( sbJson, _listErrors );
+            }
+            else
+                if ( !_listWarnings.isEmpty( ) )
+                {
+                    sbJson.append( "\"status\" : \"" ).append( ACK_STATUS_WARNING ).append( "\", \"warnings\" : " );
+                    appendMessages( sbJson, _listWarnings );
+                }
+                else
+                {
+                    sbJson.append( "\"status\" : \"" ).append( ACK_STATUS_RECEIVED ).append( "\"" );
+                }
+
+            sbJson.append( " }" );
+        }
+
+        private static void appendMessages( StringBuilder sbJson, List<StatusMessage> listMessages )
+        {
+            sbJson.append( "[" );
+            for ( int i = 0; i < listMessages.size( ); i++ )
+            {
+                if ( i > 0 )
+                {
+                    sbJson.append( "," );
+                }
+                sbJson.append( listMessages.get( i ).asJson( ) );
+            }
+            sbJson.append( "]" );
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Group commit of the notifications received concurrently.
+ * 
+ * The notifications submitted by the request threads within a short window (or up to a number of items) are persisted by a committer thread as one
+ * chunk of the bulk ingestion : one transaction, with JDBC batch statements. Each caller is released once the shared commit has succeeded, with the
+ * response of the single endpoint, so the durability is unchanged while the number of commits drops by the size of the groups. If the transaction of a
+ * group fails, its notifications are replayed one by one.
+ * 
+ * The committers only read and write the demands and persist the groups : the customer resolution, the id allocation and the contents are prepared by
+ * the callers before they submit their notification, and each caller forwards its notification once it is stored.
+ * 
+ * Each notification is routed to a committer by hash of its (demand_id, demand_type_id) : the notifications of a demand are committed by the same
+ * thread, in their arrival order.
+ */
+public final class NotificationGroupCommitter
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "notificationstore.ingestion.groupCommit.enabled";
+    private static final String PROPERTY_WINDOW = "notificationstore.ingestion.groupCommit.windowMs";
+    private static final String PROPERTY_MAX_ITEMS = "notificationstore.ingestion.groupCommit.maxItems";
+    private static final String PROPERTY_COMMITTERS = "notificationstore.ingestion.groupCommit.committers";
+    private static final String PROPERTY_TIMEOUT = "notificationstore.ingestion.groupCommit.timeoutMs";
+
+    // Constants
+    private static final String THREAD_NAME_PREFIX = "notificationstore-group-commit-";
+    private static final String KEY_SEPARATOR = "_";
+    private static final long POLL_TIMEOUT_MS = 1000;
+
+    private static NotificationGroupCommitter _instance;
+
+    private final boolean _bEnabled;
+    private final long _lWindowNanos;
+    private final int _nMaxItems;
+    private final long _lTimeoutMs;
+    private final List<BlockingQueue<PendingNotification>> _listQueues = new ArrayList<>( );
+
+    /**
+     * private constructor
+     */
+    private NotificationGroupCommitter( )
+    {
+        this( AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false ), AppPropertiesService.getPropertyInt( PROPERTY_WINDOW, 2 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_MAX_ITEMS, 50 ), AppPropertiesService.getPropertyInt( PROPERTY_COMMITTERS, 1 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_TIMEOUT, 30000 ), true );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bEnabled
+     *            true if the group commit is enabled
+     * @param lWindowMs
+     *            the window of a group, in milliseconds
+     * @param nMaxItems
+     *            the maximum number of notifications of a group
+     * @param nCommitters
+     *            the number of committers
+     * @param lTimeoutMs
+     *            the maximum wait of a caller, in milliseconds
+     * @param bStartCommitters
+     *            false to leave the queues to the caller (tests)
+     */
+    NotificationGroupCommitter( boolean bEnabled, long lWindowMs, int nMaxItems, int nCommitters, long lTimeoutMs, boolean bStartCommitters )
+    {
+        _bEnabled = bEnabled;
+        _lWindowNanos = TimeUnit.MILLISECONDS.toNanos( Math.max( 0, lWindowMs ) );
+        _nMaxItems = Math.max( 1, nMaxItems );
+        _lTimeoutMs = Math.max( 1, lTimeoutMs );
+
+        int nQueues = _bEnabled ? Math.max( 1, nCommitters ) : 0;
+        for ( int i = 0; i < nQueues; i++ )
+        {
+            int nCommitter = i;
+            _listQueues.add( new LinkedBlockingQueue<>( ) );
+            if ( bStartCommitters )
+            {
+                Thread thread = new Thread( ( ) -> run( nCommitter ), THREAD_NAME_PREFIX + i );
+                thread.setDaemon( true );
+                thread.start( );
+            }
+        }
+    }
+
+    /**
+     * get unique instance of the committer
+     * 
+     * @return the committer
+     */
+    public static synchronized NotificationGroupCommitter instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationGroupCommitter( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Check if the group commit is enabled
+     * 
+     * @return true if enabled
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Prepare a notification, submit it to the next group, wait for the commit of the group, then forward the notification
+     * 
+     * @param notification
+     *            the parsed notification
+     * @return the response of the notification, or null if it has not been taken by a group before the timeout (it is then not persisted)
+     * @throws IOException
+     *             if the notification can not be serialized (kept to replay it alone if its group fails)
+     */
+    public Response submit( Notification notification ) throws IOException
+    {
+        // serialized as received, before its preparation alters it
+        String strJson = NotificationJsonCodec.instance( ).writeNotification( notification );
+        List<NotificationContent> listContents;
+        try
+        {
+            // on the caller thread : the identity store and the file store are not called by the committers
+            listContents = NotificationBatchService.instance( ).prepare( notification );
+        }
+        catch( Exception e )
+        {
+            return NotificationService.instance( ).buildResponse( e, new ArrayList<>( ) );
+        }
+
+        PendingNotification pending = new PendingNotification( strJson, notification, listContents );
+        BlockingQueue<PendingNotification> queue = _listQueues.get( getCommitterIndex( notification ) );
+        queue.add( pending );
+
+        Response response;
+        try
+        {
+            try
+            {
+                response = pending._future.get( _lTimeoutMs, TimeUnit.MILLISECONDS );
+            }
+            catch( TimeoutException e )
+            {
+                if ( pending._claimed.compareAndSet( false, true ) )
+                {
+                    // not taken by a group : withdrawn
+                    queue.remove( pending );
+                    NotificationContentHome.deleteContentFiles( listContents );
+                    return null;
+                }
+
+                // the group is being committed : its outcome is awaited
+                response = pending._future.get( );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( "Interrupted while waiting for the group commit", e );
+        }
+        catch( ExecutionException e )
+        {
+            throw new AppException( "Group commit failed", e.getCause( ) );
+        }
+
+        forward( pending._forward );
+
+        return response;
+    }
+
+    /**
+     * Forward a stored notification. A failure does not change the response : the notification is stored.
+     * 
+     * @param notification
+     *            the stored notification, null if it is not stored
+     */
+    private static void forward( Notification notification )
+    {
+        if ( notification == null )
+        {
+            return;
+        }
+
+        try
+        {
+            NotificationService.instance( ).forward( notification );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Unable to forward notification " + notification.getId( ), e );
+        }
+    }
+
+    /**
+     * Get the committer of a notification
+     * 
+     * @param notification
+     *            the notification
+     * @return the committer index
+     */
+    private int getCommitterIndex( Notification notification )
+    {
+        String strKey = StringUtils.EMPTY;
+        if ( notification.getDemand( ) != null )
+        {
+            strKey = notification.getDemand( ).getId( ) + KEY_SEPARATOR + notification.getDemand( ).getTypeId( );
+        }
+
+        return Math.floorMod( strKey.hashCode( ), _listQueues.size( ) );
+    }
+
+    /**
+     * The loop of a committer thread
+     * 
+     * @param nCommitter
+     *            the committer index
+     */
+    private void run( int nCommitter )
+    {
+        while ( !Thread.currentThread( ).isInterrupted( ) )
+        {
+            try
+            {
+                List<PendingNotification> listGroup = collectGroup( nCommitter );
+                if ( !listGroup.isEmpty( ) )
+                {
+                    commit( listGroup );
+                }
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Error in the notification group commit", e );
+            }
+        }
+    }
+
+    /**
+     * Collect the next group : the first notification waiting, and the ones arriving within the window, up to the maximum number of items
+     * 
+     * @param nCommitter
+     *            the committer index
+     * @return the group, empty if no notification is waiting
+     * @throws InterruptedException
+     *             if the thread is interrupted
+     */
+    List<PendingNotification> collectGroup( int nCommitter ) throws InterruptedException
+    {
+        BlockingQueue<PendingNotification> queue = _listQueues.get( nCommitter );
+        List<PendingNotification> listGroup = new ArrayList<>( );
+
+        PendingNotification pending = queue.poll( POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS );
+        long lDeadline = System.nanoTime( ) + _lWindowNanos;
+        while ( pending != null )
+        {
+            // the callers whose timeout has expired are skipped
+            if ( pending._claimed.compareAndSet( false, true ) )
+            {
+                listGroup.add( pending );
+            }
+            if ( listGroup.size( ) >= _nMaxItems )
+            {
+                break;
+            }
+
+            pending = queue.poll( );
+            if ( pending == null )
+            {
+                long lRemaining = lDeadline - System.nanoTime( );
+                if ( lRemaining > 0 )
+                {
+                    pending = queue.poll( lRemaining, TimeUnit.NANOSECONDS );
+                }
+            }
+        }
+
+        return listGroup;
+    }
+
+    /**
+     * Persist a group in one transaction, then release its callers with the notifications to forward
+     * 
+     * @param listGroup
+     *            the group
+     */
+    private void commit( List<PendingNotification> listGroup )
+    {
+        List<String> listJson = new ArrayList<>( listGroup.size( ) );
+        List<Notification> listNotifications = new ArrayList<>( listGroup.size( ) );
+        List<List<NotificationContent>> listContents = new ArrayList<>( listGroup.size( ) );
+        for ( PendingNotification pending : listGroup )
+        {
+            listJson.add( pending._strJson );
+            listNotifications.add( pending._notification );
+            listContents.add( pending._listContents );
+        }
+
+        AppLogService.debug( "Group commit of " + listGroup.size( ) + " notifications" );
+
+        try
+        {
+            List<Notification> listForwards = new ArrayList<>( listGroup.size( ) );
+            List<Response> listResponses = NotificationBatchService.instance( ).processGroup( listJson, listNotifications, listContents, listForwards );
+            for ( int i = 0; i < listGroup.size( ); i++ )
+            {
+                PendingNotification pending = listGroup.get( i );
+                pending._forward = listForwards.get( i );
+                pending._future.complete( listResponses.get( i ) );
+            }
+        }
+        catch( RuntimeException | Error e )
+        {
+            listGroup.forEach( pending -> pending._future.completeExceptionally( e ) );
+            throw e;
+        }
+    }
+
+    /**
+     * A notification waiting for its group commit
+     */
+    static final class PendingNotification
+    {
+        private final String _strJson;
+        private final Notification _notification;
+        private final List<NotificationContent> _listContents;
+        final CompletableFuture<Response> _future = new CompletableFuture<>( );
+        // set by the committer which takes the notification, or by the caller which withdraws it
+        private final AtomicBoolean _claimed = new AtomicBoolean( );
+        // the stored notification to forward, set by the committer before it completes the future
+        private volatile Notification _forward;
+
+        private PendingNotification( String strJson, Notification notification, List<NotificationContent> listContents )
+        {
+            _strJson = strJson;
+            _notification = notification;
+            _listContents = listContents;
+        }
+    }
+}
@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.EnumUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Asynchronous ingestion of notifications.
+ * 
+ * Each notification is routed to a lane by hash of its (demand_id, demand_type_id) : a lane has a bounded queue and a single worker thread, so the
+ * notifications of a demand are processed in their arrival order, while distinct demands are processed in parallel.
+ * 
+ * When a lane queue is full, the backpressure policy applies :
+ * <ul>
+ * <li>block : the caller waits for a free slot up to a timeout, then the notification is rejected</li>
+ * <li>reject : the notification is rejected immediately (the client gets a 503 with Retry-After)</li>
+ * <li>spill : the notification is written in the spill directory of the lane, and the lane keeps spilling until the worker has drained the directory,
+ * to preserve the order</li>
+ * </ul>
+ * <p>
+ * A notification failing with a server error (database unavailable...) is retried after a backoff, up to a maximum number of attempts : its spill
+ * file is kept until it is processed. A notification abandoned after the last attempt is kept in the spill directory as a failed file. At shutdown,
+ * the lanes stop accepting notifications, the workers drain their queues for a while, and the notifications left are spilled.
+ * </p>
+ */
+public final class NotificationIngestionExecutor
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "notificationstore.ingestion.async.enabled";
+    private static final String PROPERTY_LANES = "notificationstore.ingestion.async.lanes";
+    private static final String PROPERTY_QUEUE_CAPACITY = "notificationstore.ingestion.async.queueCapacity";
+    private static final String PROPERTY_BACKPRESSURE = "notificationstore.ingestion.async.backpressure";
+    private static final String PROPERTY_BLOCK_TIMEOUT = "notificationstore.ingestion.async.block.timeoutMs";
+    private static final String PROPERTY_RETRY_AFTER = "notificationstore.ingestion.async.retryAfter";
+    private static final String PROPERTY_SPILL_PATH = "notificationstore.ingestion.async.spill.path";
+    private static final String PROPERTY_RETRY_BACKOFF = "notificationstore.ingestion.async.retry.backoffMs";
+    private static final String PROPERTY_RETRY_MAX_ATTEMPTS = "notificationstore.ingestion.async.retry.maxAttempts";
+    private static final String PROPERTY_SHUTDOWN_DRAIN_TIMEOUT = "notificationstore.ingestion.async.shutdown.drainTimeoutMs";
+
+    // Constants
+    private static final String THREAD_NAME_PREFIX = "notificationstore-ingestion-lane-";
+    private static final String SPILL_FILE_EXTENSION = ".json";
+    private static final String FAILED_FILE_EXTENSION = ".failed";
+    private static final String SPILL_FILE_SEPARATOR = "_";
+    private static final long POLL_TIMEOUT_MS = 1000;
+    private static final long DRAIN_POLL_MS = 100;
+
+    /**
+     * Backpressure policies
+     */
+    public enum BackpressurePolicy
+    {
+        BLOCK,
+        REJECT,
+        SPILL
+    }
+
+    private static NotificationIngestionExecutor _instance;
+
+    private final boolean _bEnabled;
+    private final BackpressurePolicy _backpressurePolicy;
+    private final long _lBlockTimeoutMs;
+    private final int _nRetryAfter;
+    private final long _lRetryBackoffMs;
+    private final int _nRetryMaxAttempts;
+    private final long _lDrainTimeoutMs;
+    private final Lane [ ] _lanes;
+    private volatile boolean _bShutdown;
+
+    /**
+     * private constructor
+     */
+    private NotificationIngestionExecutor( )
+    {
+        String strBackpressurePolicy = AppPropertiesService.getProperty( PROPERTY_BACKPRESSURE, BackpressurePolicy.BLOCK.name( ) ).trim( ).toUpperCase( );
+        BackpressurePolicy backpressurePolicy = EnumUtils.getEnum( BackpressurePolicy.class, strBackpressurePolicy );
+        if ( backpressurePolicy == null )
+        {
+            AppLogService.error( "Unknown backpressure policy " + strBackpressurePolicy + " (" + PROPERTY_BACKPRESSURE + "), the block policy is used" );
+            backpressurePolicy = BackpressurePolicy.BLOCK;
+        }
+        _backpressurePolicy = backpressurePolicy;
+        _lBlockTimeoutMs = AppPropertiesService.getPropertyInt( PROPERTY_BLOCK_TIMEOUT, 5000 );
+        _nRetryAfter = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_AFTER, 5 );
+        _lRetryBackoffMs = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_RETRY_BACKOFF, 5000 ) );
+        _nRetryMaxAttempts = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_MAX_ATTEMPTS, 10 );
+        _lDrainTimeoutMs = Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_SHUTDOWN_DRAIN_TIMEOUT, 10000 ) );
+        // the spill directory must be durable and owned by this instance : no default (a temporary directory may be cleaned or shared)
+        String strSpillPath = AppPropertiesService.getProperty( PROPERTY_SPILL_PATH );
+        boolean bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+        if ( bEnabled && _backpressurePolicy == BackpressurePolicy.SPILL && StringUtils.isBlank( strSpillPath ) )
+        {
+            AppLogService.error( "Asynchronous ingestion disabled : the spill policy requires the property " + PROPERTY_SPILL_PATH );
+            bEnabled = false;
+        }
+        _bEnabled = bEnabled;
+
+        int nLanes = _bEnabled ? Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_LANES, 4 ) ) : 0;
+        int nCapacity = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_CAPACITY, 1000 ) );
+
+        _lanes = new Lane [ nLanes];
+        for ( int i = 0; i < nLanes; i++ )
+        {
+            _lanes [i] = new Lane( i, nCapacity, StringUtils.isBlank( strSpillPath ) ? null : new File( strSpillPath, String.valueOf( i ) ) );
+            _lanes [i].start( );
+        }
+    }
+
+    /**
+     * get unique instance of the executor
+     * 
+     * @return the executor
+     */
+    public static synchronized NotificationIngestionExecutor instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationIngestionExecutor( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Check if the asynchronous mode is enabled
+     * 
+     * @return true if enabled
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Get the delay (in seconds) advised to the clients when a notification is rejected
+     * 
+     * @return the delay
+     */
+    public int getRetryAfter( )
+    {
+        return _nRetryAfter;
+    }
+
+    /**
+     * Submit a notification to its lane
+     * 
+     * @param strReceipt
+     *            the receipt id returned to the client
+     * @param notification
+     *            the parsed notification (serialized again in the spill directory if needed)
+     * @return false if the notification has been rejected by the backpressure policy, or if the executor is shut down
+     */
+    public boolean submit( String strReceipt, Notification notification )
+    {
+        if ( _bShutdown )
+        {
+            return false;
+        }
+
+        Lane lane = _lanes [getLaneIndex( notification )];
+        IngestionTask task = new IngestionTask( strReceipt, notification, null, null );
+
+        try
+        {
+            switch( _backpressurePolicy )
+            {
+                case SPILL:
+                    return lane.offerOrSpill( task );
+                case REJECT:
+                    return lane._queue.offer( task );
+                default:
+                    return lane._queue.offer( task, _lBlockTimeoutMs, TimeUnit.MILLISECONDS );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            return false;
+        }
+    }
+
+    /**
+     * Get the number of notifications waiting in the queues
+     * 
+     * @return the number of queued notifications
+     */
+    public int getQueuedCount( )
+    {
+        return Arrays.stream( _lanes ).mapToInt( lane -> lane._queue.size( ) ).sum( );
+    }
+
+    /**
+     * Stop accepting notifications, let the workers drain their queues up to the drain timeout, then spill the notifications left (or log them if
+     * there is no spill directory)
+     */
+    public void shutdown( )
+    {
+        _bShutdown = true;
+
+        long lDeadline = System.currentTimeMillis( ) + _lDrainTimeoutMs;
+        try
+        {
+            while ( getQueuedCount( ) > 0 && System.currentTimeMillis( ) < lDeadline )
+            {
+                Thread.sleep( DRAIN_POLL_MS );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        for ( Lane lane : _lanes )
+        {
+            lane.spillQueue( );
+        }
+    }
+
+    /**
+     * Get the lane of a notification
+     * 
+     * @param notification
+     *            the notification
+     * @return the lane index
+     */
+    private int getLaneIndex( Notification notification )
+    {
+        String strKey = StringUtils.EMPTY;
+        if ( notification.getDemand( ) != null )
+        {
+            strKey = notification.getDemand( ).getId( ) + SPILL_FILE_SEPARATOR + notification.getDemand( ).getTypeId( );
+        }
+
+        return Math.floorMod( strKey.hashCode( ), _lanes.length );
+    }
+
+    /**
+     * Notification waiting in a lane
+     */
+    private static final class IngestionTask
+    {
+        private final String _strReceipt;
+        private final Notification _notification;
+        private final File _spillFile;
+        private String _strJson;
+
+        private IngestionTask( String strReceipt, Notification notification, File spillFile, String strJson )
+        {
+            _strReceipt = strReceipt;
+            _notification = notification;
+            _spillFile = spillFile;
+            _strJson = strJson;
+        }
+    }
+
+    /**
+     * A lane : a bounded queue, its spill directory and a single worker
+     */
+    private final class Lane implements Runnable
+    {
+        private final int _nIndex;
+        private final BlockingQueue<IngestionTask> _queue;
+        private final File _spillDirectory;
+        private volatile boolean _bSpilling;
+        private long _lSpillSequence;
+
+        private Lane( int nIndex, int nCapacity, File spillDirectory )
+        {
+            _nIndex = nIndex;
+            _queue = new ArrayBlockingQueue<>( nCapacity );
+            _spillDirectory = spillDirectory;
+
+            // notifications spilled before a restart are processed first
+            File [ ] spillFiles = listSpillFiles( );
+            _bSpilling = spillFiles.length > 0;
+            _lSpillSequence = spillFiles.length > 0 ? getSequence( spillFiles [spillFiles.length - 1] ) + 1 : 0;
+        }
+
+        private void start( )
+        {
+            Thread thread = new Thread( this, THREAD_NAME_PREFIX + _nIndex );
+            thread.setDaemon( true );
+            thread.start( );
+        }
+
+        /**
+         * Queue the task, or spill it when the queue is full (or when the lane is already spilling)
+         * 
+         * @param task
+         *            the task
+         * @return false if the notification could not be spilled
+         */
+        private synchronized boolean offerOrSpill( IngestionTask task )
+        {
+            if ( !_bSpilling && _queue.offer( task ) )
+            {
+                return true;
+            }
+
+            return spill( task );
+        }
+
+        /**
+         * Write a task in the spill directory, after the notifications already spilled
+         * 
+         * @param task
+         *            the task
+         * @return false if the notification could not be spilled
+         */
+        private synchronized boolean spill( IngestionTask task )
+        {
+            try
+            {
+                Files.createDirectories( _spillDirectory.toPath( ) );
+                File file = new File( _spillDirectory, String.format( "%020d", _lSpillSequence ) + SPILL_FILE_SEPARATOR + task._strReceipt + SPILL_FILE_EXTENSION );
+                Files.write( file.toPath( ), getJson( task ).getBytes( StandardCharsets.UTF_8 ) );
+                _lSpillSequence++;
+                _bSpilling = true;
+
+                return true;
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to spill notification " + task._strReceipt, e );
+                return false;
+            }
+        }
+
+        /**
+         * Spill the notifications left in the queue at shutdown : they are processed first at the next startup (after the notifications already
+         * spilled by the lane, if any)
+         */
+        private void spillQueue( )
+        {
+            List<IngestionTask> listTasks = new ArrayList<>( );
+            _queue.drainTo( listTasks );
+            if ( listTasks.isEmpty( ) )
+            {
+                return;
+            }
+
+            if ( _spillDirectory == null )
+            {
+                AppLogService.error( "Notification ingestion lane " + _nIndex + " : " + listTasks.size( )
+                        + " notifications not processed at shutdown (no spill directory) : " + listTasks.stream( ).map( t -> t._strReceipt ).collect( Collectors.joining( ", " ) ) );
+                return;
+            }
+
+            int nSpilled = 0;
+            for ( IngestionTask task : listTasks )
+            {
+                if ( spill( task ) )
+                {
+                    nSpilled++;
+                }
+            }
+            AppLogService.info( "Notification ingestion lane " + _nIndex + " : " + nSpilled + " notifications spilled at shutdown" );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            while ( !Thread.currentThread( ).isInterrupted( ) )
+            {
+                try
+                {
+                    IngestionTask task = _queue.poll( POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS );
+
+                    if ( task != null )
+                    {
+                        process( task );
+                    }
+                    else
+                        if ( _bSpilling )
+                        {
+                            drainSpill( );
+                        }
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+                catch( RuntimeException e )
+                {
+                    AppLogService.error( "Error in notification ingestion lane " + _nIndex, e );
+                }
+            }
+        }
+
+        /**
+         * Process the spilled notifications, in their order (the queue is empty at this point since the lane spills)
+         */
+        private void drainSpill( ) throws InterruptedException
+        {
+            while ( true )
+            {
+                File [ ] spillFiles;
+                synchronized( this )
+                {
+                    spillFiles = listSpillFiles( );
+                    if ( spillFiles.length == 0 )
+                    {
+                        _bSpilling = false;
+                        return;
+                    }
+                }
+
+                for ( File file : spillFiles )
+                {
+                    String strReceipt = StringUtils.substringBetween( file.getName( ), SPILL_FILE_SEPARATOR, SPILL_FILE_EXTENSION );
+                    try
+                    {
+                        String strJson = new String( Files.readAllBytes( file.toPath( ) ), StandardCharsets.UTF_8 );
+                        process( new IngestionTask( strReceipt, NotificationService.instance( ).getNotificationFromJson( strJson ), file, strJson ) );
+                    }
+                    catch( IOException e )
+                    {
+                        AppLogService.error( "Unable to read spilled notification " + file.getName( ), e );
+                        abandon( new IngestionTask( strReceipt, null, file, null ) );
+                    }
+                }
+            }
+        }
+
+        /**
+         * Process a notification. A server error is retried after a backoff (the lane is paused, to keep the order of the demands) : the spill
+         * file is removed once the notification is processed or rejected.
+         * 
+         * @param task
+         *            the task
+         * @throws InterruptedException
+         *             if the worker is interrupted
+         */
+        private void process( IngestionTask task ) throws InterruptedException
+        {
+            Notification notification = task._notification;
+            int nAttempts = 0;
+            while ( true )
+            {
+                int nStatus;
+                try
+                {
+                    // kept as received : parsed again at each retry, the processing alters the notification
+                    String strJson = getJson( task );
+                    if ( nAttempts > 0 )
+                    {
+                        notification = NotificationService.instance( ).getNotificationFromJson( strJson );
+                    }
+                    nStatus = NotificationService.instance( ).processNotification( notification ).getStatus( );
+                }
+                catch( IOException | RuntimeException e )
+                {
+                    AppLogService.error( "Error processing asynchronous notification " + task._strReceipt, e );
+                    nStatus = 500;
+                }
+
+                if ( nStatus < 500 )
+                {
+                    if ( nStatus >= 400 )
+                    {
+                        // rejected : it would be rejected again
+                        AppLogService.error( "Asynchronous notification " + task._strReceipt + " rejected with status " + nStatus );
+                    }
+                    if ( task._spillFile != null )
+                    {
+                        deleteSpillFile( task._spillFile );
+                    }
+                    return;
+                }
+
+                nAttempts++;
+                if ( ( _nRetryMaxAttempts > 0 && nAttempts >= _nRetryMaxAttempts ) || _bShutdown )
+                {
+                    AppLogService.error( "Asynchronous notification " + task._strReceipt + " failed with status " + nStatus + " after " + nAttempts
+                            + " attempts" );
+                    abandon( task );
+                    return;
+                }
+
+                AppLogService.info( "Asynchronous notification " + task._strReceipt + " failed with status " + nStatus + ", retrying in "
+                        + _lRetryBackoffMs + " ms" );
+                Thread.sleep( _lRetryBackoffMs );
+            }
+        }
+
+        /**
+         * Keep a notification which can not be processed : its spill file is renamed as failed (it is no longer drained), or it is written as a
+         * failed file
+         * 
+         * @param task
+         *            the task
+         */
+        private void abandon( IngestionTask task )
+        {
+            try
+            {
+                if ( task._spillFile != null )
+                {
+                    File failed = new File( task._spillFile.getParentFile( ), task._spillFile.getName( ) + FAILED_FILE_EXTENSION );
+                    Files.move( task._spillFile.toPath( ), failed.toPath( ) );
+                    return;
+                }
+
+                if ( _spillDirectory != null )
+                {
+                    Files.createDirectories( _spillDirectory.toPath( ) );
+                    File failed = new File( _spillDirectory, task._strReceipt + SPILL_FILE_EXTENSION + FAILED_FILE_EXTENSION );
+                    Files.write( failed.toPath( ), getJson( task ).getBytes( StandardCharsets.UTF_8 ) );
+                    return;
+                }
+
+                AppLogService.error( "Asynchronous notification " + task._strReceipt + " abandoned : " + getJson( task ) );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to keep the failed notification " + task._strReceipt, e );
+            }
+        }
+
+        /**
+         * Get the notification of a task, as received
+         * 
+         * @param task
+         *            the task
+         * @return the JSON
+         * @throws IOException
+         *             if the notification can not be serialized
+         */
+        private String getJson( IngestionTask task ) throws IOException
+        {
+            if ( task._strJson == null )
+            {
+                task._strJson = NotificationJsonCodec.instance( ).writeNotification( task._notification );
+            }
+
+            return task._strJson;
+        }
+
+        private void deleteSpillFile( File file )
+        {
+            try
+            {
+                Files.deleteIfExists( file.toPath( ) );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to delete spilled notification " + file.getName( ), e );
+            }
+        }
+
+        private File [ ] listSpillFiles( )
+        {
+            if ( _spillDirectory == null )
+            {
+                return new File [ 0];
+            }
+
+            File [ ] files = _spillDirectory.listFiles( ( dir, name ) -> name.endsWith( SPILL_FILE_EXTENSION ) );
+            if ( files == null )
+            {
+                return new File [ 0];
+            }
+            Arrays.sort( files );
+
+            return files;
+        }
+
+        private static long getSequence( File file )
+        {
+            return Long.parseLong( StringUtils.substringBefore( file.getName( ), SPILL_FILE_SEPARATOR ) );
+        }
+    }
+}
@@ -0,0 +1,961 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.notificationstore.business.JournalCheckpointHome;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Local write-ahead journal of the notifications.
+ * 
+ * When enabled, a notification is acknowledged once it is durably written in the journal : an append-only sequence of segment files, where the
+ * notifications received concurrently are written and flushed to the disk (fsync) together. A background applier replays the journal into the
+ * database in its order, so the ingestion keeps accepting notifications while the database is unavailable.
+ * <p>
+ * The sequence of the last applied entry (checkpoint) is written in the database, in the transaction of the notification : an entry is applied
+ * once, even if the webapp stops before the segment is removed. At startup, the torn tail of the last segment (crash during a write) is truncated
+ * and the entries not yet applied are replayed.
+ * </p>
+ * <p>
+ * Record format : payload length (int), sequence (long), reception date (long), CRC32 of the sequence, date and payload (int), payload (the
+ * notification, in JSON).
+ * </p>
+ */
+public final class NotificationJournal
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "notificationstore.ingestion.journal.enabled";
+    private static final String PROPERTY_PATH = "notificationstore.ingestion.journal.path";
+    private static final String PROPERTY_SEGMENT_BYTES = "notificationstore.ingestion.journal.segmentBytes";
+    private static final String PROPERTY_FLUSH_WINDOW = "notificationstore.ingestion.journal.flush.windowMs";
+    private static final String PROPERTY_FLUSH_MAX_ITEMS = "notificationstore.ingestion.journal.flush.maxItems";
+    private static final String PROPERTY_APPEND_TIMEOUT = "notificationstore.ingestion.journal.appendTimeoutMs";
+    private static final String PROPERTY_APPLIER_BACKOFF = "notificationstore.ingestion.journal.applier.backoffMs";
+    private static final String PROPERTY_APPLIER_MAX_ATTEMPTS = "notificationstore.ingestion.journal.applier.maxAttempts";
+    private static final String PROPERTY_STATS_LOG_INTERVAL = "notificationstore.ingestion.journal.statsLogIntervalMs";
+
+    // Constants
+    private static final String THREAD_NAME_WRITER = "notificationstore-journal-writer";
+    private static final String THREAD_NAME_APPLIER = "notificationstore-journal-applier";
+    private static final String SEGMENT_EXTENSION = ".journal";
+    private static final String ID_FILE_NAME = "journal.id";
+    private static final int HEADER_BYTES = 24;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final long POLL_TIMEOUT_MS = 1000;
+
+    private static NotificationJournal _instance;
+
+    private final boolean _bEnabled;
+    private final File _directory;
+    private final long _lSegmentBytes;
+    private final long _lFlushWindowNanos;
+    private final int _nFlushMaxItems;
+    private final long _lAppendTimeoutMs;
+    private final long _lBackoffMs;
+    private final int _nMaxAttempts;
+    private final long _lStatsLogIntervalMs;
+    private final BlockingQueue<PendingAppend> _queue = new LinkedBlockingQueue<>( );
+    private final Object _flushMonitor = new Object( );
+    private String _strJournalId;
+
+    // writer state
+    private FileChannel _channel;
+    private long _lNextSequence;
+
+    // shared with the applier and the statistics
+    private volatile long _lDurableSequence;
+    private volatile long _lAppliedSequence = -1;
+    private volatile long _lOldestPendingDate;
+    // false once the writer or the applier thread has stopped : the appends are refused
+    private volatile boolean _bRunning = true;
+
+    /**
+     * private constructor
+     */
+    private NotificationJournal( )
+    {
+        String strPath = AppPropertiesService.getProperty( PROPERTY_PATH );
+        _directory = StringUtils.isBlank( strPath ) ? null : new File( strPath );
+        _lSegmentBytes = Math.max( 1024, AppPropertiesService.getPropertyLong( PROPERTY_SEGMENT_BYTES, 64L * 1024 * 1024 ) );
+        _lFlushWindowNanos = TimeUnit.MILLISECONDS.toNanos( Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_FLUSH_WINDOW, 2 ) ) );
+        _nFlushMaxItems = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_FLUSH_MAX_ITEMS, 256 ) );
+        _lAppendTimeoutMs = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_APPEND_TIMEOUT, 10000 ) );
+        _lBackoffMs = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_APPLIER_BACKOFF, 5000 ) );
+        _nMaxAttempts = AppPropertiesService.getPropertyInt( PROPERTY_APPLIER_MAX_ATTEMPTS, 10 );
+        _lStatsLogIntervalMs = Math.max( 1000, AppPropertiesService.getPropertyInt( PROPERTY_STATS_LOG_INTERVAL, 60000 ) );
+
+        boolean bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+        if ( bEnabled && _directory == null )
+        {
+            // the journal must be durable and owned by this instance : no default (a temporary directory may be cleaned or shared)
+            AppLogService.error( "Notification journal disabled : the property " + PROPERTY_PATH + " is required" );
+            bEnabled = false;
+        }
+        if ( bEnabled )
+        {
+            try
+            {
+                recover( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to open the notification journal " + _directory + ", the notifications are stored directly", e );
+                bEnabled = false;
+            }
+        }
+        _bEnabled = bEnabled;
+
+        if ( _bEnabled )
+        {
+            startThread( this::runWriter, THREAD_NAME_WRITER );
+            startThread( this::runApplier, THREAD_NAME_APPLIER );
+        }
+    }
+
+    /**
+     * get unique instance of the journal (opened and recovered at the first call)
+     * 
+     * @return the journal
+     */
+    public static synchronized NotificationJournal instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationJournal( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Check if the journal is enabled
+     * 
+     * @return true if enabled
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Append a notification to the journal, and wait until it is flushed to the disk with the notifications appended concurrently
+     * 
+     * @param notification
+     *            the parsed notification
+     * @return the sequence of the entry
+     * @throws IOException
+     *             if the notification can not be journaled : the journal is stopped, or the notification is not taken by a flush before the timeout
+     */
+    public long append( Notification notification ) throws IOException
+    {
+        if ( !_bRunning )
+        {
+            throw new IOException( "Notification journal stopped" );
+        }
+
+        PendingAppend pending = new PendingAppend(
+                NotificationJsonCodec.instance( ).writeNotification( notification ).getBytes( StandardCharsets.UTF_8 ) );
+        _queue.add( pending );
+
+        try
+        {
+            try
+            {
+                return pending._future.get( _lAppendTimeoutMs, TimeUnit.MILLISECONDS );
+            }
+            catch( TimeoutException e )
+            {
+                if ( pending._claimed.compareAndSet( false, true ) )
+                {
+                    // not taken by a flush : withdrawn
+                    _queue.remove( pending );
+                    throw new IOException( "Notification not journaled within " + _lAppendTimeoutMs + " ms", e );
+                }
+
+                // being written : its flush is awaited
+                return pending._future.get( );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IOException( "Interrupted while journaling the notification", e );
+        }
+        catch( ExecutionException e )
+        {
+            throw new IOException( "Unable to journal the notification", e.getCause( ) );
+        }
+    }
+
+    /**
+     * Get the number of journaled entries not applied to the database yet
+     * 
+     * @return the lag
+     */
+    public long getLag( )
+    {
+        return _lAppliedSequence < 0 ? _lDurableSequence : Math.max( 0, _lDurableSequence - _lAppliedSequence );
+    }
+
+    /**
+     * Get the size of the journal on the disk
+     * 
+     * @return the size of the segments, in bytes
+     */
+    public long getBytes( )
+    {
+        if ( _directory == null )
+        {
+            return 0;
+        }
+
+        return Arrays.stream( listSegments( ) ).mapToLong( File::length ).sum( );
+    }
+
+    /**
+     * Get the age of the oldest entry not applied yet
+     * 
+     * @return the age in milliseconds, 0 if the applier is up to date (or has not read it yet)
+     */
+    public long getOldestEntryAge( )
+    {
+        long lOldestPendingDate = _lOldestPendingDate;
+
+        return getLag( ) > 0 && lOldestPendingDate > 0 ? System.currentTimeMillis( ) - lOldestPendingDate : 0;
+    }
+
+    /**
+     * Get the statistics of the journal
+     * 
+     * @return the statistics
+     */
+    public String getStatistics( )
+    {
+        return "Notification journal " + _strJournalId + " : durable=" + _lDurableSequence + ", applied=" + _lAppliedSequence + ", lag=" + getLag( )
+                + ", bytes=" + getBytes( ) + ", oldestEntryAgeMs=" + getOldestEntryAge( );
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Recovery
+
+    /**
+     * Open the journal : truncate the torn tail of the last segment, and find the next sequence
+     * 
+     * @throws IOException
+     *             if the journal can not be opened
+     */
+    private void recover( ) throws IOException
+    {
+        Files.createDirectories( _directory.toPath( ) );
+        _strJournalId = readOrCreateId( );
+
+        File [ ] segments = listSegments( );
+        long lLastSequence = 0;
+        File segment;
+        if ( segments.length > 0 )
+        {
+            segment = segments [segments.length - 1];
+            lLastSequence = recoverSegment( segment );
+        }
+        else
+        {
+            segment = getSegmentFile( 1 );
+        }
+
+        _lNextSequence = lLastSequence + 1;
+        _lDurableSequence = lLastSequence;
+        _channel = FileChannel.open( segment.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+        _channel.position( _channel.size( ) );
+
+        AppLogService.info( "Notification journal " + _strJournalId + " opened in " + _directory + ", last sequence " + lLastSequence );
+    }
+
+    /**
+     * Read the id of the journal, or create it. The id identifies the checkpoint of the journal : a new directory starts a new journal.
+     * 
+     * @return the id
+     * @throws IOException
+     *             if the id can not be read or written
+     */
+    private String readOrCreateId( ) throws IOException
+    {
+        File fileId = new File( _directory, ID_FILE_NAME );
+        if ( fileId.exists( ) )
+        {
+            return new String( Files.readAllBytes( fileId.toPath( ) ), StandardCharsets.UTF_8 ).trim( );
+        }
+
+        String strId = UUID.randomUUID( ).toString( );
+        Files.write( fileId.toPath( ), strId.getBytes( StandardCharsets.UTF_8 ), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.SYNC );
+
+        return strId;
+    }
+
+    /**
+     * Check the records of the last segment, and truncate it after the last valid one
+     * 
+     * @param segment
+     *            the segment
+     * @return the sequence of the last valid record
+     * @throws IOException
+     *             if the segment can not be read
+     */
+    static long recoverSegment( File segment ) throws IOException
+    {
+        long lSequence = getFirstSequence( segment ) - 1;
+        long lPosition = 0;
+
+        try ( FileChannel channel = FileChannel.open( segment.toPath( ), StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            JournalRecord record;
+            while ( ( record = readRecord( channel, lPosition ) ) != null && record._lSequence == lSequence + 1 )
+            {
+                lSequence = record._lSequence;
+                lPosition = record._lEnd;
+            }
+
+            if ( lPosition < channel.size( ) )
+            {
+                AppLogService.error( "Notification journal : torn tail of segment " + segment.getName( ) + " truncated at " + lPosition + " ("
+                        + ( channel.size( ) - lPosition ) + " bytes)" );
+                channel.truncate( lPosition );
+                channel.force( true );
+            }
+        }
+
+        return lSequence;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Writer
+
+    /**
+     * The loop of the writer thread : the appends waiting are written and flushed together
+     */
+    private void runWriter( )
+    {
+        try
+        {
+            while ( !Thread.currentThread( ).isInterrupted( ) )
+            {
+                try
+                {
+                    List<PendingAppend> listGroup = collectGroup( );
+                    if ( !listGroup.isEmpty( ) )
+                    {
+                        write( listGroup );
+                    }
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+                catch( RuntimeException e )
+                {
+                    AppLogService.error( "Error in the notification journal writer", e );
+                }
+            }
+        }
+        finally
+        {
+            stop( THREAD_NAME_WRITER );
+        }
+    }
+
+    /**
+     * Collect the next group flush : the first append waiting, and the ones arriving within the window, up to the maximum number of items
+     * 
+     * @return the group, empty if no append is waiting
+     * @throws InterruptedException
+     *             if the thread is interrupted
+     */
+    private List<PendingAppend> collectGroup( ) throws InterruptedException
+    {
+        List<PendingAppend> listGroup = new ArrayList<>( );
+
+        PendingAppend pending = _queue.poll( POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS );
+        long lDeadline = System.nanoTime( ) + _lFlushWindowNanos;
+        while ( pending != null )
+        {
+            // the callers whose timeout has expired are skipped
+            if ( pending._claimed.compareAndSet( false, true ) )
+            {
+                listGroup.add( pending );
+            }
+            if ( listGroup.size( ) >= _nFlushMaxItems )
+            {
+                break;
+            }
+
+            pending = _queue.poll( );
+            if ( pending == null )
+            {
+                long lRemaining = lDeadline - System.nanoTime( );
+                if ( lRemaining > 0 )
+                {
+                    pending = _queue.poll( lRemaining, TimeUnit.NANOSECONDS );
+                }
+            }
+        }
+
+        return listGroup;
+    }
+
+    /**
+     * Write a group of records, flush them to the disk, then release their callers
+     * 
+     * @param listGroup
+     *            the group
+     */
+    private void write( List<PendingAppend> listGroup )
+    {
+        long lStart = -1;
+        try
+        {
+            if ( _channel.size( ) >= _lSegmentBytes )
+            {
+                rollSegment( );
+            }
+
+            lStart = _channel.size( );
+            long lNow = System.currentTimeMillis( );
+            long lSequence = _lNextSequence;
+            for ( PendingAppend pending : listGroup )
+            {
+                ByteBuffer buffer = toRecord( lSequence++, lNow, pending._payload );
+                while ( buffer.hasRemaining( ) )
+                {
+                    _channel.write( buffer );
+                }
+            }
+            _channel.force( false );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to write " + listGroup.size( ) + " notifications in the journal", e );
+            truncateQuietly( lStart );
+            listGroup.forEach( pending -> pending._future.completeExceptionally( e ) );
+            return;
+        }
+
+        for ( PendingAppend pending : listGroup )
+        {
+            pending._future.complete( _lNextSequence++ );
+        }
+        _lDurableSequence = _lNextSequence - 1;
+
+        synchronized( _flushMonitor )
+        {
+            _flushMonitor.notifyAll( );
+        }
+    }
+
+    /**
+     * Close the current segment and start a new one, named after its first sequence
+     * 
+     * @throws IOException
+     *             if the new segment can not be created
+     */
+    private void rollSegment( ) throws IOException
+    {
+        _channel.force( true );
+        _channel.close( );
+        _channel = FileChannel.open( getSegmentFile( _lNextSequence ).toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+        _channel.position( _channel.size( ) );
+    }
+
+    /**
+     * Remove the partial records of a group that failed
+     * 
+     * @param lPosition
+     *            the end of the last complete record, -1 if unknown
+     */
+    private void truncateQuietly( long lPosition )
+    {
+        if ( lPosition < 0 )
+        {
+            return;
+        }
+
+        try
+        {
+            _channel.truncate( lPosition );
+            _channel.position( lPosition );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to truncate the notification journal, the partial records are removed at the next startup", e );
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Applier
+
+    /**
+     * The loop of the applier thread : the entries are applied to the database in their order. An error on a segment is retried after a backoff,
+     * from the first segment not removed yet : the applied entries are skipped.
+     */
+    private void runApplier( )
+    {
+        File segment = null;
+        FileChannel channel = null;
+        try
+        {
+            _lAppliedSequence = loadCheckpoint( );
+
+            long lPosition = 0;
+            long lLastStatsLog = System.currentTimeMillis( );
+
+            while ( !Thread.currentThread( ).isInterrupted( ) )
+            {
+                if ( System.currentTimeMillis( ) - lLastStatsLog >= _lStatsLogIntervalMs )
+                {
+                    AppLogService.info( getStatistics( ) );
+                    lLastStatsLog = System.currentTimeMillis( );
+                }
+
+                if ( _lAppliedSequence >= _lDurableSequence )
+                {
+                    _lOldestPendingDate = 0;
+                    synchronized( _flushMonitor )
+                    {
+                        if ( _lAppliedSequence >= _lDurableSequence )
+                        {
+                            _flushMonitor.wait( POLL_TIMEOUT_MS );
+                        }
+                    }
+                    continue;
+                }
+
+                try
+                {
+                    JournalRecord record = channel != null ? readRecord( channel, lPosition ) : null;
+                    if ( record == null )
+                    {
+                        // end of the segment : next one, the segment read is applied and removed
+                        File next = getNextSegment( segment );
+                        if ( next == null )
+                        {
+                            AppLogService.error( "Notification journal : entry " + ( _lAppliedSequence + 1 ) + " not found" );
+                            Thread.sleep( _lBackoffMs );
+                            continue;
+                        }
+                        closeQuietly( channel );
+                        channel = null;
+                        if ( segment != null )
+                        {
+                            Files.deleteIfExists( segment.toPath( ) );
+                        }
+                        segment = next;
+                        channel = FileChannel.open( segment.toPath( ), StandardOpenOption.READ );
+                        lPosition = 0;
+                        continue;
+                    }
+
+                    if ( record._lSequence > _lAppliedSequence )
+                    {
+                        apply( record );
+                        _lAppliedSequence = record._lSequence;
+                    }
+                    lPosition = record._lEnd;
+                }
+                catch( IOException | RuntimeException e )
+                {
+                    AppLogService.error( "Notification journal applier : error on segment " + ( segment != null ? segment.getName( ) : null ) + ", retrying in "
+                            + _lBackoffMs + " ms", e );
+                    closeQuietly( channel );
+                    channel = null;
+                    segment = null;
+                    Thread.sleep( _lBackoffMs );
+                }
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        finally
+        {
+            closeQuietly( channel );
+            stop( THREAD_NAME_APPLIER );
+        }
+    }
+
+    /**
+     * Refuse the appends once a thread of the journal has stopped : the notifications would not be applied until the next startup
+     * 
+     * @param strThreadName
+     *            the stopped thread
+     */
+    private void stop( String strThreadName )
+    {
+        _bRunning = false;
+        AppLogService.error( "Notification journal : thread " + strThreadName + " stopped, the notifications are refused until the next startup" );
+    }
+
+    /**
+     * Load the checkpoint of the journal, waiting for the database if it is unavailable
+     * 
+     * @return the sequence of the last applied entry
+     * @throws InterruptedException
+     *             if the thread is interrupted
+     */
+    private long loadCheckpoint( ) throws InterruptedException
+    {
+        while ( true )
+        {
+            try
+            {
+                return JournalCheckpointHome.getOrCreate( _strJournalId );
+            }
+            catch( AppException e )
+            {
+                AppLogService.error( "Notification journal : checkpoint unavailable, retrying in " + _lBackoffMs + " ms", e );
+                Thread.sleep( _lBackoffMs );
+            }
+        }
+    }
+
+    /**
+     * Apply an entry to the database. The failures due to the database are retried until it is available again, the other ones up to a maximum
+     * number of attempts.
+     * 
+     * @param record
+     *            the entry
+     * @throws InterruptedException
+     *             if the thread is interrupted
+     */
+    private void apply( JournalRecord record ) throws InterruptedException
+    {
+        long lSequence = record._lSequence;
+        _lOldestPendingDate = record._lDate;
+
+        int nAttempts = 0;
+        while ( true )
+        {
+            Notification notification;
+            try
+            {
+                // parsed at each attempt : the processing alters the notification
+                notification = NotificationJsonCodec.instance( ).readNotification( new String( record._payload, StandardCharsets.UTF_8 ) );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Notification journal : entry " + lSequence + " unreadable, skipped", e );
+                advanceQuietly( lSequence );
+                return;
+            }
+
+            Response response = NotificationService.instance( ).processSingleNotification( notification, ( ) -> {
+                if ( !JournalCheckpointHome.advance( _strJournalId, lSequence ) )
+                {
+                    throw new AppException( "Notification journal : entry " + lSequence + " already applied" );
+                }
+            } );
+
+            int nStatus = response.getStatus( );
+            if ( nStatus < 500 )
+            {
+                if ( nStatus >= 400 )
+                {
+                    // rejected : it would be rejected again
+                    AppLogService.error( "Notification journal : entry " + lSequence + " rejected with status " + nStatus + " : " + response.getEntity( ) );
+                    advanceQuietly( lSequence );
+                }
+                return;
+            }
+
+            try
+            {
+                if ( JournalCheckpointHome.getSequence( _strJournalId ) >= lSequence )
+                {
+                    // committed, the failure occurred after the commit
+                    return;
+                }
+                nAttempts++;
+            }
+            catch( AppException e )
+            {
+                // database unavailable : the attempt is not counted
+                AppLogService.debug( "Notification journal : database unavailable", e );
+            }
+
+            if ( _nMaxAttempts > 0 && nAttempts >= _nMaxAttempts )
+            {
+                AppLogService.error( "Notification journal : entry " + lSequence + " abandoned after " + nAttempts + " attempts : " + response.getEntity( ) );
+                advanceQuietly( lSequence );
+                return;
+            }
+
+            Thread.sleep( _lBackoffMs );
+        }
+    }
+
+    /**
+     * Move the checkpoint after an entry which is not applied
+     * 
+     * @param lSequence
+     *            the sequence of the entry
+     */
+    private void advanceQuietly( long lSequence )
+    {
+        try
+        {
+            JournalCheckpointHome.advance( _strJournalId, lSequence );
+        }
+        catch( AppException e )
+        {
+            // the entry is read again after a restart, and skipped again
+            AppLogService.error( "Notification journal : unable to skip entry " + lSequence, e );
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Segments and records
+
+    /**
+     * List the segments, in their order
+     * 
+     * @return the segments
+     */
+    private File [ ] listSegments( )
+    {
+        File [ ] segments = _directory.listFiles( ( dir, strName ) -> strName.endsWith( SEGMENT_EXTENSION ) );
+        if ( segments == null )
+        {
+            return new File [ 0 ];
+        }
+        Arrays.sort( segments, ( s1, s2 ) -> Long.compare( getFirstSequence( s1 ), getFirstSequence( s2 ) ) );
+
+        return segments;
+    }
+
+    /**
+     * Get the segment following a segment
+     * 
+     * @param segment
+     *            the segment, or null for the first one
+     * @return the next segment, or null if there is none
+     */
+    private File getNextSegment( File segment )
+    {
+        long lFirstSequence = segment != null ? getFirstSequence( segment ) : -1;
+
+        return Arrays.stream( listSegments( ) ).filter( s -> getFirstSequence( s ) > lFirstSequence ).findFirst( ).orElse( null );
+    }
+
+    private File getSegmentFile( long lFirstSequence )
+    {
+        return new File( _directory, String.format( "%020d", lFirstSequence ) + SEGMENT_EXTENSION );
+    }
+
+    private static long getFirstSequence( File segment )
+    {
+        return Long.parseLong( StringUtils.removeEnd( segment.getName( ), SEGMENT_EXTENSION ) );
+    }
+
+    /**
+     * Build a record
+     * 
+     * @param lSequence
+     *            the sequence
+     * @param lDate
+     *            the reception date
+     * @param payload
+     *            the payload
+     * @return the record, ready to be written
+     */
+    static ByteBuffer toRecord( long lSequence, long lDate, byte [ ] payload )
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( HEADER_BYTES + payload.length );
+        buffer.putInt( payload.length );
+        buffer.putLong( lSequence );
+        buffer.putLong( lDate );
+        buffer.putInt( checksum( lSequence, lDate, payload ) );
+        buffer.put( payload );
+        buffer.flip( );
+
+        return buffer;
+    }
+
+    /**
+     * Read a record
+     * 
+     * @param channel
+     *            the segment
+     * @param lPosition
+     *            the position of the record
+     * @return the record, or null if there is no complete and valid record at this position
+     * @throws IOException
+     *             if the segment can not be read
+     */
+    private static JournalRecord readRecord( FileChannel channel, long lPosition ) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+        if ( !readFully( channel, header, lPosition ) )
+        {
+            return null;
+        }
+        header.flip( );
+
+        int nLength = header.getInt( );
+        long lSequence = header.getLong( );
+        long lDate = header.getLong( );
+        int nChecksum = header.getInt( );
+        if ( nLength < 0 || nLength > MAX_RECORD_BYTES )
+        {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate( nLength );
+        if ( !readFully( channel, payload, lPosition + HEADER_BYTES ) || checksum( lSequence, lDate, payload.array( ) ) != nChecksum )
+        {
+            return null;
+        }
+
+        return new JournalRecord( lSequence, lDate, payload.array( ), lPosition + HEADER_BYTES + nLength );
+    }
+
+    private static boolean readFully( FileChannel channel, ByteBuffer buffer, long lPosition ) throws IOException
+    {
+        while ( buffer.hasRemaining( ) )
+        {
+            if ( channel.read( buffer, lPosition + buffer.position( ) ) < 0 )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int checksum( long lSequence, long lDate, byte [ ] payload )
+    {
+        CRC32 crc = new CRC32( );
+        ByteBuffer header = ByteBuffer.allocate( 16 );
+        header.putLong( lSequence );
+        header.putLong( lDate );
+        crc.update( header.array( ) );
+        crc.update( payload );
+
+        return (int) crc.getValue( );
+    }
+
+    private static void closeQuietly( FileChannel channel )
+    {
+        if ( channel == null )
+        {
+            return;
+        }
+
+        try
+        {
+            channel.close( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to close a journal segment", e );
+        }
+    }
+
+    private static void startThread( Runnable runnable, String strName )
+    {
+        Thread thread = new Thread( runnable, strName );
+        thread.setDaemon( true );
+        thread.start( );
+    }
+
+    /**
+     * A notification waiting for its group flush
+     */
+    private static final class PendingAppend
+    {
+        private final byte [ ] _payload;
+        private final CompletableFuture<Long> _future = new CompletableFuture<>( );
+        // set by the writer which takes the notification, or by the caller which withdraws it
+        private final AtomicBoolean _claimed = new AtomicBoolean( );
+
+        private PendingAppend( byte [ ] payload )
+        {
+            _payload = payload;
+        }
+    }
+
+    /**
+     * A record read from a segment
+     */
+    private static final class JournalRecord
+    {
+        private final long _lSequence;
+        private final long _lDate;
+        private final byte [ ] _payload;
+        private final long _lEnd;
+
+        private JournalRecord( long lSequence, long lDate, byte [ ] payload, long lEnd )
+        {
+            _lSequence = lSequence;
+            _lDate = lDate;
+            _payload = payload;
+            _lEnd = lEnd;
+        }
+    }
+}
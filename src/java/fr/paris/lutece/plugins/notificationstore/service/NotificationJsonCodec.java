@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.BackofficeNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.BroadcastNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.EmailNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
+import fr.paris.lutece.plugins.grubusiness.business.notification.MyDashboardNotification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.grubusiness.business.notification.SMSNotification;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Shared JSON readers and writers of the notifications. The readers and writers are immutable and thread safe : they are built once, instead of one
+ * mapper per request. The requests are parsed from their input stream, with a maximum size.
+ */
+public final class NotificationJsonCodec
+{
+    private static final String PROPERTY_MODULE = "notificationstore.json.module";
+    private static final String PROPERTY_MAX_BODY_BYTES = "notificationstore.json.maxBodyBytes";
+
+    private static final String MODULE_BLACKBIRD = "blackbird";
+    private static final String MODULE_AFTERBURNER = "afterburner";
+    private static final String CLASS_BLACKBIRD = "com.fasterxml.jackson.module.blackbird.BlackbirdModule";
+    private static final String CLASS_AFTERBURNER = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
+    private static NotificationJsonCodec _instance;
+
+    private final ObjectReader _notificationReader;
+    private final ObjectWriter _notificationWriter;
+    private final ObjectReader _notificationEventReader;
+    private final Map<EnumNotificationType, ObjectReader> _mapChannelReaders = new EnumMap<>( EnumNotificationType.class );
+    private final long _lMaxBodyBytes;
+
+    /**
+     * Exception thrown when a request body exceeds the maximum size
+     */
+    public static class BodyTooLargeException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         * 
+         * @param lMaxBodyBytes
+         *            the maximum size
+         */
+        public BodyTooLargeException( long lMaxBodyBytes )
+        {
+            super( "Request body larger than " + lMaxBodyBytes + " bytes" );
+        }
+    }
+
+    /**
+     * private constructor
+     */
+    private NotificationJsonCodec( )
+    {
+        Module module = getModule( AppPropertiesService.getProperty( PROPERTY_MODULE, "" ) );
+
+        // requests : root wrapped ( { "notification" : { ... } } )
+        ObjectMapper requestMapper = new ObjectMapper( );
+        requestMapper.configure( DeserializationFeature.UNWRAP_ROOT_VALUE, true );
+        requestMapper.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
+
+        // stored channel contents : not wrapped, control chars tolerated
+        ObjectMapper contentMapper = new ObjectMapper( );
+        contentMapper.configure( DeserializationFeature.UNWRAP_ROOT_VALUE, false );
+        contentMapper.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
+        contentMapper.configure( SerializationFeature.WRAP_ROOT_VALUE, false );
+        contentMapper.configure( JsonParser.Feature.ALLOW_UNQUOTED_CONTROL_CHARS, true );
+
+        if ( module != null )
+        {
+            requestMapper.registerModule( module );
+            contentMapper.registerModule( module );
+        }
+
+        _notificationReader = requestMapper.readerFor( Notification.class );
+        _notificationWriter = requestMapper.writerFor( Notification.class ).with( SerializationFeature.WRAP_ROOT_VALUE );
+        _notificationEventReader = requestMapper.readerFor( NotificationEvent.class );
+
+        _mapChannelReaders.put( EnumNotificationType.BACKOFFICE, contentMapper.readerFor( BackofficeNotification.class ) );
+        _mapChannelReaders.put( EnumNotificationType.BROADCAST_EMAIL, contentMapper.readerFor( new TypeReference<List<BroadcastNotification>>( )
+        {
+        } ) );
+        _mapChannelReaders.put( EnumNotificationType.CUSTOMER_EMAIL, contentMapper.readerFor( EmailNotification.class ) );
+        _mapChannelReaders.put( EnumNotificationType.MYDASHBOARD, contentMapper.readerFor( MyDashboardNotification.class ) );
+        _mapChannelReaders.put( EnumNotificationType.SMS, contentMapper.readerFor( SMSNotification.class ) );
+
+        _lMaxBodyBytes = AppPropertiesService.getPropertyLong( PROPERTY_MAX_BODY_BYTES, 1024L * 1024 );
+    }
+
+    /**
+     * get unique instance of the codec
+     * 
+     * @return the codec
+     */
+    public static synchronized NotificationJsonCodec instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationJsonCodec( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Parse a notification request
+     * 
+     * @param strJson
+     *            the JSON, root wrapped
+     * @return the notification
+     * @throws IOException
+     */
+    public Notification readNotification( String strJson ) throws IOException
+    {
+        return _notificationReader.readValue( strJson );
+    }
+
+    /**
+     * Parse a notification request from its body
+     * 
+     * @param inputStream
+     *            the body
+     * @return the notification
+     * @throws IOException
+     *             if the body is not a notification, or is larger than the maximum size ( {@link BodyTooLargeException} )
+     */
+    public Notification readNotification( InputStream inputStream ) throws IOException
+    {
+        return _notificationReader.readValue( bounded( inputStream ) );
+    }
+
+    /**
+     * Parse a notification event request from its body
+     * 
+     * @param inputStream
+     *            the body
+     * @return the notification event
+     * @throws IOException
+     *             if the body is not a notification event, or is larger than the maximum size ( {@link BodyTooLargeException} )
+     */
+    public NotificationEvent readNotificationEvent( InputStream inputStream ) throws IOException
+    {
+        return _notificationEventReader.readValue( bounded( inputStream ) );
+    }
+
+    /**
+     * Get the reader of the notification requests
+     * 
+     * @return the reader
+     */
+    public ObjectReader getNotificationReader( )
+    {
+        return _notificationReader;
+    }
+
+    /**
+     * Serialize a notification in the request format
+     * 
+     * @param notification
+     *            the notification
+     * @return the JSON, root wrapped
+     * @throws IOException
+     */
+    public String writeNotification( Notification notification ) throws IOException
+    {
+        return _notificationWriter.writeValueAsString( notification );
+    }
+
+    /**
+     * Get the reader of the stored contents of a channel
+     * 
+     * @param notificationType
+     *            the channel
+     * @return the reader
+     */
+    public ObjectReader getChannelReader( EnumNotificationType notificationType )
+    {
+        return _mapChannelReaders.get( notificationType );
+    }
+
+    /**
+     * Limit the size of a body
+     * 
+     * @param inputStream
+     *            the body
+     * @return the bounded stream
+     */
+    private InputStream bounded( InputStream inputStream )
+    {
+        return _lMaxBodyBytes > 0 ? new BoundedInputStream( inputStream, _lMaxBodyBytes ) : inputStream;
+    }
+
+    /**
+     * Instantiate the optional Jackson module, if it is in the classpath
+     * 
+     * @param strModule
+     *            the module name ( blackbird or afterburner )
+     * @return the module, or null
+     */
+    private static Module getModule( String strModule )
+    {
+        String strClassName;
+        if ( MODULE_BLACKBIRD.equalsIgnoreCase( strModule ) )
+        {
+            strClassName = CLASS_BLACKBIRD;
+        }
+        else
+            if ( MODULE_AFTERBURNER.equalsIgnoreCase( strModule ) )
+            {
+                strClassName = CLASS_AFTERBURNER;
+            }
+            else
+            {
+                return null;
+            }
+
+        try
+        {
+            return (Module) Class.forName( strClassName ).getDeclaredConstructor( ).newInstance( );
+        }
+        catch( ReflectiveOperationException | LinkageError e )
+        {
+            AppLogService.error( "Jackson module " + strModule + " not available, the notifications are parsed without it", e );
+            return null;
+        }
+    }
+
+    /**
+     * Input stream failing when more than a maximum number of bytes are read
+     */
+    private static final class BoundedInputStream extends FilterInputStream
+    {
+        private final long _lMaxBytes;
+        private long _lCount;
+
+        /**
+         * Constructor
+         * 
+         * @param in
+         *            the stream
+         * @param lMaxBytes
+         *            the maximum number of bytes
+         */
+        private BoundedInputStream( InputStream in, long lMaxBytes )
+        {
+            super( in );
+            _lMaxBytes = lMaxBytes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( ) throws IOException
+        {
+            int nByte = super.read( );
+            if ( nByte != -1 )
+            {
+                count( 1 );
+            }
+
+            return nByte;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( byte [ ] b, int off, int len ) throws IOException
+        {
+            int nRead = super.read( b, off, len );
+            if ( nRead > 0 )
+            {
+                count( nRead );
+            }
+
+            return nRead;
+        }
+
+        /**
+         * Count the bytes read
+         * 
+         * @param nRead
+         *            the number of bytes read
+         * @throws BodyTooLargeException
+         *             if the maximum is exceeded
+         */
+        private void count( int nRead ) throws BodyTooLargeException
+        {
+            _lCount += nRead;
+            if ( _lCount > _lMaxBytes )
+            {
+                throw new BodyTooLargeException( _lMaxBytes );
+            }
+        }
+    }
+}
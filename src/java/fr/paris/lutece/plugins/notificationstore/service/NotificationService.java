@@ -33,11 +33,20 @@
  */
 package fr.paris.lutece.plugins.notificationstore.service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -45,25 +54,30 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.paris.lutece.plugins.grubusiness.business.customer.Customer;
 import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandStatus;
-import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandServiceProvider;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Event;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
 import fr.paris.lutece.plugins.grubusiness.business.notification.StatusMessage;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
-import fr.paris.lutece.plugins.grubusiness.service.notification.INotifyerServiceProvider;
 import fr.paris.lutece.plugins.grubusiness.service.notification.NotificationException;
-import fr.paris.lutece.plugins.identitystore.web.exception.IdentityNotFoundException;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.notificationstore.business.CustomerReconciliationHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.business.VersionedDemand;
+import fr.paris.lutece.plugins.notificationstore.service.NotificationJsonCodec.BodyTooLargeException;
+import fr.paris.lutece.plugins.notificationstore.service.notifyer.NotificationOutboxService;
+import fr.paris.lutece.plugins.notificationstore.service.notifyer.NotifyerDispatcher;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.util.sql.TransactionManager;
 
 public class NotificationService 
 {
@@ -90,11 +104,14 @@ public class NotificationService
     private static final String MESSAGE_MISSING_DEMAND_ID = "Demand Id and Demand type Id are mandatory";
     private static final String MESSAGE_MISSING_USER_ID = "User connection id is mandatory";
     private static final String MESSAGE_INCORRECT_DEMAND_ID = "Demand Type Id not found";
+    private static final String MESSAGE_QUEUE_FULL = "Notification ingestion queue is full, retry later";
+    private static final String MESSAGE_FORWARD_FAILED = "Notification stored, but not forwarded to the notifyers";
 
 	// instance variables
-	private static IDemandServiceProvider _demandService;
+	private static DemandService _demandService;
 	private static NotificationService _instance;
-	private static List<INotifyerServiceProvider> _notifyers ;
+	// customers left unresolved by an unavailable identity store, weakly referenced : the marker lives as long as the parsed notification
+	private static final Set<Customer> _setUnresolvedCustomers = Collections.synchronizedSet( Collections.newSetFromMap( new WeakHashMap<>( ) ) );
 
 	/**
 	 * private constructor
@@ -113,7 +130,6 @@ public class NotificationService
 		{
 			_instance = new NotificationService( );    		
 			_demandService = SpringContextService.getBean( BEAN_STORAGE_SERVICE ); 
-			_notifyers = SpringContextService.getBeansOfType( INotifyerServiceProvider.class ) ;
 		}
 
 		return _instance;
@@ -125,62 +141,212 @@ public class NotificationService
 	/**
 	 * process Notification
 	 * 
-	 * @param notification
+	 * @param strJson
+	 *            the request body
+	 * @return the response
 	 */
-	public Response newNotification(String strJson)
+	public Response newNotification( String strJson )
 	{
-		List<StatusMessage> warnings = new ArrayList<>( );
+		return newNotification( toInputStream( strJson ) );
+	}
+
+	/**
+	 * process Notification
+	 * 
+	 * @param inputStream
+	 *            the request body
+	 * @return the response
+	 */
+	public Response newNotification( InputStream inputStream )
+	{
+		Notification notification;
 
 		try
 		{
 			// parse json
-			Notification notification = getNotificationFromJson( strJson );
-
-			// control customer
-			processCustomer( notification );
+			notification = NotificationJsonCodec.instance( ).readNotification( inputStream );
+		}
+		catch( BodyTooLargeException ex )
+		{
+			return fail( ex, Response.Status.REQUEST_ENTITY_TOO_LARGE );
+		}
+		catch( JsonParseException ex )
+		{
+			return fail( ex, Response.Status.BAD_REQUEST );
+		}
+		catch( JsonMappingException | NullPointerException ex )
+		{
+			return fail( ex, Response.Status.BAD_REQUEST  );
+		}
+		catch( IOException ex )
+		{
+			return fail( ex, Response.Status.INTERNAL_SERVER_ERROR  );
+		}
 
-			// store any notification whatever its content
-			store( notification );
+		NotificationJournal journal = NotificationJournal.instance( );
+		if ( journal.isEnabled( ) )
+		{
+			// journaled mode : acknowledged once durably journaled, applied to the database by the journal
+			try
+			{
+				return accepted( String.valueOf( journal.append( notification ) ) );
+			}
+			catch( IOException ex )
+			{
+				// not journaled (journal stopped, or flush too slow) : to retry
+				AppLogService.error( ex.getMessage( ), ex );
+				return unavailable( NotificationIngestionExecutor.instance( ).getRetryAfter( ) );
+			}
+		}
 
-			// check Notification
-			checkNotification( notification, warnings );
-			
-			// create Event if a MyDashboard type of notification exists 
-			if ( notification.getMyDashboardNotification( ) != null ) 
+		NotificationIngestionExecutor executor = NotificationIngestionExecutor.instance( );
+		if ( executor.isEnabled( ) )
+		{
+			// asynchronous mode : the notification is processed by its lane
+			String strReceipt = UUID.randomUUID( ).toString( );
+			if ( executor.submit( strReceipt, notification ) )
 			{
-				addMydashboardNotificationEvent( notification );
+				return accepted( strReceipt );
 			}
 
-			// forward notification to registred notifyers (if exists)
-			forward( notification );
+			return unavailable( executor.getRetryAfter( ) );
+		}
 
+		return processNotification( notification );
+	}
+
+	/**
+	 * process a parsed Notification
+	 * 
+	 * @param notification
+	 * @return the response
+	 */
+	public Response processNotification( Notification notification )
+	{
+		NotificationGroupCommitter committer = NotificationGroupCommitter.instance( );
+		if ( !committer.isEnabled( ) )
+		{
+			return processSingleNotification( notification );
 		}
-		catch( JsonParseException ex )
+
+		// group commit : persisted with the notifications received concurrently
+		try
 		{
-			return fail( ex, Response.Status.BAD_REQUEST );
+			Response response = committer.submit( notification );
+			if ( response != null )
+			{
+				return response;
+			}
+
+			return unavailable( NotificationIngestionExecutor.instance( ).getRetryAfter( ) );
 		}
-		catch( JsonMappingException | NullPointerException | NotificationException ex )
+		catch( IOException | RuntimeException ex )
 		{
-			return fail( ex, Response.Status.BAD_REQUEST  );
+			return fail( ex, Response.Status.INTERNAL_SERVER_ERROR );
 		}
-		catch( IOException ex )
+	}
+
+	/**
+	 * process a parsed Notification alone, in its own transaction
+	 * 
+	 * @param notification
+	 * @return the response
+	 */
+	Response processSingleNotification( Notification notification )
+	{
+		return processSingleNotification( notification, null );
+	}
+
+	/**
+	 * process a parsed Notification alone, in its own transaction
+	 * 
+	 * @param notification
+	 * @param inTransaction
+	 *            an action run in the transaction of the notification, before its commit (may be null)
+	 * @return the response
+	 */
+	Response processSingleNotification( Notification notification, Runnable inTransaction )
+	{
+		List<StatusMessage> warnings = new ArrayList<>( );
+
+		return buildResponse( storeAndForward( notification, inTransaction, warnings ), warnings );
+	}
+
+	/**
+	 * process a parsed Notification alone, in its own transaction, and collect its outcome
+	 * 
+	 * @param notification
+	 * @param inTransaction
+	 *            an action run in the transaction of the notification, before its commit (may be null)
+	 * @param warnings
+	 *            the warnings (filled)
+	 * @return the exception which failed the notification, null if it has been processed
+	 */
+	Exception storeAndForward( Notification notification, Runnable inTransaction, List<StatusMessage> warnings )
+	{
+		Exception exception = storeNotification( notification, inTransaction, warnings );
+		if ( exception != null )
 		{
-			return fail( ex, Response.Status.INTERNAL_SERVER_ERROR  );
+			return exception;
+		}
+
+		// forward notification to registred notifyers (if exists)
+		forward( notification, warnings );
+
+		return null;
+	}
+
+	/**
+	 * forward a stored notification to the notifyers. A failure does not fail the notification, which is committed (a retry of the client would
+	 * store it twice) : it is logged and reported as a warning
+	 * 
+	 * @param notification
+	 *            the stored notification
+	 * @param warnings
+	 *            the warnings (filled)
+	 */
+	void forward( Notification notification, List<StatusMessage> warnings )
+	{
+		try
+		{
+			forward( notification );
 		}
 		catch( Exception ex )
 		{
-			return fail( ex, Response.Status.INTERNAL_SERVER_ERROR  );
+			AppLogService.error( "Unable to forward notification " + notification.getId( ), ex );
+			warnings.add( new StatusMessage( TYPE_NOTIFICATION, STATUS_WARNING, MESSAGE_FORWARD_FAILED, ex.getMessage( ) ) );
 		}
+	}
 
-		// success
-		if ( warnings.isEmpty( ) )
+	/**
+	 * store a parsed Notification alone, in its own transaction, without forwarding it
+	 * 
+	 * @param notification
+	 * @param inTransaction
+	 *            an action run in the transaction of the notification, before its commit (may be null)
+	 * @param warnings
+	 *            the warnings (filled)
+	 * @return the exception which failed the notification, null if it has been stored
+	 */
+	Exception storeNotification( Notification notification, Runnable inTransaction, List<StatusMessage> warnings )
+	{
+		try
 		{
-			return success( );
+			// control customer
+			processCustomer( notification );
+
+			// store any notification whatever its content
+			store( notification, inTransaction );
+
+			// check Notification
+			checkNotification( notification, warnings );
 		}
-		else
+		catch( Exception ex )
 		{
-			return successWithWarnings( warnings );
+			return ex;
 		}
+
+		return null;
 	}
 
 	/**
@@ -189,7 +355,7 @@ public class NotificationService
 	 * @param notification
 	 * @param warnings
 	 */
-	private void checkNotification(Notification notification, List<StatusMessage> warnings) {
+	void checkNotification(Notification notification, List<StatusMessage> warnings) {
 		// notification should be associated to a demand id
 		if ( StringUtils.isBlank( notification.getDemand( ).getId( ) ) )
 		{
@@ -219,7 +385,7 @@ public class NotificationService
 	 * @param notification
 	 * @throws IdentityStoreException
 	 */
-	private void processCustomer(Notification notification) throws IdentityStoreException {
+	void processCustomer(Notification notification) throws IdentityStoreException {
 		Customer customerEncrypted = notification.getDemand( ).getCustomer( );
 
 		if ( CustomerProvider.instance( ).hasIdentityService( ) )
@@ -229,16 +395,29 @@ public class NotificationService
 			if ( customerDecrypted != null && StringUtils.isNotEmpty( customerDecrypted.getConnectionId( ) )
 					&& StringUtils.isEmpty( customerDecrypted.getId( ) ) )
 			{
-				try 
+				try
 				{
-					Customer customerTmp = CustomerProvider.instance( ).get( customerDecrypted.getConnectionId( ), StringUtils.EMPTY );
-					customerDecrypted.setId( customerTmp.getId( ) );
+					String strCustomerId = CustomerProvider.instance( ).getCustomerIdByConnectionId( customerDecrypted.getConnectionId( ) );
+					if ( strCustomerId != null )
+					{
+						customerDecrypted.setId( strCustomerId );
+					}
+					else
+					{
+						// customer not found in IDS
+						AppLogService.debug( "Customer not found with connection_id : " + customerDecrypted.getConnectionId( ) );
+						customerDecrypted = null;
+					}
 				}
-				catch ( IdentityNotFoundException e )
+				catch ( IdentityUnavailableException e )
 				{
-					// customer not found in IDS
-					AppLogService.debug( "Customer not found with connection_id : " + customerDecrypted.getConnectionId( ) );
-					customerDecrypted = null;
+					// customer unresolved : attached to the stored demand with its customer id, or stored with the connection id only and
+					// re-keyed later by the reconciliation daemon
+					AppLogService.info( "Customer unresolved for demand " + notification.getDemand( ).getId( ) + " : " + e.getMessage( ) );
+					customerDecrypted.setId( StringUtils.EMPTY );
+					_setUnresolvedCustomers.add( customerDecrypted );
+					CustomerReconciliationHome.create( customerDecrypted.getConnectionId( ), notification.getDemand( ).getId( ),
+							notification.getDemand( ).getTypeId( ) );
 				}
 			}
 
@@ -263,23 +442,46 @@ public class NotificationService
 	 * store a notification event
 	 * 
 	 * @param strJson
+	 *            the request body
 	 * @return the response
 	 */
-	public Response newNotificationEvent(String strJson) 
+	public Response newNotificationEvent( String strJson )
+	{
+		return newNotificationEvent( toInputStream( strJson ) );
+	}
+
+	/**
+	 * Get a request body given as a string as a stream, for the callers of the string versions
+	 * 
+	 * @param strJson
+	 *            the request body
+	 * @return the stream of its UTF-8 bytes
+	 */
+	private static InputStream toInputStream( String strJson )
+	{
+		return new ByteArrayInputStream( StringUtils.defaultString( strJson ).getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	/**
+	 * store a notification event
+	 * 
+	 * @param inputStream
+	 *            the request body
+	 * @return the response
+	 */
+	public Response newNotificationEvent( InputStream inputStream ) 
 	{
 		try
 		{
-			// Format from JSON
-			ObjectMapper mapper = new ObjectMapper( );
-			mapper.configure( DeserializationFeature.UNWRAP_ROOT_VALUE, true );
-			mapper.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
-
-			NotificationEvent notificationEvent = mapper.readValue( strJson, NotificationEvent.class );
-			AppLogService.debug( "notificationstore / notificationEvent - Received strJson : " + strJson );
+			NotificationEvent notificationEvent = NotificationJsonCodec.instance( ).readNotificationEvent( inputStream );
 
 			store( notificationEvent );
 
 		}
+		catch( BodyTooLargeException ex )
+		{
+			return fail( ex, Response.Status.REQUEST_ENTITY_TOO_LARGE );
+		}
 		catch( JsonParseException ex )
 		{
 			return fail( ex, Response.Status.BAD_REQUEST );
@@ -312,19 +514,171 @@ public class NotificationService
 		_demandService.create( notificationEvent );
 	}
 
-	   /**
-     * Stores a notification and the associated demand
+    /**
+     * Stores a notification and the associated demand, as one unit of work : the demand, the notification, its contents, the state of the demand,
+     * the mydashboard event and the forwards recorded in the outbox are written in one transaction, on its connection, and the demand row is
+     * written once.
      * 
      * @param notification
      *            the notification to store
+     * @param inTransaction
+     *            an action run in the transaction, before its commit (may be null)
      */
-    private void store( Notification notification )
+    private void store( Notification notification, Runnable inTransaction ) throws IOException
     {
-        Demand demand = _demandService.findByPrimaryKey( notification.getDemand( ).getId( ), notification.getDemand( ).getTypeId( ) );
-                
-        if ( demand == null || 
-        		( demand.getCustomer( ) != null && demand.getCustomer( ).getId( ) != null 
-        		  && !demand.getCustomer( ).getId( ).equals( notification.getDemand( ).getCustomer( ).getId( ) ) ) )
+        // outside of the transaction : a reserved block of ids and the file store are not rolled back
+        NotificationHome.allocateId( notification );
+        List<NotificationContent> listNotificationContent = NotificationContentHome.buildNotificationContents( notification );
+
+        NotificationOutboxService outboxService = NotificationOutboxService.instance( );
+        VersionedDemand saved;
+        TransactionManager.beginTransaction( NotificationStorePlugin.getPlugin( ) );
+        try
+        {
+            saved = saveDemand( notification );
+            notification.setDemand( saved.getDemand( ) );
+            _demandService.create( notification, listNotificationContent );
+
+            // create Event if a MyDashboard type of notification exists
+            if ( notification.getMyDashboardNotification( ) != null )
+            {
+                NotificationEventHome.create( buildMydashboardNotificationEvent( notification ) );
+            }
+
+            if ( outboxService.isEnabled( ) )
+            {
+                // the forwards to the notifyers are recorded in the transaction of the notification
+                outboxService.enqueue( Collections.singletonList( notification ) );
+            }
+
+            if ( inTransaction != null )
+            {
+                inTransaction.run( );
+            }
+
+            TransactionManager.commitTransaction( NotificationStorePlugin.getPlugin( ) );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            TransactionManager.rollBack( NotificationStorePlugin.getPlugin( ) );
+            NotificationContentHome.deleteContentFiles( listNotificationContent );
+            throw e;
+        }
+
+        // the listeners are only told about committed writes
+        _demandService.fireStoreNotification( notification, saved.getVersion( ) == 0 );
+    }
+
+    /**
+     * Creates or updates the demand of a notification, safe with concurrent notifications of the same demand
+     * 
+     * @param notification
+     *            the notification
+     * @return the saved demand, with its version
+     */
+    private VersionedDemand saveDemand( Notification notification )
+    {
+        // only the demand row is needed here, the notification history is not loaded
+        return _demandService.upsertDemandHeader( notification.getDemand( ).getId( ), notification.getDemand( ).getTypeId( ), notification.getDate( ),
+                current -> current != null ? buildDemand( notification, current.getDemand( ), current.getLastNotificationDate( ) )
+                        : buildDemand( notification, null ) );
+    }
+
+    /**
+     * Computes the new state of the demand of a notification, which may be older than the last notification applied to the demand (parallel or
+     * retried ingestion). A late notification does not change the status, the current step and the closure date of the demand.
+     * 
+     * @param notification
+     *            the notification
+     * @param demand
+     *            the current demand row, or null if the demand does not exist yet
+     * @param lLastNotificationDate
+     *            the date of the last notification applied to the demand, 0 if none
+     * @return the demand to save (a new demand if it does not exist yet or if the customer has changed)
+     */
+    Demand buildDemand( Notification notification, Demand demand, long lLastNotificationDate )
+    {
+        if ( demand == null || notification.getDate( ) >= lLastNotificationDate )
+        {
+            return buildDemand( notification, demand );
+        }
+
+        int nStatusId = demand.getStatusId( );
+        int nCurrentStep = demand.getCurrentStep( );
+        long lClosureDate = demand.getClosureDate( );
+
+        Demand demandBuilt = buildDemand( notification, demand );
+        if ( demandBuilt == demand )
+        {
+            // the state of the demand belongs to the more recent notification
+            AppLogService.debug( "Late notification of demand " + demand.getId( ) + " (" + demand.getTypeId( ) + "), the state of the demand is kept" );
+            demand.setStatusId( nStatusId );
+            demand.setCurrentStep( nCurrentStep );
+            demand.setClosureDate( lClosureDate );
+        }
+
+        return demandBuilt;
+    }
+
+    /**
+     * Check if a notification belongs to another customer than the stored demand. A customer left unresolved by an unavailable identity store is
+     * not another customer : the notification is attached to the stored demand instead of creating a second one. An unknown customer (empty id
+     * after an identity not found) is another customer.
+     * 
+     * @param notification
+     *            the notification
+     * @param demand
+     *            the current demand row
+     * @return true if the stored customer id is known and different
+     */
+    private static boolean isOtherCustomer( Notification notification, Demand demand )
+    {
+        String strStoredCustomerId = demand.getCustomer( ) != null ? demand.getCustomer( ).getId( ) : null;
+        Customer customer = notification.getDemand( ).getCustomer( );
+
+        if ( StringUtils.isEmpty( strStoredCustomerId ) || _setUnresolvedCustomers.contains( customer ) )
+        {
+            return false;
+        }
+
+        return !strStoredCustomerId.equals( customer.getId( ) );
+    }
+
+    /**
+     * Keep the customer id of the stored demand. The customer id is part of the key referenced by the notifications : a demand stored while the
+     * customer was unresolved keeps its empty customer id, and is re-keyed by the reconciliation daemon.
+     * 
+     * @param notification
+     *            the notification
+     * @param demand
+     *            the current demand row
+     */
+    private static void keepCustomerId( Notification notification, Demand demand )
+    {
+        Customer customer = notification.getDemand( ).getCustomer( );
+        if ( demand.getCustomer( ).getId( ) == null )
+        {
+            demand.getCustomer( ).setId( customer.getId( ) );
+        }
+        else
+            if ( demand.getCustomer( ).getId( ).isEmpty( ) && StringUtils.isNotEmpty( customer.getId( ) ) && StringUtils.isNotEmpty( customer.getConnectionId( ) ) )
+            {
+                CustomerReconciliationHome.create( customer.getConnectionId( ), demand.getId( ), demand.getTypeId( ) );
+            }
+    }
+
+    /**
+     * Computes the new state of the demand of a notification
+     * 
+     * @param notification
+     *            the notification
+     * @param demand
+     *            the current demand row, or null if the demand does not exist yet
+     * @return the demand to save (a new demand if it does not exist yet or if the customer has changed)
+     */
+    Demand buildDemand( Notification notification, Demand demand )
+    {
+        if ( demand == null || isOtherCustomer( notification, demand ) )
         {
             demand = new Demand( );
 
@@ -341,13 +695,10 @@ public class NotificationService
             customerDemand.setId( notification.getDemand( ).getCustomer( ).getId( ) );
             customerDemand.setConnectionId( notification.getDemand( ).getCustomer( ).getConnectionId( ) );
             demand.setCustomer( customerDemand );
-            
-            // create demand
-            _demandService.create( demand );
         }
         else
         {
-            demand.getCustomer( ).setId( notification.getDemand( ).getCustomer( ).getId( ) );
+            keepCustomerId( notification, demand );
             if( StringUtils.isEmpty( demand.getCustomer( ).getConnectionId( ) ) )
             {
                 demand.getCustomer( ).setConnectionId( notification.getDemand( ).getCustomer( ).getConnectionId( ) );
@@ -372,13 +723,17 @@ public class NotificationService
             {                
                 demand.setClosureDate( 0 );
             }
-            
-            _demandService.update( demand );
         }
-        notification.setDemand( demand );
-        
-        // create notification
-        _demandService.create( notification );
+
+        // the status of the mydashboard notification and the modification date : the demand row is written once per notification
+        Integer nGenericStatusId = NotificationContentHome.getGenericStatusId( notification );
+        if ( nGenericStatusId != null )
+        {
+            demand.setStatusId( nGenericStatusId );
+        }
+        demand.setModifyDate( new Date( ).getTime( ) );
+
+        return demand;
     }
 
     
@@ -417,38 +772,35 @@ public class NotificationService
 	}
 
 	/**
-	 * Values and store the NotificationEvent object if failure
+	 * Values the NotificationEvent object of a MyDashboard notification
 	 * @param notification
-	 * @param strMessage
+	 * @return the notification event
 	 */
-	private void addMydashboardNotificationEvent ( Notification notification  )
+	NotificationEvent buildMydashboardNotificationEvent( Notification notification )
 	{
-		if ( notification.getMyDashboardNotification( ) != null )
-		{
-			Event event = new Event( );
-			event.setType( TYPE_GUICHET );
-			event.setEventDate( notification.getDate( ) );
-			
-			String strMessage = checkNotification( notification ); 
+		Event event = new Event( );
+		event.setType( TYPE_GUICHET );
+		event.setEventDate( notification.getDate( ) );
+		
+		String strMessage = checkNotification( notification ); 
 
-			if( StringUtils.isNotEmpty( strMessage ))
-			{
-				event.setMessage( strMessage );
-				event.setStatus( STATUS_FAILED );
-			}
-			else
-			{
-				event.setStatus( STATUS_SUCCESS );
-			}
-			
-			NotificationEvent notificationEvent = new NotificationEvent( );
-			notificationEvent.setEvent( event );
-			notificationEvent.setMsgId( StringUtils.EMPTY );   
-			notificationEvent.setDemand( notification.getDemand( ) );
-			notificationEvent.setNotificationDate( notification.getDate( ) );
-			
-			store( notificationEvent );
+		if( StringUtils.isNotEmpty( strMessage ))
+		{
+			event.setMessage( strMessage );
+			event.setStatus( STATUS_FAILED );
+		}
+		else
+		{
+			event.setStatus( STATUS_SUCCESS );
 		}
+		
+		NotificationEvent notificationEvent = new NotificationEvent( );
+		notificationEvent.setEvent( event );
+		notificationEvent.setMsgId( StringUtils.EMPTY );   
+		notificationEvent.setDemand( notification.getDemand( ) );
+		notificationEvent.setNotificationDate( notification.getDate( ) );
+
+		return notificationEvent;
 	}
 
 	/**
@@ -492,6 +844,59 @@ public class NotificationService
 		return Response.status( Response.Status.CREATED ).entity( RESPONSE_OK ).build( );
 	}
 
+	/**
+	 * Build the response of a notification processed in a chunk
+	 * 
+	 * @param ex
+	 *            the failure, or null
+	 * @param warnings
+	 *            the warnings
+	 * @return the response
+	 */
+	Response buildResponse( Exception ex, List<StatusMessage> warnings )
+	{
+		if ( ex != null )
+		{
+			return fail( ex, ex instanceof NullPointerException || ex instanceof NotificationException ? Response.Status.BAD_REQUEST
+					: Response.Status.INTERNAL_SERVER_ERROR );
+		}
+
+		if ( warnings.isEmpty( ) )
+		{
+			return success( );
+		}
+
+		return successWithWarnings( warnings );
+	}
+
+	/**
+	 * accepted case (asynchronous mode)
+	 * 
+	 * @param strReceipt
+	 *            the receipt id
+	 * @return the response
+	 */
+	private Response accepted( String strReceipt )
+	{
+		String strResponse = "{ \"acknowledge\" : { \"status\": \"accepted\", \"receipt\": \"" + strReceipt + "\" } }";
+
+		return Response.status( Response.Status.ACCEPTED ).entity( strResponse ).build( );
+	}
+
+	/**
+	 * unavailable case : the ingestion queue is full
+	 * 
+	 * @param nRetryAfter
+	 *            the delay advised to the client, in seconds
+	 * @return the response
+	 */
+	private Response unavailable( int nRetryAfter )
+	{
+		String strError = "{ \"acknowledge\" : { \"status\": \"error\", \"errors\" : [" 
+				+ new StatusMessage( TYPE_NOTIFICATION, STATUS_ERROR, MESSAGE_QUEUE_FULL, MESSAGE_QUEUE_FULL ).asJson( ) + "] } }";
+
+		return Response.status( Response.Status.SERVICE_UNAVAILABLE ).header( HttpHeaders.RETRY_AFTER, nRetryAfter ).entity( strError ).build( );
+	}
 
 	/**
 	 * Build an error response
@@ -579,34 +984,28 @@ public class NotificationService
      * @throws JsonMappingException
      * @throws JsonProcessingException
      */
-    private Notification getNotificationFromJson( String strJson ) throws JsonMappingException, JsonProcessingException
+    Notification getNotificationFromJson( String strJson ) throws JsonMappingException, JsonProcessingException
     {
     	AppLogService.debug( "notificationstore / notification - Received strJson : " + strJson );
     	
-    	// Format from JSON
-		ObjectMapper mapper = new ObjectMapper( );
-		mapper.configure( DeserializationFeature.UNWRAP_ROOT_VALUE, true );
-		mapper.configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
-
-		Notification notification = mapper.readValue( strJson, Notification.class );
-		
-		return notification;    				
+		return NotificationJsonCodec.instance( ).getNotificationReader( ).readValue( strJson );
     }
     
     
     /**
-     * call the registred notifyers
+     * call the registred notifyers (see {@link NotifyerDispatcher} for the dispatch modes), unless the outbox is enabled
      * 
      * @param notification
      * @throws NotificationException 
      */
     public void forward( Notification notification ) throws NotificationException
     {
-        
-        for ( INotifyerServiceProvider notifyer : _notifyers )
+        if ( NotificationOutboxService.instance( ).isEnabled( ) )
         {
-            notifyer.process( notification );
+            // recorded in the outbox with the notification, relayed by the NotificationOutboxDaemon
+            return;
         }
-        
+
+        NotifyerDispatcher.instance( ).dispatch( notification );
     } 
 }
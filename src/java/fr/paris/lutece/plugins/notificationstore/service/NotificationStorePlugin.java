@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.notificationstore.service;
 
+import fr.paris.lutece.portal.service.init.ShutdownServiceManager;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 
@@ -52,6 +53,14 @@ public class NotificationStorePlugin extends Plugin
     @Override
     public void init( )
     {
+        StatusDictionary.instance( ).load( );
+        DemandTypeRegistry.instance( ).refresh( );
+
+        // opens the journal : recovers its tail and replays the entries not applied yet
+        NotificationJournal.instance( );
+
+        // drains or spills the asynchronous ingestion queues
+        ShutdownServiceManager.registerShutdownService( new NotificationStoreShutdownService( ) );
     }
 
     /**
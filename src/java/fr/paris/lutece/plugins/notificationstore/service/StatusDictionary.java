@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.DemandStatus;
+import fr.paris.lutece.plugins.notificationstore.business.StatusHome;
+
+/**
+ * In-memory dictionary of the demand status, indexed by label.
+ * <p>
+ * The dictionary is loaded once (at plugin init or on first use) and kept up to date by StatusHome, so that the ingestion does not query the status table
+ * for each notification.
+ * </p>
+ */
+public final class StatusDictionary
+{
+    private static StatusDictionary _instance;
+
+    private final Map<String, DemandStatus> _mapStatusByLabel = new ConcurrentHashMap<>( );
+    private final Map<Integer, DemandStatus> _mapStatusById = new ConcurrentHashMap<>( );
+    private final Map<String, Object> _mapLocks = new ConcurrentHashMap<>( );
+    private volatile boolean _bLoaded;
+
+    /**
+     * private constructor
+     */
+    private StatusDictionary( )
+    {
+    }
+
+    /**
+     * get unique instance of the dictionary
+     * 
+     * @return the dictionary
+     */
+    public static synchronized StatusDictionary instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new StatusDictionary( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * (Re)load all the status from the database
+     */
+    public synchronized void load( )
+    {
+        _mapStatusByLabel.clear( );
+        _mapStatusById.clear( );
+
+        for ( DemandStatus status : StatusHome.getStatusList( ) )
+        {
+            _mapStatusById.put( status.getId( ), status );
+
+            // keep the first status created if a label has been stored twice
+            if ( status.getStatus( ) != null )
+            {
+                _mapStatusByLabel.merge( status.getStatus( ), status, ( s1, s2 ) -> s1.getId( ) <= s2.getId( ) ? s1 : s2 );
+            }
+        }
+
+        _bLoaded = true;
+    }
+
+    /**
+     * Get the status by label
+     * 
+     * @param strLabel
+     *            the status label
+     * @return the status if it exists
+     */
+    public Optional<DemandStatus> get( String strLabel )
+    {
+        if ( strLabel == null )
+        {
+            return Optional.empty( );
+        }
+
+        ensureLoaded( );
+
+        return Optional.ofNullable( _mapStatusByLabel.get( strLabel ) );
+    }
+
+    /**
+     * Get the status by id
+     * 
+     * @param nId
+     *            the status id
+     * @return the status if it exists
+     */
+    public Optional<DemandStatus> getById( int nId )
+    {
+        ensureLoaded( );
+
+        return Optional.ofNullable( _mapStatusById.get( nId ) );
+    }
+
+    /**
+     * Get the status by label, creating it if it does not exist yet. Concurrent calls for the same label create a single status.
+     * 
+     * @param strLabel
+     *            the status label
+     * @return the status, or an empty optional if the label is blank
+     */
+    public Optional<DemandStatus> getOrCreate( String strLabel )
+    {
+        if ( StringUtils.isBlank( strLabel ) )
+        {
+            return Optional.empty( );
+        }
+
+        Optional<DemandStatus> status = get( strLabel );
+        if ( status.isPresent( ) )
+        {
+            return status;
+        }
+
+        synchronized( _mapLocks.computeIfAbsent( strLabel, k -> new Object( ) ) )
+        {
+            status = get( strLabel );
+            if ( status.isPresent( ) )
+            {
+                return status;
+            }
+
+            // the status may have been created by another instance of the webapp
+            Optional<DemandStatus> storedStatus = StatusHome.findByStatus( strLabel );
+            if ( storedStatus.isPresent( ) )
+            {
+                put( storedStatus.get( ) );
+                return storedStatus;
+            }
+
+            // the unique index on the label resolves a concurrent creation by another instance : the status it created is returned
+            DemandStatus newStatus = new DemandStatus( );
+            newStatus.setStatus( strLabel );
+
+            return Optional.of( StatusHome.createIfAbsent( newStatus ) );
+        }
+    }
+
+    /**
+     * Add or replace a status in the dictionary
+     * 
+     * @param status
+     *            the status
+     */
+    public synchronized void put( DemandStatus status )
+    {
+        if ( !_bLoaded )
+        {
+            // the status will be read at load time
+            return;
+        }
+
+        remove( status.getId( ) );
+        _mapStatusById.put( status.getId( ), status );
+        if ( status.getStatus( ) != null )
+        {
+            _mapStatusByLabel.put( status.getStatus( ), status );
+        }
+    }
+
+    /**
+     * Remove a status from the dictionary
+     * 
+     * @param nId
+     *            the status id
+     */
+    public synchronized void remove( int nId )
+    {
+        _mapStatusById.remove( nId );
+        _mapStatusByLabel.values( ).removeIf( status -> status.getId( ) == nId );
+    }
+
+    /**
+     * Load the dictionary if needed
+     */
+    private void ensureLoaded( )
+    {
+        if ( !_bLoaded )
+        {
+            synchronized( this )
+            {
+                if ( !_bLoaded )
+                {
+                    load( );
+                }
+            }
+        }
+    }
+}
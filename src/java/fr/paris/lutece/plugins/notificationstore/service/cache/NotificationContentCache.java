@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Cache of the deserialized notification contents, keyed by file store and file key.
+ * <p>
+ * A stored content is never modified, so the entries do not expire : they are only evicted by size, or removed when the content file is deleted. The
+ * cached objects are shared between the readers and must not be modified : a reader that alters a content (anonymization, ...) works on a copy.
+ * </p>
+ * <p>
+ * The weight of an entry estimates its heap size : the UTF-8 size of its JSON content times sizeFactor (heap bytes of the deserialized object per
+ * JSON byte, to measure on the actual contents, e.g. with a heap histogram).
+ * </p>
+ */
+public final class NotificationContentCache
+{
+    private static final String PROPERTY_ENABLED = "notificationstore.content.cache.enabled";
+    private static final String PROPERTY_MAX_BYTES = "notificationstore.content.cache.maxBytes";
+    private static final String PROPERTY_STATS_LOG_INTERVAL = "notificationstore.content.cache.statsLogInterval";
+    private static final String PROPERTY_SIZE_FACTOR = "notificationstore.content.cache.sizeFactor";
+    private static final double DEFAULT_SIZE_FACTOR = 3;
+    private static final String KEY_SEPARATOR = ":";
+
+    private static NotificationContentCache _instance;
+
+    private final boolean _bEnabled;
+    private final long _lStatsLogInterval;
+    private final double _dSizeFactor;
+    private final WeightedLruCache<String, Object> _cache;
+    private final AtomicLong _lLookups = new AtomicLong( );
+
+    /**
+     * private constructor
+     */
+    private NotificationContentCache( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+        _lStatsLogInterval = AppPropertiesService.getPropertyLong( PROPERTY_STATS_LOG_INTERVAL, 10000 );
+        double dSizeFactor = NumberUtils.toDouble( AppPropertiesService.getProperty( PROPERTY_SIZE_FACTOR ), DEFAULT_SIZE_FACTOR );
+        _dSizeFactor = dSizeFactor > 0 ? dSizeFactor : DEFAULT_SIZE_FACTOR;
+        _cache = new WeightedLruCache<>( AppPropertiesService.getPropertyLong( PROPERTY_MAX_BYTES, 32L * 1024 * 1024 ) );
+    }
+
+    /**
+     * get unique instance of the cache
+     * 
+     * @return the cache
+     */
+    public static synchronized NotificationContentCache instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationContentCache( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Get a content
+     * 
+     * @param strFileStore
+     *            the file store name
+     * @param strFileKey
+     *            the file key
+     * @return the deserialized content, or null if it is not cached
+     */
+    public Object get( String strFileStore, String strFileKey )
+    {
+        if ( !_bEnabled || strFileKey == null )
+        {
+            return null;
+        }
+
+        Object content = _cache.get( getKey( strFileStore, strFileKey ) );
+        logStatistics( );
+
+        return content;
+    }
+
+    /**
+     * Put a content
+     * 
+     * @param strFileStore
+     *            the file store name
+     * @param strFileKey
+     *            the file key
+     * @param content
+     *            the deserialized content (shared with the next readers, must not be modified)
+     * @param strJson
+     *            the JSON content, to estimate the heap size of the deserialized content
+     */
+    public void put( String strFileStore, String strFileKey, Object content, String strJson )
+    {
+        if ( _bEnabled && strFileKey != null )
+        {
+            _cache.put( getKey( strFileStore, strFileKey ), content, (long) Math.ceil( getUtf8Length( strJson ) * _dSizeFactor ) );
+        }
+    }
+
+    /**
+     * Remove a content, when its file is deleted
+     * 
+     * @param strFileStore
+     *            the file store name
+     * @param strFileKey
+     *            the file key
+     */
+    public void invalidate( String strFileStore, String strFileKey )
+    {
+        if ( strFileKey != null )
+        {
+            _cache.invalidate( getKey( strFileStore, strFileKey ) );
+        }
+    }
+
+    /**
+     * Get the statistics of the cache
+     * 
+     * @return the statistics, as a log line
+     */
+    public String getStatistics( )
+    {
+        return String.format( "Notification content cache : %d entries, %d / %d bytes, hit ratio %.3f (%d hits, %d misses), %d evictions (%d bytes)",
+                _cache.size( ), _cache.getWeight( ), _cache.getMaxWeight( ), _cache.getHitRatio( ), _cache.getHitCount( ), _cache.getMissCount( ),
+                _cache.getEvictionCount( ), _cache.getEvictedWeight( ) );
+    }
+
+    /**
+     * Log the statistics every N lookups
+     */
+    private void logStatistics( )
+    {
+        if ( _lStatsLogInterval > 0 && _lLookups.incrementAndGet( ) % _lStatsLogInterval == 0 )
+        {
+            AppLogService.info( getStatistics( ) );
+        }
+    }
+
+    /**
+     * Get the UTF-8 size of a string, without encoding it
+     * 
+     * @param strValue
+     *            the string
+     * @return the size, in bytes
+     */
+    static long getUtf8Length( String strValue )
+    {
+        long lLength = 0;
+        for ( int i = 0; i < strValue.length( ); i++ )
+        {
+            char c = strValue.charAt( i );
+            if ( c < 0x80 )
+            {
+                lLength++;
+            }
+            else
+                if ( c < 0x800 )
+                {
+                    lLength += 2;
+                }
+                else
+                    if ( Character.isHighSurrogate( c ) && i + 1 < strValue.length( ) && Character.isLowSurrogate( strValue.charAt( i + 1 ) ) )
+                    {
+                        lLength += 4;
+                        i++;
+                    }
+                    else
+                    {
+                        // an unpaired surrogate is encoded as '?'
+                        lLength += Character.isSurrogate( c ) ? 1 : 3;
+                    }
+        }
+
+        return lLength;
+    }
+
+    /**
+     * Get the cache key of a content
+     * 
+     * @param strFileStore
+     * @param strFileKey
+     * @return the key
+     */
+    private static String getKey( String strFileStore, String strFileKey )
+    {
+        return strFileStore + KEY_SEPARATOR + strFileKey;
+    }
+}
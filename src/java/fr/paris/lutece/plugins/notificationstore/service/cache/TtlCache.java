@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * Bounded in-memory cache with time to live.
+ * <ul>
+ * <li>the least recently used entries are evicted when the maximum size is reached</li>
+ * <li>null values (not found) are cached with their own time to live</li>
+ * <li>concurrent loads of the same key are coalesced into a single call of the loader</li>
+ * </ul>
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public final class TtlCache<K, V>
+{
+    private final int _nMaxSize;
+    private final long _lTtlMs;
+    private final long _lNegativeTtlMs;
+    private final Map<K, Entry<V>> _mapEntries;
+    private final ConcurrentMap<K, CompletableFuture<V>> _mapInFlight = new ConcurrentHashMap<>( );
+    private final LongAdder _hits = new LongAdder( );
+    private final LongAdder _misses = new LongAdder( );
+    private final LongAdder _coalesced = new LongAdder( );
+    private final LongAdder _evictions = new LongAdder( );
+
+    /**
+     * Loads the value of a key
+     *
+     * @param <K>
+     *            the key type
+     * @param <V>
+     *            the value type
+     * @param <E>
+     *            the exception thrown by the loader
+     */
+    @FunctionalInterface
+    public interface Loader<K, V, E extends Exception>
+    {
+        /**
+         * Load a value
+         * 
+         * @param key
+         *            the key
+         * @return the value, or null if not found
+         * @throws E
+         *             if the value can not be loaded (the result is not cached)
+         */
+        V load( K key ) throws E;
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param nMaxSize
+     *            the maximum number of entries
+     * @param lTtlMs
+     *            the time to live of the values, in milliseconds
+     * @param lNegativeTtlMs
+     *            the time to live of the null values, in milliseconds
+     */
+    public TtlCache( int nMaxSize, long lTtlMs, long lNegativeTtlMs )
+    {
+        _nMaxSize = Math.max( 1, nMaxSize );
+        _lTtlMs = lTtlMs;
+        _lNegativeTtlMs = lNegativeTtlMs;
+        _mapEntries = new LinkedHashMap<K, Entry<V>>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, Entry<V>> eldest )
+            {
+                if ( size( ) > _nMaxSize )
+                {
+                    _evictions.increment( );
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the value of a key, loading it if it is not cached or has expired
+     * 
+     * @param <E>
+     *            the exception thrown by the loader
+     * @param key
+     *            the key
+     * @param loader
+     *            the loader
+     * @return the value (may be null)
+     * @throws E
+     *             if the loader fails
+     */
+    public <E extends Exception> V get( K key, Loader<K, V, E> loader ) throws E
+    {
+        long lNow = System.currentTimeMillis( );
+        synchronized( _mapEntries )
+        {
+            Entry<V> entry = _mapEntries.get( key );
+            if ( entry != null )
+            {
+                if ( entry._lExpiration > lNow )
+                {
+                    _hits.increment( );
+                    return entry._value;
+                }
+                _mapEntries.remove( key );
+            }
+        }
+
+        _misses.increment( );
+
+        CompletableFuture<V> future = new CompletableFuture<>( );
+        CompletableFuture<V> inFlight = _mapInFlight.putIfAbsent( key, future );
+        if ( inFlight != null )
+        {
+            // another thread is loading the same key
+            _coalesced.increment( );
+            return join( inFlight );
+        }
+
+        try
+        {
+            V value = loader.load( key );
+            put( key, value );
+            future.complete( value );
+
+            return value;
+        }
+        catch( Exception e )
+        {
+            future.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            _mapInFlight.remove( key, future );
+        }
+    }
+
+    /**
+     * Put a value
+     * 
+     * @param key
+     *            the key
+     * @param value
+     *            the value (null for not found)
+     */
+    public void put( K key, V value )
+    {
+        long lTtl = ( value != null ) ? _lTtlMs : _lNegativeTtlMs;
+        if ( lTtl <= 0 )
+        {
+            return;
+        }
+
+        synchronized( _mapEntries )
+        {
+            _mapEntries.put( key, new Entry<>( value, System.currentTimeMillis( ) + lTtl ) );
+        }
+    }
+
+    /**
+     * Remove a key
+     * 
+     * @param key
+     *            the key
+     */
+    public void invalidate( K key )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.remove( key );
+        }
+    }
+
+    /**
+     * Remove all the entries
+     */
+    public void clear( )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.clear( );
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size( )
+    {
+        synchronized( _mapEntries )
+        {
+            return _mapEntries.size( );
+        }
+    }
+
+    /**
+     * @return the number of lookups served by the cache
+     */
+    public long getHitCount( )
+    {
+        return _hits.sum( );
+    }
+
+    /**
+     * @return the number of lookups not served by the cache
+     */
+    public long getMissCount( )
+    {
+        return _misses.sum( );
+    }
+
+    /**
+     * @return the number of misses that waited for the load of another thread instead of calling the loader
+     */
+    public long getCoalescedCount( )
+    {
+        return _coalesced.sum( );
+    }
+
+    /**
+     * @return the number of entries evicted because of the maximum size
+     */
+    public long getEvictionCount( )
+    {
+        return _evictions.sum( );
+    }
+
+    /**
+     * Wait for the load of another thread
+     * 
+     * @param future
+     *            the in-flight load
+     * @return the value
+     * @throws E
+     *             the exception of the loader
+     */
+    @SuppressWarnings( "unchecked" )
+    private static <V, E extends Exception> V join( CompletableFuture<V> future ) throws E
+    {
+        try
+        {
+            return future.get( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( "Interrupted while waiting for a cache load", e );
+        }
+        catch( ExecutionException e )
+        {
+            Throwable cause = e.getCause( );
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        }
+    }
+
+    /**
+     * A cached value with its expiration date
+     */
+    private static final class Entry<V>
+    {
+        private final V _value;
+        private final long _lExpiration;
+
+        private Entry( V value, long lExpiration )
+        {
+            _value = value;
+            _lExpiration = lExpiration;
+        }
+    }
+}
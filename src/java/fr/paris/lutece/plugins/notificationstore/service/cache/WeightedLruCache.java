@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory cache of immutable values, weighted by size.
+ * <ul>
+ * <li>each entry has a weight (typically its size in bytes), the total weight is bounded</li>
+ * <li>the least recently used entries are evicted when the maximum weight is reached</li>
+ * <li>a value heavier than the maximum weight is not cached</li>
+ * </ul>
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public final class WeightedLruCache<K, V>
+{
+    private final long _lMaxWeight;
+    private final Map<K, Entry<V>> _mapEntries = new LinkedHashMap<>( 16, 0.75f, true );
+    private long _lWeight;
+    private final LongAdder _hits = new LongAdder( );
+    private final LongAdder _misses = new LongAdder( );
+    private final LongAdder _evictions = new LongAdder( );
+    private final LongAdder _evictedWeight = new LongAdder( );
+
+    /**
+     * Constructor
+     * 
+     * @param lMaxWeight
+     *            the maximum total weight of the entries
+     */
+    public WeightedLruCache( long lMaxWeight )
+    {
+        _lMaxWeight = Math.max( 0, lMaxWeight );
+    }
+
+    /**
+     * Get a value
+     * 
+     * @param key
+     *            the key
+     * @return the value, or null if it is not cached
+     */
+    public V get( K key )
+    {
+        synchronized( _mapEntries )
+        {
+            Entry<V> entry = _mapEntries.get( key );
+            if ( entry != null )
+            {
+                _hits.increment( );
+                return entry._value;
+            }
+        }
+
+        _misses.increment( );
+        return null;
+    }
+
+    /**
+     * Put a value, evicting the least recently used entries if needed
+     * 
+     * @param key
+     *            the key
+     * @param value
+     *            the value (not null)
+     * @param lWeight
+     *            the weight of the value
+     */
+    public void put( K key, V value, long lWeight )
+    {
+        if ( value == null || lWeight > _lMaxWeight )
+        {
+            return;
+        }
+
+        synchronized( _mapEntries )
+        {
+            Entry<V> previous = _mapEntries.put( key, new Entry<>( value, lWeight ) );
+            if ( previous != null )
+            {
+                _lWeight -= previous._lWeight;
+            }
+            _lWeight += lWeight;
+
+            Iterator<Entry<V>> iterator = _mapEntries.values( ).iterator( );
+            while ( _lWeight > _lMaxWeight && iterator.hasNext( ) )
+            {
+                Entry<V> eldest = iterator.next( );
+                iterator.remove( );
+                _lWeight -= eldest._lWeight;
+                _evictions.increment( );
+                _evictedWeight.add( eldest._lWeight );
+            }
+        }
+    }
+
+    /**
+     * Remove a key
+     * 
+     * @param key
+     *            the key
+     */
+    public void invalidate( K key )
+    {
+        synchronized( _mapEntries )
+        {
+            Entry<V> previous = _mapEntries.remove( key );
+            if ( previous != null )
+            {
+                _lWeight -= previous._lWeight;
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries
+     */
+    public void clear( )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.clear( );
+            _lWeight = 0;
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size( )
+    {
+        synchronized( _mapEntries )
+        {
+            return _mapEntries.size( );
+        }
+    }
+
+    /**
+     * @return the total weight of the entries
+     */
+    public long getWeight( )
+    {
+        synchronized( _mapEntries )
+        {
+            return _lWeight;
+        }
+    }
+
+    /**
+     * @return the maximum total weight of the entries
+     */
+    public long getMaxWeight( )
+    {
+        return _lMaxWeight;
+    }
+
+    /**
+     * @return the number of lookups served by the cache
+     */
+    public long getHitCount( )
+    {
+        return _hits.sum( );
+    }
+
+    /**
+     * @return the number of lookups not served by the cache
+     */
+    public long getMissCount( )
+    {
+        return _misses.sum( );
+    }
+
+    /**
+     * @return the ratio of lookups served by the cache (0 if there was no lookup)
+     */
+    public double getHitRatio( )
+    {
+        long lHits = getHitCount( );
+        long lTotal = lHits + getMissCount( );
+
+        return ( lTotal == 0 ) ? 0 : (double) lHits / lTotal;
+    }
+
+    /**
+     * @return the number of entries evicted because of the maximum weight
+     */
+    public long getEvictionCount( )
+    {
+        return _evictions.sum( );
+    }
+
+    /**
+     * @return the total weight of the entries evicted because of the maximum weight
+     */
+    public long getEvictedWeight( )
+    {
+        return _evictedWeight.sum( );
+    }
+
+    /**
+     * A cached value with its weight
+     */
+    private static final class Entry<V>
+    {
+        private final V _value;
+        private final long _lWeight;
+
+        private Entry( V value, long lWeight )
+        {
+            _value = value;
+            _lWeight = lWeight;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.notificationstore.business.CodecDictionary;
+import fr.paris.lutece.plugins.notificationstore.business.CodecDictionaryHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Compression dictionaries of the demand types. A dictionary is trained from the recent small contents of a demand type (the ones stored inline, for which
+ * a preset dictionary matters most) : these contents are concatenated, the most recent at the end where the deflate matches are the cheapest.
+ */
+public final class CodecDictionaryService
+{
+    private static final String PROPERTY_SAMPLE_SIZE = "notificationstore.content.codec.dictionary.sampleSize";
+    private static final String PROPERTY_MIN_SAMPLES = "notificationstore.content.codec.dictionary.minSamples";
+    private static final String PROPERTY_MAX_BYTES = "notificationstore.content.codec.dictionary.maxBytes";
+    private static final String PROPERTY_REFRESH_SECONDS = "notificationstore.content.codec.dictionary.refreshSeconds";
+
+    // deflate only uses the last 32 KB of a dictionary
+    private static final int MAX_DICTIONARY_BYTES = 32768;
+
+    private static CodecDictionaryService _instance;
+
+    private final Map<Integer, byte [ ]> _mapContents = new ConcurrentHashMap<>( );
+    private final Map<String, CurrentDictionary> _mapCurrent = new ConcurrentHashMap<>( );
+    private final long _lRefreshMillis;
+
+    /**
+     * Current dictionary of a demand type, as known by this node
+     */
+    private static final class CurrentDictionary
+    {
+        private final CodecDictionary _dictionary;
+        private final long _lLoadDate;
+
+        private CurrentDictionary( CodecDictionary dictionary )
+        {
+            _dictionary = dictionary;
+            _lLoadDate = System.currentTimeMillis( );
+        }
+    }
+
+    /**
+     * private constructor
+     */
+    private CodecDictionaryService( )
+    {
+        _lRefreshMillis = AppPropertiesService.getPropertyLong( PROPERTY_REFRESH_SECONDS, 3600 ) * 1000;
+    }
+
+    /**
+     * get unique instance of the service
+     * 
+     * @return the service
+     */
+    public static synchronized CodecDictionaryService instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new CodecDictionaryService( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Get the current dictionary of a demand type. The dictionaries trained by other nodes are seen after the refresh delay.
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @return the dictionary, or null if none has been trained
+     */
+    public CodecDictionary getCurrent( String strDemandTypeId )
+    {
+        if ( strDemandTypeId == null )
+        {
+            return null;
+        }
+
+        CurrentDictionary current = _mapCurrent.get( strDemandTypeId );
+        if ( current == null || System.currentTimeMillis( ) - current._lLoadDate > _lRefreshMillis )
+        {
+            current = new CurrentDictionary( CodecDictionaryHome.findLastByDemandTypeId( strDemandTypeId ) );
+            _mapCurrent.put( strDemandTypeId, current );
+        }
+
+        return current._dictionary;
+    }
+
+    /**
+     * Get the content of a dictionary
+     * 
+     * @param nId
+     *            the dictionary id
+     * @return the content
+     * @throws IOException
+     *             if the dictionary does not exist
+     */
+    public byte [ ] getContent( int nId ) throws IOException
+    {
+        byte [ ] content = _mapContents.get( nId );
+        if ( content == null )
+        {
+            CodecDictionary dictionary = CodecDictionaryHome.findByPrimaryKey( nId );
+            if ( dictionary == null )
+            {
+                throw new IOException( "Unknown compression dictionary " + nId );
+            }
+            content = dictionary.getContent( );
+            _mapContents.put( nId, content );
+        }
+
+        return content;
+    }
+
+    /**
+     * Train a new dictionary for a demand type
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @return the new dictionary, or null if there are not enough samples
+     */
+    public CodecDictionary train( String strDemandTypeId )
+    {
+        List<NotificationContent> listSamples = CodecDictionaryHome.getSamples( strDemandTypeId,
+                AppPropertiesService.getPropertyInt( PROPERTY_SAMPLE_SIZE, 200 ) );
+        if ( listSamples.size( ) < AppPropertiesService.getPropertyInt( PROPERTY_MIN_SAMPLES, 20 ) )
+        {
+            return null;
+        }
+
+        int nMaxBytes = Math.min( AppPropertiesService.getPropertyInt( PROPERTY_MAX_BYTES, MAX_DICTIONARY_BYTES ), MAX_DICTIONARY_BYTES );
+        Deque<byte [ ]> listParts = new ArrayDeque<>( );
+        int nSize = 0;
+
+        // the samples are the most recent first
+        for ( NotificationContent sample : listSamples )
+        {
+            byte [ ] part;
+            try
+            {
+                part = ContentCodecService.instance( ).decode( sample, sample.getContent( ) ).getBytes( StandardCharsets.UTF_8 );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to decode the content " + sample.getId( ) + " for the dictionary of the demand type " + strDemandTypeId, e );
+                continue;
+            }
+
+            if ( nSize + part.length > nMaxBytes )
+            {
+                break;
+            }
+            listParts.addFirst( part );
+            nSize += part.length;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream( nSize );
+        for ( byte [ ] part : listParts )
+        {
+            out.write( part, 0, part.length );
+        }
+
+        CodecDictionary dictionary = new CodecDictionary( );
+        dictionary.setDemandTypeId( strDemandTypeId );
+        dictionary.setCreationDate( new Date( ).getTime( ) );
+        dictionary.setContent( out.toByteArray( ) );
+        CodecDictionaryHome.create( dictionary );
+
+        _mapContents.put( dictionary.getId( ), dictionary.getContent( ) );
+        _mapCurrent.put( strDemandTypeId, new CurrentDictionary( dictionary ) );
+
+        return dictionary;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a codec : compression ratio and time spent encoding and decoding
+ */
+public class CodecStatistics
+{
+    private final String _strCodecId;
+    private final AtomicLong _lEncodeCount = new AtomicLong( );
+    private final AtomicLong _lRawBytes = new AtomicLong( );
+    private final AtomicLong _lEncodedBytes = new AtomicLong( );
+    private final AtomicLong _lEncodeNanos = new AtomicLong( );
+    private final AtomicLong _lDecodeCount = new AtomicLong( );
+    private final AtomicLong _lDecodeNanos = new AtomicLong( );
+
+    /**
+     * Constructor
+     * 
+     * @param strCodecId
+     *            the codec id
+     */
+    public CodecStatistics( String strCodecId )
+    {
+        _strCodecId = strCodecId;
+    }
+
+    /**
+     * Record an encoding
+     * 
+     * @param nRawBytes
+     *            the size of the raw content
+     * @param nEncodedBytes
+     *            the size of the encoded content
+     * @param lNanos
+     *            the encoding time
+     */
+    public void addEncode( int nRawBytes, int nEncodedBytes, long lNanos )
+    {
+        _lEncodeCount.incrementAndGet( );
+        _lRawBytes.addAndGet( nRawBytes );
+        _lEncodedBytes.addAndGet( nEncodedBytes );
+        _lEncodeNanos.addAndGet( lNanos );
+    }
+
+    /**
+     * Record a decoding
+     * 
+     * @param lNanos
+     *            the decoding time
+     */
+    public void addDecode( long lNanos )
+    {
+        _lDecodeCount.incrementAndGet( );
+        _lDecodeNanos.addAndGet( lNanos );
+    }
+
+    /**
+     * @return the number of encoded contents
+     */
+    public long getEncodeCount( )
+    {
+        return _lEncodeCount.get( );
+    }
+
+    /**
+     * @return the number of decoded contents
+     */
+    public long getDecodeCount( )
+    {
+        return _lDecodeCount.get( );
+    }
+
+    /**
+     * @return the ratio of the encoded size to the raw size (1 if nothing was encoded)
+     */
+    public double getRatio( )
+    {
+        long lRawBytes = _lRawBytes.get( );
+
+        return lRawBytes == 0 ? 1 : (double) _lEncodedBytes.get( ) / lRawBytes;
+    }
+
+    /**
+     * @return the mean encoding time, in microseconds
+     */
+    public double getMeanEncodeMicros( )
+    {
+        long lCount = _lEncodeCount.get( );
+
+        return lCount == 0 ? 0 : _lEncodeNanos.get( ) / 1000d / lCount;
+    }
+
+    /**
+     * @return the mean decoding time, in microseconds
+     */
+    public double getMeanDecodeMicros( )
+    {
+        long lCount = _lDecodeCount.get( );
+
+        return lCount == 0 ? 0 : _lDecodeNanos.get( ) / 1000d / lCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( )
+    {
+        return String.format( "%s : %d encoded (ratio %.3f, %.1f us), %d decoded (%.1f us)", _strCodecId, getEncodeCount( ), getRatio( ),
+                getMeanEncodeMicros( ), getDecodeCount( ), getMeanDecodeMicros( ) );
+    }
+}
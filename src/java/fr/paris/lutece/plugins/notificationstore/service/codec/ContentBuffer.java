@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Byte buffer reused by the serializations of a thread. The encoders read its content in place, without the copy of {@link #toByteArray()}.
+ */
+final class ContentBuffer extends ByteArrayOutputStream
+{
+    private static final int INITIAL_SIZE = 8192;
+
+    // buffers grown by a large content are not kept
+    private static final int MAX_POOLED_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ContentBuffer> POOL = ThreadLocal.withInitial( ContentBuffer::new );
+
+    /**
+     * private constructor
+     */
+    private ContentBuffer( )
+    {
+        super( INITIAL_SIZE );
+    }
+
+    /**
+     * Get the empty buffer of the current thread
+     * 
+     * @return the buffer
+     */
+    static ContentBuffer acquire( )
+    {
+        ContentBuffer buffer = POOL.get( );
+        buffer.reset( );
+
+        return buffer;
+    }
+
+    /**
+     * Give back the buffer of the current thread
+     */
+    void release( )
+    {
+        if ( buf.length > MAX_POOLED_SIZE )
+        {
+            POOL.remove( );
+        }
+    }
+
+    /**
+     * Get the internal array, whose first {@link #size()} bytes are the content
+     * 
+     * @return the array
+     */
+    byte [ ] getArray( )
+    {
+        return buf;
+    }
+}
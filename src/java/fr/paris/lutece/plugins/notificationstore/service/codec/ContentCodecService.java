@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.notificationstore.business.CodecDictionary;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.plugins.notificationstore.utils.SanitizingWriter;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.string.StringUtil;
+
+/**
+ * Encoding of the stored notification contents. The codec used for writing is configurable, and the codec (and dictionary) of each content is recorded on
+ * its row, so that the codec can be changed without migration. The rows stored before the codecs are read with the legacy global decompression property.
+ */
+public final class ContentCodecService
+{
+    private static final String PROPERTY_CODEC = "notificationstore.content.codec";
+    private static final String PROPERTY_MIN_BYTES = "notificationstore.content.codec.minBytes";
+    private static final String PROPERTY_DICTIONARY_ENABLED = "notificationstore.content.codec.dictionary.enabled";
+    private static final String PROPERTY_STATS_LOG_INTERVAL = "notificationstore.content.codec.statsLogInterval";
+    private static final String PROPERTY_LEGACY_DECOMPRESS = "grustoragedb.notification.decompress";
+
+    private static ContentCodecService _instance;
+
+    private final Map<String, IContentCodec> _mapCodecs = new HashMap<>( );
+    private final Map<String, CodecStatistics> _mapStatistics = new ConcurrentHashMap<>( );
+    private final IContentCodec _identityCodec = new IdentityCodec( );
+    private final IContentCodec _codec;
+    private final int _nMinBytes;
+    private final boolean _bDictionaryEnabled;
+    private final long _lStatsLogInterval;
+    private final AtomicLong _lEncodings = new AtomicLong( );
+
+    /**
+     * private constructor
+     */
+    private ContentCodecService( )
+    {
+        _mapCodecs.put( IdentityCodec.ID, _identityCodec );
+        for ( IContentCodec codec : SpringContextService.getBeansOfType( IContentCodec.class ) )
+        {
+            _mapCodecs.put( codec.getId( ), codec );
+        }
+
+        String strDefaultCodec = AppPropertiesService.getPropertyBoolean( NotificationStoreConstants.PROPERTY_COMPRESS_NOTIFICATION, false ) ? GzipCodec.ID
+                : IdentityCodec.ID;
+        String strCodec = AppPropertiesService.getProperty( PROPERTY_CODEC, strDefaultCodec );
+        IContentCodec codec = _mapCodecs.get( strCodec );
+        if ( codec == null )
+        {
+            AppLogService.error( "Unknown notification content codec " + strCodec + ", the contents are stored uncompressed" );
+            codec = _identityCodec;
+        }
+        _codec = codec;
+
+        _nMinBytes = AppPropertiesService.getPropertyInt( PROPERTY_MIN_BYTES, 0 );
+        _bDictionaryEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_DICTIONARY_ENABLED, false );
+        _lStatsLogInterval = AppPropertiesService.getPropertyLong( PROPERTY_STATS_LOG_INTERVAL, 10000 );
+    }
+
+    /**
+     * get unique instance of the service
+     * 
+     * @return the service
+     */
+    public static synchronized ContentCodecService instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ContentCodecService( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Serialize a payload and encode it with the configured codec (none for the contents smaller than the threshold), and record the codec on the content
+     * row. The JSON is written in a reused buffer through a {@link SanitizingWriter}, and encoded from that buffer : the only copy is the encoded content.
+     * 
+     * @param notificationContent
+     *            the content row
+     * @param strDemandTypeId
+     *            the demand type id, to select the dictionary
+     * @param payload
+     *            the payload of the channel
+     * @return the bytes to store
+     * @throws IOException
+     */
+    public byte [ ] encode( NotificationContent notificationContent, String strDemandTypeId, Object payload ) throws IOException
+    {
+        ContentBuffer buffer = ContentBuffer.acquire( );
+        try
+        {
+            try ( Writer writer = new SanitizingWriter( new OutputStreamWriter( buffer, StandardCharsets.UTF_8 ) ) )
+            {
+                NotificationStoreUtils.getMapper( ).writeValue( writer, payload );
+            }
+
+            int nLength = buffer.size( );
+            IContentCodec codec = nLength < _nMinBytes ? _identityCodec : _codec;
+
+            CodecDictionary dictionary = null;
+            if ( _bDictionaryEnabled && codec.supportsDictionary( ) )
+            {
+                dictionary = CodecDictionaryService.instance( ).getCurrent( strDemandTypeId );
+            }
+
+            long lStart = System.nanoTime( );
+            byte [ ] encoded = codec.encode( buffer.getArray( ), 0, nLength, dictionary != null ? dictionary.getContent( ) : null );
+            getStatistics( codec.getId( ) ).addEncode( nLength, encoded.length, System.nanoTime( ) - lStart );
+
+            notificationContent.setCodec( codec.getId( ) );
+            notificationContent.setDictionaryId( dictionary != null ? dictionary.getId( ) : null );
+            logStatistics( );
+
+            return encoded;
+        }
+        finally
+        {
+            buffer.release( );
+        }
+    }
+
+    /**
+     * Decode the stored bytes of a content row
+     * 
+     * @param notificationContent
+     *            the content row, with its codec
+     * @param data
+     *            the stored bytes (inline or from the file store)
+     * @return the JSON content
+     * @throws IOException
+     *             if the bytes can not be decoded
+     */
+    public String decode( NotificationContent notificationContent, byte [ ] data ) throws IOException
+    {
+        if ( notificationContent.getCodec( ) == null )
+        {
+            if ( AppPropertiesService.getPropertyBoolean( PROPERTY_LEGACY_DECOMPRESS, false ) )
+            {
+                return StringUtil.decompress( data );
+            }
+
+            return new String( data, StandardCharsets.UTF_8 );
+        }
+
+        IContentCodec codec = _mapCodecs.get( notificationContent.getCodec( ) );
+        if ( codec == null )
+        {
+            throw new IOException( "Unknown notification content codec " + notificationContent.getCodec( ) );
+        }
+
+        byte [ ] dictionary = null;
+        if ( notificationContent.getDictionaryId( ) != null )
+        {
+            dictionary = CodecDictionaryService.instance( ).getContent( notificationContent.getDictionaryId( ) );
+        }
+
+        long lStart = System.nanoTime( );
+        String strJson = new String( codec.decode( data, dictionary ), StandardCharsets.UTF_8 );
+        getStatistics( codec.getId( ) ).addDecode( System.nanoTime( ) - lStart );
+
+        return strJson;
+    }
+
+    /**
+     * Get the statistics of the codecs
+     * 
+     * @return the statistics, as a log line
+     */
+    public String getStatistics( )
+    {
+        return "Notification content codecs : "
+                + _mapStatistics.values( ).stream( ).map( CodecStatistics::toString ).sorted( ).collect( Collectors.joining( ", " ) );
+    }
+
+    /**
+     * Get the statistics of a codec
+     * 
+     * @param strCodecId
+     *            the codec id
+     * @return the statistics
+     */
+    private CodecStatistics getStatistics( String strCodecId )
+    {
+        return _mapStatistics.computeIfAbsent( strCodecId, CodecStatistics::new );
+    }
+
+    /**
+     * Log the statistics every N encodings
+     */
+    private void logStatistics( )
+    {
+        if ( _lStatsLogInterval > 0 && _lEncodings.incrementAndGet( ) % _lStatsLogInterval == 0 )
+        {
+            AppLogService.info( getStatistics( ) );
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate codec, with an optional preset dictionary. Without the gzip header and trailer, and with a dictionary of the usual contents of a demand
+ * type, it compresses the small JSON contents much better than gzip.
+ */
+public class DeflateCodec implements IContentCodec
+{
+    public static final String ID = "deflate";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getId( )
+    {
+        return ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean supportsDictionary( )
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] encode( byte [ ] data, int nOffset, int nLength, byte [ ] dictionary )
+    {
+        Deflater deflater = new Deflater( Deflater.BEST_COMPRESSION, true );
+        try
+        {
+            if ( dictionary != null )
+            {
+                deflater.setDictionary( dictionary );
+            }
+            deflater.setInput( data, nOffset, nLength );
+            deflater.finish( );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream( nLength / 2 + 16 );
+            byte [ ] buffer = new byte [ BUFFER_SIZE];
+            while ( !deflater.finished( ) )
+            {
+                out.write( buffer, 0, deflater.deflate( buffer ) );
+            }
+
+            return out.toByteArray( );
+        }
+        finally
+        {
+            deflater.end( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] decode( byte [ ] data, byte [ ] dictionary ) throws IOException
+    {
+        Inflater inflater = new Inflater( true );
+        try
+        {
+            // a raw inflater takes the dictionary before any input
+            if ( dictionary != null )
+            {
+                inflater.setDictionary( dictionary );
+            }
+            inflater.setInput( data );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream( data.length * 4 );
+            byte [ ] buffer = new byte [ BUFFER_SIZE];
+            while ( !inflater.finished( ) )
+            {
+                int nLength = inflater.inflate( buffer );
+                if ( nLength == 0 && ( inflater.needsInput( ) || inflater.needsDictionary( ) ) )
+                {
+                    throw new IOException( "Truncated deflate content" );
+                }
+                out.write( buffer, 0, nLength );
+            }
+
+            return out.toByteArray( );
+        }
+        catch( DataFormatException e )
+        {
+            throw new IOException( "Invalid deflate content", e );
+        }
+        finally
+        {
+            inflater.end( );
+        }
+    }
+}
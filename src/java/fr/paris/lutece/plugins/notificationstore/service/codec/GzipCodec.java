@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip codec (same format as the legacy global compression)
+ */
+public class GzipCodec implements IContentCodec
+{
+    public static final String ID = "gzip";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getId( )
+    {
+        return ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean supportsDictionary( )
+    {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] encode( byte [ ] data, int nOffset, int nLength, byte [ ] dictionary ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream( nLength / 2 + 32 );
+        try ( GZIPOutputStream gzip = new GZIPOutputStream( out ) )
+        {
+            gzip.write( data, nOffset, nLength );
+        }
+
+        return out.toByteArray( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [ ] decode( byte [ ] data, byte [ ] dictionary ) throws IOException
+    {
+        try ( GZIPInputStream gzip = new GZIPInputStream( new ByteArrayInputStream( data ) ) )
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream( data.length * 4 );
+            byte [ ] buffer = new byte [ BUFFER_SIZE];
+            int nLength;
+            while ( ( nLength = gzip.read( buffer ) ) != -1 )
+            {
+                out.write( buffer, 0, nLength );
+            }
+
+            return out.toByteArray( );
+        }
+    }
+}
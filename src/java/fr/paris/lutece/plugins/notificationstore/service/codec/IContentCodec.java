@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.io.IOException;
+
+/**
+ * Codec of the stored notification contents. The codec id is recorded on each content row, so that the contents written with a codec can still be read
+ * after the configured codec is changed. The codecs are declared as Spring beans.
+ */
+public interface IContentCodec
+{
+    /**
+     * Get the id of the codec, recorded on the content rows
+     * 
+     * @return the id
+     */
+    String getId( );
+
+    /**
+     * Tell whether the codec can use a preset dictionary
+     * 
+     * @return true if a dictionary is used when given
+     */
+    boolean supportsDictionary( );
+
+    /**
+     * Encode a content
+     * 
+     * @param data
+     *            the raw content
+     * @param dictionary
+     *            the preset dictionary, or null
+     * @return the encoded content
+     * @throws IOException
+     */
+    default byte [ ] encode( byte [ ] data, byte [ ] dictionary ) throws IOException
+    {
+        return encode( data, 0, data.length, dictionary );
+    }
+
+    /**
+     * Encode a part of an array
+     * 
+     * @param data
+     *            the array containing the raw content
+     * @param nOffset
+     *            the offset of the content
+     * @param nLength
+     *            the length of the content
+     * @param dictionary
+     *            the preset dictionary, or null
+     * @return the encoded content
+     * @throws IOException
+     */
+    byte [ ] encode( byte [ ] data, int nOffset, int nLength, byte [ ] dictionary ) throws IOException;
+
+    /**
+     * Decode a content
+     * 
+     * @param data
+     *            the encoded content
+     * @param dictionary
+     *            the preset dictionary used to encode the content, or null
+     * @return the raw content
+     * @throws IOException
+     */
+    byte [ ] decode( byte [ ] data, byte [ ] dictionary ) throws IOException;
+}
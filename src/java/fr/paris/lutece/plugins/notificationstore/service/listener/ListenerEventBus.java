@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.listener;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandListener;
+import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationListener;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Dispatch of the demand and notification events to the {@link IDemandListener} and {@link INotificationListener} beans.
+ * 
+ * The listeners are resolved once, instead of a scan of the bean registry per write, and resolved again when the context is refreshed or a plugin
+ * is installed or removed (see {@link ListenerRegistryRefresher}).
+ * 
+ * By default the listeners are called synchronously, in the write path. In asynchronous mode, the events are queued in bounded ring buffers, one
+ * per lane, each drained by a single thread : the events of a demand go to the same lane, so they are delivered in order. When a buffer is full, the
+ * caller waits up to a timeout, then the event is dropped (and logged).
+ */
+public final class ListenerEventBus
+{
+    // Properties
+    private static final String PROPERTY_ASYNC_ENABLED = "notificationstore.listener.async.enabled";
+    private static final String PROPERTY_ASYNC_LANES = "notificationstore.listener.async.lanes";
+    private static final String PROPERTY_ASYNC_BUFFER_SIZE = "notificationstore.listener.async.bufferSize";
+    private static final String PROPERTY_ASYNC_OFFER_TIMEOUT = "notificationstore.listener.async.offerTimeoutMs";
+
+    // Constants
+    private static final String THREAD_NAME_PREFIX = "notificationstore-listener-lane-";
+    private static final String KEY_SEPARATOR = "_";
+
+    private static ListenerEventBus _instance;
+
+    private volatile List<IDemandListener> _listDemandListeners;
+    private volatile List<INotificationListener> _listNotificationListeners;
+    private final long _lOfferTimeoutMs;
+    private final AtomicLong _lDropped = new AtomicLong( );
+    private final Lane [ ] _lanes;
+
+    /**
+     * private constructor
+     */
+    private ListenerEventBus( )
+    {
+        refresh( );
+
+        boolean bAsync = AppPropertiesService.getPropertyBoolean( PROPERTY_ASYNC_ENABLED, false );
+        int nLanes = bAsync ? Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_ASYNC_LANES, 2 ) ) : 0;
+        int nBufferSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_ASYNC_BUFFER_SIZE, 1024 ) );
+        _lOfferTimeoutMs = AppPropertiesService.getPropertyLong( PROPERTY_ASYNC_OFFER_TIMEOUT, 1000 );
+
+        _lanes = new Lane [ nLanes];
+        for ( int i = 0; i < nLanes; i++ )
+        {
+            _lanes [i] = new Lane( i, nBufferSize );
+            _lanes [i].start( );
+        }
+    }
+
+    /**
+     * get unique instance of the bus
+     * 
+     * @return the bus
+     */
+    public static synchronized ListenerEventBus instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ListenerEventBus( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Resolve the listeners again
+     */
+    public void refresh( )
+    {
+        _listDemandListeners = SpringContextService.getBeansOfType( IDemandListener.class );
+        _listNotificationListeners = SpringContextService.getBeansOfType( INotificationListener.class );
+    }
+
+    /**
+     * Fire the creation of a demand
+     * 
+     * @param demand
+     *            the created demand
+     */
+    public void fireCreateDemand( Demand demand )
+    {
+        fireDemandEvent( demand.getId( ), demand.getTypeId( ), listener -> listener.onCreateDemand( demand ) );
+    }
+
+    /**
+     * Fire the update of a demand
+     * 
+     * @param demand
+     *            the updated demand
+     */
+    public void fireUpdateDemand( Demand demand )
+    {
+        fireDemandEvent( demand.getId( ), demand.getTypeId( ), listener -> listener.onUpdateDemand( demand ) );
+    }
+
+    /**
+     * Fire the deletion of a demand
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     */
+    public void fireDeleteDemand( String strDemandId, String strDemandTypeId )
+    {
+        fireDemandEvent( strDemandId, strDemandTypeId, listener -> listener.onDeleteDemand( strDemandId, strDemandTypeId ) );
+    }
+
+    /**
+     * Fire the creation of a notification
+     * 
+     * @param notification
+     *            the created notification
+     */
+    public void fireCreateNotification( Notification notification )
+    {
+        Demand demand = notification.getDemand( );
+        fireNotificationEvent( demand != null ? demand.getId( ) : null, demand != null ? demand.getTypeId( ) : null,
+                listener -> listener.onCreateNotification( notification ) );
+    }
+
+    /**
+     * Fire the deletion of the notifications of a demand
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     */
+    public void fireDeleteNotifications( String strDemandId, String strDemandTypeId )
+    {
+        fireNotificationEvent( strDemandId, strDemandTypeId, listener -> listener.onDeleteDemand( strDemandId, strDemandTypeId ) );
+    }
+
+    /**
+     * Get the number of events dropped because a buffer was full
+     * 
+     * @return the number of dropped events
+     */
+    public long getDroppedCount( )
+    {
+        return _lDropped.get( );
+    }
+
+    /**
+     * Dispatch a demand event
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param event
+     *            the call of a listener
+     */
+    private void fireDemandEvent( String strDemandId, String strDemandTypeId, Consumer<IDemandListener> event )
+    {
+        List<IDemandListener> listListeners = _listDemandListeners;
+        if ( !listListeners.isEmpty( ) )
+        {
+            dispatch( strDemandId, strDemandTypeId, ( ) -> listListeners.forEach( event ) );
+        }
+    }
+
+    /**
+     * Dispatch a notification event
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param event
+     *            the call of a listener
+     */
+    private void fireNotificationEvent( String strDemandId, String strDemandTypeId, Consumer<INotificationListener> event )
+    {
+        List<INotificationListener> listListeners = _listNotificationListeners;
+        if ( !listListeners.isEmpty( ) )
+        {
+            dispatch( strDemandId, strDemandTypeId, ( ) -> listListeners.forEach( event ) );
+        }
+    }
+
+    /**
+     * Run the calls of the listeners, or queue them in the lane of the demand
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param calls
+     *            the calls of the listeners
+     */
+    private void dispatch( String strDemandId, String strDemandTypeId, Runnable calls )
+    {
+        if ( _lanes.length == 0 )
+        {
+            calls.run( );
+            return;
+        }
+
+        Lane lane = _lanes [Math.floorMod( ( strDemandId + KEY_SEPARATOR + strDemandTypeId ).hashCode( ), _lanes.length )];
+        try
+        {
+            if ( lane._buffer.offer( calls, _lOfferTimeoutMs, TimeUnit.MILLISECONDS ) )
+            {
+                return;
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        _lDropped.incrementAndGet( );
+        AppLogService.error( "Listener event of demand " + strDemandId + " (" + strDemandTypeId + ") dropped : listener lane " + lane._nIndex + " is full" );
+    }
+
+    /**
+     * A lane : a bounded buffer and a single worker
+     */
+    private static final class Lane implements Runnable
+    {
+        private final int _nIndex;
+        private final BlockingQueue<Runnable> _buffer;
+
+        private Lane( int nIndex, int nBufferSize )
+        {
+            _nIndex = nIndex;
+            _buffer = new ArrayBlockingQueue<>( nBufferSize );
+        }
+
+        private void start( )
+        {
+            Thread thread = new Thread( this, THREAD_NAME_PREFIX + _nIndex );
+            thread.setDaemon( true );
+            thread.start( );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            while ( !Thread.currentThread( ).isInterrupted( ) )
+            {
+                try
+                {
+                    _buffer.take( ).run( );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+                catch( RuntimeException e )
+                {
+                    AppLogService.error( "Error in listener lane " + _nIndex, e );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.notifyer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.Event;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.grubusiness.service.notification.NotificationException;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationOutboxEntry;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationOutboxHome;
+import fr.paris.lutece.plugins.notificationstore.service.NotificationJsonCodec;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Transactional outbox of the notifications to forward to the notifyers.
+ * 
+ * When enabled, one outbox entry per notifyer is recorded in the transaction of the notification, instead of calling the notifyers after the
+ * commit : a crash between the storage and the forward can no longer lose the forward. The entries are relayed to the notifyers by the
+ * NotificationOutboxDaemon, in batches claimed with a lease so several nodes can relay in parallel. A failed delivery is retried with an exponential
+ * backoff, and recorded as a notification event with its redelivery count.
+ */
+public final class NotificationOutboxService
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "notificationstore.notifyer.outbox.enabled";
+    private static final String PROPERTY_BATCH_SIZE = "notificationstore.notifyer.outbox.batchSize";
+    private static final String PROPERTY_MAX_BATCHES = "notificationstore.notifyer.outbox.maxBatchesPerRun";
+    private static final String PROPERTY_LEASE = "notificationstore.notifyer.outbox.leaseMs";
+    private static final String PROPERTY_BACKOFF_INITIAL = "notificationstore.notifyer.outbox.backoff.initialMs";
+    private static final String PROPERTY_BACKOFF_MAX = "notificationstore.notifyer.outbox.backoff.maxMs";
+    private static final String PROPERTY_MAX_ATTEMPTS = "notificationstore.notifyer.outbox.maxAttempts";
+
+    // Constants
+    private static final String EVENT_TYPE = "NOTIFYER";
+    private static final String STATUS_FAILED = "FAILED";
+    private static final String STATUS_SUCCESS = "SUCCESS";
+
+    /**
+     * Outcomes of a relay
+     */
+    private enum Outcome
+    {
+        DELIVERED,
+        RESCHEDULED,
+        ABANDONED
+    }
+
+    private static NotificationOutboxService _instance;
+
+    private final boolean _bEnabled;
+    private final int _nBatchSize;
+    private final int _nMaxBatchesPerRun;
+    private final long _lLeaseMs;
+    private final long _lBackoffInitialMs;
+    private final long _lBackoffMaxMs;
+    private final int _nMaxAttempts;
+    private final String _strNodeId = UUID.randomUUID( ).toString( );
+
+    /**
+     * private constructor
+     */
+    private NotificationOutboxService( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+        _nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, 100 ) );
+        _nMaxBatchesPerRun = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_BATCHES, 10 ) );
+        _lLeaseMs = AppPropertiesService.getPropertyLong( PROPERTY_LEASE, 60000 );
+        _lBackoffInitialMs = AppPropertiesService.getPropertyLong( PROPERTY_BACKOFF_INITIAL, 10000 );
+        _lBackoffMaxMs = AppPropertiesService.getPropertyLong( PROPERTY_BACKOFF_MAX, 3600000 );
+        _nMaxAttempts = AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, 10 );
+    }
+
+    /**
+     * get unique instance of the service
+     * 
+     * @return the service
+     */
+    public static synchronized NotificationOutboxService instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationOutboxService( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Check if the outbox is enabled (otherwise the notifyers are called by the ingestion, after the storage)
+     * 
+     * @return true if enabled
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Record the forward of stored notifications to the notifyers. Must be called in the transaction of the notifications.
+     * 
+     * @param listNotifications
+     *            the notifications, with their ids
+     * @throws IOException
+     *             if a notification cannot be serialized
+     */
+    public void enqueue( List<Notification> listNotifications ) throws IOException
+    {
+        List<String> listNotifyerNames = NotifyerDispatcher.instance( ).getNotifyerNames( );
+        if ( listNotifyerNames.isEmpty( ) )
+        {
+            return;
+        }
+
+        List<NotificationOutboxEntry> listEntries = new ArrayList<>( listNotifications.size( ) * listNotifyerNames.size( ) );
+        for ( Notification notification : listNotifications )
+        {
+            String strPayload = NotificationJsonCodec.instance( ).writeNotification( notification );
+            for ( String strNotifyerName : listNotifyerNames )
+            {
+                NotificationOutboxEntry entry = new NotificationOutboxEntry( );
+                entry.setNotificationId( notification.getId( ) );
+                entry.setNotifyerName( strNotifyerName );
+                entry.setPayload( strPayload );
+                listEntries.add( entry );
+            }
+        }
+
+        NotificationOutboxHome.createBatch( listEntries );
+    }
+
+    /**
+     * Relay the due entries to the notifyers. A batch is capped to the number of notifyer calls that fit in the lease, and an entry is not
+     * delivered if its call could outlive the lease : the entries left are released, to be claimed again with a new lease.
+     * 
+     * @return the logs
+     */
+    public String relay( )
+    {
+        int nDelivered = 0;
+        int nRescheduled = 0;
+        int nAbandoned = 0;
+        int nReleased = 0;
+
+        long lCallTimeoutMs = NotifyerDispatcher.instance( ).getTimeoutMs( );
+        int nBatchSize = ( lCallTimeoutMs > 0 ) ? (int) Math.max( 1, Math.min( _nBatchSize, _lLeaseMs / lCallTimeoutMs ) ) : _nBatchSize;
+
+        for ( int nBatch = 0; nBatch < _nMaxBatchesPerRun; nBatch++ )
+        {
+            String strOwner = _strNodeId + "-" + UUID.randomUUID( );
+            long lLeaseExpiry = System.currentTimeMillis( ) + _lLeaseMs;
+            List<NotificationOutboxEntry> listEntries = NotificationOutboxHome.claim( strOwner, _lLeaseMs, nBatchSize );
+
+            for ( int nIndex = 0; nIndex < listEntries.size( ); nIndex++ )
+            {
+                if ( System.currentTimeMillis( ) + lCallTimeoutMs >= lLeaseExpiry )
+                {
+                    // another relay may claim the entry once the lease has expired : do not deliver it twice
+                    NotificationOutboxHome.release( strOwner );
+                    nReleased += listEntries.size( ) - nIndex;
+                    break;
+                }
+
+                switch( relay( listEntries.get( nIndex ), strOwner ) )
+                {
+                    case DELIVERED:
+                        nDelivered++;
+                        break;
+                    case ABANDONED:
+                        nAbandoned++;
+                        break;
+                    default:
+                        nRescheduled++;
+                }
+
+                if ( Thread.currentThread( ).isInterrupted( ) )
+                {
+                    NotificationOutboxHome.release( strOwner );
+                    return "Interrupted. Delivered : " + nDelivered + ", rescheduled : " + nRescheduled + ", abandoned : " + nAbandoned;
+                }
+            }
+
+            if ( listEntries.size( ) < nBatchSize )
+            {
+                break;
+            }
+        }
+
+        return "Delivered : " + nDelivered + ", rescheduled : " + nRescheduled + ", abandoned : " + nAbandoned + ", released : " + nReleased
+                + ", pending : " + NotificationOutboxHome.count( );
+    }
+
+    /**
+     * Relay a claimed entry
+     * 
+     * @param entry
+     *            the entry
+     * @param strOwner
+     *            the id of the claim
+     * @return the outcome
+     */
+    private Outcome relay( NotificationOutboxEntry entry, String strOwner )
+    {
+        Notification notification;
+        try
+        {
+            notification = NotificationJsonCodec.instance( ).readNotification( entry.getPayload( ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Outbox entry " + entry.getId( ) + " is not readable, abandoned", e );
+            NotificationOutboxHome.remove( entry.getId( ), strOwner );
+            return Outcome.ABANDONED;
+        }
+
+        String strError;
+        try
+        {
+            if ( !NotifyerDispatcher.instance( ).deliver( entry.getNotifyerName( ), notification ) )
+            {
+                AppLogService.error( "Notifyer " + entry.getNotifyerName( ) + " of outbox entry " + entry.getId( ) + " is not registered, abandoned" );
+                NotificationOutboxHome.remove( entry.getId( ), strOwner );
+                return Outcome.ABANDONED;
+            }
+
+            NotificationOutboxHome.remove( entry.getId( ), strOwner );
+            if ( entry.getAttempts( ) > 0 )
+            {
+                recordEvent( notification, entry, STATUS_SUCCESS, null );
+            }
+            return Outcome.DELIVERED;
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            strError = "interrupted";
+        }
+        catch( TimeoutException e )
+        {
+            strError = "timeout";
+        }
+        catch( NotificationException | RuntimeException e )
+        {
+            strError = e.getClass( ).getSimpleName( ) + " : " + e.getMessage( );
+        }
+
+        entry.setAttempts( entry.getAttempts( ) + 1 );
+        AppLogService.error( "Notifyer " + entry.getNotifyerName( ) + " failed for notification " + entry.getNotificationId( ) + " (attempt "
+                + entry.getAttempts( ) + ") : " + strError );
+
+        if ( _nMaxAttempts > 0 && entry.getAttempts( ) >= _nMaxAttempts )
+        {
+            NotificationOutboxHome.remove( entry.getId( ), strOwner );
+            recordEvent( notification, entry, STATUS_FAILED, "abandoned after " + entry.getAttempts( ) + " attempts : " + strError );
+            return Outcome.ABANDONED;
+        }
+
+        NotificationOutboxHome.reschedule( entry, strOwner, System.currentTimeMillis( ) + getBackoff( entry.getAttempts( ) ), strError );
+        recordEvent( notification, entry, STATUS_FAILED, strError );
+
+        return Outcome.RESCHEDULED;
+    }
+
+    /**
+     * Compute the delay before the next attempt : initial delay doubled at each attempt, up to the maximum
+     * 
+     * @param nAttempts
+     *            the number of failed attempts
+     * @return the delay, in milliseconds
+     */
+    private long getBackoff( int nAttempts )
+    {
+        int nShift = Math.min( Math.max( 0, nAttempts - 1 ), 30 );
+
+        return Math.min( _lBackoffMaxMs, _lBackoffInitialMs << nShift );
+    }
+
+    /**
+     * Record a delivery to a notifyer as a notification event, with the redelivery count
+     * 
+     * @param notification
+     *            the notification
+     * @param entry
+     *            the outbox entry
+     * @param strStatus
+     *            the status
+     * @param strError
+     *            the error, if any
+     */
+    private void recordEvent( Notification notification, NotificationOutboxEntry entry, String strStatus, String strError )
+    {
+        if ( notification.getDemand( ) == null )
+        {
+            return;
+        }
+
+        Event event = new Event( );
+        event.setType( EVENT_TYPE );
+        event.setEventDate( System.currentTimeMillis( ) );
+        event.setStatus( strStatus );
+        event.setRedelivry( entry.getAttempts( ) );
+        event.setMessage( entry.getNotifyerName( ) + ( strError != null ? " : " + strError : "" ) );
+
+        NotificationEvent notificationEvent = new NotificationEvent( );
+        notificationEvent.setEvent( event );
+        notificationEvent.setMsgId( String.valueOf( entry.getNotificationId( ) ) );
+        notificationEvent.setDemand( notification.getDemand( ) );
+        notificationEvent.setNotificationDate( notification.getDate( ) );
+
+        try
+        {
+            NotificationEventHome.create( notificationEvent );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Unable to record the delivery event of outbox entry " + entry.getId( ), e );
+        }
+    }
+}
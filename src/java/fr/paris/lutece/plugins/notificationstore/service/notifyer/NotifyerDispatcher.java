@@ -0,0 +1,540 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.notifyer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.EnumUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.grubusiness.service.notification.INotifyerServiceProvider;
+import fr.paris.lutece.plugins.grubusiness.service.notification.NotificationException;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Dispatch of the stored notifications to the registered notifyers.
+ * 
+ * Each notifyer has its own bulkhead : a bounded pool of threads with a bounded queue, so a slow or failing notifyer (SMS gateway, mail...) can
+ * neither delay the others nor exhaust the threads of the ingestion. The dispatch modes are :
+ * <ul>
+ * <li>sync : the notifyers are called one after the other by the caller, and their exceptions are propagated (legacy behaviour)</li>
+ * <li>parallel : the notifyers are called in parallel, and the caller waits for them up to the timeout</li>
+ * <li>async : fire-and-forget, the caller does not wait; the calls still running after the timeout are cancelled</li>
+ * </ul>
+ * In parallel and async modes, the failures of the notifyers are logged and counted, they are not reported to the client since the notification is
+ * already stored.
+ */
+public final class NotifyerDispatcher
+{
+    // Properties
+    private static final String PROPERTY_MODE = "notificationstore.notifyer.dispatch.mode";
+    private static final String PROPERTY_TIMEOUT = "notificationstore.notifyer.timeoutMs";
+    private static final String PROPERTY_MAX_CONCURRENT = "notificationstore.notifyer.bulkhead.maxConcurrent";
+    private static final String PROPERTY_QUEUE_CAPACITY = "notificationstore.notifyer.bulkhead.queueCapacity";
+    private static final String PROPERTY_STATS_LOG_INTERVAL = "notificationstore.notifyer.statsLogInterval";
+
+    // Constants
+    private static final String THREAD_NAME_PREFIX = "notificationstore-notifyer-";
+    private static final String THREAD_NAME_TIMEOUT = "notificationstore-notifyer-timeout";
+
+    /**
+     * Dispatch modes
+     */
+    public enum DispatchMode
+    {
+        SYNC,
+        PARALLEL,
+        ASYNC
+    }
+
+    private static NotifyerDispatcher _instance;
+
+    private final DispatchMode _mode;
+    private final long _lTimeoutMs;
+    private final long _lStatsLogInterval;
+    private final AtomicLong _lDispatches = new AtomicLong( );
+    private final List<Bulkhead> _listBulkheads = new ArrayList<>( );
+    private final ScheduledThreadPoolExecutor _timeoutScheduler;
+
+    /**
+     * private constructor
+     */
+    private NotifyerDispatcher( )
+    {
+        String strMode = AppPropertiesService.getProperty( PROPERTY_MODE, DispatchMode.ASYNC.name( ) ).trim( ).toUpperCase( );
+        DispatchMode mode = EnumUtils.getEnum( DispatchMode.class, strMode );
+        if ( mode == null )
+        {
+            AppLogService.error( "Unknown notifyer dispatch mode " + strMode + " (" + PROPERTY_MODE + "), the async mode is used" );
+            mode = DispatchMode.ASYNC;
+        }
+        _mode = mode;
+        _lTimeoutMs = AppPropertiesService.getPropertyLong( PROPERTY_TIMEOUT, 5000 );
+        _lStatsLogInterval = AppPropertiesService.getPropertyLong( PROPERTY_STATS_LOG_INTERVAL, 1000 );
+
+        int nMaxConcurrent = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONCURRENT, 10 ) );
+        int nQueueCapacity = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_CAPACITY, 100 ) );
+
+        for ( INotifyerServiceProvider notifyer : SpringContextService.getBeansOfType( INotifyerServiceProvider.class ) )
+        {
+            _listBulkheads.add( new Bulkhead( notifyer, _mode == DispatchMode.SYNC ? 0 : nMaxConcurrent, nQueueCapacity ) );
+        }
+
+        if ( _mode == DispatchMode.ASYNC && _lTimeoutMs > 0 && !_listBulkheads.isEmpty( ) )
+        {
+            _timeoutScheduler = new ScheduledThreadPoolExecutor( 1, runnable -> {
+                Thread thread = new Thread( runnable, THREAD_NAME_TIMEOUT );
+                thread.setDaemon( true );
+                return thread;
+            } );
+            _timeoutScheduler.setRemoveOnCancelPolicy( true );
+        }
+        else
+        {
+            _timeoutScheduler = null;
+        }
+    }
+
+    /**
+     * get unique instance of the dispatcher
+     * 
+     * @return the dispatcher
+     */
+    public static synchronized NotifyerDispatcher instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotifyerDispatcher( );
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Dispatch a notification to the notifyers
+     * 
+     * @param notification
+     *            the stored notification
+     * @throws NotificationException
+     *             in sync mode only, if a notifyer fails
+     */
+    public void dispatch( Notification notification ) throws NotificationException
+    {
+        if ( _listBulkheads.isEmpty( ) )
+        {
+            return;
+        }
+
+        if ( _mode == DispatchMode.SYNC )
+        {
+            for ( Bulkhead bulkhead : _listBulkheads )
+            {
+                bulkhead.call( notification, true );
+            }
+        }
+        else
+        {
+            List<Future<?>> listFutures = new ArrayList<>( _listBulkheads.size( ) );
+            for ( Bulkhead bulkhead : _listBulkheads )
+            {
+                listFutures.add( bulkhead.submit( notification ) );
+            }
+
+            if ( _mode == DispatchMode.PARALLEL )
+            {
+                await( notification, listFutures );
+            }
+            else
+            {
+                scheduleTimeouts( listFutures );
+            }
+        }
+
+        logStatistics( );
+    }
+
+    /**
+     * Get the names of the notifyers
+     * 
+     * @return the names, in the order of the dispatch
+     */
+    public List<String> getNotifyerNames( )
+    {
+        List<String> listNames = new ArrayList<>( _listBulkheads.size( ) );
+        for ( Bulkhead bulkhead : _listBulkheads )
+        {
+            listNames.add( bulkhead._statistics.getNotifyerName( ) );
+        }
+
+        return listNames;
+    }
+
+    /**
+     * Get the timeout of a notifyer call
+     * 
+     * @return the timeout, in milliseconds (0 if the calls are not bounded)
+     */
+    public long getTimeoutMs( )
+    {
+        return _lTimeoutMs;
+    }
+
+    /**
+     * Deliver a notification to one notifyer and wait for the result, up to the timeout (used by the outbox relay)
+     * 
+     * @param strNotifyerName
+     *            the name of the notifyer
+     * @param notification
+     *            the notification
+     * @return false if there is no notifyer with this name
+     * @throws NotificationException
+     *             if the notifyer fails
+     * @throws TimeoutException
+     *             if the notifyer does not answer before the timeout
+     * @throws InterruptedException
+     *             if the caller is interrupted
+     */
+    public boolean deliver( String strNotifyerName, Notification notification ) throws NotificationException, TimeoutException, InterruptedException
+    {
+        for ( Bulkhead bulkhead : _listBulkheads )
+        {
+            if ( bulkhead._statistics.getNotifyerName( ).equals( strNotifyerName ) )
+            {
+                bulkhead.deliver( notification, _lTimeoutMs );
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the statistics of the notifyers
+     * 
+     * @return the statistics, one per notifyer
+     */
+    public List<NotifyerStatistics> getStatistics( )
+    {
+        List<NotifyerStatistics> listStatistics = new ArrayList<>( _listBulkheads.size( ) );
+        for ( Bulkhead bulkhead : _listBulkheads )
+        {
+            listStatistics.add( bulkhead._statistics );
+        }
+
+        return listStatistics;
+    }
+
+    /**
+     * Wait for the calls, up to the timeout
+     * 
+     * @param notification
+     *            the notification
+     * @param listFutures
+     *            the calls (null if refused by the bulkhead), in the order of the bulkheads
+     */
+    private void await( Notification notification, List<Future<?>> listFutures )
+    {
+        long lDeadline = System.nanoTime( ) + TimeUnit.MILLISECONDS.toNanos( _lTimeoutMs );
+
+        for ( int i = 0; i < listFutures.size( ); i++ )
+        {
+            Future<?> future = listFutures.get( i );
+            if ( future == null )
+            {
+                continue;
+            }
+
+            try
+            {
+                if ( _lTimeoutMs > 0 )
+                {
+                    future.get( Math.max( 0, lDeadline - System.nanoTime( ) ), TimeUnit.NANOSECONDS );
+                }
+                else
+                {
+                    future.get( );
+                }
+            }
+            catch( TimeoutException e )
+            {
+                Bulkhead bulkhead = _listBulkheads.get( i );
+                if ( future.cancel( true ) )
+                {
+                    bulkhead._statistics.addTimeout( );
+                    AppLogService.error( "Notifyer " + bulkhead._statistics.getNotifyerName( ) + " timed out for notification " + notification.getId( ) );
+                }
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                return;
+            }
+            catch( ExecutionException e )
+            {
+                // the failures are logged and counted by the call itself
+            }
+        }
+    }
+
+    /**
+     * Cancel the calls still running after the timeout
+     * 
+     * @param listFutures
+     *            the calls (null if refused by the bulkhead), in the order of the bulkheads
+     */
+    private void scheduleTimeouts( List<Future<?>> listFutures )
+    {
+        if ( _timeoutScheduler == null )
+        {
+            return;
+        }
+
+        for ( int i = 0; i < listFutures.size( ); i++ )
+        {
+            Future<?> future = listFutures.get( i );
+            if ( future != null )
+            {
+                NotifyerStatistics statistics = _listBulkheads.get( i )._statistics;
+                _timeoutScheduler.schedule( ( ) -> {
+                    if ( future.cancel( true ) )
+                    {
+                        statistics.addTimeout( );
+                    }
+                }, _lTimeoutMs, TimeUnit.MILLISECONDS );
+            }
+        }
+    }
+
+    /**
+     * Log the statistics of the notifyers every N dispatches
+     */
+    private void logStatistics( )
+    {
+        if ( _lStatsLogInterval > 0 && _lDispatches.incrementAndGet( ) % _lStatsLogInterval == 0 )
+        {
+            for ( Bulkhead bulkhead : _listBulkheads )
+            {
+                AppLogService.info( bulkhead._statistics );
+            }
+        }
+    }
+
+    /**
+     * Bulkhead of a notifyer : its own threads and queue, and its statistics
+     */
+    private static final class Bulkhead
+    {
+        private final INotifyerServiceProvider _notifyer;
+        private final ThreadPoolExecutor _executor;
+        private final NotifyerStatistics _statistics;
+
+        /**
+         * Constructor
+         * 
+         * @param notifyer
+         *            the notifyer
+         * @param nMaxConcurrent
+         *            the maximum number of concurrent calls (0 for the sync mode : no thread)
+         * @param nQueueCapacity
+         *            the maximum number of pending calls
+         */
+        private Bulkhead( INotifyerServiceProvider notifyer, int nMaxConcurrent, int nQueueCapacity )
+        {
+            _notifyer = notifyer;
+            _statistics = new NotifyerStatistics( notifyer.getClass( ).getSimpleName( ) );
+
+            if ( nMaxConcurrent > 0 )
+            {
+                String strThreadName = THREAD_NAME_PREFIX + _statistics.getNotifyerName( );
+                _executor = new ThreadPoolExecutor( nMaxConcurrent, nMaxConcurrent, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>( nQueueCapacity ),
+                        runnable -> {
+                            Thread thread = new Thread( runnable, strThreadName );
+                            thread.setDaemon( true );
+                            return thread;
+                        } );
+                _executor.allowCoreThreadTimeOut( true );
+            }
+            else
+            {
+                _executor = null;
+            }
+        }
+
+        /**
+         * Submit a call to the threads of the notifyer
+         * 
+         * @param notification
+         *            the notification
+         * @return the call, or null if the bulkhead is full
+         */
+        private Future<?> submit( Notification notification )
+        {
+            try
+            {
+                return _executor.submit( ( ) -> {
+                    try
+                    {
+                        call( notification, false );
+                    }
+                    catch( NotificationException e )
+                    {
+                        // not thrown when not propagated
+                    }
+                } );
+            }
+            catch( RejectedExecutionException e )
+            {
+                _statistics.addRejected( );
+                AppLogService.error( "Notifyer " + _statistics.getNotifyerName( ) + " is saturated, notification " + notification.getId( ) + " not forwarded" );
+
+                return null;
+            }
+        }
+
+        /**
+         * Call the notifyer on its threads, and wait for the result
+         * 
+         * @param notification
+         *            the notification
+         * @param lTimeoutMs
+         *            the timeout (0 for none)
+         * @throws NotificationException
+         *             if the notifyer fails
+         * @throws TimeoutException
+         *             if the notifyer does not answer before the timeout
+         * @throws InterruptedException
+         *             if the caller is interrupted
+         */
+        private void deliver( Notification notification, long lTimeoutMs ) throws NotificationException, TimeoutException, InterruptedException
+        {
+            if ( _executor == null )
+            {
+                call( notification, true );
+                return;
+            }
+
+            Future<?> future;
+            try
+            {
+                future = _executor.submit( ( ) -> {
+                    call( notification, true );
+                    return null;
+                } );
+            }
+            catch( RejectedExecutionException e )
+            {
+                _statistics.addRejected( );
+                throw e;
+            }
+
+            try
+            {
+                if ( lTimeoutMs > 0 )
+                {
+                    future.get( lTimeoutMs, TimeUnit.MILLISECONDS );
+                }
+                else
+                {
+                    future.get( );
+                }
+            }
+            catch( TimeoutException e )
+            {
+                if ( future.cancel( true ) )
+                {
+                    _statistics.addTimeout( );
+                }
+                throw e;
+            }
+            catch( ExecutionException e )
+            {
+                if ( e.getCause( ) instanceof NotificationException )
+                {
+                    throw (NotificationException) e.getCause( );
+                }
+                if ( e.getCause( ) instanceof Error )
+                {
+                    throw (Error) e.getCause( );
+                }
+                throw (RuntimeException) e.getCause( );
+            }
+        }
+
+        /**
+         * Call the notifyer
+         * 
+         * @param notification
+         *            the notification
+         * @param bPropagate
+         *            true to propagate the failure, false to log it
+         * @throws NotificationException
+         *             if the notifyer fails and the failure is propagated
+         */
+        private void call( Notification notification, boolean bPropagate ) throws NotificationException
+        {
+            long lStart = System.nanoTime( );
+            boolean bSuccess = false;
+
+            try
+            {
+                _notifyer.process( notification );
+                bSuccess = true;
+            }
+            catch( NotificationException | RuntimeException e )
+            {
+                if ( bPropagate )
+                {
+                    throw e;
+                }
+                AppLogService.error( "Notifyer " + _statistics.getNotifyerName( ) + " failed for notification " + notification.getId( ), e );
+            }
+            finally
+            {
+                _statistics.addCall( System.nanoTime( ) - lStart, bSuccess );
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.notifyer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a notifyer : calls, failures and latency
+ */
+public class NotifyerStatistics
+{
+    private final String _strNotifyerName;
+    private final AtomicLong _lCallCount = new AtomicLong( );
+    private final AtomicLong _lErrorCount = new AtomicLong( );
+    private final AtomicLong _lTimeoutCount = new AtomicLong( );
+    private final AtomicLong _lRejectedCount = new AtomicLong( );
+    private final AtomicLong _lTotalNanos = new AtomicLong( );
+    private final AtomicLong _lMaxNanos = new AtomicLong( );
+
+    /**
+     * Constructor
+     * 
+     * @param strNotifyerName
+     *            the notifyer name
+     */
+    public NotifyerStatistics( String strNotifyerName )
+    {
+        _strNotifyerName = strNotifyerName;
+    }
+
+    /**
+     * Record a completed call
+     * 
+     * @param lNanos
+     *            the call duration
+     * @param bSuccess
+     *            false if the notifyer has thrown an exception
+     */
+    public void addCall( long lNanos, boolean bSuccess )
+    {
+        _lCallCount.incrementAndGet( );
+        _lTotalNanos.addAndGet( lNanos );
+        _lMaxNanos.accumulateAndGet( lNanos, Math::max );
+        if ( !bSuccess )
+        {
+            _lErrorCount.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Record a call cancelled after the timeout
+     */
+    public void addTimeout( )
+    {
+        _lTimeoutCount.incrementAndGet( );
+    }
+
+    /**
+     * Record a call refused because the bulkhead of the notifyer is full
+     */
+    public void addRejected( )
+    {
+        _lRejectedCount.incrementAndGet( );
+    }
+
+    /**
+     * @return the notifyer name
+     */
+    public String getNotifyerName( )
+    {
+        return _strNotifyerName;
+    }
+
+    /**
+     * @return the number of completed calls (successful or not)
+     */
+    public long getCallCount( )
+    {
+        return _lCallCount.get( );
+    }
+
+    /**
+     * @return the number of calls that have thrown an exception
+     */
+    public long getErrorCount( )
+    {
+        return _lErrorCount.get( );
+    }
+
+    /**
+     * @return the number of calls cancelled after the timeout
+     */
+    public long getTimeoutCount( )
+    {
+        return _lTimeoutCount.get( );
+    }
+
+    /**
+     * @return the number of calls refused by the bulkhead
+     */
+    public long getRejectedCount( )
+    {
+        return _lRejectedCount.get( );
+    }
+
+    /**
+     * @return the mean call duration, in milliseconds
+     */
+    public double getMeanMillis( )
+    {
+        long lCount = _lCallCount.get( );
+
+        return lCount == 0 ? 0 : _lTotalNanos.get( ) / 1000000d / lCount;
+    }
+
+    /**
+     * @return the longest call duration, in milliseconds
+     */
+    public double getMaxMillis( )
+    {
+        return _lMaxNanos.get( ) / 1000000d;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( )
+    {
+        return String.format( "%s : %d calls (mean %.1f ms, max %.1f ms), %d errors, %d timeouts, %d rejected", _strNotifyerName, getCallCount( ),
+                getMeanMillis( ), getMaxMillis( ), getErrorCount( ), getTimeoutCount( ), getRejectedCount( ) );
+    }
+}
@@ -47,6 +47,8 @@ public class NotificationStoreConstants
     public static final String PATH_CATEGORY = "/category";
 
     public static final String PATH_LIST = "/list";
+    public static final String PATH_BATCH = "/batch";
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
     public static final String PATH_TYPE_NOTIFICATION = "notificationType";
     public static final String PATH_ID = "/{" + NotificationStoreConstants.ID + "}";
     public static final String PATH_CUSTOMER_ID = "/{" + NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID + "}";
@@ -61,6 +63,16 @@ public class NotificationStoreConstants
     public static final String QUERY_PARAM_ID_DEMAND = "idDemand";
     public static final String QUERY_PARAM_LIST_STATUS = "listStatus";
     public static final String QUERY_PARAM_CATEGORY_CODE = "categoryCode";
+    public static final String QUERY_PARAM_CURSOR = "cursor";
+    public static final String QUERY_PARAM_FIELDS = "fields";
+    public static final String QUERY_PARAM_CHANNELS = "channels";
+
+    // projection of the notification lists
+    public static final String FIELD_DEMAND = "demand";
+    public static final String FIELD_CONTENT = "content";
+    public static final String CHANNEL_NONE = "none";
+
+    public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
     
     //Demand type attributes
     public static final String DEMANDTYPE_ATTRIBUTE_ID_DEMAND_TYPE = "id_demand_type";
@@ -86,10 +98,13 @@ public class NotificationStoreConstants
     /** The Constant LIMIT_DEMAND_API_REST. */
     public static final String LIMIT_DEMAND_API_REST = "notificationstore.api.rest.limit.demand";
     public static final String PROPERTY_COMPRESS_NOTIFICATION = "notificationstore.notification.compress";
+    public static final String PROPERTY_CONTENT_INLINE_MAX_BYTES = "notificationstore.content.inline.maxBytes";
 
     // MESSAGE
     public static final String MESSAGE_ERROR_DEMAND = "Parameter customerId is mandatory";
     public static final String MESSAGE_ERROR_STATUS = "Parameters customerId and listStatus are mandatory ( can separated status by ,)";
+    public static final String MESSAGE_ERROR_CURSOR = "Invalid cursor";
+    public static final String MESSAGE_ERROR_PROJECTION = "Invalid fields or channels parameter";
     public static final String MESSAGE_ERROR_NOTIF = "Parameters idDemand, customerId and idDemandType are mandatory ";
     public static final String MESSAGE_ALL_REQUIRED = "All attributes are required";
     public static final String MESSAGE_ERROR_NOT_FOUND_RESOURCE = "Resource not found";
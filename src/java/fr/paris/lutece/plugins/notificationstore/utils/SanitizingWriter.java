@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.utils;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer removing the characters rejected by {@link NotificationStoreConstants#CHARECTER_REGEXP_FILTER} while they are written, without building the
+ * filtered string nor running the regular expression. Like the regular expression, it works on code points : a surrogate pair is kept or removed as a
+ * whole, according to the category of its supplementary character.
+ */
+public class SanitizingWriter extends FilterWriter
+{
+    private static final int BUFFER_SIZE = 1024;
+
+    private final char [ ] _buffer = new char [ BUFFER_SIZE];
+    private int _nCount;
+    private char _cPendingHighSurrogate;
+
+    /**
+     * Constructor
+     * 
+     * @param out
+     *            the target writer
+     */
+    public SanitizingWriter( Writer out )
+    {
+        super( out );
+    }
+
+    /**
+     * Tell whether a code point is kept by the filter
+     * 
+     * @param nCodePoint
+     *            the code point
+     * @return true if the code point is a letter, a mark, a number, a punctuation, a separator, a format or surrogate character, a math or currency
+     *         symbol, or a whitespace
+     */
+    public static boolean isAllowed( int nCodePoint )
+    {
+        switch( Character.getType( nCodePoint ) )
+        {
+            case Character.UPPERCASE_LETTER:
+            case Character.LOWERCASE_LETTER:
+            case Character.TITLECASE_LETTER:
+            case Character.MODIFIER_LETTER:
+            case Character.OTHER_LETTER:
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.LETTER_NUMBER:
+            case Character.OTHER_NUMBER:
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+            case Character.SPACE_SEPARATOR:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+            case Character.FORMAT:
+            case Character.SURROGATE:
+            case Character.MATH_SYMBOL:
+            case Character.CURRENCY_SYMBOL:
+                return true;
+            default:
+                // \s
+                return nCodePoint == ' ' || nCodePoint == '\t' || nCodePoint == '\n' || nCodePoint == 0x0B || nCodePoint == '\f' || nCodePoint == '\r';
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( int c ) throws IOException
+    {
+        filter( (char) c );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( char [ ] cbuf, int off, int len ) throws IOException
+    {
+        for ( int i = off; i < off + len; i++ )
+        {
+            filter( cbuf [i] );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( String str, int off, int len ) throws IOException
+    {
+        for ( int i = off; i < off + len; i++ )
+        {
+            filter( str.charAt( i ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush( ) throws IOException
+    {
+        flushBuffer( );
+        out.flush( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        releasePendingHighSurrogate( );
+        flushBuffer( );
+        out.close( );
+    }
+
+    /**
+     * Filter a char
+     * 
+     * @param c
+     *            the char
+     * @throws IOException
+     */
+    private void filter( char c ) throws IOException
+    {
+        if ( _cPendingHighSurrogate != 0 )
+        {
+            char cHigh = _cPendingHighSurrogate;
+            _cPendingHighSurrogate = 0;
+
+            if ( Character.isLowSurrogate( c ) )
+            {
+                if ( isAllowed( Character.toCodePoint( cHigh, c ) ) )
+                {
+                    bufferChar( cHigh );
+                    bufferChar( c );
+                }
+                return;
+            }
+
+            // unpaired high surrogate
+            bufferChar( cHigh );
+        }
+
+        if ( Character.isHighSurrogate( c ) )
+        {
+            _cPendingHighSurrogate = c;
+        }
+        else
+            if ( isAllowed( c ) )
+            {
+                bufferChar( c );
+            }
+    }
+
+    /**
+     * Write an unpaired high surrogate at the end of the content
+     * 
+     * @throws IOException
+     */
+    private void releasePendingHighSurrogate( ) throws IOException
+    {
+        if ( _cPendingHighSurrogate != 0 )
+        {
+            bufferChar( _cPendingHighSurrogate );
+            _cPendingHighSurrogate = 0;
+        }
+    }
+
+    /**
+     * Buffer a kept char
+     * 
+     * @param c
+     *            the char
+     * @throws IOException
+     */
+    private void bufferChar( char c ) throws IOException
+    {
+        if ( _nCount == BUFFER_SIZE )
+        {
+            flushBuffer( );
+        }
+        _buffer [_nCount++] = c;
+    }
+
+    /**
+     * Write the buffered chars
+     * 
+     * @throws IOException
+     */
+    private void flushBuffer( ) throws IOException
+    {
+        if ( _nCount > 0 )
+        {
+            out.write( _buffer, 0, _nCount );
+            _nCount = 0;
+        }
+    }
+}
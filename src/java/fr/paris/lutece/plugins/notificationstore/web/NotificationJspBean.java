@@ -220,7 +220,8 @@ public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, No
     List<Notification> getItemsFromIds( List<Integer> listIds )
     {
 
-        List<Notification> listNotification = NotificationHome.getByIds( listIds );
+        // payloads are read from the file store when the template displays them
+        List<Notification> listNotification = NotificationHome.getLazyByIds( listIds );
 
         // keep original order
         return listNotification.stream( ).sorted( Comparator.comparingInt( notif -> listIds.indexOf( notif.getId( ) ) ) ).collect( Collectors.toList( ) );
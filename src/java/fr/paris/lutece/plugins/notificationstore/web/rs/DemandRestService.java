@@ -35,9 +35,13 @@ package fr.paris.lutece.plugins.notificationstore.web.rs;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -56,16 +60,20 @@ import org.apache.commons.lang3.StringUtils;
 import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandStatus;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandServiceProvider;
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.DemandDisplay;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.DemandResult;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.SearchResult;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.responseStatus.ResponseStatusFactory;
+import fr.paris.lutece.plugins.notificationstore.business.DemandCursor;
 import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.plugins.notificationstore.business.DemandState;
+import fr.paris.lutece.plugins.notificationstore.business.DemandStateHome;
 import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
-import fr.paris.lutece.plugins.notificationstore.business.StatusHome;
+import fr.paris.lutece.plugins.notificationstore.service.StatusDictionary;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
@@ -95,6 +103,9 @@ public class DemandRestService
      * 
      * @param strDemandType
      * @param strPage
+     * @param strCursor
+     *            the cursor of the page (empty for the first page) : if set, the page is loaded by keyset and the cursor of the next page is returned in
+     *            the X-Next-Cursor header
      */
     @GET
     @Path( NotificationStoreConstants.PATH_LIST )
@@ -103,7 +114,8 @@ public class DemandRestService
             @QueryParam( NotificationStoreConstants.QUERY_PARAM_INDEX ) String strIndex,
             @QueryParam( NotificationStoreConstants.QUERY_PARAM_LIMIT ) String strLimitResult,
             @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId,
-            @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType )
+            @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType,
+            @QueryParam( NotificationStoreConstants.QUERY_PARAM_CURSOR ) String strCursor )
     {
         int nIndex = StringUtils.isEmpty( strIndex ) ? 1 : Integer.parseInt( strIndex );
         int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( NotificationStoreConstants.LIMIT_DEMAND_API_REST, 10 );
@@ -121,6 +133,25 @@ public class DemandRestService
             return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
         }
 
+        if ( strCursor != null )
+        {
+            DemandCursor after;
+            try
+            {
+                after = parseCursor( strCursor );
+            }
+            catch( IllegalArgumentException e )
+            {
+                return badCursorResponse( result );
+            }
+
+            List<DemandCursor> listPositions = DemandHome.getPageByCustomerIdAndDemandTypeId( strCustomerId, strNotificationType, strIdDemandType, after,
+                    nDefaultItemsPerPage + 1 );
+            int nCount = DemandHome.countByCustomerIdAndDemandTypeId( strCustomerId, strNotificationType, strIdDemandType );
+
+            return getResponse( result, nDefaultItemsPerPage, listPositions, nCount );
+        }
+
         List<Integer> listIds = DemandHome.getIdsByCustomerIdAndDemandTypeId( strCustomerId, strNotificationType, strIdDemandType );
         return getResponse( result, nIndex, nDefaultItemsPerPage, listIds );
     }
@@ -131,6 +162,8 @@ public class DemandRestService
      * @param strIdDemandType
      * @param strIndex
      * @param strCustomerId
+     * @param strCursor
+     *            the cursor of the page (empty for the first page), see getListDemand
      * @return list of active demand
      */
     @GET
@@ -142,7 +175,8 @@ public class DemandRestService
             @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId,
             @QueryParam( NotificationStoreConstants.QUERY_PARAM_LIST_STATUS ) String strListStatus,
             @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType,
-            @QueryParam( NotificationStoreConstants.QUERY_PARAM_CATEGORY_CODE ) String strCategoryCode )
+            @QueryParam( NotificationStoreConstants.QUERY_PARAM_CATEGORY_CODE ) String strCategoryCode,
+            @QueryParam( NotificationStoreConstants.QUERY_PARAM_CURSOR ) String strCursor )
     {
         int nIndex = StringUtils.isEmpty( strIndex ) ? 1 : Integer.parseInt( strIndex );
         int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( NotificationStoreConstants.LIMIT_DEMAND_API_REST, 10 );
@@ -183,6 +217,26 @@ public class DemandRestService
         }
 
         List<String> listStatus = Arrays.asList( strListStatus.split( "," ) );
+
+        if ( strCursor != null )
+        {
+            DemandCursor after;
+            try
+            {
+                after = parseCursor( strCursor );
+            }
+            catch( IllegalArgumentException e )
+            {
+                return badCursorResponse( result );
+            }
+
+            List<DemandCursor> listPositions = DemandHome.getPageByStatus( strCustomerId, listStatus, strNotificationType, sbIdsTypeDemand.toString( ), after,
+                    nDefaultItemsPerPage + 1 );
+            int nCount = DemandHome.countByStatus( strCustomerId, listStatus, strNotificationType, sbIdsTypeDemand.toString( ) );
+
+            return getResponse( result, nDefaultItemsPerPage, listPositions, nCount );
+        }
+
         List<Integer> listIds = DemandHome.getIdsByStatus( strCustomerId, listStatus, strNotificationType, sbIdsTypeDemand.toString( ) );
 
         return getResponse( result, nIndex, nDefaultItemsPerPage, listIds );
@@ -245,6 +299,85 @@ public class DemandRestService
         //return Response.status( entity.getStatus( ).getHttpCode( ) ).entity( entity ).type( MediaType.APPLICATION_JSON_TYPE ).build( );
     }
 
+    /**
+     * Get the response of a page loaded with a cursor
+     * 
+     * @param result
+     * @param nItemsPerPage
+     * @param listPositions
+     *            the positions of the page, with one more position if there is a next page
+     * @param nCount
+     *            the total number of demands
+     * @return the response, with the cursor of the next page in a header
+     */
+    private Response getResponse( DemandResult result, int nItemsPerPage, List<DemandCursor> listPositions, int nCount )
+    {
+        if ( listPositions.isEmpty( ) )
+        {
+            result.setStatus( ResponseStatusFactory.noResult( ).setMessageKey( "no_result" ) );
+            return Response.status( result.getStatus( ).getHttpCode( ) ).entity( result ).build( );
+        }
+
+        boolean bHasNext = listPositions.size( ) > nItemsPerPage;
+        List<DemandCursor> listPage = bHasNext ? listPositions.subList( 0, nItemsPerPage ) : listPositions;
+
+        Map<Integer, Demand> mapDemands = DemandHome.getByIds( listPage.stream( ).map( DemandCursor::getUid ).collect( Collectors.toList( ) ) ).stream( )
+                .collect( Collectors.toMap( Demand::getUID, Function.identity( ) ) );
+        List<Demand> listDemand = new ArrayList<>( );
+        for ( DemandCursor position : listPage )
+        {
+            Demand demand = mapDemands.get( position.getUid( ) );
+            if ( demand != null )
+            {
+                listDemand.add( demand );
+            }
+        }
+
+        result.setListDemandDisplay( getListDemandDisplay( listDemand ) );
+        result.setNumberResult( nCount );
+        result.setStatus( ResponseStatusFactory.ok( ) );
+
+        Response.ResponseBuilder builder = Response.status( result.getStatus( ).getHttpCode( ) ).entity( result );
+        if ( bHasNext )
+        {
+            builder.header( NotificationStoreConstants.HEADER_NEXT_CURSOR, listPage.get( listPage.size( ) - 1 ).toToken( ) );
+        }
+
+        return builder.build( );
+    }
+
+    /**
+     * Parse the cursor parameter
+     * 
+     * @param strCursor
+     *            the cursor, empty for the first page
+     * @return the position after which the page starts, null for the first page
+     * @throws IllegalArgumentException
+     *             if the cursor is not valid
+     */
+    private static DemandCursor parseCursor( String strCursor )
+    {
+        if ( StringUtils.isBlank( strCursor ) )
+        {
+            return null;
+        }
+
+        return DemandCursor.fromToken( strCursor.trim( ) );
+    }
+
+    /**
+     * Get the response of an invalid cursor
+     * 
+     * @param result
+     * @return the response
+     */
+    private static Response badCursorResponse( DemandResult result )
+    {
+        result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_CURSOR ) );
+
+        return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+    }
+
     /**
      * 
      * @param listIds
@@ -252,17 +385,29 @@ public class DemandRestService
      */
     private List<DemandDisplay> getListDemandDisplay( List<Integer> listIds )
     {
+        List<DemandDisplay> listDemandDisplay = getListDemandDisplay( DemandHome.getByIds( listIds ) );
+        Collections.reverse( listDemandDisplay );
+        return listDemandDisplay;
+    }
+
+    /**
+     * 
+     * @param listDemand
+     * @return list of demand display, in the order of the demands
+     */
+    private List<DemandDisplay> getListDemandDisplay( Collection<Demand> listDemand )
+    {
+        Map<Integer, DemandState> mapStates = DemandStateHome.findByDemandUids( listDemand.stream( ).map( Demand::getUID ).collect( Collectors.toList( ) ) );
+
         List<DemandDisplay> listDemandDisplay = new ArrayList<>( );
-        List<Demand> listDemand = DemandHome.getByIds( listIds );
         for ( Demand demand : listDemand )
         {
             DemandDisplay demandDisplay = new DemandDisplay( );
             demandDisplay.setDemand( demand );
-            demandDisplay.setStatus( getLabelStatus( demand ) );
+            demandDisplay.setStatus( getLabelStatus( demand, mapStates.get( demand.getUID( ) ) ) );
 
             listDemandDisplay.add( demandDisplay );
         }
-        Collections.reverse( listDemandDisplay );
         return listDemandDisplay;
     }
 
@@ -270,10 +415,36 @@ public class DemandRestService
      * Get status label
      * 
      * @param demand
+     * @param state
+     *            the current state of the demand, null if it has not been projected
      * @return status
      */
-    private String getLabelStatus( Demand demand )
+    private String getLabelStatus( Demand demand, DemandState state )
     {
+        if ( state != null )
+        {
+            if ( state.getNotificationTypes( ) == null
+                    || !Arrays.asList( state.getNotificationTypes( ).split( "," ) ).contains( EnumNotificationType.MYDASHBOARD.name( ) ) )
+            {
+                return StringUtils.EMPTY;
+            }
+
+            EnumGenericStatus enumGenericStatus = EnumGenericStatus.getByStatusId( state.getStatusGenericId( ) );
+            if ( enumGenericStatus != null )
+            {
+                return I18nService.getLocalizedString( enumGenericStatus.getLabel( ), LocaleService.getDefault( ) );
+            }
+
+            Optional<DemandStatus> status = StatusDictionary.instance( ).getById( state.getStatusId( ) );
+            if ( status.isPresent( ) )
+            {
+                return status.get( ).getGenericStatus( ) != null
+                        ? I18nService.getLocalizedString( status.get( ).getGenericStatus( ).getLabel( ), LocaleService.getDefault( ) )
+                        : status.get( ).getStatus( );
+            }
+        }
+
+        // demand not projected yet : read from its last notification
         Notification notification = NotificationHome.getLastNotifByDemandIdAndDemandTypeId( String.valueOf( demand.getId( ) ),
                 String.valueOf( demand.getTypeId( ) ) );
 
@@ -286,7 +457,7 @@ public class DemandRestService
             }
             else
             {
-                Optional<DemandStatus> status = StatusHome.findByStatus( notification.getMyDashboardNotification( ).getStatusText( ) );
+                Optional<DemandStatus> status = StatusDictionary.instance( ).get( notification.getMyDashboardNotification( ).getStatusText( ) );
                 if ( status.isPresent( ) && status.get( ).getGenericStatus( ) != null )
                 {
                     return I18nService.getLocalizedString( status.get( ).getGenericStatus( ).getLabel( ), LocaleService.getDefault( ) );
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.notificationstore.web.rs;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.ws.rs.Consumes;
@@ -53,6 +55,7 @@ import fr.paris.lutece.plugins.grubusiness.business.web.rs.SearchResult;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.responseStatus.ResponseStatus;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.responseStatus.ResponseStatusFactory;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.service.NotificationBatchService;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationService;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
@@ -65,7 +68,7 @@ public class NotificationRestService
     /**
      * process the notification 
      * 
-     * @param strJson
+     * @param inputStream
      *            The JSON flow
      * @return The response
      */
@@ -73,17 +76,33 @@ public class NotificationRestService
     @Path( NotificationStoreConstants.PATH_NOTIFICATION )
     @Consumes( MediaType.APPLICATION_JSON )
     @Produces( MediaType.APPLICATION_JSON )
-    public Response notification( String strJson )
+    public Response notification( InputStream inputStream )
     {
-    	return NotificationService.instance( ).newNotification( strJson );
+    	return NotificationService.instance( ).newNotification( inputStream );
     }
     
 
     
+    /**
+     * process a batch of notifications
+     * 
+     * @param inputStream
+     *            a JSON array of notifications, or a NDJSON stream (one notification per line)
+     * @return The response, with one acknowledge per notification
+     */
+    @POST
+    @Path( NotificationStoreConstants.PATH_NOTIFICATION + NotificationStoreConstants.PATH_BATCH )
+    @Consumes( { MediaType.APPLICATION_JSON, NotificationStoreConstants.MEDIA_TYPE_NDJSON } )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response notifications( InputStream inputStream )
+    {
+        return NotificationBatchService.instance( ).newNotifications( inputStream );
+    }
+
     /**
      * store the notification  event
      * 
-     * @param strJson
+     * @param inputStream
      *            The JSON flow
      * @return The response
      */
@@ -91,9 +110,9 @@ public class NotificationRestService
     @Path( NotificationStoreConstants.PATH_NOTIFICATION_EVENT )
     @Consumes( MediaType.APPLICATION_JSON )
     @Produces( MediaType.APPLICATION_JSON )
-    public Response notificationEvent( String strJson )
+    public Response notificationEvent( InputStream inputStream )
     {
-    	return NotificationService.instance( ).newNotificationEvent( strJson );
+    	return NotificationService.instance( ).newNotificationEvent( inputStream );
     }
     
      
@@ -101,20 +120,46 @@ public class NotificationRestService
      * Gets list of notification
      * 
      * @param strIdDemand
+     * @param strIdDemandType
+     * @param strCustomerId
+     * @param strFields
+     *            the optional parts to load, separated by commas ( demand, content ) : all parts if not set
+     * @param strChannels
+     *            the channels whose payloads are loaded, separated by commas ( none for the headers only ) : all channels if not set
+     * @return the notification list
      */
     @GET
     @Path( NotificationStoreConstants.PATH_NOTIFICATION + NotificationStoreConstants.PATH_LIST)
     @Produces( MediaType.APPLICATION_JSON )
     public Response getListNotification( @QueryParam( NotificationStoreConstants.QUERY_PARAM_ID_DEMAND ) String strIdDemand,
             @QueryParam( NotificationStoreConstants.QUERY_PARAM_ID_DEMAND_TYPE ) String strIdDemandType,
-            @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId )
+            @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId,
+            @QueryParam( NotificationStoreConstants.QUERY_PARAM_FIELDS ) String strFields,
+            @QueryParam( NotificationStoreConstants.QUERY_PARAM_CHANNELS ) String strChannels )
     {
         NotificationResult result = new NotificationResult( );
 
         if ( StringUtils.isNotEmpty( strIdDemand ) && StringUtils.isNotEmpty( strIdDemandType ) && StringUtils.isNotEmpty( strCustomerId ) )
         {
+            List<String> listFields = split( strFields );
+            List<EnumNotificationType> listChannels;
+
+            try
+            {
+                listChannels = getChannels( listFields, strChannels );
+            }
+            catch( IllegalArgumentException e )
+            {
+                result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_PROJECTION )
+                        .setMessageKey( SearchResult.ERROR_FIELD_MANDATORY ) );
+
+                return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            }
 
-            List<Notification> notifications = NotificationHome.getByDemandIdTypeIdCustomerId( strIdDemand, strIdDemandType, strCustomerId );
+            boolean bWithDemand = listFields == null || listFields.contains( NotificationStoreConstants.FIELD_DEMAND );
+
+            List<Notification> notifications = NotificationHome.getByDemandIdTypeIdCustomerId( strIdDemand, strIdDemandType, strCustomerId, bWithDemand,
+                    listChannels );
 
             result.setNotifications( notifications );
             result.setStatus( ResponseStatusFactory.ok( ) );
@@ -130,6 +175,79 @@ public class NotificationRestService
         }
     }
     
+    /**
+     * Get the channels to load from the projection parameters
+     * 
+     * @param listFields
+     *            the requested fields, null for all
+     * @param strChannels
+     *            the requested channels
+     * @return the channels, null for all channels
+     * @throws IllegalArgumentException
+     *             if a field or a channel is unknown
+     */
+    private static List<EnumNotificationType> getChannels( List<String> listFields, String strChannels )
+    {
+        if ( listFields != null )
+        {
+            for ( String strField : listFields )
+            {
+                if ( !NotificationStoreConstants.FIELD_DEMAND.equals( strField ) && !NotificationStoreConstants.FIELD_CONTENT.equals( strField ) )
+                {
+                    throw new IllegalArgumentException( "Unknown field : " + strField );
+                }
+            }
+
+            if ( !listFields.contains( NotificationStoreConstants.FIELD_CONTENT ) )
+            {
+                return new ArrayList<>( );
+            }
+        }
+
+        List<String> listChannelNames = split( strChannels );
+        if ( listChannelNames == null )
+        {
+            return null;
+        }
+
+        List<EnumNotificationType> listChannels = new ArrayList<>( );
+        for ( String strChannel : listChannelNames )
+        {
+            if ( !NotificationStoreConstants.CHANNEL_NONE.equalsIgnoreCase( strChannel ) )
+            {
+                listChannels.add( EnumNotificationType.valueOf( strChannel.toUpperCase( ) ) );
+            }
+        }
+
+        return listChannels;
+    }
+
+    /**
+     * Split a comma separated parameter
+     * 
+     * @param strParameter
+     *            the parameter
+     * @return the trimmed values, null if the parameter is not set
+     */
+    private static List<String> split( String strParameter )
+    {
+        if ( StringUtils.isBlank( strParameter ) )
+        {
+            return null;
+        }
+
+        List<String> listValues = new ArrayList<>( );
+        for ( String strValue : strParameter.split( "," ) )
+        {
+            if ( StringUtils.isNotBlank( strValue ) )
+            {
+                listValues.add( strValue.trim( ) );
+            }
+        }
+
+        return listValues;
+    }
+
     /**
      * Gets list of notification types
      * 
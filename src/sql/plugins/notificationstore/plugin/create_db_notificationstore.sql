@@ -15,6 +15,8 @@ closure_date timestamp NULL,
 max_steps int NULL,
 current_step int NULL,
 modify_date timestamp NULL,
+version int default 0 NOT NULL,
+last_notification_date timestamp NULL,
 PRIMARY KEY ( uid ),
 UNIQUE( demand_type_id,customer_id,id )
 );
@@ -22,13 +24,14 @@ UNIQUE( demand_type_id,customer_id,id )
 CREATE INDEX notificationstore_demand_u_index on notificationstore_demand ( demand_type_id,customer_id,id);
 CREATE INDEX notificationstore_demand_id_index on notificationstore_demand ( id );
 CREATE INDEX notificationstore_demand_customer_index ON notificationstore_demand (customer_id);
+CREATE INDEX notificationstore_demand_customer_date_index ON notificationstore_demand (customer_id, modify_date, uid);
 
 --
 -- Structure for table notificationstore_notification
 --
 DROP TABLE IF EXISTS notificationstore_notification;
 CREATE TABLE notificationstore_notification (
-id int NOT NULL,
+id bigint NOT NULL,
 demand_id varchar(100) NOT NULL,
 demand_type_id varchar(50) NOT NULL,
 customer_id varchar(100) NULL,
@@ -40,6 +43,24 @@ CREATE INDEX idx_notificationstore_notification_date on notificationstore_notifi
 
 ALTER TABLE notificationstore_notification ADD CONSTRAINT fk_notificationstore_notification_demand_id FOREIGN KEY (demand_type_id, customer_id,demand_id)
       REFERENCES notificationstore_demand (demand_type_id, customer_id ,id) ON DELETE CASCADE ON UPDATE RESTRICT;
+
+--
+-- Structure for table notificationstore_demand_state
+--
+DROP TABLE IF EXISTS notificationstore_demand_state;
+CREATE TABLE notificationstore_demand_state (
+demand_uid int NOT NULL,
+last_notification_id bigint NOT NULL,
+last_notification_date timestamp NOT NULL,
+status_id int default -1 NOT NULL,
+status_generic_id int default -1 NOT NULL,
+notification_types varchar(255) NULL,
+PRIMARY KEY (demand_uid)
+);
+CREATE INDEX idx_notificationstore_demand_state_status on notificationstore_demand_state (status_id);
+
+ALTER TABLE notificationstore_demand_state ADD CONSTRAINT fk_notificationstore_demand_state_demand_uid FOREIGN KEY (demand_uid)
+      REFERENCES notificationstore_demand (uid) ON DELETE CASCADE ON UPDATE RESTRICT;
    
 
 DROP TABLE IF EXISTS notificationstore_notification_event;
@@ -76,6 +97,7 @@ PRIMARY KEY (id)
 );
 
 CREATE INDEX IDX_notificationstore_status_text on  notificationstore_status (status(200), status_id) ;
+CREATE UNIQUE INDEX IDX_notificationstore_status_label on notificationstore_status (status(200)) ;
 
 --
 -- Structure for table notificationstore_demand_type
@@ -115,14 +137,88 @@ CREATE UNIQUE INDEX IDX_notificationstore_demand_category_code on  notifications
 DROP TABLE IF EXISTS notificationstore_notification_content;
 CREATE TABLE notificationstore_notification_content (
 id_notification_content int AUTO_INCREMENT,
-notification_id int NOT NULL,
+notification_id bigint NOT NULL,
 notification_type varchar(100) default '' NOT NULL,
 status_id int default "-1",
 status_generic_id int default "-1",
 file_key VARCHAR(255) DEFAULT NULL,
 file_store VARCHAR(255) DEFAULT NULL,
+content BLOB DEFAULT NULL,
+codec VARCHAR(50) DEFAULT NULL,
+dictionary_id int DEFAULT NULL,
 PRIMARY KEY (id_notification_content)
 );
 
 CREATE UNIQUE INDEX index_notification_id ON notificationstore_notification_content (notification_id, notification_type);
 
+--
+-- Structure for table notificationstore_codec_dictionary
+--
+
+DROP TABLE IF EXISTS notificationstore_codec_dictionary;
+CREATE TABLE notificationstore_codec_dictionary (
+id_dictionary int AUTO_INCREMENT,
+demand_type_id varchar(255) NOT NULL,
+creation_date timestamp NOT NULL,
+content MEDIUMBLOB NOT NULL,
+PRIMARY KEY (id_dictionary)
+);
+CREATE INDEX idx_notificationstore_codec_dictionary_type ON notificationstore_codec_dictionary (demand_type_id);
+
+--
+-- Structure for table notificationstore_id_block
+--
+
+DROP TABLE IF EXISTS notificationstore_id_block;
+CREATE TABLE notificationstore_id_block (
+name varchar(50) NOT NULL,
+next_value bigint NOT NULL,
+PRIMARY KEY (name)
+);
+
+--
+-- Structure for table notificationstore_customer_unresolved
+--
+
+DROP TABLE IF EXISTS notificationstore_customer_unresolved;
+CREATE TABLE notificationstore_customer_unresolved (
+id int AUTO_INCREMENT,
+connection_id varchar(255) NOT NULL,
+demand_id varchar(100) NOT NULL,
+demand_type_id varchar(50) NOT NULL,
+creation_date timestamp NOT NULL,
+PRIMARY KEY (id)
+);
+
+CREATE INDEX IDX_notificationstore_customer_unresolved on notificationstore_customer_unresolved (connection_id, demand_id, demand_type_id) ;
+
+--
+-- Structure for table notificationstore_notification_outbox
+--
+
+DROP TABLE IF EXISTS notificationstore_notification_outbox;
+CREATE TABLE notificationstore_notification_outbox (
+id int AUTO_INCREMENT,
+notification_id bigint NOT NULL,
+notifyer varchar(255) NOT NULL,
+payload MEDIUMTEXT NOT NULL,
+attempts int default '0' NOT NULL,
+creation_date timestamp NOT NULL,
+next_attempt_date timestamp NOT NULL,
+lease_owner varchar(100) DEFAULT NULL,
+lease_expiry timestamp NULL DEFAULT NULL,
+last_error varchar(255) DEFAULT NULL,
+PRIMARY KEY (id)
+);
+CREATE INDEX idx_notificationstore_notification_outbox_due ON notificationstore_notification_outbox (next_attempt_date, lease_expiry);
+CREATE INDEX idx_notificationstore_notification_outbox_owner ON notificationstore_notification_outbox (lease_owner);
+
+--
+-- Structure for table notificationstore_journal_checkpoint : last entry of each local notification journal applied to the database
+--
+DROP TABLE IF EXISTS notificationstore_journal_checkpoint;
+CREATE TABLE notificationstore_journal_checkpoint (
+journal_id varchar(50) NOT NULL,
+sequence bigint default 0 NOT NULL,
+PRIMARY KEY (journal_id)
+);
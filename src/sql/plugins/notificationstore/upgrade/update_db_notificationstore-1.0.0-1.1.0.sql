@@ -0,0 +1,148 @@
+--
+-- Notification ids allocated by blocks
+--
+
+ALTER TABLE notificationstore_notification MODIFY id bigint NOT NULL;
+ALTER TABLE notificationstore_notification_content MODIFY notification_id bigint NOT NULL;
+
+DROP TABLE IF EXISTS notificationstore_id_block;
+CREATE TABLE notificationstore_id_block (
+name varchar(50) NOT NULL,
+next_value bigint NOT NULL,
+PRIMARY KEY (name)
+);
+
+INSERT INTO notificationstore_id_block ( name, next_value ) SELECT 'notification', COALESCE( max( id ), 0 ) + 1 FROM notificationstore_notification;
+
+--
+-- Structure for table notificationstore_customer_unresolved
+--
+
+DROP TABLE IF EXISTS notificationstore_customer_unresolved;
+CREATE TABLE notificationstore_customer_unresolved (
+id int AUTO_INCREMENT,
+connection_id varchar(255) NOT NULL,
+demand_id varchar(100) NOT NULL,
+demand_type_id varchar(50) NOT NULL,
+creation_date timestamp NOT NULL,
+PRIMARY KEY (id)
+);
+
+CREATE INDEX IDX_notificationstore_customer_unresolved on notificationstore_customer_unresolved (connection_id, demand_id, demand_type_id) ;
+
+--
+-- Index for the keyset pagination of the customer demands
+--
+CREATE INDEX notificationstore_demand_customer_date_index ON notificationstore_demand (customer_id, modify_date, uid);
+
+--
+-- Structure for table notificationstore_demand_state
+--
+DROP TABLE IF EXISTS notificationstore_demand_state;
+CREATE TABLE notificationstore_demand_state (
+demand_uid int NOT NULL,
+last_notification_id bigint NOT NULL,
+last_notification_date timestamp NOT NULL,
+status_id int default -1 NOT NULL,
+status_generic_id int default -1 NOT NULL,
+notification_types varchar(255) NULL,
+PRIMARY KEY (demand_uid)
+);
+CREATE INDEX idx_notificationstore_demand_state_status on notificationstore_demand_state (status_id);
+
+ALTER TABLE notificationstore_demand_state ADD CONSTRAINT fk_notificationstore_demand_state_demand_uid FOREIGN KEY (demand_uid)
+      REFERENCES notificationstore_demand (uid) ON DELETE CASCADE ON UPDATE RESTRICT;
+
+-- initial projection of the existing demands (can be rebuilt later with the DemandStateRebuildDaemon)
+INSERT INTO notificationstore_demand_state ( demand_uid, last_notification_id, last_notification_date, status_id, status_generic_id, notification_types )
+SELECT gd.uid, gn.id, gn.date,
+ COALESCE( ( SELECT MAX( gc.status_id ) FROM notificationstore_notification_content gc WHERE gc.notification_id = gn.id ), -1 ),
+ COALESCE( ( SELECT MAX( gc.status_generic_id ) FROM notificationstore_notification_content gc WHERE gc.notification_id = gn.id ), -1 ),
+ ( SELECT GROUP_CONCAT( gc.notification_type ORDER BY gc.notification_type SEPARATOR ',' ) FROM notificationstore_notification_content gc WHERE gc.notification_id = gn.id )
+FROM notificationstore_demand gd
+JOIN notificationstore_notification gn ON gn.id = ( SELECT n.id FROM notificationstore_notification n WHERE n.demand_id = gd.id AND n.demand_type_id = gd.demand_type_id ORDER BY n.date DESC, n.id DESC LIMIT 1 );
+
+--
+-- Inline storage of the small notification contents
+--
+ALTER TABLE notificationstore_notification_content ADD COLUMN content BLOB DEFAULT NULL;
+
+--
+-- Codec of the stored notification contents (NULL for the contents stored before, read with the global compression property)
+--
+ALTER TABLE notificationstore_notification_content ADD COLUMN codec VARCHAR(50) DEFAULT NULL;
+ALTER TABLE notificationstore_notification_content ADD COLUMN dictionary_id int DEFAULT NULL;
+
+--
+-- Structure for table notificationstore_codec_dictionary
+--
+
+DROP TABLE IF EXISTS notificationstore_codec_dictionary;
+CREATE TABLE notificationstore_codec_dictionary (
+id_dictionary int AUTO_INCREMENT,
+demand_type_id varchar(255) NOT NULL,
+creation_date timestamp NOT NULL,
+content MEDIUMBLOB NOT NULL,
+PRIMARY KEY (id_dictionary)
+);
+CREATE INDEX idx_notificationstore_codec_dictionary_type ON notificationstore_codec_dictionary (demand_type_id);
+
+--
+-- Structure for table notificationstore_notification_outbox
+--
+
+DROP TABLE IF EXISTS notificationstore_notification_outbox;
+CREATE TABLE notificationstore_notification_outbox (
+id int AUTO_INCREMENT,
+notification_id bigint NOT NULL,
+notifyer varchar(255) NOT NULL,
+payload MEDIUMTEXT NOT NULL,
+attempts int default '0' NOT NULL,
+creation_date timestamp NOT NULL,
+next_attempt_date timestamp NOT NULL,
+lease_owner varchar(100) DEFAULT NULL,
+lease_expiry timestamp NULL DEFAULT NULL,
+last_error varchar(255) DEFAULT NULL,
+PRIMARY KEY (id)
+);
+CREATE INDEX idx_notificationstore_notification_outbox_due ON notificationstore_notification_outbox (next_attempt_date, lease_expiry);
+CREATE INDEX idx_notificationstore_notification_outbox_owner ON notificationstore_notification_outbox (lease_owner);
+
+--
+-- Version of the demand rows, for the optimistic updates of concurrent writers
+--
+ALTER TABLE notificationstore_demand ADD COLUMN version int default 0 NOT NULL;
+
+--
+-- Date of the last notification applied to the state of the demand rows, for the notifications received out of order
+--
+ALTER TABLE notificationstore_demand ADD COLUMN last_notification_date timestamp NULL;
+
+--
+-- Structure for table notificationstore_journal_checkpoint : last entry of each local notification journal applied to the database
+--
+DROP TABLE IF EXISTS notificationstore_journal_checkpoint;
+CREATE TABLE notificationstore_journal_checkpoint (
+journal_id varchar(50) NOT NULL,
+sequence bigint default 0 NOT NULL,
+PRIMARY KEY (journal_id)
+);
+
+--
+-- Unique status labels : the references to a label stored twice are moved to its first status, then the duplicates are removed
+--
+UPDATE notificationstore_notification_content gc
+JOIN notificationstore_status s ON s.id = gc.status_id
+JOIN ( SELECT status, MIN( id ) AS first_id FROM notificationstore_status GROUP BY status ) f ON f.status = s.status
+SET gc.status_id = f.first_id
+WHERE gc.status_id <> f.first_id;
+
+UPDATE notificationstore_demand_state ds
+JOIN notificationstore_status s ON s.id = ds.status_id
+JOIN ( SELECT status, MIN( id ) AS first_id FROM notificationstore_status GROUP BY status ) f ON f.status = s.status
+SET ds.status_id = f.first_id
+WHERE ds.status_id <> f.first_id;
+
+DELETE s FROM notificationstore_status s JOIN notificationstore_status f ON f.status = s.status AND f.id < s.id;
+
+CREATE UNIQUE INDEX IDX_notificationstore_status_label on notificationstore_status (status(200)) ;
@@ -67,6 +67,8 @@ public class DemandDAOTest extends LuteceTestCase
     private static final int DEMAND_MAX_STEPS_2 = 2;
     private static final int DEMAND_CURRENT_STEP_1 = 1;
     private static final int DEMAND_CURRENT_STEP_2 = 2;
+    private static final long DEMAND_NOTIFICATION_DATE_1 = 1700000000000L;
+    private static final long DEMAND_NOTIFICATION_DATE_2 = 1700000060000L;
     private final IDemandDAO _demandDao;
 
     /**
@@ -173,4 +175,60 @@ public class DemandDAOTest extends LuteceTestCase
         demandStored = _demandDao.loadByDemandIdAndTypeId( DEMAND_ID_1, DEMAND_TYPE_ID_1 );
         assertEquals( demandStored, nullValue( ) );
     }
+
+    /**
+     * Test of the concurrency-safe writes
+     */
+    public void testUpsert( )
+    {
+        DemandDAO demandDao = new DemandDAO( );
+
+        Demand demand = new Demand( );
+        demand.setId( DEMAND_ID_1 );
+        demand.setTypeId( DEMAND_TYPE_ID_1 );
+        demand.setReference( DEMAND_REFERENCE_1 );
+        demand.setStatusId( EnumGenericStatus.ONGOING.getStatusId( ) );
+        Customer customer = new Customer( );
+        customer.setId( CUSTOMER_ID_1 );
+        demand.setCustomer( customer );
+        demand.setCreationDate( DEMAND_CREATION_DATE_1 );
+        demand.setMaxSteps( DEMAND_MAX_STEPS_1 );
+        demand.setCurrentStep( DEMAND_CURRENT_STEP_1 );
+
+        assertTrue( demandDao.insertIfAbsent( demand, DEMAND_NOTIFICATION_DATE_1 ) );
+        assertTrue( demand.getUID( ) > 0 );
+
+        // second creation of the same demand
+        Demand demandConcurrent = new Demand( );
+        demandConcurrent.setId( DEMAND_ID_1 );
+        demandConcurrent.setTypeId( DEMAND_TYPE_ID_1 );
+        demandConcurrent.setReference( DEMAND_REFERENCE_1 );
+        demandConcurrent.setCustomer( customer );
+        demandConcurrent.setCreationDate( DEMAND_CREATION_DATE_1 );
+        assertFalse( demandDao.insertIfAbsent( demandConcurrent, DEMAND_NOTIFICATION_DATE_1 ) );
+        assertEquals( 0, demandConcurrent.getUID( ) );
+
+        VersionedDemand versioned = demandDao.loadVersioned( DEMAND_ID_1, DEMAND_TYPE_ID_1, false );
+        assertEquals( demand.getUID( ), versioned.getDemand( ).getUID( ) );
+
+        // the first update wins, the second one has read a stale version
+        versioned.getDemand( ).setCurrentStep( DEMAND_CURRENT_STEP_2 );
+        assertTrue( demandDao.storeIfVersion( versioned.getDemand( ), DEMAND_NOTIFICATION_DATE_2, versioned.getVersion( ) ) );
+        assertFalse( demandDao.storeIfVersion( versioned.getDemand( ), DEMAND_NOTIFICATION_DATE_2, versioned.getVersion( ) ) );
+
+        VersionedDemand updated = demandDao.loadVersioned( DEMAND_ID_1, DEMAND_TYPE_ID_1, false );
+        assertEquals( versioned.getVersion( ) + 1, updated.getVersion( ) );
+        assertEquals( DEMAND_CURRENT_STEP_2, updated.getDemand( ).getCurrentStep( ) );
+        assertEquals( DEMAND_NOTIFICATION_DATE_2, updated.getLastNotificationDate( ) );
+
+        // a late notification does not regress the state of the demand
+        updated.getDemand( ).setCurrentStep( DEMAND_CURRENT_STEP_1 );
+        demandDao.storeFromNotification( updated.getDemand( ), DEMAND_NOTIFICATION_DATE_1 );
+
+        VersionedDemand late = demandDao.loadVersioned( DEMAND_ID_1, DEMAND_TYPE_ID_1, false );
+        assertEquals( DEMAND_CURRENT_STEP_2, late.getDemand( ).getCurrentStep( ) );
+        assertEquals( DEMAND_NOTIFICATION_DATE_2, late.getLastNotificationDate( ) );
+
+        demandDao.delete( DEMAND_ID_1, DEMAND_TYPE_ID_1 );
+    }
 }
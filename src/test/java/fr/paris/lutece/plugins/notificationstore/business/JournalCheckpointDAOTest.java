@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.UUID;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the JournalCheckpointDAO
+ */
+public class JournalCheckpointDAOTest extends LuteceTestCase
+{
+    private final JournalCheckpointDAO _checkpointDAO;
+
+    /**
+     * Constructor
+     */
+    public JournalCheckpointDAOTest( )
+    {
+        _checkpointDAO = new JournalCheckpointDAO( );
+    }
+
+    /**
+     * The checkpoint is created once, at the sequence 0
+     */
+    public void testInsertIfAbsent( )
+    {
+        String strJournalId = UUID.randomUUID( ).toString( );
+
+        try
+        {
+            assertEquals( -1, _checkpointDAO.load( strJournalId ) );
+
+            _checkpointDAO.insertIfAbsent( strJournalId );
+            assertEquals( 0, _checkpointDAO.load( strJournalId ) );
+
+            _checkpointDAO.advance( strJournalId, 3 );
+            _checkpointDAO.insertIfAbsent( strJournalId );
+            assertEquals( 3, _checkpointDAO.load( strJournalId ) );
+        }
+        finally
+        {
+            _checkpointDAO.delete( strJournalId );
+        }
+    }
+
+    /**
+     * The checkpoint only moves forward : an entry already applied is not applied again
+     */
+    public void testAdvance( )
+    {
+        String strJournalId = UUID.randomUUID( ).toString( );
+
+        try
+        {
+            assertFalse( _checkpointDAO.advance( strJournalId, 1 ) );
+
+            _checkpointDAO.insertIfAbsent( strJournalId );
+            assertTrue( _checkpointDAO.advance( strJournalId, 1 ) );
+            assertTrue( _checkpointDAO.advance( strJournalId, 5 ) );
+            assertFalse( _checkpointDAO.advance( strJournalId, 5 ) );
+            assertFalse( _checkpointDAO.advance( strJournalId, 3 ) );
+            assertEquals( 5, _checkpointDAO.load( strJournalId ) );
+        }
+        finally
+        {
+            _checkpointDAO.delete( strJournalId );
+        }
+    }
+}
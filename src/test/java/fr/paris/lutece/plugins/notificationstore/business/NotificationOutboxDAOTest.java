@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the NotificationOutboxDAO
+ */
+public class NotificationOutboxDAOTest extends LuteceTestCase
+{
+    private static final String NOTIFYER_NAME = "NotificationOutboxDAOTest";
+    private static final String PAYLOAD = "{ \"notification\" : { } }";
+    private static final String ERROR = "Notifyer unavailable";
+    private static final long LEASE_MS = 60000;
+    private static final int LIMIT = 1000;
+    private final NotificationOutboxDAO _outboxDAO;
+
+    /**
+     * Constructor
+     */
+    public NotificationOutboxDAOTest( )
+    {
+        _outboxDAO = new NotificationOutboxDAO( );
+    }
+
+    /**
+     * An entry leased by a relay is not claimed by another one, and only its owner can release or remove it
+     */
+    public void testClaimLease( )
+    {
+        int nNotificationId = createEntry( );
+        String strOwner1 = UUID.randomUUID( ).toString( );
+        String strOwner2 = UUID.randomUUID( ).toString( );
+
+        NotificationOutboxEntry entry = find( _outboxDAO.claim( strOwner1, LEASE_MS, LIMIT ), nNotificationId );
+        assertNotNull( entry );
+        assertEquals( 0, entry.getAttempts( ) );
+        assertEquals( NOTIFYER_NAME, entry.getNotifyerName( ) );
+        assertEquals( PAYLOAD, entry.getPayload( ) );
+
+        try
+        {
+            assertNull( find( _outboxDAO.claim( strOwner2, LEASE_MS, LIMIT ), nNotificationId ) );
+
+            _outboxDAO.delete( entry.getId( ), strOwner2 );
+            entry.setAttempts( 1 );
+            _outboxDAO.reschedule( entry, strOwner2, System.currentTimeMillis( ), ERROR );
+            NotificationOutboxEntry entryOwned = find( _outboxDAO.claim( strOwner1, LEASE_MS, LIMIT ), nNotificationId );
+            assertNotNull( entryOwned );
+            assertEquals( 0, entryOwned.getAttempts( ) );
+        }
+        finally
+        {
+            _outboxDAO.delete( entry.getId( ), strOwner1 );
+        }
+
+        assertNull( find( _outboxDAO.claim( strOwner1, LEASE_MS, LIMIT ), nNotificationId ) );
+    }
+
+    /**
+     * The entries of a relay whose lease has expired are claimed again
+     */
+    public void testExpiredLease( )
+    {
+        int nNotificationId = createEntry( );
+        String strOwner1 = UUID.randomUUID( ).toString( );
+        String strOwner2 = UUID.randomUUID( ).toString( );
+
+        NotificationOutboxEntry entry = find( _outboxDAO.claim( strOwner1, -LEASE_MS, LIMIT ), nNotificationId );
+        assertNotNull( entry );
+
+        NotificationOutboxEntry entryClaimed = find( _outboxDAO.claim( strOwner2, LEASE_MS, LIMIT ), nNotificationId );
+        assertNotNull( entryClaimed );
+        assertEquals( entry.getId( ), entryClaimed.getId( ) );
+        assertNull( find( _outboxDAO.claim( strOwner1, LEASE_MS, LIMIT ), nNotificationId ) );
+
+        _outboxDAO.delete( entryClaimed.getId( ), strOwner2 );
+    }
+
+    /**
+     * The released entries of a relay are claimed again at once, without counting an attempt
+     */
+    public void testRelease( )
+    {
+        int nNotificationId = createEntry( );
+        String strOwner1 = UUID.randomUUID( ).toString( );
+        String strOwner2 = UUID.randomUUID( ).toString( );
+
+        NotificationOutboxEntry entry = find( _outboxDAO.claim( strOwner1, LEASE_MS, LIMIT ), nNotificationId );
+        assertNotNull( entry );
+
+        _outboxDAO.release( strOwner1 );
+        NotificationOutboxEntry entryClaimed = find( _outboxDAO.claim( strOwner2, LEASE_MS, LIMIT ), nNotificationId );
+        assertNotNull( entryClaimed );
+        assertEquals( 0, entryClaimed.getAttempts( ) );
+
+        _outboxDAO.delete( entryClaimed.getId( ), strOwner2 );
+    }
+
+    /**
+     * A rescheduled entry is released, and claimed again once its next attempt is due
+     */
+    public void testReschedule( )
+    {
+        int nNotificationId = createEntry( );
+        String strOwner1 = UUID.randomUUID( ).toString( );
+        String strOwner2 = UUID.randomUUID( ).toString( );
+        String strOwner3 = UUID.randomUUID( ).toString( );
+
+        NotificationOutboxEntry entry = find( _outboxDAO.claim( strOwner1, LEASE_MS, LIMIT ), nNotificationId );
+        assertNotNull( entry );
+
+        // not due yet
+        entry.setAttempts( 1 );
+        _outboxDAO.reschedule( entry, strOwner1, System.currentTimeMillis( ) + LEASE_MS, ERROR );
+        assertNull( find( _outboxDAO.claim( strOwner2, LEASE_MS, LIMIT ), nNotificationId ) );
+
+        // due : claimed again, with its number of attempts
+        entry.setAttempts( 2 );
+        _outboxDAO.reschedule( entry, strOwner1, System.currentTimeMillis( ) - LEASE_MS, ERROR );
+        NotificationOutboxEntry entryOwned = find( _outboxDAO.claim( strOwner3, LEASE_MS, LIMIT ), nNotificationId );
+        assertNotNull( entryOwned );
+        assertEquals( 2, entryOwned.getAttempts( ) );
+
+        _outboxDAO.delete( entryOwned.getId( ), strOwner3 );
+        assertNull( find( _outboxDAO.claim( strOwner3, LEASE_MS, LIMIT ), nNotificationId ) );
+    }
+
+    /**
+     * Create an outbox entry, with a notification id unused by the other entries
+     * 
+     * @return the notification id
+     */
+    private int createEntry( )
+    {
+        int nNotificationId = (int) ( System.nanoTime( ) & Integer.MAX_VALUE );
+
+        NotificationOutboxEntry entry = new NotificationOutboxEntry( );
+        entry.setNotificationId( nNotificationId );
+        entry.setNotifyerName( NOTIFYER_NAME );
+        entry.setPayload( PAYLOAD );
+        _outboxDAO.insertBatch( Collections.singletonList( entry ) );
+
+        return nNotificationId;
+    }
+
+    /**
+     * Find the entry of a notification
+     * 
+     * @param listEntries
+     *            the claimed entries
+     * @param nNotificationId
+     *            the notification id
+     * @return the entry, or null if not claimed
+     */
+    private static NotificationOutboxEntry find( List<NotificationOutboxEntry> listEntries, int nNotificationId )
+    {
+        return listEntries.stream( ).filter( e -> e.getNotificationId( ) == nNotificationId ).findFirst( ).orElse( null );
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the CircuitBreaker
+ */
+public class CircuitBreakerTest extends LuteceTestCase
+{
+    private static final String NAME = "test";
+
+    /**
+     * The open circuit is permitted again once its delay is elapsed, without taking the trial
+     */
+    public void testCallPermittedAfterDelay( ) throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker( NAME, 1, 1 );
+        breaker.recordFailure( );
+        assertEquals( CircuitBreaker.State.OPEN, breaker.getState( ) );
+
+        Thread.sleep( 5 );
+
+        assertTrue( breaker.isCallPermitted( ) );
+        assertTrue( breaker.isCallPermitted( ) );
+        assertTrue( breaker.allowRequest( ) );
+        assertFalse( breaker.isCallPermitted( ) );
+        assertFalse( breaker.allowRequest( ) );
+    }
+
+    /**
+     * A released trial is given to the next caller
+     */
+    public void testReleaseTrial( ) throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker( NAME, 1, 1 );
+        breaker.recordFailure( );
+        Thread.sleep( 5 );
+
+        assertTrue( breaker.allowRequest( ) );
+        breaker.releaseTrial( );
+        assertEquals( CircuitBreaker.State.HALF_OPEN, breaker.getState( ) );
+        assertTrue( breaker.allowRequest( ) );
+
+        breaker.recordSuccess( );
+        assertEquals( CircuitBreaker.State.CLOSED, breaker.getState( ) );
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.paris.lutece.plugins.grubusiness.business.customer.Customer;
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.business.VersionedDemand;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the NotificationBatchService : a chunk whose transaction fails is replayed item by item
+ */
+public class NotificationBatchServiceTest extends LuteceTestCase
+{
+    private static final String DEMAND_ID_PREFIX = "BatchDemandId";
+    private static final String DEMAND_TYPE_ID = "BatchDemandTypeId";
+    private static final String DEMAND_REFERENCE = "BatchDemandReference";
+    private static final String CUSTOMER_ID = "BatchCustomerId";
+    // longer than the demand_id column of the notifications : the insert of the chunk fails
+    private static final String DEMAND_ID_TOO_LONG = StringUtils.repeat( "x", 150 );
+    private static final String ACK_STATUS_ERROR = "error";
+
+    /**
+     * The valid notifications of a failed group are committed alone, the invalid one is rejected
+     * 
+     * @throws Exception
+     */
+    public void testGroupReplay( ) throws Exception
+    {
+        String strDemandId = DEMAND_ID_PREFIX + System.nanoTime( );
+        List<Notification> listNotifications = Arrays.asList( buildNotification( strDemandId ), buildNotification( DEMAND_ID_TOO_LONG ) );
+        List<String> listJson = new ArrayList<>( );
+        for ( Notification notification : listNotifications )
+        {
+            listJson.add( NotificationJsonCodec.instance( ).writeNotification( notification ) );
+        }
+
+        List<Notification> listForwards = new ArrayList<>( );
+        try
+        {
+            // not prepared by callers : prepared by the chunk
+            List<Response> listResponses = NotificationBatchService.instance( ).processGroup( listJson, listNotifications,
+                    Collections.nCopies( listNotifications.size( ), null ), listForwards );
+
+            assertEquals( 2, listResponses.size( ) );
+            assertTrue( listResponses.get( 0 ).getStatus( ) < 400 );
+            assertTrue( listResponses.get( 1 ).getStatus( ) >= 400 );
+            assertNotNull( listForwards.get( 0 ) );
+            assertNull( listForwards.get( 1 ) );
+
+            assertNotNull( DemandHome.getVersionedDemand( strDemandId, DEMAND_TYPE_ID, false ) );
+            assertEquals( 1, NotificationHome.findByDemand( strDemandId, DEMAND_TYPE_ID ).size( ) );
+            assertTrue( NotificationHome.findByDemand( DEMAND_ID_TOO_LONG, DEMAND_TYPE_ID ).isEmpty( ) );
+        }
+        finally
+        {
+            remove( strDemandId );
+        }
+    }
+
+    /**
+     * The batch endpoint acknowledges each item of a failed chunk with its own outcome
+     * 
+     * @throws Exception
+     */
+    public void testBatchReplay( ) throws Exception
+    {
+        String strDemandId = DEMAND_ID_PREFIX + System.nanoTime( );
+        String strBody = "[" + NotificationJsonCodec.instance( ).writeNotification( buildNotification( strDemandId ) ) + ","
+                + NotificationJsonCodec.instance( ).writeNotification( buildNotification( DEMAND_ID_TOO_LONG ) ) + "]";
+
+        try
+        {
+            Response response = NotificationBatchService.instance( )
+                    .newNotifications( new ByteArrayInputStream( strBody.getBytes( StandardCharsets.UTF_8 ) ) );
+            assertEquals( Response.Status.OK.getStatusCode( ), response.getStatus( ) );
+
+            JsonNode acknowledge = new ObjectMapper( ).readTree( (String) response.getEntity( ) ).get( "acknowledge" );
+            assertEquals( 2, acknowledge.size( ) );
+            assertEquals( 0, acknowledge.get( 0 ).get( "index" ).asInt( ) );
+            assertFalse( ACK_STATUS_ERROR.equals( acknowledge.get( 0 ).get( "status" ).asText( ) ) );
+            assertEquals( 1, acknowledge.get( 1 ).get( "index" ).asInt( ) );
+            assertEquals( ACK_STATUS_ERROR, acknowledge.get( 1 ).get( "status" ).asText( ) );
+
+            assertEquals( 1, NotificationHome.findByDemand( strDemandId, DEMAND_TYPE_ID ).size( ) );
+        }
+        finally
+        {
+            remove( strDemandId );
+        }
+    }
+
+    private static Notification buildNotification( String strDemandId )
+    {
+        Customer customer = new Customer( );
+        customer.setId( CUSTOMER_ID );
+
+        Demand demand = new Demand( );
+        demand.setId( strDemandId );
+        demand.setTypeId( DEMAND_TYPE_ID );
+        demand.setReference( DEMAND_REFERENCE );
+        demand.setCustomer( customer );
+
+        Notification notification = new Notification( );
+        notification.setDate( System.currentTimeMillis( ) );
+        notification.setDemand( demand );
+
+        return notification;
+    }
+
+    private static void remove( String strDemandId )
+    {
+        for ( Notification notification : NotificationHome.findByDemand( strDemandId, DEMAND_TYPE_ID ) )
+        {
+            NotificationHome.remove( notification.getId( ) );
+        }
+
+        VersionedDemand demand = DemandHome.getVersionedDemand( strDemandId, DEMAND_TYPE_ID, false );
+        if ( demand != null )
+        {
+            DemandHome.deleteByUid( demand.getDemand( ).getUID( ) );
+        }
+    }
+}
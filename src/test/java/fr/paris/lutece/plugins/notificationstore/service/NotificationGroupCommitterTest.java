@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.core.Response;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the NotificationGroupCommitter. The committer threads are not started : the groups are collected by the test.
+ */
+public class NotificationGroupCommitterTest extends LuteceTestCase
+{
+    private static final String DEMAND_ID = "GroupCommitterDemandId";
+    private static final String DEMAND_TYPE_ID = "GroupCommitterDemandTypeId";
+    private static final long TIMEOUT_MS = 200;
+    private static final long JOIN_MS = 5000;
+
+    /**
+     * A notification not taken by a group before the timeout is withdrawn : it is not committed later
+     * 
+     * @throws Exception
+     */
+    public void testWithdrawOnTimeout( ) throws Exception
+    {
+        NotificationGroupCommitter committer = new NotificationGroupCommitter( true, 0, 10, 1, TIMEOUT_MS, false );
+
+        assertNull( committer.submit( buildNotification( ) ) );
+        assertTrue( committer.collectGroup( 0 ).isEmpty( ) );
+    }
+
+    /**
+     * A notification taken by a group before the timeout waits for the outcome of its group
+     * 
+     * @throws Exception
+     */
+    public void testClaimedNotificationAwaitsCommit( ) throws Exception
+    {
+        NotificationGroupCommitter committer = new NotificationGroupCommitter( true, 0, 10, 1, TIMEOUT_MS, false );
+        AtomicReference<Response> response = new AtomicReference<>( );
+        Thread caller = startCaller( committer, response );
+
+        List<NotificationGroupCommitter.PendingNotification> listGroup = committer.collectGroup( 0 );
+        assertEquals( 1, listGroup.size( ) );
+
+        // the group commit lasts longer than the timeout of the caller
+        Thread.sleep( 2 * TIMEOUT_MS );
+        assertTrue( caller.isAlive( ) );
+
+        listGroup.get( 0 )._future.complete( Response.status( Response.Status.CREATED ).build( ) );
+        caller.join( JOIN_MS );
+
+        assertNotNull( response.get( ) );
+        assertEquals( Response.Status.CREATED.getStatusCode( ), response.get( ).getStatus( ) );
+    }
+
+    /**
+     * The notifications of a demand are routed to the same committer, in their arrival order
+     * 
+     * @throws Exception
+     */
+    public void testRoutingByDemand( ) throws Exception
+    {
+        int nCommitters = 4;
+        NotificationGroupCommitter committer = new NotificationGroupCommitter( true, 0, 10, nCommitters, 10 * JOIN_MS, false );
+        AtomicReference<Response> response1 = new AtomicReference<>( );
+        AtomicReference<Response> response2 = new AtomicReference<>( );
+
+        Thread caller1 = startCaller( committer, response1 );
+        Thread.sleep( TIMEOUT_MS );
+        Thread caller2 = startCaller( committer, response2 );
+        Thread.sleep( TIMEOUT_MS );
+
+        List<NotificationGroupCommitter.PendingNotification> listGroup = null;
+        for ( int i = 0; i < nCommitters; i++ )
+        {
+            List<NotificationGroupCommitter.PendingNotification> listCollected = committer.collectGroup( i );
+            if ( !listCollected.isEmpty( ) )
+            {
+                assertNull( listGroup );
+                listGroup = listCollected;
+            }
+        }
+        assertNotNull( listGroup );
+        assertEquals( 2, listGroup.size( ) );
+
+        listGroup.get( 0 )._future.complete( Response.status( Response.Status.CREATED ).build( ) );
+        listGroup.get( 1 )._future.complete( Response.status( Response.Status.ACCEPTED ).build( ) );
+        caller1.join( JOIN_MS );
+        caller2.join( JOIN_MS );
+
+        assertEquals( Response.Status.CREATED.getStatusCode( ), response1.get( ).getStatus( ) );
+        assertEquals( Response.Status.ACCEPTED.getStatusCode( ), response2.get( ).getStatus( ) );
+    }
+
+    private static Thread startCaller( NotificationGroupCommitter committer, AtomicReference<Response> response )
+    {
+        Notification notification = buildNotification( );
+        Thread caller = new Thread( ( ) -> {
+            try
+            {
+                response.set( committer.submit( notification ) );
+            }
+            catch( Exception e )
+            {
+                throw new IllegalStateException( e );
+            }
+        } );
+        caller.start( );
+
+        return caller;
+    }
+
+    private static Notification buildNotification( )
+    {
+        Demand demand = new Demand( );
+        demand.setId( DEMAND_ID );
+        demand.setTypeId( DEMAND_TYPE_ID );
+
+        Notification notification = new Notification( );
+        notification.setDate( System.currentTimeMillis( ) );
+        notification.setDemand( demand );
+
+        return notification;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the recovery of the NotificationJournal
+ */
+public class NotificationJournalTest extends LuteceTestCase
+{
+    private static final String SEGMENT_NAME_FORMAT = "%020d.journal";
+    private static final int HEADER_BYTES = 24;
+    private static final long DATE = 1700000000000L;
+    private static final byte [ ] PAYLOAD = "{ \"notification\" : { \"demand\" : { \"id\" : \"1\" } } }".getBytes( StandardCharsets.UTF_8 );
+
+    private File _directory;
+
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+        _directory = Files.createTempDirectory( "notificationstore-journal-test" ).toFile( );
+    }
+
+    @Override
+    protected void tearDown( ) throws Exception
+    {
+        File [ ] files = _directory.listFiles( );
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                Files.deleteIfExists( file.toPath( ) );
+            }
+        }
+        Files.deleteIfExists( _directory.toPath( ) );
+        super.tearDown( );
+    }
+
+    /**
+     * A segment of complete records is kept as is
+     * 
+     * @throws IOException
+     */
+    public void testRecoverCompleteSegment( ) throws IOException
+    {
+        File segment = getSegment( 1 );
+        long lLength = write( segment, 1, 2, 3 );
+
+        assertEquals( 3, NotificationJournal.recoverSegment( segment ) );
+        assertEquals( lLength, segment.length( ) );
+    }
+
+    /**
+     * The partial record written before a crash is truncated
+     * 
+     * @throws IOException
+     */
+    public void testRecoverTornTail( ) throws IOException
+    {
+        File segment = getSegment( 1 );
+        long lLength = write( segment, 1, 2, 3 );
+
+        ByteBuffer record = NotificationJournal.toRecord( 4, DATE, PAYLOAD );
+        record.limit( record.limit( ) - 5 );
+        append( segment, record );
+
+        assertEquals( 3, NotificationJournal.recoverSegment( segment ) );
+        assertEquals( lLength, segment.length( ) );
+    }
+
+    /**
+     * A record with an invalid checksum, and the ones following it, are truncated
+     * 
+     * @throws IOException
+     */
+    public void testRecoverInvalidChecksum( ) throws IOException
+    {
+        File segment = getSegment( 1 );
+        long lLength = write( segment, 1, 2 );
+        write( segment, 3, 4 );
+
+        // one byte of the payload of the record 3
+        try ( FileChannel channel = FileChannel.open( segment.toPath( ), StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            long lPosition = lLength + HEADER_BYTES;
+            ByteBuffer buffer = ByteBuffer.allocate( 1 );
+            channel.read( buffer, lPosition );
+            buffer.put( 0, (byte) ( buffer.get( 0 ) ^ 0xFF ) );
+            buffer.rewind( );
+            channel.write( buffer, lPosition );
+        }
+
+        assertEquals( 2, NotificationJournal.recoverSegment( segment ) );
+        assertEquals( lLength, segment.length( ) );
+    }
+
+    /**
+     * A record out of the sequence of the segment is truncated
+     * 
+     * @throws IOException
+     */
+    public void testRecoverSequenceGap( ) throws IOException
+    {
+        File segment = getSegment( 10 );
+        long lLength = write( segment, 10, 11 );
+        write( segment, 13 );
+
+        assertEquals( 11, NotificationJournal.recoverSegment( segment ) );
+        assertEquals( lLength, segment.length( ) );
+    }
+
+    /**
+     * An empty segment ends at the sequence preceding its first one
+     * 
+     * @throws IOException
+     */
+    public void testRecoverEmptySegment( ) throws IOException
+    {
+        File segment = getSegment( 5 );
+        Files.createFile( segment.toPath( ) );
+
+        assertEquals( 4, NotificationJournal.recoverSegment( segment ) );
+        assertEquals( 0, segment.length( ) );
+    }
+
+    private File getSegment( long lFirstSequence )
+    {
+        return new File( _directory, String.format( SEGMENT_NAME_FORMAT, lFirstSequence ) );
+    }
+
+    /**
+     * Append records to a segment
+     * 
+     * @param segment
+     *            the segment
+     * @param sequences
+     *            the sequences of the records
+     * @return the size of the segment
+     * @throws IOException
+     */
+    private static long write( File segment, long... sequences ) throws IOException
+    {
+        for ( long lSequence : sequences )
+        {
+            append( segment, NotificationJournal.toRecord( lSequence, DATE, PAYLOAD ) );
+        }
+
+        return segment.length( );
+    }
+
+    private static void append( File segment, ByteBuffer buffer ) throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( segment.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND ) )
+        {
+            while ( buffer.hasRemaining( ) )
+            {
+                channel.write( buffer );
+            }
+        }
+    }
+}
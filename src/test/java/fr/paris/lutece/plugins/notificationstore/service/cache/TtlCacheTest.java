@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the TtlCache
+ */
+public class TtlCacheTest extends LuteceTestCase
+{
+    private static final String KEY_1 = "key1";
+    private static final String KEY_2 = "key2";
+    private static final String KEY_3 = "key3";
+    private static final String VALUE_1 = "value1";
+
+    /**
+     * Values and not found results are served from the cache
+     */
+    public void testHitAndNegativeCaching( )
+    {
+        TtlCache<String, String> cache = new TtlCache<>( 10, 60000, 60000 );
+        AtomicInteger nLoads = new AtomicInteger( );
+
+        assertEquals( VALUE_1, cache.get( KEY_1, k -> {
+            nLoads.incrementAndGet( );
+            return VALUE_1;
+        } ) );
+        assertEquals( VALUE_1, cache.get( KEY_1, k -> {
+            nLoads.incrementAndGet( );
+            return VALUE_1;
+        } ) );
+        assertNull( cache.get( KEY_2, k -> {
+            nLoads.incrementAndGet( );
+            return null;
+        } ) );
+        assertNull( cache.get( KEY_2, k -> {
+            nLoads.incrementAndGet( );
+            return null;
+        } ) );
+
+        assertEquals( 2, nLoads.get( ) );
+        assertEquals( 2, cache.getHitCount( ) );
+        assertEquals( 2, cache.getMissCount( ) );
+    }
+
+    /**
+     * The least recently used entry is evicted
+     */
+    public void testEviction( )
+    {
+        TtlCache<String, String> cache = new TtlCache<>( 2, 60000, 60000 );
+
+        cache.put( KEY_1, VALUE_1 );
+        cache.put( KEY_2, VALUE_1 );
+        cache.get( KEY_1, k -> VALUE_1 );
+        cache.put( KEY_3, VALUE_1 );
+
+        assertEquals( 2, cache.size( ) );
+        assertEquals( 1, cache.getEvictionCount( ) );
+        assertNull( cache.get( KEY_2, k -> null ) );
+    }
+
+    /**
+     * Expired entries are loaded again, failures are not cached
+     */
+    public void testExpirationAndFailure( ) throws Exception
+    {
+        TtlCache<String, String> cache = new TtlCache<>( 10, 1, 1 );
+        cache.put( KEY_1, VALUE_1 );
+        Thread.sleep( 5 );
+
+        try
+        {
+            cache.get( KEY_1, k -> {
+                throw new Exception( "failure" );
+            } );
+            fail( "the loader exception must be thrown" );
+        }
+        catch( Exception e )
+        {
+            assertEquals( "failure", e.getMessage( ) );
+        }
+
+        assertEquals( 0, cache.size( ) );
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.cache;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the WeightedLruCache
+ */
+public class WeightedLruCacheTest extends LuteceTestCase
+{
+    private static final String KEY_1 = "key1";
+    private static final String KEY_2 = "key2";
+    private static final String KEY_3 = "key3";
+    private static final String VALUE_1 = "value1";
+
+    /**
+     * The least recently used entries are evicted when the maximum weight is reached
+     */
+    public void testEvictionByWeight( )
+    {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>( 100 );
+
+        cache.put( KEY_1, VALUE_1, 40 );
+        cache.put( KEY_2, VALUE_1, 40 );
+        assertEquals( VALUE_1, cache.get( KEY_1 ) );
+        cache.put( KEY_3, VALUE_1, 40 );
+
+        assertNull( cache.get( KEY_2 ) );
+        assertEquals( VALUE_1, cache.get( KEY_1 ) );
+        assertEquals( VALUE_1, cache.get( KEY_3 ) );
+        assertEquals( 80, cache.getWeight( ) );
+        assertEquals( 1, cache.getEvictionCount( ) );
+        assertEquals( 40, cache.getEvictedWeight( ) );
+        assertEquals( 0.75, cache.getHitRatio( ), 0.001 );
+    }
+
+    /**
+     * Oversized values are not cached, invalidated values are removed
+     */
+    public void testOversizedAndInvalidate( )
+    {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>( 100 );
+
+        cache.put( KEY_1, VALUE_1, 101 );
+        assertNull( cache.get( KEY_1 ) );
+
+        cache.put( KEY_2, VALUE_1, 10 );
+        cache.invalidate( KEY_2 );
+        assertNull( cache.get( KEY_2 ) );
+        assertEquals( 0, cache.getWeight( ) );
+        assertEquals( 0, cache.getEvictionCount( ) );
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the content codecs
+ */
+public class DeflateCodecTest extends LuteceTestCase
+{
+    private static final byte [ ] CONTENT = "{\"status_id\":1,\"status_text\":\"En cours\",\"message\":\"Votre demande est en cours de traitement\"}"
+            .getBytes( StandardCharsets.UTF_8 );
+    private static final byte [ ] DICTIONARY = "{\"status_id\":2,\"status_text\":\"En cours\",\"message\":\"Votre demande est en cours de traitement\"}"
+            .getBytes( StandardCharsets.UTF_8 );
+
+    /**
+     * The contents are decoded as encoded, with or without dictionary
+     * 
+     * @throws IOException
+     */
+    public void testRoundTrip( ) throws IOException
+    {
+        for ( IContentCodec codec : Arrays.asList( new IdentityCodec( ), new GzipCodec( ), new DeflateCodec( ) ) )
+        {
+            assertTrue( Arrays.equals( CONTENT, codec.decode( codec.encode( CONTENT, null ), null ) ) );
+            assertTrue( Arrays.equals( CONTENT, codec.decode( codec.encode( CONTENT, DICTIONARY ), DICTIONARY ) ) );
+        }
+    }
+
+    /**
+     * A dictionary close to the content improves the compression, and is required to decode
+     * 
+     * @throws IOException
+     */
+    public void testDictionary( ) throws IOException
+    {
+        DeflateCodec codec = new DeflateCodec( );
+        byte [ ] withDictionary = codec.encode( CONTENT, DICTIONARY );
+
+        assertTrue( withDictionary.length < codec.encode( CONTENT, null ).length );
+
+        try
+        {
+            codec.decode( withDictionary, null );
+            fail( "the content should not be decoded without its dictionary" );
+        }
+        catch( IOException e )
+        {
+            // expected
+        }
+    }
+}
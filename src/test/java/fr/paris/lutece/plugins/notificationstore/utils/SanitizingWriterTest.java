@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SanitizingWriter
+ */
+public class SanitizingWriterTest extends LuteceTestCase
+{
+    private static final String [ ] CONTENTS = {
+            "{\"message\":\"Votre demande n° 12 est traitée – 20 €\"}", "emoji 😀 removed, \u0001 control removed, \t\r\n kept",
+            "unpaired \ud83d surrogate", "unpaired low \ude00 surrogate", "trailing high surrogate \ud83d"
+    };
+
+    /**
+     * The writer removes the same characters as the regular expression filter
+     * 
+     * @throws IOException
+     */
+    public void testSameAsRegularExpression( ) throws IOException
+    {
+        for ( String strContent : CONTENTS )
+        {
+            StringWriter out = new StringWriter( );
+            try ( Writer writer = new SanitizingWriter( out ) )
+            {
+                writer.write( strContent );
+            }
+
+            assertEquals( strContent.replaceAll( NotificationStoreConstants.CHARECTER_REGEXP_FILTER, "" ), out.toString( ) );
+        }
+    }
+}